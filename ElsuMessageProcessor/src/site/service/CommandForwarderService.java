@@ -9,6 +9,7 @@ import elsu.network.application.*;
 import java.io.*;
 import java.net.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * CommandForwarderServiceAbstract class provide delivery of notification
@@ -64,6 +65,11 @@ public class CommandForwarderService extends AbstractService implements IService
 
     // storage to track if the monitor is running
     private volatile boolean _isMonitorRunning = false;
+
+    // storage for the connectors to the site equipment, sites which fail to
+    // connect are skipped until their backoff delay expires
+    private final ConcurrentHashMap<String, OutboundConnector> _siteConnectors
+            = new ConcurrentHashMap<>();
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -161,6 +167,30 @@ public class CommandForwarderService extends AbstractService implements IService
         return this._clientPort;
     }
 
+    /**
+     * getSiteConnector(...) method returns the connector to the site
+     * equipment, the connector is created on first use.
+     *
+     * @param siteIp
+     * @return <code>OutboundConnector</code> connector to the site
+     */
+    private OutboundConnector getSiteConnector(String siteIp) {
+        OutboundConnector result = this._siteConnectors.get(siteIp);
+
+        if (result == null) {
+            OutboundConnector connector = createOutboundConnector(
+                    "site:" + siteIp, Arrays.asList(siteIp), getClientPort(),
+                    null);
+
+            result = this._siteConnectors.putIfAbsent(siteIp, connector);
+            if (result == null) {
+                result = connector;
+            }
+        }
+
+        return result;
+    }
+
     /**
      * getConnectionTerminator() method returns the string value of the
      * connection terminator which when received closes the connection to the
@@ -303,7 +333,7 @@ public class CommandForwarderService extends AbstractService implements IService
 
             // using database manager, execute the procedure with parameters
             dbConn = getDBManager().getConnection();
-            DatabaseUtils.executeProcedure(dbConn,
+            executeProcedure(dbConn,
                     "{call pClearPendingNotifier(?)}",
                     params);
             getDBManager().releaseConnection(dbConn);
@@ -357,7 +387,7 @@ public class CommandForwarderService extends AbstractService implements IService
 
             // using database manager, execute the procedure with parameters
             dbConn = getDBManager().getConnection();
-            result = DatabaseUtils.executeProcedure(
+            result = executeProcedure(
                     dbConn, "{call pGetPendingNotifierCnt(?,?)}", params);
             getDBManager().releaseConnection(dbConn);
         } catch (Exception ex) {
@@ -408,7 +438,7 @@ public class CommandForwarderService extends AbstractService implements IService
 
             // using database manager, execute the procedure with parameters
             dbConn = getDBManager().getConnection();
-            DatabaseUtils.executeProcedure(
+            executeProcedure(
                     dbConn, "{call pUpdatePendingNotifier(?, ?)}", params);
             getDBManager().releaseConnection(dbConn);
         } catch (Exception ex) {
@@ -467,13 +497,28 @@ public class CommandForwarderService extends AbstractService implements IService
         }
     }
 
+    /**
+     * scheduleMonitor() method schedules the monitor connection to be created
+     * on the service timer after the idle timeout; a thread is not held while
+     * there are no messages pending.
+     */
+    private void scheduleMonitor() {
+        getTimer().newTimeout(new ITimeoutTask() {
+            @Override
+            public void expired(WheelTimeout timeout) throws Exception {
+                checkConnections();
+            }
+        }, getIdleTimeout(), this);
+    }
+
     /**
      * server(...) method provides support for processing custom connections.
      * ServiceAbstract manages two types of actions: monitor and sender.
      * <p>
      * Monitor action is performed by non socket connection. Here the connection
-     * continues to loop until the service terminates and keeps monitoring the
-     * database for outbound messages.
+     * loops while there are outbound messages pending in the database; when
+     * none are pending it exits and the monitor is rescheduled on the service
+     * timer.
      *
      * If there are pending outbound messages, the message delivery information
      * is retrieved and socket connection is established for delivery.
@@ -495,13 +540,13 @@ public class CommandForwarderService extends AbstractService implements IService
         if (cConn.getClient() == null) {
             // capture any exceptions to prevent resource leaks
             try {
-                // loop as long as the service is running
+                // loop as long as the service is running and there are
+                // messages pending
                 while (isRunning()) {
                     // are there any pending messages to send, if none, then
-                    // yield processing to other thread and continue
+                    // exit; the monitor is rescheduled on the service timer
                     if (getPendingNotifierCount(0) == 0) {
-                        Thread.sleep(getIdleTimeout());
-                        continue;
+                        break;
                     }
 
                     // local variables for processing of messages
@@ -521,7 +566,7 @@ public class CommandForwarderService extends AbstractService implements IService
                     // using database manager, execute the procedure with parameters
                     Map<String, Object> result = null;
                     dbConn = getDBManager().getConnection();
-                    result = DatabaseUtils.executeProcedure(
+                    result = executeProcedure(
                             dbConn, "{call pGetPendingNotifier(?,?)}", params);
                     getDBManager().releaseConnection(dbConn);
 
@@ -539,9 +584,10 @@ public class CommandForwarderService extends AbstractService implements IService
                             // if siteId is valid, then create socket to send
                             // the messages to the site equipment
                             if (siteId != 0) {
-                                // create connection to the host address / port
-                                Socket client = new Socket(siteIp,
-                                        getClientPort());
+                                // create connection to the host address / port,
+                                // fails fast if the site is in backoff
+                                Socket client = getSiteConnector(siteIp)
+                                        .connect();
 
                                 // assign the socket to the service connection
                                 Connection dsConn
@@ -591,21 +637,20 @@ public class CommandForwarderService extends AbstractService implements IService
                 // update connection state to false
                 cConn.isActive(false);
 
-                // if the service is still running, check connections to restart
+                // if the service is still running, schedule the monitor to
+                // restart after the idle timeout
                 if (isRunning()) {
-                    checkConnections();
+                    scheduleMonitor();
                 }
             }
         } else {
             // local parameter for reader thread access, passes the socket in 
             // stream
-            BufferedReader in = new BufferedReader(new InputStreamReader(
-                    cConn.getClient().getInputStream()));
+            RecordReader in = createRecordReader(cConn);
 
             // local parameter for reader thread access, passes the socket out 
             // stream
-            PrintWriter out = new PrintWriter(new BufferedWriter(
-                    new OutputStreamWriter(cConn.getClient().getOutputStream())));
+            RecordWriter out = createRecordWriter(cConn, in);
 
             // extract the siteId from the parameters stored from monitor
             int siteId = Integer.parseInt(
@@ -633,7 +678,7 @@ public class CommandForwarderService extends AbstractService implements IService
                     // using database manager, execute the procedure with parameters
                     Map<String, Object> result = null;
                     dbConn = getDBManager().getConnection();
-                    result = DatabaseUtils.executeProcedure(
+                    result = executeProcedure(
                             dbConn, "{call pRetrievePendingNotifier(?,?,?,?)}",
                             params);
                     getDBManager().releaseConnection(dbConn);
@@ -645,11 +690,17 @@ public class CommandForwarderService extends AbstractService implements IService
                             break;
                         }
 
+                        // trace the forwarding of the message and the reply
+                        // record read from the client service
+                        ITraceSpan recordSpan = ServiceTrace.beginRecord(this,
+                                cConn);
+                        long received = 0L;
+
                         // capture any exceptions to prevent resource leaks
                         try {
                             // log info for tracking
-                            logDebug("DB -> CS, "
-                                    + getServiceConfig().getConnectionPort());
+                            logDebug("DB -> CS, {}",
+                                    getServiceConfig().getConnectionPort());
 
                             // extract the message from the params
                             int messageId = Integer.parseInt(result.get(
@@ -659,8 +710,8 @@ public class CommandForwarderService extends AbstractService implements IService
                             String message = result.get("message").toString();
 
                             // log info for tracking
-                            logDebug("DB -> CS, MSG, " + equipmentId + ", "
-                                    + messageId + ", " + message);
+                            logDebug("DB -> CS, MSG, {}, {}, {}", equipmentId,
+                                    messageId, message);
 
                             // format the message object using the results from
                             // the query
@@ -676,12 +727,17 @@ public class CommandForwarderService extends AbstractService implements IService
 
                             // read the input from the client service
                             String line = in.readLine();
+                            if (line != null) {
+                                received = line.length();
+                            }
 
                             // clear the site messages which have been sent
                             updatePendingNotifier(0, messageId);
                         } catch (Exception ex) {
                             // throw exception if there is error with the data
                             throw new Exception("invalid data/message retrieval");
+                        } finally {
+                            recordSpan.end(received, 0L);
                         }
                     } else {
                         // no pending messages for site
@@ -767,5 +823,27 @@ public class CommandForwarderService extends AbstractService implements IService
         // start the monitoring connection
         checkConnections();
     }
+
+    /**
+     * executeProcedure(...) method calls the stored procedure through the
+     * database utilities; the call is traced with the procedure name.
+     *
+     * @param dbConn
+     * @param procedure
+     * @param params
+     * @return <code>Map</code> of the output parameters
+     * @throws Exception
+     */
+    private Map<String, Object> executeProcedure(java.sql.Connection dbConn,
+            String procedure, ArrayList<DatabaseParameter> params)
+            throws Exception {
+        ITraceSpan span = ServiceTrace.beginDatabaseCall(this, procedure);
+
+        try {
+            return DatabaseUtils.executeProcedure(dbConn, procedure, params);
+        } finally {
+            span.end(0L, 0L);
+        }
+    }
     // </editor-fold>
 }
@@ -269,13 +269,11 @@ public class MessageStorageService extends AbstractService implements IService {
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
         // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        final RecordWriter out = createRecordWriter(cConn, in);
         java.sql.Connection dbConn = null;
 
         // capture any exceptions to prevent resource leaks
@@ -295,12 +293,14 @@ public class MessageStorageService extends AbstractService implements IService {
                 // increase total messages received
                 increaseTotalMessagesReceived();
 
+                // trace the processing of the record
+                ITraceSpan recordSpan = ServiceTrace.beginRecord(this, cConn);
+
                 // capture any exceptions to prevent resource leaks
                 try {
                     // log info for tracking
-                    logDebug("MSG -> DB, "
-                            + getServiceConfig().getConnectionPort() + ", "
-                            + line);
+                    logDebug("MSG -> DB, {}, {}",
+                            getServiceConfig().getConnectionPort(), line);
 
                     // split received data and store it in array
                     String[] lineData = line.split(Pattern.quote(
@@ -362,7 +362,7 @@ public class MessageStorageService extends AbstractService implements IService {
 
                         try {
                             dbConn = getDBManager().getConnection();
-                            result = DatabaseUtils.executeProcedure(
+                            result = executeProcedure(
                                     dbConn,
                                     "{call ncs3.pMessageStore(?,?,?,?,?,?,?,?,?)}",
                                     params);
@@ -440,6 +440,8 @@ public class MessageStorageService extends AbstractService implements IService {
                     if (criticalError) {
                         throw new Exception(ex);
                     }
+                } finally {
+                    recordSpan.end(line.length(), 0L);
                 }
 
                 // yield processing to other threads
@@ -498,5 +500,27 @@ public class MessageStorageService extends AbstractService implements IService {
             shutdown();
         }
     }
+
+    /**
+     * executeProcedure(...) method calls the stored procedure through the
+     * database utilities; the call is traced with the procedure name.
+     *
+     * @param dbConn
+     * @param procedure
+     * @param params
+     * @return <code>Map</code> of the output parameters
+     * @throws Exception
+     */
+    private Map<String, Object> executeProcedure(java.sql.Connection dbConn,
+            String procedure, ArrayList<DatabaseParameter> params)
+            throws Exception {
+        ITraceSpan span = ServiceTrace.beginDatabaseCall(this, procedure);
+
+        try {
+            return DatabaseUtils.executeProcedure(dbConn, procedure, params);
+        } finally {
+            span.end(0L, 0L);
+        }
+    }
     // </editor-fold>
 }
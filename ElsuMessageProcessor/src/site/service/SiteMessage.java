@@ -1,6 +1,7 @@
 package site.service;
 
 import elsu.common.*;
+import elsu.network.services.core.CoarseClock;
 import java.util.*;
 import java.util.regex.*;
 import site.core.SiteMessageAbstract;
@@ -30,8 +31,8 @@ public class SiteMessage extends SiteMessageAbstract {
     // <editor-fold desc="class private storage">
     // stores the site id related to the message
     private int _siteId = 0;
-    // stores the message date
-    private Date _messageDate = null;
+    // stores the message date (ms), the Date object is created when requested
+    private long _messageDate = 0L;
     // stores the equipment id related to the message
     private int _equipmentId = 0;
     // stores the message
@@ -48,7 +49,7 @@ public class SiteMessage extends SiteMessageAbstract {
         super();
 
         // assign current time to the message date field
-        setMessageDate(Calendar.getInstance().getTime());
+        this._messageDate = CoarseClock.currentTimeMillis();
     }
 
     /**
@@ -67,7 +68,7 @@ public class SiteMessage extends SiteMessageAbstract {
         this._siteId = siteId;
 
         // assign current time to the message date field
-        setMessageDate(Calendar.getInstance().getTime());
+        this._messageDate = CoarseClock.currentTimeMillis();
 
         // save the equipment id passed related the message
         this._equipmentId = equipmentId;
@@ -96,7 +97,7 @@ public class SiteMessage extends SiteMessageAbstract {
         this._siteId = siteId;
 
         // assign current time to the message date field
-        setMessageDate(Calendar.getInstance().getTime());
+        this._messageDate = CoarseClock.currentTimeMillis();
 
         // save the equipment id passed related the message
         this._equipmentId = equipmentId;
@@ -113,6 +114,16 @@ public class SiteMessage extends SiteMessageAbstract {
      * @return <code>date</code> object of the message
      */
     public Date getMessageDate() {
+        return CoarseClock.toDate(this._messageDate);
+    }
+
+    /**
+     * getMessageTime() method returns the date assigned for the message in
+     * milliseconds.
+     *
+     * @return <code>long</code> time of the message
+     */
+    public long getMessageTime() {
         return this._messageDate;
     }
 
@@ -123,7 +134,7 @@ public class SiteMessage extends SiteMessageAbstract {
      * @param date
      */
     private void setMessageDate(Date date) {
-        this._messageDate = date;
+        this._messageDate = (date == null) ? 0L : date.getTime();
     }
 
     /**
@@ -134,7 +145,7 @@ public class SiteMessage extends SiteMessageAbstract {
      * @param format
      */
     public void setMessageDate(String date, String format) {
-        this._messageDate = DateUtils.convertString2Date(date, format);
+        setMessageDate(DateUtils.convertString2Date(date, format));
     }
 
     /**
@@ -8,6 +8,8 @@ import elsu.network.services.core.*;
 import elsu.support.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 public class AbstractServiceManager extends AbstractEventManager implements IEventPublisher, IEventSubscriber {
 
@@ -16,12 +18,22 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
     private Object _runtimeSync = new Object();
     // configuration reference object
     private ConfigLoader _config = null;
-    // hashMap to track all services created 
-    private volatile Map<Integer, IService> _services;
+    // registry to track all services created, indexed by port and name
+    private final ServiceRegistry _services = new ServiceRegistry();
+    // dispatcher delivering the lifecycle events to the target service
+    private final ServiceEventDispatcher _eventDispatcher
+            = new ServiceEventDispatcher(this);
+    // lifecycle events are queued for the service instead of being delivered
+    // on the caller thread
+    private volatile boolean _isEventAsync = false;
+    // new socket connections are refused by the services, set by the memory
+    // monitor when the heap pressure is critical
+    private volatile boolean _isAcceptPaused = false;
     // master connection limit
     private volatile int _maximumConnections;
-    // total active connections
-    private volatile int _serviceConnections = 0;
+    // total active connections; updated once per connection and reserved
+    // with a compare and set against the master connection limit
+    private final AtomicInteger _serviceConnections = new AtomicInteger(0);
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -85,7 +97,19 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
                     + ex.getMessage());
         }
 
-        this._services = new HashMap<>();
+        // asynchronous lifecycle events are optional, the default is to start
+        // and stop the services on the caller thread
+        try {
+            Object eventAsync = getConfig().getProperty(
+                    "application.framework.attributes.key.service.event.async");
+            if (eventAsync != null) {
+                this._isEventAsync = Boolean.valueOf(eventAsync.toString());
+            }
+        } catch (Exception ex) {
+            logError(getClass().toString()
+                    + ", initializeLocalProperties(), invalid service.event.async, "
+                    + ex.getMessage());
+        }
     }
     // </editor-fold>
 
@@ -191,33 +215,8 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
      * @return  <code>AbstractService</code> object
      */
     public IService getService(String serviceName) {
-        IService result = null;
-
-        // do not use iterator as changes to the hashMap can cause exceptions
-        // when modified while looping
-        ArrayList<Integer> svcList;
-        synchronized (this._runtimeSync) {
-            svcList = new ArrayList<>(getServices().keySet());
-        }
-
-        // loop through the list of services and see if any match the name
-        // provided
-        for (Integer key : svcList) {
-            synchronized (this._runtimeSync) {
-                // key = port for the service
-                IService service = (IService) getServices().get(key);
-
-                if (service.getServiceConfig().getServiceName().equals(serviceName)) {
-                    result = service;
-                    break;
-                }
-            }
-
-            // yield processing to other threads
-            Thread.yield();
-        }
-
-        return result;
+        // lookup the name index of the registry, does not lock
+        return getServiceRegistry().getService(serviceName);
     }
 
     /**
@@ -230,30 +229,67 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
      * @return  <code>AbstractService</code> object
      */
     public IService getService(int port) {
-        IService result = null;
-
-        // do not use iterator as changes to the hashMap can cause exceptions
-        // when modified while looping
-        synchronized (this._runtimeSync) {
-            result = (IService) getServices().get(port);
-        }
-
-        return result;
+        // lookup the port index of the registry, does not lock
+        return getServiceRegistry().getService(port);
     }
 
     /**
-     * getServiceAbstracts() returns the hashMap containing the services.
+     * getServiceAbstracts() returns a read only view of the services indexed
+     * by port; the view can be iterated while services are added or removed.
      *
      * @return <code>Map</code> of the services
      */
     public Map<Integer, IService> getServices() {
-        Map<Integer, IService> result = null;
+        return getServiceRegistry().getServices();
+    }
 
-        synchronized (this._runtimeSync) {
-            result = this._services;
-        }
+    /**
+     * getServiceRegistry() returns the registry which indexes the services by
+     * port and by name.
+     *
+     * @return <code>ServiceRegistry</code>
+     */
+    public ServiceRegistry getServiceRegistry() {
+        return this._services;
+    }
 
-        return result;
+    /**
+     * getEventDispatcher() returns the dispatcher which delivers the lifecycle
+     * events to the services.
+     *
+     * @return <code>ServiceEventDispatcher</code>
+     */
+    public ServiceEventDispatcher getEventDispatcher() {
+        return this._eventDispatcher;
+    }
+
+    /**
+     * isEventAsync() returns true if the lifecycle events are queued for the
+     * service; addService(...), startService(...) and removeService(...)
+     * return before the service has started or stopped.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isEventAsync() {
+        return this._isEventAsync;
+    }
+
+    public void isEventAsync(boolean async) {
+        this._isEventAsync = async;
+    }
+
+    /**
+     * isAcceptPaused() returns true if the services refuse the new socket
+     * connections; services which ignore the connection limit still accept.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isAcceptPaused() {
+        return this._isAcceptPaused;
+    }
+
+    public void isAcceptPaused(boolean paused) {
+        this._isAcceptPaused = paused;
     }
 
     /**
@@ -265,13 +301,7 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
      * @return <code>int</code> total value stored
      */
     public int getServiceConnections() {
-        int result = 0;
-
-        synchronized (this._runtimeSync) {
-            result = this._serviceConnections;
-        }
-
-        return result;
+        return this._serviceConnections.get();
     }
 
     /**
@@ -279,9 +309,7 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
      * when there is a change in the state of the connection.
      */
     public void decreaseServiceConnections() {
-        synchronized (this._runtimeSync) {
-            this._serviceConnections--;
-        }
+        this._serviceConnections.decrementAndGet();
     }
 
     /**
@@ -289,8 +317,28 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
      * when there is a change in the state of the connection.
      */
     public void increaseServiceConnections() {
-        synchronized (this._runtimeSync) {
-            this._serviceConnections++;
+        this._serviceConnections.incrementAndGet();
+    }
+
+    /**
+     * increaseServiceConnections(...) reserves a connection if the count is
+     * below the maximum (0 is no limit); the check and the increase are one
+     * atomic step so concurrent services cannot exceed the limit.
+     *
+     * @param maximum
+     * @return <code>boolean</code> true if the connection was reserved
+     */
+    public boolean increaseServiceConnections(int maximum) {
+        for (;;) {
+            int current = this._serviceConnections.get();
+
+            if ((maximum != 0) && (current >= maximum)) {
+                return false;
+            }
+
+            if (this._serviceConnections.compareAndSet(current, current + 1)) {
+                return true;
+            }
         }
     }
     // </editor-fold>
@@ -332,26 +380,49 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
             return;
         }
 
-        // new service, store the service object with port as its key
-        synchronized (this._runtimeSync) {
-            getServices().put(port, service);
+        // new service, store the service object with port and name as its
+        // keys; the registration fails if another thread registered the port
+        // or name since the checks
+        if (!getServiceRegistry().register(service)) {
+            logError(getClass().toString() + "//addService//Port " + port
+                    + " or name " + serviceName + " already in use");
+            return;
         }
 
-        // set notification to services with factory reference
-        notifyListeners(this, EventStatusType.INITIALIZE, null, service);
-
         // check the service startup type, if Automatic, notify service to 
         // start.  start() is a overloaded method from base service and allows
         // services to perform pre-setup before connections are active
-        if ((service.getServiceConfig().getStartupType()
+        boolean isStartRequired = (service.getServiceConfig().getStartupType()
                 == ServiceStartupType.AUTOMATIC)
                 || (service.getServiceConfig().getStartupType()
-                == ServiceStartupType.SYSTEM)) {
-            //service.start();
-            Object status = notifyListeners(this, EventStatusType.START, null, service);
-            if (status instanceof Exception) {
-                throw new Exception((Exception) status);
+                == ServiceStartupType.SYSTEM);
+
+        if (isEventAsync()) {
+            // queue the notifications for the service, the errors are logged
+            // by the dispatcher
+            getEventDispatcher().dispatchAsync(service,
+                    EventStatusType.INITIALIZE, null);
+
+            if (isStartRequired) {
+                getEventDispatcher().dispatchAsync(service,
+                        EventStatusType.START, null);
+            }
+        } else {
+            // set notification to service with factory reference
+            getEventDispatcher().dispatch(service, EventStatusType.INITIALIZE,
+                    null);
+
+            if (isStartRequired) {
+                //service.start();
+                Object status = getEventDispatcher().dispatch(service,
+                        EventStatusType.START, null);
+                if (status instanceof Exception) {
+                    throw new Exception((Exception) status);
+                }
             }
+        }
+
+        if (isStartRequired) {
 
             logInfo(getClass().toString() + ", addService(), starting service "
                     + service.getClass().getName()
@@ -388,15 +459,20 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
         // send signal to the service to shutdown before we remove it from 
         // the service list to prevent orphanded services
         //service.shutdown();
-        notifyListeners(this, EventStatusType.SHUTDOWN, null, service);
+        if (isEventAsync()) {
+            getEventDispatcher().dispatchAsync(service,
+                    EventStatusType.SHUTDOWN, null);
+        } else {
+            getEventDispatcher().dispatch(service, EventStatusType.SHUTDOWN,
+                    null);
+        }
 
         // if delete = true, remove the service from the service list
         // permanently.  This remove the service config and therefore, once
         // removed, the service cannot be restarted.
         if (delete) {
-            synchronized (this._runtimeSync) {
-                getServices().remove(key);
-            }
+            getServiceRegistry().unregister(key);
+            getEventDispatcher().remove(service);
         }
 
         // log the action
@@ -437,9 +513,15 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
         // start the service else skip and continue.
         if (!service.isRunning()) {
             //service.start();
-            Object status = notifyListeners(this, EventStatusType.START, null, service);
-            if (status instanceof Exception) {
-                throw new Exception((Exception) status);
+            if (isEventAsync()) {
+                getEventDispatcher().dispatchAsync(service,
+                        EventStatusType.START, null);
+            } else {
+                Object status = getEventDispatcher().dispatch(service,
+                        EventStatusType.START, null);
+                if (status instanceof Exception) {
+                    throw new Exception((Exception) status);
+                }
             }
 
             logInfo(getClass().toString()
@@ -502,13 +584,7 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
     }
 
     public boolean isRunning(int port) {
-        boolean result = false;
-
-        synchronized (this._runtimeSync) {
-            result = ((IService) getServices().get(port)).isRunning();
-        }
-
-        return result;
+        return getService(port).isRunning();
     }
 
     public boolean isRunning(String serviceName) {
@@ -525,6 +601,10 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
     /**
      * shutdownServiceAbstracts() method is used to allow application to
      * gracefully signal shutdown to all running services.
+     * <p>
+     * The services are shut down in parallel, each service drains its
+     * connections for its drainTimeout; the method returns when all services
+     * have completed the shutdown.
      */
     public void shutdownServices() {
         // collect the list of all services into array list for processing
@@ -533,18 +613,44 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
         List<IService> serviceList;
         serviceList = new ArrayList<>(getServices().values());
 
+        // capture the shutdown start to report the shutdown time
+        long shutdownStart = System.currentTimeMillis();
+
+        // results of the service shutdown queued on the event dispatcher
+        List<Future<Object>> shutdownResults = new ArrayList<>();
+
         // loop through all the services in the service list
         for (IService service : serviceList) {
-            // if the service is running, call the shutdown() method for the
-            // service.s
+            // if the service is running, queue the shutdown for the service,
+            // the services are stopped in parallel
             if (service.isRunning()) {
                 //service.shutdown();
-                notifyListeners(this, EventStatusType.SHUTDOWN, null, service);
+                shutdownResults.add(getEventDispatcher().dispatchAsync(
+                        service, EventStatusType.SHUTDOWN, null));
             }
 
             // yield processing to other threads
             Thread.yield();
         }
+
+        // wait for all the services to complete the shutdown, the wait is
+        // bounded by the drain timeout of each service
+        for (Future<Object> shutdownResult : shutdownResults) {
+            try {
+                shutdownResult.get();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (ExecutionException ex) {
+                logError(getClass().toString() + ", shutdownServices(), "
+                        + ex.getMessage());
+            }
+        }
+
+        // log the action
+        logInfo(getClass().toString() + ", shutdownServices(), "
+                + shutdownResults.size() + " service(s) stopped in "
+                + (System.currentTimeMillis() - shutdownStart) + " ms");
     }
     // </editor-fold>
 
@@ -630,20 +736,9 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
         result.append("<services>")
                 .append("<size>").append(getServices().size()).append("</size>");
 
-        // collect the list of all services into array list for processing
-        // do not use iterator since control service can change the scope
-        // of the iterate and will result in exceptions.
-        ArrayList<Integer> svcList;
-        svcList = new ArrayList<>(getServices().keySet());
-
-        // loop through all the services in the service list
-        for (Integer key : svcList) {
-            // get the service port and service object for the port
-            // Integer key = Integer.parseInt(svc.toString());
-
-            // key = port for the service
-            IService service = (IService) getServices().get(key);
-
+        // loop through all the services in the service list, the registry
+        // view can be iterated while the control service changes the services
+        for (IService service : getServices().values()) {
             // call the service toString() method to get the service
             // string representation
             result.append(service.toString());
@@ -657,6 +752,9 @@ public class AbstractServiceManager extends AbstractEventManager implements IEve
 
         result.append("<maxConnections>").append(getMaximumConnections()).append("</maxConnections>");
         result.append("<active>").append(getServiceConnections()).append("</active>");
+        result.append("<eventAsync>").append(isEventAsync()).append("</eventAsync>");
+        result.append("<acceptPaused>").append(isAcceptPaused()).append("</acceptPaused>");
+        result.append("<eventDispatcher>").append(getEventDispatcher().toString()).append("</eventDispatcher>");
 
         // close the object representation
         result.append("</object>");
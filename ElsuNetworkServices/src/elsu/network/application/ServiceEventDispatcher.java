@@ -0,0 +1,244 @@
+package elsu.network.application;
+
+import elsu.events.*;
+import elsu.network.services.core.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * ServiceEventDispatcher class delivers the service manager lifecycle events
+ * (INITIALIZE, START, SHUTDOWN) to the service the event is for. The
+ * notifyListeners(...) broadcast calls every subscribed service for each
+ * event; the dispatcher calls only the target service EventHandler(...).
+ * <p>
+ * dispatch(...) calls the handler on the caller thread. dispatchAsync(...)
+ * queues the event on the target service queue; the events of a service are
+ * delivered in order by one thread at a time and the events of different
+ * services are delivered in parallel, a slow service does not block the
+ * manager or the other services.
+ *
+ * @see AbstractServiceManager
+ */
+public class ServiceEventDispatcher {
+
+    // <editor-fold desc="class private storage">
+    // sender passed to the service event handlers
+    private final AbstractServiceManager _manager;
+
+    // event queue of each service
+    private final ConcurrentHashMap<IService, SubscriberQueue> _queues
+            = new ConcurrentHashMap<>();
+
+    // threads delivering the queued events, created on demand
+    private final ExecutorService _executor;
+
+    // total # of events delivered and the # of events which failed
+    private final AtomicLong _totalEvents = new AtomicLong(0);
+    private final AtomicLong _totalEventsErrored = new AtomicLong(0);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public ServiceEventDispatcher(AbstractServiceManager manager) {
+        this._manager = manager;
+
+        final AtomicInteger threadSequence = new AtomicInteger(0);
+        this._executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread result = new Thread(r, "ServiceEvent:"
+                        + threadSequence.incrementAndGet());
+                result.setDaemon(true);
+
+                return result;
+            }
+        });
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public long getTotalEvents() {
+        return this._totalEvents.get();
+    }
+
+    public long getTotalEventsErrored() {
+        return this._totalEventsErrored.get();
+    }
+
+    /**
+     * getPendingEvents() method returns the # of events queued and not yet
+     * delivered for all services.
+     *
+     * @return <code>int</code>
+     */
+    public int getPendingEvents() {
+        int result = 0;
+
+        for (SubscriberQueue queue : this._queues.values()) {
+            result += queue.size();
+        }
+
+        return result;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * dispatch(...) method delivers the event to the service on the caller
+     * thread and returns the handler result (the exception raised by the
+     * service, if any).
+     *
+     * @param service
+     * @param status
+     * @param message
+     * @return <code>Object</code> result of the service EventHandler(...)
+     */
+    public Object dispatch(IService service, IEventStatusType status,
+            String message) {
+        // services which do not subscribe to events are ignored
+        if (!(service instanceof IEventSubscriber)) {
+            return null;
+        }
+
+        Object result = ((IEventSubscriber) service).EventHandler(
+                this._manager, status, message, service);
+
+        // update the event counters, the handlers return the exceptions
+        this._totalEvents.incrementAndGet();
+        if (result instanceof Exception) {
+            this._totalEventsErrored.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * dispatchAsync(...) method queues the event for the service and returns
+     * the future of the handler result; the events of a service are
+     * delivered in the order queued.
+     *
+     * @param service
+     * @param status
+     * @param message
+     * @return <code>Future</code> result of the service EventHandler(...)
+     */
+    public Future<Object> dispatchAsync(final IService service,
+            final IEventStatusType status, final String message) {
+        FutureTask<Object> task = new FutureTask<>(new Callable<Object>() {
+            @Override
+            public Object call() {
+                Object result = dispatch(service, status, message);
+
+                // log the failure, the caller may not wait for the result
+                if (result instanceof Exception) {
+                    _manager.logError(
+                            ServiceEventDispatcher.this.getClass().toString()
+                            + ", dispatchAsync(), " + status.getName()
+                            + " of " + service.getServiceConfig().getServiceName()
+                            + ", " + ((Exception) result).getMessage());
+                }
+
+                return result;
+            }
+        });
+
+        getQueue(service).add(task);
+        return task;
+    }
+
+    /**
+     * remove(...) method removes the event queue of the service; the events
+     * already queued are delivered.
+     *
+     * @param service
+     */
+    public void remove(IService service) {
+        this._queues.remove(service);
+    }
+
+    /**
+     * shutdown() method stops the threads once the queued events have been
+     * delivered.
+     */
+    public void shutdown() {
+        this._executor.shutdown();
+    }
+
+    /**
+     * getQueue(...) method returns the event queue of the service, creating
+     * it on first use.
+     *
+     * @param service
+     * @return <code>SubscriberQueue</code>
+     */
+    private SubscriberQueue getQueue(IService service) {
+        SubscriberQueue result = this._queues.get(service);
+
+        if (result == null) {
+            SubscriberQueue queue = new SubscriberQueue();
+
+            result = this._queues.putIfAbsent(service, queue);
+            if (result == null) {
+                result = queue;
+            }
+        }
+
+        return result;
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<totalEvents>").append(getTotalEvents()).append("</totalEvents>");
+        result.append("<totalEventsErrored>").append(getTotalEventsErrored()).append("</totalEventsErrored>");
+        result.append("<pendingEvents>").append(getPendingEvents()).append("</pendingEvents>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+
+    /**
+     * SubscriberQueue class stores the events queued for a service; the queue
+     * is scheduled on the executor when the first event is added and runs
+     * until the queue is empty.
+     */
+    private class SubscriberQueue implements Runnable {
+
+        // events waiting to be delivered
+        private final Queue<FutureTask<Object>> _events
+                = new ConcurrentLinkedQueue<>();
+        // # of events queued, the queue is scheduled on the 0 to 1 change
+        private final AtomicInteger _size = new AtomicInteger(0);
+
+        int size() {
+            return this._size.get();
+        }
+
+        void add(FutureTask<Object> task) {
+            this._events.add(task);
+
+            if (this._size.getAndIncrement() == 0) {
+                try {
+                    _executor.execute(this);
+                } catch (RejectedExecutionException ex) {
+                    // the dispatcher is shutdown, deliver on the caller
+                    run();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            do {
+                FutureTask<Object> task = this._events.poll();
+
+                if (task != null) {
+                    task.run();
+                }
+            } while (this._size.decrementAndGet() > 0);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package elsu.network.application;
+
+import elsu.network.services.core.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ServiceRegistry class stores the services of the service manager. The
+ * services are indexed by the port and by the service name; lookups do not
+ * lock the registry and the collections returned can be iterated while
+ * services are added or removed (weakly consistent).
+ * <p>
+ * register(...) and unregister(...) update both indexes under the registry
+ * lock so a port or a name is never registered twice; concurrent lookups see
+ * the service in both indexes or in neither once the update returns.
+ *
+ * @see AbstractServiceManager
+ */
+public class ServiceRegistry {
+
+    // <editor-fold desc="class private storage">
+    // runtime sync object, serializes the index updates
+    private final Object _runtimeSync = new Object();
+
+    // services indexed by the service port
+    private final ConcurrentHashMap<Integer, IService> _ports
+            = new ConcurrentHashMap<>();
+
+    // services indexed by the service name
+    private final ConcurrentHashMap<String, IService> _names
+            = new ConcurrentHashMap<>();
+
+    // read only view of the port index
+    private final Map<Integer, IService> _view
+            = Collections.unmodifiableMap(this._ports);
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getService(...) method returns the service for the port or null if no
+     * service is registered on the port.
+     *
+     * @param port
+     * @return <code>IService</code>
+     */
+    public IService getService(int port) {
+        return this._ports.get(port);
+    }
+
+    /**
+     * getService(...) method returns the service with the name or null if no
+     * service is registered with the name.
+     *
+     * @param serviceName
+     * @return <code>IService</code>
+     */
+    public IService getService(String serviceName) {
+        if (serviceName == null) {
+            return null;
+        }
+
+        return this._names.get(serviceName);
+    }
+
+    /**
+     * getServices() method returns a read only view of the services indexed
+     * by port. The view reflects services added or removed after it is
+     * returned.
+     *
+     * @return <code>Map</code> of the services
+     */
+    public Map<Integer, IService> getServices() {
+        return this._view;
+    }
+
+    public int size() {
+        return this._ports.size();
+    }
+
+    public boolean isEmpty() {
+        return this._ports.isEmpty();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * register(...) method adds the service to the port and name indexes.
+     *
+     * @param service
+     * @return <code>boolean</code> false if the port or the name is already
+     * registered, the service is not added
+     */
+    public boolean register(IService service) {
+        Integer port = service.getServiceConfig().getConnectionPort();
+        String serviceName = service.getServiceConfig().getServiceName();
+
+        synchronized (this._runtimeSync) {
+            if (this._ports.containsKey(port)
+                    || this._names.containsKey(serviceName)) {
+                return false;
+            }
+
+            this._names.put(serviceName, service);
+            this._ports.put(port, service);
+        }
+
+        return true;
+    }
+
+    /**
+     * unregister(...) method removes the service on the port from both
+     * indexes.
+     *
+     * @param port
+     * @return <code>IService</code> removed, null if the port is not
+     * registered
+     */
+    public IService unregister(int port) {
+        IService result = null;
+
+        synchronized (this._runtimeSync) {
+            result = this._ports.remove(port);
+
+            if (result != null) {
+                this._names.remove(result.getServiceConfig().getServiceName(),
+                        result);
+            }
+        }
+
+        return result;
+    }
+    // </editor-fold>
+}
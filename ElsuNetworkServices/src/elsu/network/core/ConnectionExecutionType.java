@@ -0,0 +1,13 @@
+package elsu.network.core;
+
+/**
+ * ConnectionExecutionType defines how the connection serve(...) processing and
+ * the connection child threads (readers) are executed by the service. PLATFORM
+ * creates a thread for each task, POOLED uses a bounded pool of threads
+ * (bulkhead) which refuses new connections when the pool queue is full, and
+ * VIRTUAL uses a virtual thread for each task when the JVM supports it.
+ * 
+ */
+public enum ConnectionExecutionType {
+	PLATFORM, POOLED, VIRTUAL
+}
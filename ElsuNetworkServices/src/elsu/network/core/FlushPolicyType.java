@@ -0,0 +1,14 @@
+package elsu.network.core;
+
+/**
+ * FlushPolicyType defines when the records written to a connection are
+ * flushed to the socket. IMMEDIATE flushes every record, SIZE holds the
+ * records until the flush size is reached, TIME holds the records until the
+ * oldest record reaches the flush interval, ADAPTIVE flushes when there is no
+ * more inbound data waiting to be processed. All policies except IMMEDIATE
+ * are bounded by both the flush size and the flush interval.
+ * 
+ */
+public enum FlushPolicyType {
+	IMMEDIATE, SIZE, TIME, ADAPTIVE
+}
@@ -0,0 +1,11 @@
+package elsu.network.core;
+
+/**
+ * LogLevelType defines the lowest level of the messages logged by the
+ * services. Messages below the level are discarded before they are formatted;
+ * the log4j configuration continues to filter the messages which are passed.
+ * 
+ */
+public enum LogLevelType {
+	DEBUG, INFO, ERROR
+}
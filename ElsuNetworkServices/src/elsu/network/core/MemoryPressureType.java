@@ -0,0 +1,11 @@
+package elsu.network.core;
+
+/**
+ * MemoryPressureType defines the heap pressure levels reported by the
+ * MemoryMonitorService. HIGH releases the idle buffers, CRITICAL also pauses
+ * the accept of new connections by the services.
+ * 
+ */
+public enum MemoryPressureType {
+	NORMAL, HIGH, CRITICAL
+}
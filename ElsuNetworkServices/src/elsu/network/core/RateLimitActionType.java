@@ -0,0 +1,12 @@
+package elsu.network.core;
+
+/**
+ * RateLimitActionType defines how the service handles the records received
+ * from a remote host above the host record rate. DELAY holds the connection
+ * reader until the rate allows the record, REJECT closes the connection.
+ * NIO connections cannot be held by the io thread and are always closed.
+ * 
+ */
+public enum RateLimitActionType {
+	DELAY, REJECT
+}
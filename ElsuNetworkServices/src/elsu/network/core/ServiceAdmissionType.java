@@ -0,0 +1,12 @@
+package elsu.network.core;
+
+/**
+ * ServiceAdmissionType defines how the service handles new connections when
+ * the connection limit is reached. REFUSE sends the busy message and closes
+ * the socket, QUEUE holds the socket until a connection slot is available or
+ * the admission wait time expires.
+ * 
+ */
+public enum ServiceAdmissionType {
+	REFUSE, QUEUE
+}
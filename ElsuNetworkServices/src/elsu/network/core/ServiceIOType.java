@@ -0,0 +1,10 @@
+package elsu.network.core;
+
+/**
+ * ServiceIOType defines how a SERVER service accepts and reads its socket
+ * connections. BLOCKING services create one connection thread per socket,
+ * NIO services share a small set of selector threads.
+ */
+public enum ServiceIOType {
+	BLOCKING, NIO
+}
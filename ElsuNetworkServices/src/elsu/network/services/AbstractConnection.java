@@ -2,6 +2,7 @@ package elsu.network.services;
 
 import elsu.network.services.core.*;
 import java.net.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * AbstractConnection() class is used to define the base / abstract
@@ -21,9 +22,18 @@ import java.net.*;
 public abstract class AbstractConnection extends Thread {
 
     // <editor-fold desc="class private storage">
+    // sequence used to assign the connection ids
+    private static final AtomicLong _connectionSequence = new AtomicLong(0);
+
     // runtime sync object
     private Object _runtimeSync = new Object();
 
+    // unique id of the connection, used to index the connection registry
+    private final long _connectionId = _connectionSequence.incrementAndGet();
+
+    // remote host address of the client socket, null if there is no socket
+    private volatile String _remoteHost = null;
+
     // service object which owns this connection
     private volatile IService _service = null;
 
@@ -34,6 +44,31 @@ public abstract class AbstractConnection extends Thread {
 
     // property which notifies client methods if the client is active or not
     private volatile boolean _isActive = false;
+
+    // time of the last data received or sent on the connection
+    private volatile long _lastActivityTime = CoarseClock.currentTimeMillis();
+
+    // idle timeout scheduled for the connection, null if not scheduled
+    private volatile WheelTimeout _idleTimer = null;
+
+    // time (ns) the connection was accepted, the connections are created
+    // by the listener when the socket is accepted
+    private final long _acceptTime = System.nanoTime();
+
+    // status of the first data received, recorded once in the service metrics
+    private volatile boolean _isReceived = false;
+
+    // # of bytes received and sent on the connection; updated by the thread
+    // reading or writing the connection
+    private volatile long _bytesReceived = 0L;
+    private volatile long _bytesSent = 0L;
+
+    // trace span of the connection, ended when the connection is removed
+    private volatile ITraceSpan _traceSpan = ServiceTrace.NOOP_SPAN;
+
+    // thread executing run() for the connection, set by the connection
+    // executor; the connection thread object itself is not started
+    private volatile Thread _servingThread = null;
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -82,6 +117,116 @@ public abstract class AbstractConnection extends Thread {
         return isActive();
     }
 
+    /**
+     * isThreaded() method returns true if the connection requires a thread to
+     * execute the run() method. Connections which are served by other means
+     * (reactor io threads) override this method.
+     *
+     * @return <code>boolean</code> true if the connection requires a thread
+     */
+    public boolean isThreaded() {
+        return true;
+    }
+
+    /**
+     * getConnectionId() method returns the unique id of the connection.
+     *
+     * @return <code>long</code> connection id
+     */
+    public long getConnectionId() {
+        return this._connectionId;
+    }
+
+    /**
+     * getRemoteHost() method returns the remote host address of the client
+     * socket. The address is captured when the socket is stored and remains
+     * available after the socket is closed.
+     *
+     * @return <code>String</code> remote host address or null
+     */
+    public String getRemoteHost() {
+        return this._remoteHost;
+    }
+
+    /**
+     * getLastActivityTime() method returns the time of the last data received
+     * or sent on the connection.
+     *
+     * @return <code>long</code> time in milliseconds
+     */
+    public long getLastActivityTime() {
+        return this._lastActivityTime;
+    }
+
+    /**
+     * getAcceptTime() method returns the time (System.nanoTime()) the
+     * connection was accepted.
+     *
+     * @return <code>long</code> time in nanoseconds
+     */
+    public long getAcceptTime() {
+        return this._acceptTime;
+    }
+
+    public long getBytesReceived() {
+        return this._bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return this._bytesSent;
+    }
+
+    public ITraceSpan getTraceSpan() {
+        return this._traceSpan;
+    }
+
+    public void setTraceSpan(ITraceSpan span) {
+        this._traceSpan = span;
+    }
+
+    /**
+     * getServingThread() method returns the thread executing the connection
+     * run() method (platform, pool or virtual thread), null if the
+     * connection is not running or is served by an io thread.
+     *
+     * @return <code>Thread</code> or null
+     */
+    public Thread getServingThread() {
+        return this._servingThread;
+    }
+
+    public void setServingThread(Thread thread) {
+        this._servingThread = thread;
+    }
+
+    /**
+     * isServingThread() method returns true if the current thread is
+     * executing the connection run() method.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isServingThread() {
+        return this._servingThread == Thread.currentThread();
+    }
+
+    /**
+     * getIdleTime() method returns the time (ms) since the last data was
+     * received or sent on the connection.
+     *
+     * @return <code>long</code> idle time in milliseconds
+     */
+    public long getIdleTime() {
+        return CoarseClock.currentTimeMillis() - this._lastActivityTime;
+    }
+
+    public WheelTimeout getIdleTimer() {
+        return this._idleTimer;
+    }
+
+    public void setIdleTimer(WheelTimeout timer) {
+        this._idleTimer = timer;
+    }
+
     /**
      * getClient() method returns the current client for the connection.
      *
@@ -105,6 +250,11 @@ public abstract class AbstractConnection extends Thread {
     protected void setClient(Socket socket) {
         synchronized (this._runtimeSync) {
             this._client = socket;
+
+            // capture the remote host for the connection registry
+            if ((socket != null) && (socket.getInetAddress() != null)) {
+                this._remoteHost = socket.getInetAddress().getHostAddress();
+            }
         }
     }
 
@@ -123,4 +273,88 @@ public abstract class AbstractConnection extends Thread {
         return result;
     }
     // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * touch() method records activity on the connection; called by the record
+     * readers and writers when data is received or sent. The update is
+     * skipped if the time has not changed.
+     */
+    public void touch() {
+        long now = CoarseClock.currentTimeMillis();
+
+        if (this._lastActivityTime != now) {
+            this._lastActivityTime = now;
+        }
+    }
+
+    /**
+     * received(...) method records data received on the connection; called
+     * by the record readers. The first call records the time from the accept
+     * to the first data in the service metrics.
+     *
+     * @param bytes # of bytes received
+     */
+    public void received(int bytes) {
+        this._bytesReceived += bytes;
+
+        if (!this._isReceived) {
+            this._isReceived = true;
+
+            IService service = getService();
+            if (service != null) {
+                service.getServiceMetrics().getFirstByte().record(
+                        System.nanoTime() - this._acceptTime);
+            }
+        }
+
+        touch();
+    }
+
+    /**
+     * sent(...) method records data sent on the connection; called by the
+     * record writers when the data is written to the socket.
+     *
+     * @param bytes # of encoded bytes sent
+     */
+    public void sent(long bytes) {
+        this._bytesSent += bytes;
+
+        touch();
+    }
+
+    /**
+     * drain() method signals the connection to finish the records in progress
+     * and exit; called by the service shutdown. The socket input is shut down
+     * so the next read returns end of stream, the records already read are
+     * processed and the out stream is flushed by the connection before it
+     * closes. Connections without a socket exit when their loops check the
+     * active status.
+     */
+    public void drain() {
+        isActive(false);
+
+        try {
+            if ((getClient() != null) && !getClient().isInputShutdown()) {
+                getClient().shutdownInput();
+            }
+        } catch (Exception exi) {
+        }
+    }
+
+    /**
+     * close() method signals the connection to exit and closes the client
+     * socket; the thread serving the connection removes it from the service.
+     */
+    public void close() {
+        isActive(false);
+
+        try {
+            if (getClient() != null) {
+                getClient().close();
+            }
+        } catch (Exception exi) {
+        }
+    }
+    // </editor-fold>
 }
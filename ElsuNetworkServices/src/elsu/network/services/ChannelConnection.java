@@ -0,0 +1,335 @@
+package elsu.network.services;
+
+import elsu.network.services.core.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * ChannelConnection class extends the base abstract class AbstractConnection
+ * to support socket channels managed by the ServiceReactor. The connection
+ * thread is never started; the channel is registered with a reactor io thread
+ * which reads the channel, frames the records using the service record
+ * terminator, and delivers each record to the service.
+ * <p>
+ * Writes are queued and sent by the reactor io thread when the channel is
+ * writable; the caller is never blocked. The queued bytes are tracked, when
+ * the client does not read its replies the io thread stops reading the channel
+ * above the high water mark and resumes below the low water mark; above the
+ * write limit the connection is closed.
+ *
+ * @see AbstractConnection
+ * @see ServiceReactor
+ * @see IRecordService
+ */
+public class ChannelConnection extends AbstractConnection {
+
+    // <editor-fold desc="class public storage">
+    // queued bytes above which the io thread stops reading the channel
+    public static final int WRITE_HIGH_WATER = 256 * 1024;
+    // queued bytes below which the io thread resumes reading the channel
+    public static final int WRITE_LOW_WATER = 64 * 1024;
+    // queued bytes above which the connection is closed
+    public static final int WRITE_LIMIT = 4 * 1024 * 1024;
+    // </editor-fold>
+
+    // <editor-fold desc="class private storage">
+    // runtime sync object
+    private Object _runtimeSync = new Object();
+
+    // socket channel accepted by the reactor
+    private volatile SocketChannel _channel = null;
+
+    // reactor io thread which owns the channel selection key
+    private volatile ServiceReactorWorker _worker = null;
+
+    // framer used by the io thread to split the channel data into records,
+    // records which span multiple reads are kept in the framer buffer
+    private final RecordFramer _framer;
+
+    // charset used to encode the String writes
+    private final Charset _charset;
+
+    // queue of pending writes for the io thread
+    private final Queue<ByteBuffer> _pendingWrites
+            = new ConcurrentLinkedQueue<>();
+
+    // # of bytes queued and not yet written to the channel
+    private final AtomicLong _pendingBytes = new AtomicLong(0L);
+
+    // set when the queued bytes exceeded the write limit
+    private volatile boolean _isWriteOverflow = false;
+
+    // reads suspended by the io thread until the queued bytes drain below
+    // the low water mark, only accessed by the io thread
+    private boolean _isReadSuspended = false;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    /**
+     * ChannelConnection(...) constructor stores the accepted channel and the
+     * io thread which will serve it.
+     *
+     * @param channel
+     * @param service
+     * @param worker
+     * @param terminator
+     * @param charset
+     */
+    public ChannelConnection(SocketChannel channel, IService service,
+            ServiceReactorWorker worker, String terminator, Charset charset) {
+        super(service);
+
+        this._channel = channel;
+        this._worker = worker;
+        this._charset = charset;
+        this._framer = new RecordFramer(terminator, charset);
+
+        setClient(channel.socket());
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getChannel() method returns the socket channel for the connection.
+     *
+     * @return <code>SocketChannel</code> of the connection
+     */
+    public SocketChannel getChannel() {
+        SocketChannel result = null;
+
+        synchronized (this._runtimeSync) {
+            result = this._channel;
+        }
+
+        return result;
+    }
+
+    /**
+     * isThreaded() method returns false, the connection is served by the
+     * reactor io thread.
+     *
+     * @return <code>boolean</code> false
+     */
+    @Override
+    public boolean isThreaded() {
+        return false;
+    }
+
+    /**
+     * hasPendingWrites() method returns true if there is data queued which has
+     * not been written to the channel.
+     *
+     * @return <code>boolean</code> status of the write queue
+     */
+    public boolean hasPendingWrites() {
+        return !this._pendingWrites.isEmpty();
+    }
+
+    /**
+     * getPendingBytes() method returns the # of bytes queued which have not
+     * been written to the channel.
+     *
+     * @return <code>long</code> queued bytes
+     */
+    public long getPendingBytes() {
+        return this._pendingBytes.get();
+    }
+
+    /**
+     * isWriteOverflow() method returns true if the queued bytes exceeded the
+     * write limit; the client is not reading and the connection is closed.
+     *
+     * @return <code>boolean</code> status of the write queue
+     */
+    public boolean isWriteOverflow() {
+        return this._isWriteOverflow;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * start() method is overridden, the connection does not use a thread; the
+     * channel is registered with the reactor io thread.
+     */
+    @Override
+    public synchronized void start() {
+        isActive(true);
+        this._worker.register(this);
+    }
+
+    /**
+     * run() method is not used by the channel connection.
+     */
+    @Override
+    public void run() {
+    }
+
+    /**
+     * write(...) method queues the data for the io thread to send to the
+     * client. The caller should include the record terminator.
+     *
+     * @param data
+     */
+    public void write(String data) {
+        enqueue(ByteBuffer.wrap(data.getBytes(this._charset)));
+    }
+
+    /**
+     * write(...) method queues the record followed by the terminator for the
+     * io thread to send to the client; the record is copied without decoding.
+     *
+     * @param record
+     * @param terminator
+     */
+    public void write(RecordView record, byte[] terminator) {
+        ByteBuffer buffer = ByteBuffer.allocate(record.getByteLength()
+                + terminator.length);
+        buffer.put(record.getArray(), record.getOffset(),
+                record.getByteLength());
+        buffer.put(terminator);
+        buffer.flip();
+
+        enqueue(buffer);
+    }
+
+    /**
+     * enqueue(...) method queues the buffer for the io thread and tracks the
+     * queued bytes; above the write limit the data is discarded and the
+     * connection is flagged to be closed by the io thread.
+     *
+     * @param buffer
+     */
+    private void enqueue(ByteBuffer buffer) {
+        if (this._isWriteOverflow) {
+            return;
+        }
+
+        if (this._pendingBytes.addAndGet(buffer.remaining()) > WRITE_LIMIT) {
+            this._isWriteOverflow = true;
+        } else {
+            this._pendingWrites.add(buffer);
+        }
+
+        this._worker.requestWrite(this);
+    }
+
+    /**
+     * close() method signals the connection to close once the pending writes
+     * have been sent to the client.
+     */
+    @Override
+    public void close() {
+        isActive(false);
+        this._worker.requestWrite(this);
+    }
+
+    /**
+     * drain() method signals the connection to close once the pending writes
+     * have been sent; the io thread processes the records of a read before
+     * the close request, so no record is interrupted.
+     */
+    @Override
+    public void drain() {
+        close();
+    }
+
+    /**
+     * fill() method is called by the io thread when the channel is readable
+     * and reads the available data into the framer.
+     *
+     * @return <code>int</code> # of bytes read, -1 if the client closed the
+     * channel
+     * @throws IOException
+     */
+    int fill() throws IOException {
+        int result = this._framer.fill(getChannel());
+
+        // record the activity for the idle timeout
+        if (result > 0) {
+            received(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * nextRecord() method returns the next complete record read from the
+     * channel or null; the view is only valid until the next call.
+     *
+     * @return <code>RecordView</code> or null
+     * @throws IOException
+     */
+    RecordView nextRecord() throws IOException {
+        return this._framer.next();
+    }
+
+    /**
+     * release() method returns the read buffer to the pool, called by the io
+     * thread when the channel is closed.
+     */
+    void release() {
+        this._framer.release();
+    }
+
+    /**
+     * flushWrites() method is called by the io thread when the channel is
+     * writable and sends the queued data.
+     *
+     * @return <code>boolean</code> true if all queued data was sent
+     * @throws IOException
+     */
+    boolean flushWrites() throws IOException {
+        ByteBuffer buffer;
+
+        while ((buffer = this._pendingWrites.peek()) != null) {
+            // time the socket write for the service metrics
+            long writeStart = System.nanoTime();
+            int count = getChannel().write(buffer);
+            getService().getServiceMetrics().getOutboundWrite().record(
+                    System.nanoTime() - writeStart);
+
+            // record the data sent and the activity for the idle timeout
+            if (count > 0) {
+                this._pendingBytes.addAndGet(-count);
+                sent(count);
+            }
+
+            // the socket buffer is full, wait for the next write event
+            if (buffer.hasRemaining()) {
+                return false;
+            }
+
+            this._pendingWrites.poll();
+        }
+
+        return true;
+    }
+
+    /**
+     * isReadable() method is called by the io thread after a flush and
+     * returns true if the channel should be read; reads stop when the queued
+     * bytes reach the high water mark and resume at the low water mark.
+     *
+     * @return <code>boolean</code> true if the channel should be read
+     */
+    boolean isReadable() {
+        long pending = this._pendingBytes.get();
+
+        if (this._isReadSuspended) {
+            if (pending <= WRITE_LOW_WATER) {
+                this._isReadSuspended = false;
+            }
+        } else if (pending >= WRITE_HIGH_WATER) {
+            this._isReadSuspended = true;
+        }
+
+        return !this._isReadSuspended;
+    }
+
+    // </editor-fold>
+}
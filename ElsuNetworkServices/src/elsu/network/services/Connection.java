@@ -102,12 +102,10 @@ public class Connection extends AbstractConnection {
             // clear client active property
             isActive(false);
 
-            // if the service is running, then remove the connection; otherwise,
-            // the connection is forced closed and removed as part of the 
-            // service shutdown
-            if (getService().isRunning()) {
-                getService().removeConnection(this);
-            }
+            // remove the connection, during the service shutdown this signals
+            // the drain that the connection has completed; the removal is
+            // ignored if the shutdown already forced the connection closed
+            getService().removeConnection(this);
         }
     }
     // </editor-fold>
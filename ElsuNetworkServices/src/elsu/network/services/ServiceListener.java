@@ -2,7 +2,10 @@ package elsu.network.services;
 
 import elsu.network.services.core.*;
 import java.io.*;
+import java.lang.reflect.*;
 import java.net.*;
+import java.nio.channels.*;
+import java.util.*;
 
 /**
  * ServiceListener class creates a threaded implementation of the ServerSocket
@@ -14,6 +17,10 @@ import java.net.*;
  * limit has not been exceeded, adds the connection the service connection list,
  * and starts the connection. Most of these methods are part of the factory
  * class to allow general access from any class managed by factory.
+ * <p>
+ * A service can accept on multiple threads (acceptorCount); when the platform
+ * supports SO_REUSEPORT each listener binds its own socket to the port and the
+ * os distributes the clients, otherwise the listeners share one socket.
  *
  * @author Seraj Dhaliwal (seraj.s.dhaliwal@uscg.mil)
  * @see ServiceFactory
@@ -35,6 +42,9 @@ public class ServiceListener extends Thread {
     private volatile IService _service;
     // status of the socket listener
     private volatile boolean _isActive = false;
+    // SO_REUSEPORT socket option, null if not supported by the jvm
+    private static final SocketOption<Boolean> _reusePortOption
+            = getReusePortOption();
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -56,7 +66,7 @@ public class ServiceListener extends Thread {
         this._port = service.getServiceConfig().getConnectionPort();
 
         // create listener socket for the port
-        this._listen_socket = new ServerSocket(
+        this._listen_socket = createServerSocket(service.getServiceConfig(),
                 service.getServiceConfig().getConnectionPort());
 
         // give it a non-zero timeout so accept() can be interrupted
@@ -92,7 +102,41 @@ public class ServiceListener extends Thread {
         this._port = port;
 
         // create listener socket for the port
-        this._listen_socket = new ServerSocket(port);
+        this._listen_socket = createServerSocket(service.getServiceConfig(),
+                port);
+
+        // give it a non-zero timeout so accept() can be interrupted
+        this._listen_socket.setSoTimeout(600000);
+
+        // store the service
+        this._service = service;
+
+        // set the listener status/running to true
+        this._isActive = true;
+
+        // load configuration properties
+        initializeLocalProperties();
+    }
+
+    /**
+     * ServiceListener(...) constructor takes the service and the listener
+     * socket to accept on; used to create additional acceptor threads for the
+     * service port.
+     *
+     * @param service
+     * @param listener
+     * @param name
+     * @see #createListeners(IService)
+     */
+    public ServiceListener(IService service, ServerSocket listener,
+            String name) throws IOException {
+        super(service.getThreadGroup(), name);
+
+        // store local properties derived from service object
+        this._port = service.getServiceConfig().getConnectionPort();
+
+        // store the listener socket provided
+        this._listen_socket = listener;
 
         // give it a non-zero timeout so accept() can be interrupted
         this._listen_socket.setSoTimeout(600000);
@@ -213,6 +257,162 @@ public class ServiceListener extends Thread {
     // </editor-fold>
 
     // <editor-fold desc="class methods">
+    /**
+     * createListeners(...) method creates the acceptor threads defined by the
+     * service config acceptorCount. If SO_REUSEPORT is supported, each
+     * listener binds its own socket to the port; otherwise all the listeners
+     * accept on one shared socket.
+     *
+     * @param service
+     * @return <code>List</code> listeners, the first one is the primary
+     * @throws IOException
+     */
+    public static List<ServiceListener> createListeners(IService service)
+            throws IOException {
+        List<ServiceListener> result = new ArrayList<>();
+        int port = service.getServiceConfig().getConnectionPort();
+        int count = Math.max(1, service.getServiceConfig().getAcceptorCount());
+
+        // single acceptor, use the default listener
+        if (count == 1) {
+            result.add(new ServiceListener(service));
+            return result;
+        }
+
+        // check once if each listener can bind its own socket
+        boolean reusePort = isReusePortSupported();
+
+        // capture any exception to close the sockets already bound
+        try {
+            ServerSocket shared = null;
+
+            for (int i = 0; i < count; i++) {
+                ServerSocket listener;
+
+                // bind a socket for each listener if SO_REUSEPORT is
+                // supported, else bind once and share it
+                if (reusePort) {
+                    listener = createReusePortSocket(
+                            service.getServiceConfig(), port);
+                } else {
+                    if (shared == null) {
+                        shared = createServerSocket(
+                                service.getServiceConfig(), port);
+                    }
+
+                    listener = shared;
+                }
+
+                result.add(new ServiceListener(service, listener,
+                        "Listener:" + port + ((i == 0) ? "" : ":" + i)));
+            }
+        } catch (IOException ex) {
+            for (ServiceListener listener : result) {
+                try {
+                    listener.getListener().close();
+                } catch (Exception exi) {
+                }
+            }
+
+            throw ex;
+        }
+
+        return result;
+    }
+
+    /**
+     * isReusePortSupported() method returns true if the jvm and the platform
+     * support the SO_REUSEPORT option for listener sockets.
+     *
+     * @return <code>boolean</code>
+     */
+    public static boolean isReusePortSupported() {
+        if (_reusePortOption == null) {
+            return false;
+        }
+
+        // the option is defined since java 9 but is only supported by some
+        // platforms (linux, bsd), check the channel supported options
+        try (ServerSocketChannel channel = ServerSocketChannel.open()) {
+            return channel.supportedOptions().contains(_reusePortOption);
+        } catch (Exception ex) {
+            return false;
+        }
+    }
+
+    /**
+     * createServerSocket(...) method binds a listener socket to the port
+     * using the backlog and receive buffer size of the service config. The
+     * receive buffer is set before the bind so the accepted sockets inherit
+     * it (required for buffers larger than 64k).
+     *
+     * @param config
+     * @param port
+     * @return <code>ServerSocket</code>
+     * @throws IOException
+     */
+    public static ServerSocket createServerSocket(ServiceConfig config,
+            int port) throws IOException {
+        ServerSocket result = new ServerSocket();
+
+        try {
+            if (config.getReceiveBufferSize() > 0) {
+                result.setReceiveBufferSize(config.getReceiveBufferSize());
+            }
+
+            result.bind(new InetSocketAddress(port), config.getBacklog());
+        } catch (IOException ex) {
+            result.close();
+            throw ex;
+        }
+
+        return result;
+    }
+
+    /**
+     * createReusePortSocket(...) method binds a listener socket to the port
+     * with the SO_REUSEPORT option set.
+     *
+     * @param config
+     * @param port
+     * @return <code>ServerSocket</code>
+     * @throws IOException
+     */
+    private static ServerSocket createReusePortSocket(ServiceConfig config,
+            int port) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+
+        try {
+            channel.setOption(_reusePortOption, Boolean.TRUE);
+            if (config.getReceiveBufferSize() > 0) {
+                channel.setOption(StandardSocketOptions.SO_RCVBUF,
+                        config.getReceiveBufferSize());
+            }
+            channel.bind(new InetSocketAddress(port), config.getBacklog());
+        } catch (IOException ex) {
+            channel.close();
+            throw ex;
+        }
+
+        return channel.socket();
+    }
+
+    /**
+     * getReusePortOption() method returns the SO_REUSEPORT option using
+     * reflection, the option is not available before java 9.
+     *
+     * @return <code>SocketOption</code> or null if not available
+     */
+    @SuppressWarnings("unchecked")
+    private static SocketOption<Boolean> getReusePortOption() {
+        try {
+            Field field = StandardSocketOptions.class.getField("SO_REUSEPORT");
+            return (SocketOption<Boolean>) field.get(null);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
     /**
      * shutdown() method is general method used to perform a graceful shutdown
      * of the listener once notified through the service. When completed the
@@ -250,6 +450,11 @@ public class ServiceListener extends Thread {
      */
     @Override
     public void run() {
+        // service started; log info
+        getService().logInfo(getClass().toString() + ", run(), "
+                + getService().getServiceConfig().getServiceName()
+                + ", " + getName() + ", service accepting connections...");
+
         // the listener will keep looping until the service or the listener is
         // stopped.  this loop has to be quick, so the connection thread is 
         // created to service the client and listener returns to listening.
@@ -260,11 +465,6 @@ public class ServiceListener extends Thread {
                 // if the service is still running, continue to listen for the
                 // next connection
                 if (getService().isRunning()) {
-                    // service started; log info
-                    getService().logInfo(getClass().toString() + ", run(), "
-                            + getService().getServiceConfig().getServiceName()
-                            + ", service accepting connections...");
-
                     // wait for the client to connect, when client connects, 
                     // the listener creates a socket for the new client and
                     // returns it.
@@ -273,7 +473,21 @@ public class ServiceListener extends Thread {
                     // using the client socket, if valid, create a new connection
                     // for the service
                     if (client != null) {
-                        getService().addConnection(client, null);
+                        // capture the time the connection is handed to the
+                        // service for the accept latency
+                        long acceptStart = System.nanoTime();
+                        ITraceSpan span = ServiceTrace.beginAccept(
+                                getService(), client);
+
+                        try {
+                            getService().acceptConnection(client, null);
+                        } finally {
+                            span.end(0L, 0L);
+                        }
+
+                        // update the accept metrics of the service
+                        getService().getAcceptMetrics().recordAccept(
+                                System.nanoTime() - acceptStart);
                     } else {
                         // if we are getting null value for client, then the
                         // service was interrupted, exit
@@ -0,0 +1,267 @@
+package elsu.network.services;
+
+import elsu.network.services.core.*;
+import java.io.*;
+import java.net.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * ServiceReactor class is the NIO alternative to the ServiceListener. The
+ * reactor accepts connections on a ServerSocketChannel and distributes them to
+ * a fixed set of io threads (ServiceReactorWorker) which read the channels
+ * using selectors; a thread is not created for each connection.
+ * <p>
+ * Services which implement IRecordService receive the framed records on the
+ * io threads. Services which only implement the blocking serve(...) method
+ * are served as before; the accepted channel is kept in blocking mode and the
+ * socket is passed to the service to create a connection thread.
+ *
+ * @see ServiceListener
+ * @see ServiceReactorWorker
+ * @see ChannelConnection
+ * @see IRecordService
+ */
+public class ServiceReactor extends Thread {
+
+    // <editor-fold desc="class private storage">
+    // runtime sync object
+    private Object _runtimeSync = new Object();
+    // storage for the listener channel
+    private volatile ServerSocketChannel _listen_channel = null;
+    // selector used to wait for inbound connections
+    private volatile Selector _selector = null;
+    // socket port which the reactor is monitoring
+    private volatile int _port;
+    // service which is bound to the port to provide processing oversight
+    private volatile IService _service;
+    // record terminator used by the channel connections to frame records
+    private volatile String _recordTerminator;
+    // charset of the records
+    private volatile Charset _recordCharset;
+    // io threads serving the channel connections
+    private final List<ServiceReactorWorker> _workers = new ArrayList<>();
+    // index of the next io thread to assign a connection to
+    private volatile int _nextWorker = 0;
+    // status of the reactor
+    private volatile boolean _isActive = false;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    /**
+     * ServiceReactor(...) constructor opens the listener channel on the service
+     * port and creates the io threads defined by the service config ioThreads.
+     *
+     * @param service
+     * @param recordTerminator
+     * @param recordCharset
+     * @throws java.io.IOException
+     */
+    public ServiceReactor(IService service, String recordTerminator,
+            Charset recordCharset) throws IOException {
+        super(service.getThreadGroup(), "Reactor:"
+                + service.getServiceConfig().getConnectionPort());
+
+        // store local properties derived from service object
+        this._port = service.getServiceConfig().getConnectionPort();
+        this._service = service;
+        this._recordTerminator = recordTerminator;
+        this._recordCharset = recordCharset;
+
+        // create the listener channel for the port
+        this._listen_channel = ServerSocketChannel.open();
+        if (service.getServiceConfig().getReceiveBufferSize() > 0) {
+            this._listen_channel.socket().setReceiveBufferSize(
+                    service.getServiceConfig().getReceiveBufferSize());
+        }
+        this._listen_channel.socket().bind(new InetSocketAddress(this._port),
+                service.getServiceConfig().getBacklog());
+        this._listen_channel.configureBlocking(false);
+
+        this._selector = Selector.open();
+        this._listen_channel.register(this._selector, SelectionKey.OP_ACCEPT);
+
+        // create the io threads only if the service can process records
+        if (service instanceof IRecordService) {
+            int ioThreads = Math.max(1,
+                    service.getServiceConfig().getIOThreads());
+
+            for (int i = 0; i < ioThreads; i++) {
+                this._workers.add(new ServiceReactorWorker(
+                        (IRecordService) service,
+                        "ReactorIO:" + this._port + ":" + i));
+            }
+        }
+
+        // set the reactor status/running to true
+        this._isActive = true;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getListener() method returns the listener channel which is monitoring
+     * the port for the service.
+     *
+     * @return <code>ServerSocketChannel</code> is the listener channel
+     */
+    public ServerSocketChannel getListener() {
+        ServerSocketChannel result = null;
+
+        synchronized (this._runtimeSync) {
+            result = this._listen_channel;
+        }
+
+        return result;
+    }
+
+    public int getPort() {
+        return this._port;
+    }
+
+    public IService getService() {
+        return this._service;
+    }
+
+    public boolean isActive() {
+        if (!getListener().isOpen()) {
+            this._isActive = false;
+        }
+
+        return this._isActive;
+    }
+
+    /**
+     * getWorkerCount() method returns the # of io threads used by the reactor.
+     *
+     * @return <code>int</code> count of io threads
+     */
+    public int getWorkerCount() {
+        return this._workers.size();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * start() method starts the io threads and the accept thread.
+     */
+    @Override
+    public synchronized void start() {
+        for (ServiceReactorWorker worker : this._workers) {
+            worker.start();
+        }
+
+        super.start();
+    }
+
+    /**
+     * stopAccepting() method closes the listener channel; the io threads keep
+     * serving the open channel connections so they can drain.
+     */
+    public void stopAccepting() {
+        this._isActive = false;
+
+        try {
+            this._selector.wakeup();
+            getListener().close();
+        } catch (Exception ex) {
+            getService().logError(getClass().toString() + ", stopAccepting(), "
+                    + getService().getServiceConfig().getServiceName() + ", "
+                    + ex.getMessage());
+        }
+    }
+
+    /**
+     * shutdown() method closes the listener channel and stops the io threads.
+     */
+    public void shutdown() {
+        stopAccepting();
+
+        for (ServiceReactorWorker worker : this._workers) {
+            worker.shutdown();
+        }
+    }
+
+    /**
+     * run() method accepts the inbound connections until the service or the
+     * reactor is shutdown.
+     */
+    @Override
+    public void run() {
+        getService().logInfo(getClass().toString() + ", run(), "
+                + getService().getServiceConfig().getServiceName()
+                + ", service accepting connections...");
+
+        while (isActive() && getService().isRunning()) {
+            try {
+                this._selector.select();
+                this._selector.selectedKeys().clear();
+
+                // accept all the pending connections
+                SocketChannel client;
+                while ((client = getListener().accept()) != null) {
+                    // capture the time the connection is handed to the
+                    // service for the accept latency
+                    long acceptStart = System.nanoTime();
+                    ITraceSpan span = ServiceTrace.beginAccept(getService(),
+                            client.socket());
+
+                    try {
+                        accept(client);
+                    } finally {
+                        span.end(0L, 0L);
+                    }
+
+                    // update the accept metrics of the service
+                    getService().getAcceptMetrics().recordAccept(
+                            System.nanoTime() - acceptStart);
+                }
+            } catch (ClosedChannelException | ClosedSelectorException exi) {
+                // reactor was shutdown
+                break;
+            } catch (Exception ex) {
+                getService().logError(getClass().toString() + ", run(), "
+                        + getService().getServiceConfig().getServiceName()
+                        + ", " + ex.getMessage());
+            }
+        }
+
+        // close the selector, ignore exceptions
+        try {
+            this._selector.close();
+        } catch (Exception exi) {
+        }
+
+        // the io threads are stopped by the service shutdown after the
+        // channel connections are drained
+        stopAccepting();
+    }
+
+    /**
+     * accept(...) method creates the connection for the accepted channel. The
+     * channel stays in blocking mode until it is registered with the io
+     * thread, this allows the service to send the refused message if the
+     * connection limit is reached.
+     *
+     * @param client
+     * @throws Exception
+     */
+    private void accept(SocketChannel client) throws Exception {
+        client.configureBlocking(true);
+
+        if (this._workers.isEmpty()) {
+            // blocking service, create a connection thread for the socket
+            getService().acceptConnection(client.socket(), null);
+        } else {
+            // distribute the connections to the io threads round robin
+            ServiceReactorWorker worker = this._workers.get(
+                    this._nextWorker++ % this._workers.size());
+
+            getService().acceptConnection(client.socket(),
+                    new ChannelConnection(client, getService(), worker,
+                            this._recordTerminator, this._recordCharset));
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,288 @@
+package elsu.network.services;
+
+import elsu.network.services.core.*;
+import java.io.*;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ServiceReactorWorker class is the io thread of the ServiceReactor. Each
+ * worker owns a selector and serves all channel connections registered with
+ * it; the records read from the channels are delivered to the service through
+ * IRecordService.serveRecord(...).
+ *
+ * @see ServiceReactor
+ * @see ChannelConnection
+ */
+public class ServiceReactorWorker extends Thread {
+
+    // <editor-fold desc="class private storage">
+    // service which owns the reactor
+    private volatile IRecordService _service = null;
+
+    // selector used to monitor the registered channels
+    private volatile Selector _selector = null;
+
+    // status of the io thread
+    private volatile boolean _isActive = false;
+
+    // connections waiting to be registered with the selector
+    private final Queue<ChannelConnection> _pendingRegistrations
+            = new ConcurrentLinkedQueue<>();
+
+    // connections which have queued data or have been closed by the service
+    private final Queue<ChannelConnection> _pendingWrites
+            = new ConcurrentLinkedQueue<>();
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    /**
+     * ServiceReactorWorker(...) constructor creates the selector for the io
+     * thread.
+     *
+     * @param service
+     * @param name
+     * @throws IOException
+     */
+    public ServiceReactorWorker(IRecordService service, String name)
+            throws IOException {
+        super(service.getThreadGroup(), name);
+
+        this._service = service;
+        this._selector = Selector.open();
+        this._isActive = true;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public IRecordService getService() {
+        return this._service;
+    }
+
+    public boolean isActive() {
+        return this._isActive;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * register(...) method queues the connection for registration with the
+     * selector; registration is performed by the io thread.
+     *
+     * @param conn
+     */
+    public void register(ChannelConnection conn) {
+        this._pendingRegistrations.add(conn);
+        this._selector.wakeup();
+    }
+
+    /**
+     * requestWrite(...) method notifies the io thread the connection has data
+     * to send or has been closed.
+     *
+     * @param conn
+     */
+    public void requestWrite(ChannelConnection conn) {
+        this._pendingWrites.add(conn);
+        this._selector.wakeup();
+    }
+
+    /**
+     * shutdown() method stops the io thread and closes the selector. The
+     * channels are closed by the service when the connections are removed.
+     */
+    public void shutdown() {
+        this._isActive = false;
+
+        try {
+            this._selector.wakeup();
+        } catch (Exception exi) {
+        }
+    }
+
+    /**
+     * run() method loops on the selector until the worker is shutdown,
+     * processing registrations, write requests, and ready channels.
+     */
+    @Override
+    public void run() {
+        while (isActive()) {
+            try {
+                this._selector.select();
+
+                processRegistrations();
+                processWriteRequests();
+
+                Iterator<SelectionKey> keys
+                        = this._selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    ChannelConnection conn
+                            = (ChannelConnection) key.attachment();
+
+                    try {
+                        if (key.isValid() && key.isReadable()) {
+                            if (conn.fill() < 0) {
+                                closeConnection(conn);
+                                continue;
+                            }
+
+                            // deliver the records to the service; the io
+                            // thread cannot wait, hosts above the record rate
+                            // are disconnected
+                            RemoteHostLimiter limiter
+                                    = getService().getHostLimiter();
+                            RecordView record;
+                            while ((record = conn.nextRecord()) != null) {
+                                if ((limiter != null) && !limiter.tryRecord(
+                                        conn.getRemoteHost())) {
+                                    getService().logInfo(getClass().toString()
+                                            + ", run(), record rate exceeded by "
+                                            + conn.getRemoteHost());
+                                    conn.close();
+                                    break;
+                                }
+
+                                getService().serveRecord(conn, record);
+                            }
+
+                            // the service may have queued data or closed the
+                            // connection while processing the records
+                            processWriteRequest(conn);
+                        }
+
+                        if (key.isValid() && key.isWritable()) {
+                            processWriteRequest(conn);
+                        }
+                    } catch (Exception ex) {
+                        getService().logError(getClass().toString()
+                                + ", run(), "
+                                + getService().getServiceConfig().getServiceName()
+                                + ", " + ex.getMessage());
+
+                        closeConnection(conn);
+                    }
+                }
+            } catch (Exception ex) {
+                getService().logError(getClass().toString() + ", run(), "
+                        + getService().getServiceConfig().getServiceName()
+                        + ", " + ex.getMessage());
+            }
+        }
+
+        // close the selector, ignore exceptions
+        try {
+            this._selector.close();
+        } catch (Exception exi) {
+        }
+    }
+
+    /**
+     * processRegistrations() method registers the pending connections with
+     * the selector for read events.
+     */
+    private void processRegistrations() {
+        ChannelConnection conn;
+
+        while ((conn = this._pendingRegistrations.poll()) != null) {
+            try {
+                conn.getChannel().configureBlocking(false);
+                conn.getChannel().register(this._selector,
+                        SelectionKey.OP_READ, conn);
+            } catch (Exception ex) {
+                getService().logError(getClass().toString()
+                        + ", processRegistrations(), "
+                        + getService().getServiceConfig().getServiceName()
+                        + ", " + ex.getMessage());
+
+                closeConnection(conn);
+            }
+        }
+    }
+
+    /**
+     * processWriteRequests() method processes the connections which have
+     * queued data or have been closed by the service.
+     */
+    private void processWriteRequests() {
+        ChannelConnection conn;
+
+        while ((conn = this._pendingWrites.poll()) != null) {
+            try {
+                processWriteRequest(conn);
+            } catch (Exception ex) {
+                closeConnection(conn);
+            }
+        }
+    }
+
+    /**
+     * processWriteRequest(...) method sends the queued data of the connection;
+     * if the channel cannot accept all the data, the key is updated to wait
+     * for the write event. Reads are suspended while the client leaves too
+     * much data queued, connections above the write limit are closed.
+     * Connections closed by the service are removed once the queued data is
+     * sent.
+     *
+     * @param conn
+     * @throws IOException
+     */
+    private void processWriteRequest(ChannelConnection conn)
+            throws IOException {
+        SelectionKey key = conn.getChannel().keyFor(this._selector);
+        if ((key == null) || !key.isValid()) {
+            return;
+        }
+
+        // the client is not reading its replies, close the connection
+        if (conn.isWriteOverflow()) {
+            getService().logInfo(getClass().toString()
+                    + ", processWriteRequest(), write limit exceeded by "
+                    + conn.getRemoteHost());
+            closeConnection(conn);
+            return;
+        }
+
+        boolean flushed = conn.flushWrites();
+        if (flushed && !conn.isActive()) {
+            closeConnection(conn);
+            return;
+        }
+
+        int ops = conn.isReadable() ? SelectionKey.OP_READ : 0;
+        if (!flushed) {
+            ops |= SelectionKey.OP_WRITE;
+        }
+
+        key.interestOps(ops);
+    }
+
+    /**
+     * closeConnection(...) method closes the channel and removes the
+     * connection from the service.
+     *
+     * @param conn
+     */
+    private void closeConnection(ChannelConnection conn) {
+        // the connection may be queued more than once, remove it only once
+        if (!conn.getChannel().isOpen()) {
+            return;
+        }
+
+        conn.isActive(false);
+
+        try {
+            conn.getChannel().close();
+        } catch (Exception exi) {
+        }
+
+        getService().removeConnection(conn);
+
+        // return the read buffer to the pool
+        conn.release();
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,348 @@
+package elsu.network.services.core;
+
+import elsu.network.application.*;
+import elsu.network.services.*;
+
+/**
+ * AbstractPipelineService class extends AbstractService and provides the
+ * connection io loop for services which implement the decoder, handler,
+ * encoder pipeline. The service does not implement serve(...); the records
+ * read from the client are decoded, passed to the handler and the replies
+ * written by the handler are encoded and sent to the client.
+ * <p>
+ * The same pipeline is used for the BLOCKING io type (connection thread) and
+ * for the NIO io type (reactor io thread). For blocking connections the out
+ * stream is only flushed when the client has no more records buffered, so
+ * pipelined requests are replied to in a single socket write.
+ *
+ * @param <I> message type produced by the decoder
+ * @param <O> message type consumed by the encoder
+ * @see IPipelineService
+ * @see IMessageDecoder
+ * @see IMessageHandler
+ * @see IMessageEncoder
+ */
+public abstract class AbstractPipelineService<I, O> extends AbstractService
+        implements IPipelineService<I, O> {
+
+    // <editor-fold desc="class private storage">
+    // pipeline inbound stage, converts the records to messages
+    private volatile IMessageDecoder<I> _decoder = null;
+    // pipeline business stage, processes the messages
+    private volatile IMessageHandler<I, O> _handler = null;
+    // pipeline outbound stage, converts the replies to records
+    private volatile IMessageEncoder<O> _encoder = null;
+    // local storage for connection terminator string
+    private volatile String _connectionTerminator = ".";
+    // record terminator encoded for the nio writes
+    private volatile byte[] _recordTerminatorBytes = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public AbstractPipelineService(String threadGroup,
+            ServiceManager serviceManager, ServiceConfig serviceConfig) {
+        // call the super class constructor
+        super(threadGroup, serviceManager, serviceConfig);
+
+        // store the connection terminator used by the io loop
+        this._connectionTerminator = getProperty(
+                "application.framework.attributes.key.connection.terminator").toString();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    @Override
+    public IMessageDecoder<I> getDecoder() {
+        return this._decoder;
+    }
+
+    @Override
+    public IMessageHandler<I, O> getHandler() {
+        return this._handler;
+    }
+
+    @Override
+    public IMessageEncoder<O> getEncoder() {
+        return this._encoder;
+    }
+
+    /**
+     * setPipeline(...) method stores the pipeline stages of the service; it
+     * is called by the service constructor.
+     *
+     * @param decoder
+     * @param handler
+     * @param encoder
+     */
+    protected void setPipeline(IMessageDecoder<I> decoder,
+            IMessageHandler<I, O> handler, IMessageEncoder<O> encoder) {
+        this._decoder = decoder;
+        this._handler = handler;
+        this._encoder = encoder;
+    }
+
+    /**
+     * getConnectionTerminator() method returns the connection terminator used
+     * to signal the connection to terminate gracefully.
+     *
+     * @return <code>String</code> returns the connection terminator value.
+     */
+    public String getConnectionTerminator() {
+        return this._connectionTerminator;
+    }
+
+    /**
+     * getRecordTerminatorBytes() method returns the record terminator encoded
+     * with the record charset for the nio writes.
+     *
+     * @return <code>byte[]</code>
+     */
+    protected byte[] getRecordTerminatorBytes() {
+        byte[] result = this._recordTerminatorBytes;
+
+        if (result == null) {
+            result = getRecordTerminator().getBytes(getRecordCharset());
+            this._recordTerminatorBytes = result;
+        }
+
+        return result;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * serve(...) method is the io loop for the blocking connections; the
+     * records are read from the client and processed through the pipeline
+     * until the client disconnects, sends the connection terminator or the
+     * handler closes the connection.
+     *
+     * @param conn
+     * @throws Exception
+     */
+    @Override
+    public void serve(AbstractConnection conn) throws Exception {
+        // local parameter for reader thread access, passes the socket in stream
+        final RecordReader in = createRecordReader(conn);
+
+        // local parameter for reader thread access, passes the socket out
+        // stream
+        final RecordWriter out = createRecordWriter(conn, in);
+
+        // context passed to the handler to reply to the client
+        final StreamContext context = new StreamContext(conn, out);
+
+        // this is to prevent socket to stay open after error
+        try {
+            for (;;) {
+                // read the client data from the socket
+                RecordView record = in.readRecord();
+
+                // if the input is null or the value matches connection
+                // terminator then disconnect the client
+                if ((record == null)
+                        || record.contentEquals(getConnectionTerminator())) {
+                    break;
+                }
+
+                // process the record through the pipeline
+                processRecord(context, record);
+
+                // flush the replies unless more records are already buffered
+                out.flush(in.isReady());
+
+                // the handler requested the connection to be closed
+                if (context.isClosed()) {
+                    break;
+                }
+
+                // yield processing to other threads
+                Thread.yield();
+            }
+        } catch (Exception ex) {
+            // log error for tracking
+            logError(getClass().toString() + ", serve(), "
+                    + getServiceConfig().getServiceName() + " on port "
+                    + getServiceConfig().getConnectionPort() + ", "
+                    + ex.getMessage());
+        } finally {
+            // close out all open in/out streams.
+            try {
+                try {
+                    out.flush();
+                } catch (Exception exi) {
+                }
+                out.close();
+            } catch (Exception exi) {
+            }
+            try {
+                in.close();
+            } catch (Exception exi) {
+            }
+        }
+    }
+
+    /**
+     * serveRecord(...) method is called by the reactor io thread when the
+     * service io type is NIO; the record is processed through the pipeline
+     * and the replies are queued on the channel connection.
+     *
+     * @param conn
+     * @param record
+     * @throws Exception
+     */
+    @Override
+    public void serveRecord(ChannelConnection conn, RecordView record)
+            throws Exception {
+        // if the value matches connection terminator then disconnect the
+        // client
+        if (record.contentEquals(getConnectionTerminator())) {
+            conn.close();
+            return;
+        }
+
+        // process the record through the pipeline
+        processRecord(new ChannelContext(conn), record);
+    }
+
+    /**
+     * processRecord(...) method decodes the record and passes the message to
+     * the handler; exceptions raised by the pipeline stages are passed to
+     * exceptionCaught(...) and the connection is kept open.
+     *
+     * @param context
+     * @param record
+     */
+    protected void processRecord(IPipelineContext<O> context,
+            RecordView record) {
+        // increase the total # of incomming messages
+        increaseTotalMessagesReceived();
+
+        // time the record through the pipeline for the service metrics
+        long processStart = System.nanoTime();
+        ITraceSpan span = ServiceTrace.beginRecord(this,
+                context.getConnection());
+
+        try {
+            // decode the record, records without a message are ignored
+            I message = getDecoder().decode(record);
+
+            if (message != null) {
+                getHandler().handle(context, message);
+            }
+        } catch (Exception ex) {
+            // increase the message error queue
+            increaseTotalMessagesErrored();
+
+            exceptionCaught(context, ex);
+        } finally {
+            getServiceMetrics().getRecordProcessing().record(
+                    System.nanoTime() - processStart);
+            span.end(record.getByteLength(), 0L);
+        }
+    }
+
+    /**
+     * exceptionCaught(...) method is called when a pipeline stage fails to
+     * process a record; the default logs the error. Services can override it
+     * to reply to the client.
+     *
+     * @param context
+     * @param ex
+     */
+    protected void exceptionCaught(IPipelineContext<O> context,
+            Exception ex) {
+        // log error for tracking
+        logError(getClass().toString() + ", exceptionCaught(), "
+                + getServiceConfig().getServiceName() + " on port "
+                + getServiceConfig().getConnectionPort() + ", "
+                + ex.getMessage());
+    }
+    // </editor-fold>
+
+    /**
+     * StreamContext class writes the encoded replies to the blocking
+     * connection out stream; the io loop flushes the stream.
+     */
+    private class StreamContext implements IPipelineContext<O> {
+
+        // connection the replies are sent to
+        private final AbstractConnection _connection;
+        // connection out stream
+        private final RecordWriter _out;
+        // status of the close request from the handler
+        private boolean _isClosed = false;
+
+        StreamContext(AbstractConnection connection, RecordWriter out) {
+            this._connection = connection;
+            this._out = out;
+        }
+
+        @Override
+        public AbstractConnection getConnection() {
+            return this._connection;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return this._isClosed;
+        }
+
+        @Override
+        public void write(O message) throws Exception {
+            this._out.append(getEncoder().encode(message));
+            this._out.print(getRecordTerminator());
+
+            // increase the total # of sent messages
+            increaseTotalMessagesSent();
+        }
+
+        @Override
+        public void close() {
+            this._isClosed = true;
+        }
+    }
+
+    /**
+     * ChannelContext class queues the encoded replies on the nio channel
+     * connection; record views are copied without decoding.
+     */
+    private class ChannelContext implements IPipelineContext<O> {
+
+        // connection the replies are sent to
+        private final ChannelConnection _connection;
+
+        ChannelContext(ChannelConnection connection) {
+            this._connection = connection;
+        }
+
+        @Override
+        public AbstractConnection getConnection() {
+            return this._connection;
+        }
+
+        @Override
+        public boolean isClosed() {
+            return !this._connection.isActive();
+        }
+
+        @Override
+        public void write(O message) throws Exception {
+            CharSequence record = getEncoder().encode(message);
+
+            if (record instanceof RecordView) {
+                this._connection.write((RecordView) record,
+                        getRecordTerminatorBytes());
+            } else {
+                this._connection.write(record + getRecordTerminator());
+            }
+
+            // increase the total # of sent messages
+            increaseTotalMessagesSent();
+        }
+
+        @Override
+        public void close() {
+            this._connection.close();
+        }
+    }
+}
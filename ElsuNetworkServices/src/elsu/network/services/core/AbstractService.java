@@ -9,7 +9,10 @@ import elsu.network.services.*;
 import elsu.support.*;
 import java.io.*;
 import java.net.*;
+import java.nio.charset.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * AbstractService is an abstract class providing base functions and storage for
@@ -34,8 +37,32 @@ public abstract class AbstractService extends AbstractServiceProperties
     private volatile boolean _isListener = false;
     // reference to listener object for the service
     private volatile ServiceListener _listener = null;
+    // all the listeners (acceptor threads) of the service, the first one is
+    // also the primary listener
+    private volatile List<ServiceListener> _listeners
+            = Collections.emptyList();
+    // reference to reactor object for the service if the io type is nio
+    private volatile ServiceReactor _reactor = null;
+    // executor used to run the connections and connection child threads
+    private volatile ConnectionExecutor _connectionExecutor = null;
+    // queue used to hold new connections when the connection limit is reached
+    private volatile AdmissionQueue _admissionQueue = null;
+    // # of connection slots held by the service; a slot is reserved before
+    // the connection is admitted and released when it is removed
+    private final AtomicInteger _connectionSlots = new AtomicInteger(0);
+    // connection and record rate limits of the remote hosts if configured
+    private volatile RemoteHostLimiter _hostLimiter = null;
+    // outbound connectors created by the service
+    private final List<OutboundConnector> _outboundConnectors
+            = new CopyOnWriteArrayList<>();
     // system logger if configured
     private volatile Log4JManager _log4JManager = null;
+    // lowest level of the messages logged by the service
+    private volatile LogLevelType _logLevel = LogLevelType.INFO;
+    // status of the asynchronous log appender for debug and info messages
+    private volatile boolean _isLogAsync = true;
+    // effective socket options of the first client socket configured
+    private volatile String _socketOptions = null;
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -80,6 +107,7 @@ public abstract class AbstractService extends AbstractServiceProperties
         setDateTimeFormat(getProperty("application.framework.attributes.key.message.datetimeFormat").toString());
         setFieldDelimiter(getProperty("application.framework.attributes.key.record.field.delimiter").toString());
         setRecordTerminator(getProperty("application.framework.attributes.key.record.terminator").toString());
+        setRecordTerminatorOutbound(getServiceConfig().getAttribute("key.record.terminator.outbound"));
         setStatusOk(getProperty("application.framework.attributes.key.connection.status.ok").toString());
         setStatusInvalidContent(getProperty("application.framework.attributes.key.connection.status.invalidContent").toString());
         setStatusUnAuthorized(getProperty("application.framework.attributes.key.connection.status.unauthorized").toString());
@@ -87,6 +115,38 @@ public abstract class AbstractService extends AbstractServiceProperties
         setStatusDatabaseError(getProperty("application.framework.attributes.key.connection.status.databaseError").toString());
         setStatusSystemError(getProperty("application.framework.attributes.key.connection.status.systemError").toString());
 
+        // record charset is optional, the default is UTF-8
+        try {
+            Object charset = getProperty("application.framework.attributes.key.record.charset");
+            if (charset != null) {
+                setRecordCharset(Charset.forName(charset.toString()));
+            }
+        } catch (Exception ex) {
+            logError(getClass().toString() + ", initializeLocalProperties(), "
+                    + getServiceConfig().getServiceName()
+                    + ", invalid record.charset, " + ex.getMessage());
+        }
+
+        // log level and asynchronous logging are optional, the default is to
+        // pass info and error messages to log4j using the asynchronous
+        // appender; debug messages are only built when configured
+        try {
+            Object logLevel = getProperty("application.framework.attributes.key.log.level");
+            if (logLevel != null) {
+                this._logLevel = LogLevelType.valueOf(
+                        logLevel.toString().trim().toUpperCase());
+            }
+
+            Object logAsync = getProperty("application.framework.attributes.key.log.async");
+            if (logAsync != null) {
+                this._isLogAsync = Boolean.valueOf(logAsync.toString());
+            }
+        } catch (Exception ex) {
+            logError(getClass().toString() + ", initializeLocalProperties(), "
+                    + getServiceConfig().getServiceName()
+                    + ", invalid log.level or log.async, " + ex.getMessage());
+        }
+
         // initialize local service properties
         if (getServiceConfig().getServiceType() == ServiceType.SERVER) {
             this._isListener = true;
@@ -156,36 +216,68 @@ public abstract class AbstractService extends AbstractServiceProperties
         getServiceManager().increaseServiceConnections();
     }
 
+    public LogLevelType getLogLevel() {
+        return this._logLevel;
+    }
+
+    /**
+     * isDebugEnabled() method returns true if debug messages are logged;
+     * callers can use it to skip building debug messages.
+     *
+     * @return <code>boolean</code>
+     */
+    @Override
+    public boolean isDebugEnabled() {
+        return this._logLevel == LogLevelType.DEBUG;
+    }
+
+    /**
+     * isInfoEnabled() method returns true if info messages are logged.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isInfoEnabled() {
+        return this._logLevel != LogLevelType.ERROR;
+    }
+
     /**
      * logDebug(...) method is an interface method to the central factory
      * logDebug method to support multi-threaded logging
      *
      * @param obj
      */
+    @Override
     public void logDebug(Object obj) {
-        if (_log4JManager != null) {
-            synchronized (this._runtimeSync) {
-                _log4JManager.debug(obj.toString());
-            }
-        } else {
-            getServiceManager().logDebug(obj.toString());
+        if (isDebugEnabled()) {
+            log(LogLevelType.DEBUG, obj.toString(), null);
+        }
+    }
+
+    /**
+     * logDebug(...) method logs the debug message with the {} placeholders
+     * replaced by the parameters. The message is only formatted if debug is
+     * enabled, and is formatted by the log thread.
+     *
+     * @param format
+     * @param args
+     */
+    @Override
+    public void logDebug(String format, Object... args) {
+        if (isDebugEnabled()) {
+            log(LogLevelType.DEBUG, format, args);
         }
     }
 
     /**
      * logError(...) method is an interface method to the central factory
-     * logDebug method to support multi-threaded logging
+     * logDebug method to support multi-threaded logging; errors are written
+     * by the caller.
      *
      * @param obj
      */
+    @Override
     public void logError(Object obj) {
-        if (_log4JManager != null) {
-            synchronized (this._runtimeSync) {
-                _log4JManager.error(obj.toString());
-            }
-        } else {
-            getServiceManager().logError(obj.toString());
-        }
+        writeLog(LogLevelType.ERROR, obj.toString());
     }
 
     /**
@@ -194,13 +286,78 @@ public abstract class AbstractService extends AbstractServiceProperties
      *
      * @param obj
      */
+    @Override
     public void logInfo(Object obj) {
-        if (_log4JManager != null) {
-            synchronized (this._runtimeSync) {
-                _log4JManager.info(obj.toString());
+        if (isInfoEnabled()) {
+            log(LogLevelType.INFO, obj.toString(), null);
+        }
+    }
+
+    /**
+     * logInfo(...) method logs the info message with the {} placeholders
+     * replaced by the parameters.
+     *
+     * @param format
+     * @param args
+     */
+    @Override
+    public void logInfo(String format, Object... args) {
+        if (isInfoEnabled()) {
+            log(LogLevelType.INFO, format, args);
+        }
+    }
+
+    /**
+     * log(...) method passes the message to the asynchronous appender, or
+     * formats and writes it if the appender is disabled.
+     *
+     * @param level
+     * @param format
+     * @param args
+     */
+    private void log(LogLevelType level, String format, Object[] args) {
+        if (this._isLogAsync) {
+            AsyncLogAppender.getDefault().append(this, level, format, args);
+        } else {
+            writeLog(level, AsyncLogAppender.format(format, args));
+        }
+    }
+
+    /**
+     * writeLog(...) method writes the message to the service logger, or to
+     * the service manager if the service does not have one. Log4j is thread
+     * safe, a lock is not required.
+     *
+     * @param level
+     * @param message
+     */
+    void writeLog(LogLevelType level, String message) {
+        Log4JManager logger = this._log4JManager;
+
+        if (logger != null) {
+            switch (level) {
+                case DEBUG:
+                    logger.debug(message);
+                    break;
+                case INFO:
+                    logger.info(message);
+                    break;
+                default:
+                    logger.error(message);
+                    break;
             }
         } else {
-            getServiceManager().logInfo(obj.toString());
+            switch (level) {
+                case DEBUG:
+                    getServiceManager().logDebug(message);
+                    break;
+                case INFO:
+                    getServiceManager().logInfo(message);
+                    break;
+                default:
+                    getServiceManager().logError(message);
+                    break;
+            }
         }
     }
 
@@ -223,6 +380,83 @@ public abstract class AbstractService extends AbstractServiceProperties
         return result;
     }
 
+    /**
+     * getListeners() method returns all the listeners (acceptor threads)
+     * created for the service; the list is empty if the service does not use
+     * the blocking listener.
+     *
+     * @return <code>List</code> of listeners
+     */
+    public List<ServiceListener> getListeners() {
+        List<ServiceListener> result = null;
+
+        synchronized (this._runtimeSync) {
+            result = this._listeners;
+        }
+
+        return result;
+    }
+
+    /**
+     * getReactor() method returns the reactor object for the service. The
+     * reactor is only created when the service io type is NIO.
+     *
+     * @return <code>ServiceReactor</code> returns the service reactor object.
+     */
+    public ServiceReactor getReactor() {
+        // the field is volatile, read without the lock
+        return this._reactor;
+    }
+
+    /**
+     * getConnectionExecutor() method returns the executor used to run the
+     * service connections and any child threads created by the connections.
+     * The executor is created when first used using the execution type of the
+     * service config.
+     *
+     * @return <code>ConnectionExecutor</code> returns the executor.
+     */
+    public ConnectionExecutor getConnectionExecutor() {
+        // the executor is created once, only the creation takes the lock
+        ConnectionExecutor result = this._connectionExecutor;
+        if (result != null) {
+            return result;
+        }
+
+        synchronized (this._runtimeSync) {
+            if (this._connectionExecutor == null) {
+                this._connectionExecutor = new ConnectionExecutor(this);
+            }
+
+            result = this._connectionExecutor;
+        }
+
+        return result;
+    }
+
+    /**
+     * getAdmissionQueue() method returns the admission queue for the service.
+     * The queue is only created when the service admission type is QUEUE.
+     *
+     * @return <code>AdmissionQueue</code> returns the admission queue.
+     */
+    public AdmissionQueue getAdmissionQueue() {
+        // the field is volatile, read without the lock
+        return this._admissionQueue;
+    }
+
+    /**
+     * getHostLimiter() method returns the remote host rate limiter for the
+     * service. The limiter is only created when the service config defines a
+     * host connection or record rate.
+     *
+     * @return <code>RemoteHostLimiter</code> returns the host limiter.
+     */
+    @Override
+    public RemoteHostLimiter getHostLimiter() {
+        return this._hostLimiter;
+    }
+
     /**
      * isListener() method returns the value true/false if the service is
      * configured to instantiate a listener. AbstractService Type of SERVER
@@ -275,165 +509,572 @@ public abstract class AbstractService extends AbstractServiceProperties
     }
 
     /**
-     * addConnection(...) method adds a socket based connection for a service.
+     * addConnection(...) method adds a connection for a socket created by the
+     * service (outbound connectors, custom connections).
      * <p>
-     * New connection is validated against the max connections and service
-     * ignore maximum connections settings.
+     * The socket is validated against the max connections and service ignore
+     * maximum connections settings. If the limit is reached, or the
+     * connection cannot be started, an exception is raised and the caller
+     * closes the socket; the listener gates (host connection rate, memory
+     * pause, admission queue) only apply to the sockets accepted by the
+     * service, see acceptConnection(...).
      *
      * @param socket
      * @param connection
+     * @throws Exception
      */
     @Override
     public void addConnection(Socket socket,
             AbstractConnection connection) throws Exception {
-        // if the max connection limit for the service is not zero and the 
-        // total application connection count is greater than or equal to the 
-        // max connections then raise exception
+        // reserve the connection slot, if the socket is null then the
+        // connection limit is not validated
+        if (!reserveConnection(socket != null)) {
+            throw new Exception(getClass().toString() + ", addConnection(), "
+                    + getServiceConfig().getServiceName()
+                    + ", max connections reached");
+        }
+
+        if (!admitConnection(socket, connection, false)) {
+            throw new Exception(getClass().toString() + ", addConnection(), "
+                    + getServiceConfig().getServiceName()
+                    + ", connection not started");
+        }
+    }
+
+    /**
+     * acceptConnection(...) method adds the connection for a socket accepted
+     * by the service listener or reactor.
+     * <p>
+     * New connection is validated against the host connection rate, the
+     * memory monitor pause, the max connections and service ignore maximum
+     * connections settings. If the limit is reached, the connection is
+     * refused or, if the service admission type is QUEUE, held in the
+     * admission queue until a connection slot is available.
+     *
+     * @param socket
+     * @param connection
+     * @throws Exception
+     */
+    @Override
+    public void acceptConnection(Socket socket,
+            AbstractConnection connection) throws Exception {
         // if the socket is null, then the connection limit is not validated
+        if (socket != null) {
+            // refuse the hosts which reconnect above the host connection rate
+            RemoteHostLimiter limiter = getHostLimiter();
+            if ((limiter != null) && !limiter.tryConnect(
+                    socket.getInetAddress().getHostAddress())) {
+                refuseConnection(socket, "host connection rate exceeded");
+                return;
+            }
+
+            // refuse the new connections while the memory monitor has paused
+            // the accepts, unless the service ignores the connection limit
+            if (getServiceManager().isAcceptPaused()
+                    && !getServiceConfig().isIgnoreConnectionLimit()) {
+                refuseConnection(socket, "memory pressure");
+                return;
+            }
+
+            // if the admission queue has waiting sockets, the new socket is
+            // queued behind them to keep the admission order; otherwise the
+            // connection slot is reserved before the socket is admitted
+            AdmissionQueue queue = getAdmissionQueue();
+            boolean isQueueWaiting = (queue != null) && !queue.isEmpty();
+
+            if (isQueueWaiting || !reserveConnection(true)) {
+                if ((queue != null) && queue.offer(socket, connection)) {
+                    // log the info
+                    logInfo(getClass().toString()
+                            + ", addConnection(), connection queued for "
+                            + socket.getInetAddress().getHostAddress()
+                            + ":" + socket.getPort() + ": max connections reached");
+                } else {
+                    refuseConnection(socket, "max connections reached");
+                }
+
+                return;
+            }
+        } else {
+            reserveConnection(false);
+        }
+
+        admitConnection(socket, connection, true);
+    }
+
+    /**
+     * createRecordReader(...) method creates the reader used to receive the
+     * records from the socket using the service record terminator and
+     * charset. The reader replaces the BufferedReader for the socket input
+     * stream.
+     *
+     * @param socket
+     * @return <code>RecordReader</code>
+     * @throws IOException
+     */
+    public RecordReader createRecordReader(Socket socket) throws IOException {
+        return new RecordReader(socket.getInputStream(), getRecordTerminator(),
+                getRecordCharset());
+    }
+
+    /**
+     * createRecordReader(...) method creates the reader for the connection
+     * socket; the connection activity is recorded when records are received.
+     *
+     * @param connection
+     * @return <code>RecordReader</code>
+     * @throws IOException
+     */
+    public RecordReader createRecordReader(AbstractConnection connection)
+            throws IOException {
+        RecordReader result = new RecordReader(
+                connection.getClient().getInputStream(), getRecordTerminator(),
+                getRecordCharset(), connection);
+
+        // apply the host record rate to the records received
+        RemoteHostLimiter limiter = getHostLimiter();
+        if ((limiter != null) && limiter.isRecordLimited()) {
+            result.setHostLimiter(limiter, connection.getRemoteHost());
+        }
+
+        return result;
+    }
+
+    /**
+     * createRecordWriter(...) method creates the writer used to send the
+     * records to the socket using the service charset and flush policy. The
+     * reader is optional and allows the ADAPTIVE policy to hold the records
+     * while more inbound data is waiting. The reader is not thread safe, it
+     * must be consumed on the thread which writes to the writer; pass null
+     * if the socket is read on another thread.
+     *
+     * @param socket
+     * @param reader
+     * @return <code>RecordWriter</code>
+     * @throws IOException
+     */
+    public RecordWriter createRecordWriter(Socket socket, RecordReader reader)
+            throws IOException {
+        return new RecordWriter(socket.getOutputStream(), getRecordCharset(),
+                getServiceConfig().getFlushPolicy(),
+                getServiceConfig().getFlushSize(),
+                getServiceConfig().getFlushInterval(), reader);
+    }
+
+    /**
+     * createRecordWriter(...) method creates the writer for the connection
+     * socket; the connection activity is recorded when records are sent. The
+     * reader must be consumed on the thread which writes to the writer, pass
+     * null if the socket is read on another thread.
+     *
+     * @param connection
+     * @param reader
+     * @return <code>RecordWriter</code>
+     * @throws IOException
+     */
+    public RecordWriter createRecordWriter(AbstractConnection connection,
+            RecordReader reader) throws IOException {
+        return new RecordWriter(connection.getClient().getOutputStream(),
+                getRecordCharset(), getServiceConfig().getFlushPolicy(),
+                getServiceConfig().getFlushSize(),
+                getServiceConfig().getFlushInterval(), reader, connection);
+    }
+
+    /**
+     * applySocketOptions(...) method sets the service config socket options
+     * (tcpNoDelay, keepAlive, buffer sizes, readTimeout) on the client
+     * socket; used for the inbound and outbound connections.
+     *
+     * @param socket
+     * @throws SocketException
+     */
+    public void applySocketOptions(Socket socket) throws SocketException {
+        ServiceConfig config = getServiceConfig();
+
+        socket.setTcpNoDelay(config.isTcpNoDelay());
+        socket.setKeepAlive(config.isKeepAlive());
+        socket.setSoTimeout(config.getReadTimeout());
+
+        // zero buffer sizes keep the os defaults
+        if (config.getSendBufferSize() > 0) {
+            socket.setSendBufferSize(config.getSendBufferSize());
+        }
+        if (config.getReceiveBufferSize() > 0) {
+            socket.setReceiveBufferSize(config.getReceiveBufferSize());
+        }
+
+        // store the values the os applied (buffers can be adjusted) for the
+        // status output, once per service
+        if (this._socketOptions == null) {
+            StringBuilder result = new StringBuilder();
+
+            result.append("<tcpNoDelay>").append(socket.getTcpNoDelay()).append("</tcpNoDelay>");
+            result.append("<keepAlive>").append(socket.getKeepAlive()).append("</keepAlive>");
+            result.append("<sendBufferSize>").append(socket.getSendBufferSize()).append("</sendBufferSize>");
+            result.append("<receiveBufferSize>").append(socket.getReceiveBufferSize()).append("</receiveBufferSize>");
+            result.append("<readTimeout>").append(socket.getSoTimeout()).append("</readTimeout>");
+
+            this._socketOptions = result.toString();
+        }
+    }
+
+    /**
+     * createClientSocket(...) method connects an outbound socket to the host
+     * and port using the service config socket options and connect timeout.
+     *
+     * @param host
+     * @param port
+     * @return <code>Socket</code>
+     * @throws IOException
+     */
+    public Socket createClientSocket(String host, int port)
+            throws IOException {
+        Socket result = new Socket();
+
+        // capture any exception to close the unconnected socket
+        try {
+            applySocketOptions(result);
+            result.connect(new InetSocketAddress(host, port),
+                    getServiceConfig().getConnectTimeout());
+        } catch (IOException ex) {
+            try {
+                result.close();
+            } catch (Exception exi) {
+            }
+
+            throw ex;
+        }
+
+        return result;
+    }
+
+    /**
+     * createOutboundConnector(...) method creates the connector used to
+     * connect the service to the remote hosts; the connector is included in
+     * the service status and is shutdown with the service.
+     *
+     * @param name
+     * @param hosts
+     * @param port
+     * @param handler null if the connector is only used through connect()
+     * @return <code>OutboundConnector</code>
+     */
+    public OutboundConnector createOutboundConnector(String name,
+            List<String> hosts, int port, IOutboundHandler handler) {
+        OutboundConnector result = new OutboundConnector(this, name, hosts,
+                port, handler);
+
+        this._outboundConnectors.add(result);
+        return result;
+    }
+
+    public List<OutboundConnector> getOutboundConnectors() {
+        return this._outboundConnectors;
+    }
+
+    /**
+     * getTimer() method returns the timer used to schedule the connection
+     * idle timeouts and the service monitors; the timer is shared by all
+     * services.
+     *
+     * @return <code>HashedWheelTimer</code>
+     */
+    public HashedWheelTimer getTimer() {
+        return HashedWheelTimer.getDefault();
+    }
+
+    /**
+     * scheduleIdleTimeout(...) method schedules the idle check for the
+     * connection after the delay (ms).
+     *
+     * @param connection
+     * @param delay
+     */
+    private void scheduleIdleTimeout(final AbstractConnection connection,
+            long delay) {
+        connection.setIdleTimer(getTimer().newTimeout(new ITimeoutTask() {
+            @Override
+            public void expired(WheelTimeout timeout) throws Exception {
+                checkIdleTimeout(connection);
+            }
+        }, delay, this));
+    }
+
+    /**
+     * checkIdleTimeout(...) method is called by the timer when the idle
+     * timeout of the connection expires. If there was activity since the
+     * timeout was scheduled, the check is rescheduled for the remaining time;
+     * otherwise connectionIdle(...) is called.
+     *
+     * @param connection
+     */
+    private void checkIdleTimeout(AbstractConnection connection) {
+        // the connection has been closed or removed
+        if (!connection.isActive() || !isRunning()
+                || (getConnectionRegistry().getConnection(
+                        connection.getConnectionId()) == null)) {
+            return;
+        }
+
+        long idleTimeout = getServiceConfig().getIdleTimeout();
+        long idleTime = connection.getIdleTime();
+
+        if ((idleTimeout > 0L) && (idleTime >= idleTimeout)) {
+            connectionIdle(connection);
+        } else if (idleTimeout > 0L) {
+            scheduleIdleTimeout(connection, idleTimeout - idleTime);
+        }
+    }
+
+    /**
+     * connectionIdle(...) method is called when the connection has not
+     * received or sent data for the service idle timeout. The default closes
+     * the connection; the serving thread removes it from the service.
+     * <p>
+     * The method is called on the timer thread; services which override it
+     * must not block.
+     *
+     * @param connection
+     */
+    protected void connectionIdle(AbstractConnection connection) {
+        // log info for tracking
+        logInfo(getClass().toString() + ", connectionIdle(), "
+                + getServiceConfig().getServiceName() + ", connection "
+                + connection.getName() + " idle for "
+                + connection.getIdleTime() + " ms, closing");
+
+        connection.close();
+    }
+
+    /**
+     * hasConnectionCapacity() method returns true if the application and the
+     * service connection limits allow a new connection.
+     *
+     * @return <code>boolean</code> true if a connection can be added
+     */
+    public boolean hasConnectionCapacity() {
+        // if the max connection limit for the application is not zero and the 
+        // total application connection count is greater than or equal to the 
+        // max connections then there is no capacity
         if (!(getMaximumConnections() == 0)
                 && (getServiceConnections() >= getMaximumConnections())
-                && (!getServiceConfig().isIgnoreConnectionLimit())
-                && (socket != null)) {
-            try {
-                // create a writer for the socket ouput stream to send error to
-                PrintWriter out = new PrintWriter(socket.getOutputStream());
+                && (!getServiceConfig().isIgnoreConnectionLimit())) {
+            return false;
+        }
 
-                // send the error to the client
-                out.print("Connection refused; "
-                        + "the server is busy; please try again later"
-                        + getRecordTerminator());
-                out.flush();
+        // if the max connection limit for the service is not zero and the 
+        // total connection count for the service is greater than or equal 
+        // to the max connections then there is no capacity
+        if (!(getServiceConfig().getMaximumConnections() == 0)
+                && (this._connectionSlots.get()
+                >= getServiceConfig().getMaximumConnections())) {
+            return false;
+        }
 
-                // force close the client connection
-                socket.close();
+        return true;
+    }
 
-                // log the info
-                logInfo(getClass().toString()
-                        + ", addConnection(), connection refused to "
-                        + socket.getInetAddress().getHostAddress()
-                        + ":" + socket.getPort() + ": max connections reached");
-            } catch (Exception ex) {
-                // if there is an error during processing, log the error and
-                // close the connection
-                logError(getClass().toString() + ", addConnection(), "
-                        + getServiceConfig().getServiceName() + ", "
-                        + ex.getMessage());
+    /**
+     * reserveConnection(...) method reserves a connection slot of the
+     * application and of the service. Each count is checked and increased in
+     * one compare and set, so concurrent listeners and the admission queue
+     * cannot admit more connections than the limits. The slot is released
+     * when the connection is removed.
+     *
+     * @param isLimited false if the limits are not validated (connections
+     * without a socket)
+     * @return <code>boolean</code> true if the slot was reserved
+     */
+    protected boolean reserveConnection(boolean isLimited) {
+        // the application limit, unless the service ignores it
+        int maximum = (isLimited && !getServiceConfig().isIgnoreConnectionLimit())
+                ? getMaximumConnections() : 0;
+        if (!getServiceManager().increaseServiceConnections(maximum)) {
+            return false;
+        }
 
-                // close the socket, ignore the exception
-                try {
-                    socket.close();
-                } catch (Exception exi) {
-                }
+        // the service limit
+        maximum = isLimited ? getServiceConfig().getMaximumConnections() : 0;
+        for (;;) {
+            int current = this._connectionSlots.get();
+
+            if ((maximum != 0) && (current >= maximum)) {
+                decreaseServiceConnections();
+                return false;
             }
-        } else {
-            // if the max connection limit for the service is not zero and the 
-            // total connection count for the service is greater than or equal 
-            // to the max connections then raise exception
-            // if the socket is null, then the connection limit is not validated
-            if (!(getServiceConfig().getMaximumConnections() == 0)
-                    && (getActiveConnections()
-                    >= getServiceConfig().getMaximumConnections())
-                    && (socket != null)) {
-                try {
-                    // create a writer for the socket ouput stream to send error to
-                    PrintWriter out = new PrintWriter(socket.getOutputStream());
 
-                    // send the error to the client
-                    out.print("Connection refused; "
-                            + "the server is busy; please try again later"
-                            + getRecordTerminator());
-                    out.flush();
+            if (this._connectionSlots.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
 
-                    // force close the client connection
-                    socket.close();
+    /**
+     * releaseConnection() method releases the connection slot reserved by
+     * reserveConnection(...).
+     */
+    private void releaseConnection() {
+        this._connectionSlots.decrementAndGet();
+        decreaseServiceConnections();
+    }
 
-                    // log the info
-                    logInfo(getClass().toString()
-                            + ", addConnection(), connection refused to "
-                            + socket.getInetAddress().getHostAddress()
-                            + ":" + socket.getPort()
-                            + ": max connections reached");
-                } catch (Exception ex) {
-                    // if there is an error during processing, log the error and
-                    // close the connection
-                    logError(getClass().toString() + ", addConnection(), "
-                            + getServiceConfig().getServiceName() + ", "
-                            + ex.getMessage());
-
-                    // close the socket, ignore the exception
-                    try {
-                        socket.close();
-                    } catch (Exception exi) {
-                    }
-                }
-            } else {
-                // increase the application connection count
-                increaseServiceConnections();
+    /**
+     * refuseConnection(...) method sends the busy message to the client and
+     * closes the socket. The refusal is counted in the service rejections.
+     *
+     * @param socket
+     * @param reason
+     */
+    protected void refuseConnection(Socket socket, String reason) {
+        // increase the # of rejected connections
+        increaseTotalConnectionsRejected();
 
-                // if connection is null, then we will create a new connection
-                // for the service.  this is normally used by the listener to
-                // pass a socket for the service which will be wrapped into the
-                // connection class
-                try {
-                    // if connection is null, create a basic wrapper for the
-                    // socket - stream based connection
-                    if (connection == null) {
-                        connection = new Connection(socket, this);
-                    }
+        try {
+            // create a writer for the socket ouput stream to send error to
+            PrintWriter out = new PrintWriter(socket.getOutputStream());
 
-                    // if the socket is not null, make sure the linger option
-                    // is set to false and time to ZERO.  linger is whether the
-                    // socket keeps the connection open for reuse when force
-                    // disconnected by server (not client)
-                    if (connection.getClient() != null) {
-                        connection.getClient().setSoLinger(false, 0);
-                    }
+            // send the error to the client
+            out.print("Connection refused; "
+                    + "the server is busy; please try again later"
+                    + getRecordTerminator());
+            out.flush();
 
-                    // add the new connection to the service connections list
-                    synchronized (this._runtimeSync) {
-                        getConnections().add(connection);
-                    }
+            // force close the client connection
+            socket.close();
 
-                    // increase the # of service active connections
-                    increaseActiveConnections();
-
-                    // log if socket or non socket connection
-                    if (socket != null) {
-                        logInfo(getClass().toString()
-                                + ", addConnection(), connected to "
-                                + socket.getInetAddress().getHostAddress()
-                                + ":" + socket.getPort() + " on port "
-                                + socket.getLocalPort()
-                                + " for service "
-                                + getServiceConfig().getServiceName());
-                    } else {
-                        logInfo(getClass().toString() + ", addConnection(), "
-                                + " for service "
-                                + getServiceConfig().getServiceName());
-                    }
+            // log the info
+            logInfo(getClass().toString()
+                    + ", refuseConnection(), connection refused to "
+                    + socket.getInetAddress().getHostAddress()
+                    + ":" + socket.getPort() + ": " + reason);
+        } catch (Exception ex) {
+            // if there is an error during processing, log the error and
+            // close the connection
+            logError(getClass().toString() + ", refuseConnection(), "
+                    + getServiceConfig().getServiceName() + ", "
+                    + ex.getMessage());
 
-                    // start the connection thread
-                    connection.start();
-                } catch (Exception ex) {
-                    // if exception, log the error, close the socket, and 
-                    // release the connection
-                    logError(getClass().toString() + ", addConnection(), "
-                            + getServiceConfig().getServiceName() + ", "
-                            + ex.getMessage());
-
-                    // close the socket, ignore the exception
-                    try {
-                        socket.close();
-                    } catch (Exception exi) {
-                    }
+            // close the socket, ignore the exception
+            try {
+                socket.close();
+            } catch (Exception exi) {
+            }
+        }
+    }
 
-                    // signal the connection to close
-                    try {
-                        connection.isActive(false);
-                    } catch (Exception exi) {
-                    }
+    /**
+     * admitConnection(...) method adds the connection to the service and starts
+     * it; the connection slot has already been reserved by the caller and is
+     * released if the connection cannot be added.
+     * Accepted sockets which cannot be started are refused; sockets created
+     * by the service are only closed, the caller is notified by the result.
+     *
+     * @param socket
+     * @param connection
+     * @param isAccepted true if the socket was accepted by the service
+     * @return <code>boolean</code> true if the connection was started
+     */
+    protected boolean admitConnection(Socket socket,
+            AbstractConnection connection, boolean isAccepted) {
+        // status of the registry add, the registered connection releases its
+        // slot when it is removed
+        boolean isRegistered = false;
+
+        // if connection is null, then we will create a new connection
+        // for the service.  this is normally used by the listener to
+        // pass a socket for the service which will be wrapped into the
+        // connection class
+        try {
+            // if connection is null, create a basic wrapper for the
+            // socket - stream based connection
+            if (connection == null) {
+                connection = new Connection(socket, this);
+            }
+
+            // if the socket is not null, make sure the linger option
+            // is set to false and time to ZERO.  linger is whether the
+            // socket keeps the connection open for reuse when force
+            // disconnected by server (not client)
+            if (connection.getClient() != null) {
+                connection.getClient().setSoLinger(false, 0);
+                applySocketOptions(connection.getClient());
+            }
+
+            // add the new connection to the service connection registry
+            isRegistered = getConnectionRegistry().add(connection);
+
+            // trace the connection until it is removed
+            connection.setTraceSpan(ServiceTrace.beginConnection(this,
+                    connection));
+
+            // schedule the idle timeout for socket connections if the
+            // service defines one
+            if ((connection.getClient() != null)
+                    && (getServiceConfig().getIdleTimeout() > 0L)) {
+                connection.touch();
+                scheduleIdleTimeout(connection,
+                        getServiceConfig().getIdleTimeout());
+            }
+
+            // increase the # of service active connections
+            increaseActiveConnections();
+
+            // log if socket or non socket connection
+            if (socket != null) {
+                logInfo(getClass().toString()
+                        + ", addConnection(), connected to "
+                        + socket.getInetAddress().getHostAddress()
+                        + ":" + socket.getPort() + " on port "
+                        + socket.getLocalPort()
+                        + " for service "
+                        + getServiceConfig().getServiceName());
+            } else {
+                logInfo(getClass().toString() + ", addConnection(), "
+                        + " for service "
+                        + getServiceConfig().getServiceName());
+            }
+
+            // start the connection using the service executor; if the
+            // executor is saturated, release the connection and refuse the
+            // accepted client
+            try {
+                getConnectionExecutor().execute(connection);
+            } catch (RejectedExecutionException ex) {
+                if ((socket != null) && isAccepted) {
+                    refuseConnection(socket, "connection executor saturated");
                 }
+                removeConnection(connection);
+                return false;
+            }
+
+            return true;
+        } catch (Exception ex) {
+            // if exception, log the error, close the socket, and 
+            // release the connection
+            logError(getClass().toString() + ", addConnection(), "
+                    + getServiceConfig().getServiceName() + ", "
+                    + ex.getMessage());
+
+            // close the socket, ignore the exception
+            try {
+                socket.close();
+            } catch (Exception exi) {
             }
+
+            // signal the connection to close
+            try {
+                connection.isActive(false);
+            } catch (Exception exi) {
+            }
+
+            // release the connection slot
+            if (isRegistered) {
+                removeConnection(connection);
+            } else {
+                releaseConnection();
+            }
+
+            return false;
         }
     }
 
@@ -462,10 +1103,16 @@ public abstract class AbstractService extends AbstractServiceProperties
         } catch (Exception exi) {
         }
 
+        // status of the registry removal, the connection can be removed by the
+        // connection and by the service shutdown; counters are only updated
+        // once
+        boolean isRemoved = false;
+
         try {
-            // remove connection from list
-            synchronized (this._runtimeSync) {
-                getConnections().remove(connection);
+            // remove connection from the registry
+            isRemoved = getConnectionRegistry().remove(connection);
+            if (!isRemoved) {
+                return;
             }
 
             // log info for debugging
@@ -494,10 +1141,34 @@ public abstract class AbstractService extends AbstractServiceProperties
             } catch (Exception exi) {
             }
         } finally {
-            // update the master counter used to track # of service and
-            // application wide active connections.
-            decreaseServiceConnections();
-            decreaseActiveConnections();
+            if (isRemoved) {
+                // cancel the idle timeout of the connection
+                if (connection.getIdleTimer() != null) {
+                    connection.getIdleTimer().cancel();
+                }
+
+                // cancel the flush deadline of the connection writer
+                RecordFlusher.unregister(connection);
+
+                // release the connection slot and update the master counter
+                // used to track # of service and application wide active
+                // connections.
+                releaseConnection();
+                decreaseActiveConnections();
+
+                // record the time the connection was open
+                getServiceMetrics().getConnectionLifetime().record(
+                        System.nanoTime() - connection.getAcceptTime());
+
+                // end the connection trace with the data transferred
+                connection.getTraceSpan().end(connection.getBytesReceived(),
+                        connection.getBytesSent());
+
+                // notify the admission queue a connection slot is available
+                if (getAdmissionQueue() != null) {
+                    getAdmissionQueue().signal();
+                }
+            }
         }
     }
 
@@ -524,11 +1195,48 @@ public abstract class AbstractService extends AbstractServiceProperties
             // port is most common and display it for user to correct the
             // app.config
             try {
-                // create the listener object for the service
-                this._listener = new ServiceListener((IService) this);
+                // if the service admission type is queue, create the queue
+                // which holds new connections when the limit is reached
+                if (getServiceConfig().getAdmissionType()
+                        == ServiceAdmissionType.QUEUE) {
+                    this._admissionQueue = new AdmissionQueue(this);
+                    getAdmissionQueue().start();
+                }
+
+                // if the service defines host rates, create the limiter; it
+                // is kept when the service is restarted to keep the offenders
+                if ((this._hostLimiter == null)
+                        && ((getServiceConfig().getHostConnectionRate() > 0)
+                        || (getServiceConfig().getHostRecordRate() > 0))) {
+                    this._hostLimiter = new RemoteHostLimiter(
+                            getServiceConfig().getHostConnectionRate(),
+                            getServiceConfig().getHostConnectionBurst(),
+                            getServiceConfig().getHostRecordRate(),
+                            getServiceConfig().getHostRecordBurst(),
+                            getServiceConfig().getHostRateAction());
+                }
 
-                // start the listener to accept connections
-                getListener().start();
+                // if the service io type is nio, create the reactor which uses
+                // selectors instead of the blocking listener
+                if (getServiceConfig().getIOType() == ServiceIOType.NIO) {
+                    // create the reactor object for the service
+                    this._reactor = new ServiceReactor((IService) this,
+                            getRecordTerminator(), getRecordCharset());
+
+                    // start the reactor to accept connections
+                    getReactor().start();
+                } else {
+                    // create the listener objects for the service, one for
+                    // each acceptor thread defined in the service config
+                    this._listeners = ServiceListener.createListeners(
+                            (IService) this);
+                    this._listener = this._listeners.get(0);
+
+                    // start the listeners to accept connections
+                    for (ServiceListener listener : getListeners()) {
+                        listener.start();
+                    }
+                }
 
                 // log for debugging
                 logInfo(getClass().toString() + ", start(), "
@@ -549,7 +1257,12 @@ public abstract class AbstractService extends AbstractServiceProperties
      * shutdown() method is used to provide all services with a method to
      * cleanly shutdown and close any open connections. If services override the
      * method, then they should call the super method to cleanly shutdown the
-     * listener and connections (if they exist). *
+     * listener and connections (if they exist).
+     * <p>
+     * The shutdown stops accepting connections and signals the open
+     * connections to drain: the records in progress are completed and the
+     * writers flushed. The connections still open at the service drainTimeout
+     * are forced closed; the drain time is stored in the service status.
      */
     @Override
     public void shutdown() {
@@ -562,32 +1275,130 @@ public abstract class AbstractService extends AbstractServiceProperties
             // existing connections to terminate
             isRunning(false);
 
-            // if the listener exists for the service, shut it down.  this is
-            // a forced shutdown via interruption of the listener wait state
-            if (getListener() != null) {
-                getListener().shutdown();
+            // shut down all the listeners of the service.  this is a forced
+            // shutdown via interruption of the listener wait state
+            for (ServiceListener listener : getListeners()) {
+                listener.shutdown();
             }
 
-            // loop through the connecions and remove all connections, do not
-            // use iterator for the connections list because removeConnection
-            // method updates the list when removing connection and will cause
-            // exception in the iterator
-            ArrayList<AbstractConnection> al;
-            al = new ArrayList<>(getConnections());
+            // if the reactor exists for the service, stop accepting; the io
+            // threads keep serving the channel connections while they drain
+            if (getReactor() != null) {
+                getReactor().stopAccepting();
+            }
 
-            // for each connection in the list
-            for (Object o : al) {
-                // remove the connection, this also updates the master list
-                removeConnection((AbstractConnection) o);
+            // if the admission queue exists for the service, shut it down.
+            // the waiting connections are refused by the queue thread
+            if (getAdmissionQueue() != null) {
+                getAdmissionQueue().shutdown();
+            }
 
-                // yield processing to other threads
-                Thread.yield();
+            // wait for the connections to complete, the remaining connections
+            // are forced closed
+            drainConnections(getServiceConfig().getDrainTimeout());
+
+            // stop the reactor io threads
+            if (getReactor() != null) {
+                getReactor().shutdown();
+            }
+
+            // stop the connection executor, a new executor is created if the
+            // service is restarted
+            synchronized (this._runtimeSync) {
+                if (this._connectionExecutor != null) {
+                    this._connectionExecutor.shutdown();
+                    this._connectionExecutor = null;
+                }
             }
 
-            // clear the connections list to prevent gc cycles
-            al.clear();
+            // cancel the scheduled outbound connects
+            for (OutboundConnector connector : getOutboundConnectors()) {
+                connector.shutdown();
+            }
+
+            // write the log messages queued by the service
+            if (this._isLogAsync) {
+                AsyncLogAppender.getDefault().flush(1000L);
+            }
         }
     }
+
+    /**
+     * drainConnections(...) method signals the connections to finish the
+     * records in progress and waits until they are removed from the service
+     * or the timeout expires. The connections still open at the timeout are
+     * closed and removed. The connection of the calling thread (a service
+     * stopped by its own connection) is not waited for.
+     *
+     * @param timeout time (ms) to wait for the connections
+     */
+    protected void drainConnections(long timeout) {
+        // capture the drain start to report the drain time
+        long drainStart = System.nanoTime();
+        long deadline = drainStart + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+        // signal the connections to drain, the registry view can be iterated
+        // while the connections remove themselves
+        if (timeout > 0L) {
+            for (AbstractConnection connection : getConnections()) {
+                connection.drain();
+            }
+        }
+
+        // wait for the connections to remove themselves
+        while ((timeout > 0L) && (System.nanoTime() < deadline)) {
+            int pending = 0;
+
+            for (AbstractConnection connection : getConnections()) {
+                if (!connection.isServingThread()) {
+                    pending++;
+                }
+            }
+
+            if (pending == 0) {
+                break;
+            }
+
+            try {
+                Thread.sleep(10L);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        // loop through the connecions and remove the remaining connections,
+        // the registry view can be iterated while removeConnection updates
+        // the registry
+        int forced = 0;
+        for (AbstractConnection connection : getConnections()) {
+            // close the socket and interrupt the thread serving the
+            // connection, if it is blocked outside of the socket io
+            connection.close();
+            Thread servingThread = connection.getServingThread();
+            if ((servingThread != null)
+                    && (servingThread != Thread.currentThread())) {
+                servingThread.interrupt();
+            }
+
+            // remove the connection, this also updates the registry
+            removeConnection(connection);
+            forced++;
+
+            // yield processing to other threads
+            Thread.yield();
+        }
+
+        // store the drain result for the service status
+        long drainTime = TimeUnit.NANOSECONDS.toMillis(System.nanoTime()
+                - drainStart);
+        setDrainResult(drainTime, forced);
+
+        // log info for tracking
+        logInfo(getClass().toString() + ", drainConnections(), "
+                + getServiceConfig().getServiceName() + " drained in "
+                + drainTime + " ms, " + forced + " connection(s) forced closed");
+    }
     // </editor-fold>
 
     // <editor-fold desc="class methods not implemented">
@@ -664,7 +1475,35 @@ public abstract class AbstractService extends AbstractServiceProperties
         result.append("<isListener>").append(isListener()).append("</isListener>");
         result.append("<isRunning>").append(isRunning()).append("</isRunning>");
         result.append("<maxConnections>").append(getServiceConfig().getMaximumConnections()).append("</maxConnections>");
+        if (this._admissionQueue != null) {
+            result.append("<admissionQueue>").append(this._admissionQueue.toString()).append("</admissionQueue>");
+        }
+        if (this._hostLimiter != null) {
+            result.append("<hostLimiter>").append(this._hostLimiter.toString()).append("</hostLimiter>");
+        }
+        if (!this._outboundConnectors.isEmpty()) {
+            result.append("<outboundConnectors>");
+            for (OutboundConnector connector : getOutboundConnectors()) {
+                result.append(connector.toString());
+            }
+            result.append("</outboundConnectors>");
+        }
+        if (this._connectionExecutor != null) {
+            result.append("<connectionExecutor>").append(this._connectionExecutor.toString()).append("</connectionExecutor>");
+        }
         result.append("<serviceConfig>").append(getServiceConfig().toString()).append("</serviceConfig>");
+        result.append("<socketOptions>");
+        if (this._listener != null) {
+            try {
+                result.append("<listenerReceiveBufferSize>").append(this._listener.getListener().getReceiveBufferSize()).append("</listenerReceiveBufferSize>");
+            } catch (Exception ex) {
+            }
+        }
+        if (this._socketOptions != null) {
+            result.append(this._socketOptions);
+        }
+        result.append("<connectTimeout>").append(getServiceConfig().getConnectTimeout()).append("</connectTimeout>");
+        result.append("</socketOptions>");
 
         result.append(super.toString());
         result.append("</object>");
@@ -3,6 +3,7 @@ package elsu.network.services.core;
 import elsu.network.services.*;
 import elsu.common.*;
 import elsu.network.application.*;
+import java.nio.charset.*;
 import java.util.*;
 
 /**
@@ -34,8 +35,8 @@ public abstract class AbstractServiceProperties extends AbstractServiceRuntimePr
     private volatile ServiceManager _serviceManager = null;
     private volatile ServiceConfig _serviceConfig = null;
 
-    // set/list of client connections active for the service
-    private volatile Set<AbstractConnection> _connections = null;
+    // registry of client connections active for the service
+    private volatile ConnectionRegistry _connections = null;
 
     // default date format to use by the service
     private volatile String _datetimeFormat = "yyyyMMddHHmmssS";
@@ -46,6 +47,13 @@ public abstract class AbstractServiceProperties extends AbstractServiceRuntimePr
     // default record terminator used for input parsing
     private volatile String _recordTerminator = GlobalStack.LINESEPARATOR;
 
+    // record terminator used for output, defaults to the record terminator
+    // if the service does not define record.terminator.outbound
+    private volatile String _recordTerminatorOutbound = null;
+
+    // charset used to decode and encode the records
+    private volatile Charset _recordCharset = Charset.forName("UTF-8");
+
     // monitor object for locking access for variables when shared across
     // multiple threads
     private volatile Object _monitor = new Object();
@@ -74,21 +82,31 @@ public abstract class AbstractServiceProperties extends AbstractServiceRuntimePr
         this._serviceManager = serviceManager;
         this._serviceConfig = serviceConfig;
 
-        // create a set for storing connections
-        this._connections = new HashSet<>(
+        // create a registry for storing connections
+        this._connections = new ConnectionRegistry(
                 serviceConfig.getMaximumConnections());
     }
     // </editor-fold>
 
     // <editor-fold desc="class getter/setters">
-    public Set<AbstractConnection> getConnections() {
-        Set<AbstractConnection> result = null;
+    /**
+     * getConnections() method returns a read only view of the service
+     * connections; the view can be iterated without locking.
+     *
+     * @return <code>Collection</code> of the connections
+     */
+    public Collection<AbstractConnection> getConnections() {
+        return this._connections.getConnections();
+    }
 
-        synchronized(this._runtimeSync) {
-            result = this._connections;
-        }
-        
-        return result;
+    /**
+     * getConnectionRegistry() method returns the registry which indexes the
+     * service connections by id and remote host.
+     *
+     * @return <code>ConnectionRegistry</code>
+     */
+    public ConnectionRegistry getConnectionRegistry() {
+        return this._connections;
     }
 
     public String getDatetimeFormat() {
@@ -150,6 +168,32 @@ public abstract class AbstractServiceProperties extends AbstractServiceRuntimePr
         this._recordTerminator = terminator;
     }
 
+    public String getRecordTerminatorOutbound() {
+        String result = "";
+        
+        synchronized(this._runtimeSync) {
+            result = this._recordTerminatorOutbound;
+        }
+        
+        return (result == null) ? getRecordTerminator() : result;
+    }
+    protected void setRecordTerminatorOutbound(String terminator) {
+        this._recordTerminatorOutbound = terminator;
+    }
+
+    public Charset getRecordCharset() {
+        Charset result = null;
+        
+        synchronized(this._runtimeSync) {
+            result = this._recordCharset;
+        }
+        
+        return result;
+    }
+    protected void setRecordCharset(Charset charset) {
+        this._recordCharset = charset;
+    }
+
     public char getRecordTerminatorChar() {
         char result = '\0';
         
@@ -265,6 +309,7 @@ public abstract class AbstractServiceProperties extends AbstractServiceRuntimePr
 
         result.append("<object attr='").append(getClass().getName()).append("'>");
         result.append("<connections>").append(getConnections().size()).append("</connections>");
+        result.append("<connectionHosts>").append(getConnectionRegistry().getHosts().size()).append("</connectionHosts>");
         result.append("<datetimeFormat>").append(getDatetimeFormat()).append("</datetimeFormat>");
         result.append("<fieldDelimiter>").append(getFieldDelimiter()).append("</fieldDelimiter>");
         result.append("<recordTerminator>").append(getRecordTerminator()).append("</recordTerminator>");
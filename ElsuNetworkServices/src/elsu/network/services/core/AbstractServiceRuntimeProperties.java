@@ -4,6 +4,7 @@ import elsu.events.*;
 import elsu.common.*;
 import elsu.support.*;
 import java.util.*;
+import java.util.concurrent.atomic.*;
 
 /**
  * AbstractServiceRuntimeProperties class is used to store runtime properties
@@ -15,110 +16,124 @@ public abstract class AbstractServiceRuntimeProperties
         extends AbstractEventManager {
 
     // <editor-fold desc="class private storage">
-    // runtime sync object
-    private Object _runtimeSync = new Object();
-
     // count of active connections currently connected to the service
-    private volatile int _activeConnections = 0;
+    private final StripedCounter _activeConnections = new StripedCounter();
 
     // total # of connections allowed by the service
-    private volatile long _totalConnections = 0L;
+    private final StripedCounter _totalConnections = new StripedCounter();
+
+    // total # of connections refused by the service, limit reached or the
+    // admission wait time expired
+    private final StripedCounter _totalConnectionsRejected
+            = new StripedCounter();
 
     // service connections thread group
     private volatile ThreadGroup _threadGroup;
 
     // total # of messages received for the life of the service
-    private volatile long _totalMessgesReceived = 0L;
+    private final StripedCounter _totalMessgesReceived = new StripedCounter();
 
     // total # of messages sent for the life of the service
-    private volatile long _totalMessgesSent = 0L;
+    private final StripedCounter _totalMessgesSent = new StripedCounter();
 
     // total # of messages errored for the life of the service
-    private volatile long _totalMessagesErrored = 0L;
+    private final StripedCounter _totalMessagesErrored = new StripedCounter();
+
+    // accept rate and latency of the service listeners
+    private final AcceptMetrics _acceptMetrics = new AcceptMetrics();
 
-    // datetime the service status (isrunning) changed
-    private volatile Date _date = new Date();
+    // latency recorders of the records and connections of the service
+    private final ServiceMetrics _serviceMetrics = new ServiceMetrics();
 
-    // datetime of the last action by the service connections
-    private volatile Date _lastActionDate = null;
+    // datetime (ms) the service status (isrunning) changed; the date values
+    // are stored as time from the coarse clock and the Date objects are
+    // created only when requested, zero is not set
+    private volatile long _date = CoarseClock.currentTimeMillis();
 
-    // datetime of the last message received
-    private volatile Date _receiveDate = null;
+    // datetime (ms) of the last action by the service connections
+    private volatile long _lastActionDate = 0L;
 
-    // datetime of the last sent message
-    private volatile Date _sentDate = null;
+    // datetime (ms) of the last message received
+    private volatile long _receiveDate = 0L;
+
+    // datetime (ms) of the last sent message
+    private volatile long _sentDate = 0L;
 
     // indicator if the service is running, allows connections to monitor this
     // and if false, connections gracefully shutdown
     private volatile boolean _isRunning = false;
 
     // general shared id by all connections to track messages # if required
-    private volatile long _sequenceId = 0;
+    private final AtomicLong _sequenceId = new AtomicLong(0L);
+
+    // time (ms) the last shutdown waited for the connections to drain and
+    // the # of connections which were forced closed at the drain deadline
+    private volatile long _drainTime = 0L;
+    private volatile int _drainForcedConnections = 0;
     // </editor-fold>
 
     // <editor-fold desc="class getter/setters">
-    public int getActiveConnections() {
-        int result = 0;
+    public AcceptMetrics getAcceptMetrics() {
+        return this._acceptMetrics;
+    }
 
-        synchronized (this._runtimeSync) {
-            result = this._activeConnections;
-        }
+    public ServiceMetrics getServiceMetrics() {
+        return this._serviceMetrics;
+    }
 
-        return result;
+    public int getActiveConnections() {
+        return this._activeConnections.intValue();
     }
 
     public Date getDate() {
-        Date result = null;
-
-        synchronized (this._runtimeSync) {
-            result = this._date;
-        }
-
-        return result;
+        return CoarseClock.toDate(this._date);
     }
 
     protected void setDate() {
-        this._date = new Date();
+        this._date = CoarseClock.currentTimeMillis();
         setLastActionDate();
     }
 
     public Date getLastActionDate() {
-        Date result = null;
-
-        synchronized (this._runtimeSync) {
-            result = this._lastActionDate;
-        }
+        return CoarseClock.toDate(this._lastActionDate);
+    }
 
-        return result;
+    public long getLastActionTime() {
+        return this._lastActionDate;
     }
 
     private void setLastActionDate() {
-        this._lastActionDate = new Date();
+        long now = CoarseClock.currentTimeMillis();
+
+        // only write when the clock has moved to avoid invalidating the
+        // value for other threads on every message
+        if (this._lastActionDate != now) {
+            this._lastActionDate = now;
+        }
     }
 
     public Date getReceiveDate() {
-        Date result = null;
-
-        synchronized (this._runtimeSync) {
-            result = this._receiveDate;
-        }
+        return CoarseClock.toDate(this._receiveDate);
+    }
 
-        return result;
+    public long getReceiveTime() {
+        return this._receiveDate;
     }
 
     protected void setReceiveDate() {
-        this._receiveDate = new Date();
+        long now = CoarseClock.currentTimeMillis();
+
+        if (this._receiveDate != now) {
+            this._receiveDate = now;
+        }
+
         setLastActionDate();
     }
 
     public boolean isRunning() {
-        boolean result = false;
-
-        synchronized (this._runtimeSync) {
-            result = this._isRunning;
-        }
-
-        return result;
+        // the field is volatile, read without the lock; the connections
+        // check the status for each record
+        return this._isRunning;
     }
 
     protected boolean isRunning(boolean running) {
@@ -128,48 +143,52 @@ public abstract class AbstractServiceRuntimeProperties
     }
 
     public long getSequenceId() {
-        long result = 0L;
-        
-        synchronized(this._runtimeSync) {
-            result = this._sequenceId;
-        }
-        
-        return result;
+        return this._sequenceId.get();
+    }
+
+    public long getDrainTime() {
+        return this._drainTime;
+    }
+
+    public int getDrainForcedConnections() {
+        return this._drainForcedConnections;
+    }
+
+    protected void setDrainResult(long drainTime, int forcedConnections) {
+        this._drainTime = drainTime;
+        this._drainForcedConnections = forcedConnections;
     }
 
     protected long setSequenceId() {
-        synchronized(this._runtimeSync) {
-            this._sequenceId++;
-        }
-        
-        return this._sequenceId;
+        return this._sequenceId.incrementAndGet();
     }
 
     protected void setSequenceId(long newId) {
-        this._sequenceId = newId;
+        this._sequenceId.set(newId);
     }
 
     public Date getSentDate() {
-        Date result = null;
-        
-        synchronized(this._runtimeSync) {
-            result = this._sentDate;
-        }
-        
-        return result;
+        return CoarseClock.toDate(this._sentDate);
+    }
+
+    public long getSentTime() {
+        return this._sentDate;
     }
 
     protected void setSentDate() {
-        this._sentDate = new Date();
+        long now = CoarseClock.currentTimeMillis();
+
+        if (this._sentDate != now) {
+            this._sentDate = now;
+        }
+
         setLastActionDate();
     }
 
     public ThreadGroup getThreadGroup() {
-        ThreadGroup result = null;
-        
-        synchronized(this._runtimeSync) {
-            result = this._threadGroup;
-        }
+        // the field is volatile, read without the lock so the metrics can be
+        // collected while the service is busy
+        ThreadGroup result = this._threadGroup;
         
         return result;
     }
@@ -179,69 +198,68 @@ public abstract class AbstractServiceRuntimeProperties
     }
 
     public long getTotalConnections() {
-        long result = 0;
-        
-        synchronized(this._runtimeSync) {
-            result = this._totalConnections++;
-        }
-        
-        return result;
+        return this._totalConnections.sum();
+    }
+
+    public long getTotalConnectionsRejected() {
+        return this._totalConnectionsRejected.sum();
     }
 
     public long getTotalMessagesErrored() {
-        long result = 0;
-        
-        synchronized(this._runtimeSync) {
-            result = this._totalMessagesErrored;
-        }
-        
-        return result;
+        return this._totalMessagesErrored.sum();
     }
 
     public long getTotalMessagesReceived() {
-        long result = 0;
-        
-        synchronized(this._runtimeSync) {
-            result = this._totalMessgesReceived;
-        }
-        
-        return result;
+        return this._totalMessgesReceived.sum();
     }
 
     public long getTotalMessagesSent() {
-        long result = 0;
-        
-        synchronized(this._runtimeSync) {
-            result = this._totalMessgesSent;
-        }
-        
-        return result;
+        return this._totalMessgesSent.sum();
+    }
+
+    /**
+     * getStatistics() method returns a snapshot of the runtime counters for
+     * reporting.
+     *
+     * @return <code>ServiceStatistics</code> snapshot of the counters
+     */
+    public ServiceStatistics getStatistics() {
+        return new ServiceStatistics(getActiveConnections(),
+                getTotalConnections(), getTotalConnectionsRejected(),
+                getTotalMessagesReceived(), getTotalMessagesSent(),
+                getTotalMessagesErrored(), getSequenceId());
     }
     // </editor-fold>
 
     // <editor-fold desc="class methods">
     protected void decreaseActiveConnections() {
-        this._activeConnections--;
+        this._activeConnections.decrement();
         setLastActionDate();
     }
 
     protected void increaseActiveConnections() {
-        this._activeConnections++;
+        this._activeConnections.increment();
+        this._totalConnections.increment();
+        setLastActionDate();
+    }
+
+    protected void increaseTotalConnectionsRejected() {
+        this._totalConnectionsRejected.increment();
         setLastActionDate();
     }
 
     protected void increaseTotalMessagesErrored() {
-        this._totalMessagesErrored++;
+        this._totalMessagesErrored.increment();
         setLastActionDate();
     }
 
     protected void increaseTotalMessagesReceived() {
-        this._totalMessgesReceived++;
+        this._totalMessgesReceived.increment();
         setReceiveDate();
     }
 
     protected void increaseTotalMessagesSent() {
-        this._totalMessgesSent++;
+        this._totalMessgesSent.increment();
         setSentDate();
     }
     // </editor-fold>
@@ -249,19 +267,25 @@ public abstract class AbstractServiceRuntimeProperties
     @Override
     public String toString() {
         StringBuilder result = new StringBuilder();
+        ServiceStatistics statistics = getStatistics();
 
         result.append("<object attr='").append(getClass().getName()).append("'>");
-        result.append("<activeConnections>").append(getActiveConnections()).append("</activeConnections>");
-        result.append("<totalConnections>").append(getTotalConnections()).append("</totalConnections>");
-        result.append("<totalMessgesReceived>").append(getTotalMessagesReceived()).append("</totalMessgesReceived>");
-        result.append("<totalMessgesSent>").append(getTotalMessagesSent()).append("</totalMessgesSent>");
-        result.append("<totalMessagesErrored>").append(getTotalMessagesErrored()).append("</totalMessagesErrored>");
+        result.append("<activeConnections>").append(statistics.getActiveConnections()).append("</activeConnections>");
+        result.append("<totalConnections>").append(statistics.getTotalConnections()).append("</totalConnections>");
+        result.append("<totalConnectionsRejected>").append(statistics.getTotalConnectionsRejected()).append("</totalConnectionsRejected>");
+        result.append("<totalMessgesReceived>").append(statistics.getTotalMessagesReceived()).append("</totalMessgesReceived>");
+        result.append("<totalMessgesSent>").append(statistics.getTotalMessagesSent()).append("</totalMessgesSent>");
+        result.append("<totalMessagesErrored>").append(statistics.getTotalMessagesErrored()).append("</totalMessagesErrored>");
         result.append("<date>").append(DateUtils.convertDate2String(getDate(), ConfigLoader.getDTGFormat())).append("</date>");
         result.append("<lastActionDate>").append(DateUtils.convertDate2String(getLastActionDate(), ConfigLoader.getDTGFormat())).append("</lastActionDate>");
         result.append("<receiveDate>").append(DateUtils.convertDate2String(getReceiveDate(), ConfigLoader.getDTGFormat())).append("</receiveDate>");
         result.append("<sentDate>").append(DateUtils.convertDate2String(getSentDate(), ConfigLoader.getDTGFormat())).append("</sentDate>");
         result.append("<running>").append(isRunning()).append("</running>");
-        result.append("<sequenceId>").append(getSequenceId()).append("</sequenceId>");
+        result.append("<sequenceId>").append(statistics.getSequenceId()).append("</sequenceId>");
+        result.append("<drainTime>").append(getDrainTime()).append("</drainTime>");
+        result.append("<drainForcedConnections>").append(getDrainForcedConnections()).append("</drainForcedConnections>");
+        result.append("<acceptMetrics>").append(getAcceptMetrics().toString()).append("</acceptMetrics>");
+        result.append("<serviceMetrics>").append(getServiceMetrics().toString()).append("</serviceMetrics>");
         result.append("</object>");
 
         return result.toString();
@@ -0,0 +1,137 @@
+package elsu.network.services.core;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * AcceptMetrics class collects the accept rate and the accept latency of the
+ * service listeners. The latency is the time taken from the return of accept()
+ * until the connection is handed to the service, which is the time the
+ * acceptor thread is not available to accept the next client.
+ * <p>
+ * All acceptor threads of a service record into the same object.
+ *
+ * @see ServiceListener
+ * @see ServiceReactor
+ */
+public class AcceptMetrics {
+
+    // <editor-fold desc="class private storage">
+    // length (ms) of the window used to calculate the accept rate
+    private static final long RATE_WINDOW = 1000L;
+
+    // # of connections accepted
+    private final StripedCounter _totalAccepted = new StripedCounter();
+
+    // total latency (ns) of the accepted connections
+    private final StripedCounter _totalLatency = new StripedCounter();
+
+    // maximum latency (ns) of an accepted connection
+    private final AtomicLong _maximumLatency = new AtomicLong(0L);
+
+    // start of the current rate window
+    private volatile long _windowStart = CoarseClock.currentTimeMillis();
+
+    // # of connections accepted in the current rate window
+    private final AtomicLong _windowCount = new AtomicLong(0L);
+
+    // accept rate (per second) of the last completed window
+    private volatile long _acceptRate = 0L;
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public long getTotalAccepted() {
+        return this._totalAccepted.sum();
+    }
+
+    /**
+     * getAcceptRate() method returns the # of connections accepted per second
+     * during the last completed window; zero if no connections were accepted
+     * since.
+     *
+     * @return <code>long</code> connections accepted per second
+     */
+    public long getAcceptRate() {
+        long elapsed = CoarseClock.currentTimeMillis() - this._windowStart;
+
+        // the window has not been closed by an accept, no connections have
+        // been accepted since the last window
+        if (elapsed >= (2 * RATE_WINDOW)) {
+            return 0L;
+        }
+
+        return this._acceptRate;
+    }
+
+    /**
+     * getAverageLatency() method returns the average accept latency in
+     * microseconds.
+     *
+     * @return <code>long</code> average latency (us)
+     */
+    public long getAverageLatency() {
+        long accepted = this._totalAccepted.sum();
+
+        return (accepted == 0L) ? 0L
+                : (this._totalLatency.sum() / accepted) / 1000L;
+    }
+
+    /**
+     * getMaximumLatency() method returns the maximum accept latency in
+     * microseconds.
+     *
+     * @return <code>long</code> maximum latency (us)
+     */
+    public long getMaximumLatency() {
+        return this._maximumLatency.get() / 1000L;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * recordAccept(...) method records an accepted connection and the time
+     * (ns) taken to hand it to the service.
+     *
+     * @param latency
+     */
+    public void recordAccept(long latency) {
+        this._totalAccepted.increment();
+        this._totalLatency.add(latency);
+
+        // update the maximum latency if this accept took longer
+        long maximum = this._maximumLatency.get();
+        while ((latency > maximum)
+                && !this._maximumLatency.compareAndSet(maximum, latency)) {
+            maximum = this._maximumLatency.get();
+        }
+
+        // close the rate window if it has expired
+        long now = CoarseClock.currentTimeMillis();
+        long start = this._windowStart;
+        if ((now - start) >= RATE_WINDOW) {
+            synchronized (this) {
+                if (this._windowStart == start) {
+                    this._acceptRate = (this._windowCount.getAndSet(0L)
+                            * 1000L) / (now - start);
+                    this._windowStart = now;
+                }
+            }
+        }
+
+        this._windowCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<totalAccepted>").append(getTotalAccepted()).append("</totalAccepted>");
+        result.append("<acceptRate>").append(getAcceptRate()).append("</acceptRate>");
+        result.append("<averageLatency>").append(getAverageLatency()).append("</averageLatency>");
+        result.append("<maximumLatency>").append(getMaximumLatency()).append("</maximumLatency>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+    // </editor-fold>
+}
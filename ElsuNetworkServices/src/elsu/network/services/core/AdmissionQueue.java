@@ -0,0 +1,334 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * AdmissionQueue class holds the sockets accepted by the service listener
+ * when the connection limit is reached. The queue thread admits the sockets in
+ * the order received as connection slots are released by the service; sockets
+ * which wait longer than the admission wait time, or arrive when the queue is
+ * full, are refused.
+ * <p>
+ * The queue is used when the service config admissionType is QUEUE; it spreads
+ * the reconnect load of the clients instead of refusing all of them at the
+ * same time.
+ *
+ * @see AbstractService
+ */
+public class AdmissionQueue extends Thread {
+
+    // <editor-fold desc="class private storage">
+    // service which owns the queue
+    private volatile AbstractService _service = null;
+
+    // monitor used to signal the queue thread when slots are released
+    private final Object _monitor = new Object();
+
+    // sockets waiting for admission
+    private final ArrayDeque<PendingSocket> _queue = new ArrayDeque<>();
+
+    // # of sockets waiting, updated with the queue so the depth can be read
+    // without the monitor
+    private volatile int _depth = 0;
+
+    // maximum # of sockets waiting for admission
+    private volatile int _queueDepth = 0;
+
+    // maximum time (ms) a socket can wait for admission
+    private volatile long _waitTime = 0L;
+
+    // status of the queue
+    private volatile boolean _isActive = false;
+
+    // queue metrics
+    private volatile int _maximumDepth = 0;
+    private volatile long _totalQueued = 0L;
+    private volatile long _totalAdmitted = 0L;
+    private volatile long _totalExpired = 0L;
+    private volatile long _totalOverflow = 0L;
+    private volatile long _totalWaitTime = 0L;
+    private volatile long _maximumWaitTime = 0L;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    /**
+     * AdmissionQueue(...) constructor creates the queue using the admission
+     * queue depth and wait time from the service config.
+     *
+     * @param service
+     */
+    public AdmissionQueue(AbstractService service) {
+        super(service.getThreadGroup(), "Admission:"
+                + service.getServiceConfig().getServiceName());
+
+        this._service = service;
+        this._queueDepth = service.getServiceConfig().getAdmissionQueueDepth();
+        this._waitTime = service.getServiceConfig().getAdmissionWaitTime();
+        this._isActive = true;
+
+        setDaemon(true);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public AbstractService getService() {
+        return this._service;
+    }
+
+    public boolean isActive() {
+        return this._isActive;
+    }
+
+    /**
+     * getDepth() method returns the # of sockets waiting for admission.
+     *
+     * @return <code>int</code> current queue depth
+     */
+    public int getDepth() {
+        return this._depth;
+    }
+
+    public int getMaximumDepth() {
+        return this._maximumDepth;
+    }
+
+    public long getTotalQueued() {
+        return this._totalQueued;
+    }
+
+    public long getTotalAdmitted() {
+        return this._totalAdmitted;
+    }
+
+    public long getTotalExpired() {
+        return this._totalExpired;
+    }
+
+    public long getTotalOverflow() {
+        return this._totalOverflow;
+    }
+
+    /**
+     * getAverageWaitTime() method returns the average time (ms) the admitted
+     * sockets waited in the queue.
+     *
+     * @return <code>long</code> average wait time
+     */
+    public long getAverageWaitTime() {
+        long result = 0L;
+
+        synchronized (this._monitor) {
+            if (this._totalAdmitted > 0) {
+                result = this._totalWaitTime / this._totalAdmitted;
+            }
+        }
+
+        return result;
+    }
+
+    public long getMaximumWaitTime() {
+        return this._maximumWaitTime;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * offer(...) method adds the socket to the queue. If the queue is full the
+     * socket is not added and false is returned, the caller refuses the socket.
+     * The connection is optional, it is used when the listener has already
+     * created the connection for the socket.
+     *
+     * @param socket
+     * @param connection
+     * @return <code>boolean</code> true if the socket was queued
+     */
+    public boolean offer(Socket socket, AbstractConnection connection) {
+        synchronized (this._monitor) {
+            if (!isActive() || (this._queue.size() >= this._queueDepth)) {
+                this._totalOverflow++;
+                return false;
+            }
+
+            this._queue.add(new PendingSocket(socket, connection));
+            this._depth = this._queue.size();
+            this._totalQueued++;
+
+            if (this._queue.size() > this._maximumDepth) {
+                this._maximumDepth = this._queue.size();
+            }
+
+            this._monitor.notifyAll();
+        }
+
+        return true;
+    }
+
+    /**
+     * isEmpty() method returns true if no sockets are waiting; new sockets
+     * should queue behind the waiting sockets to keep the admission order.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isEmpty() {
+        synchronized (this._monitor) {
+            return this._queue.isEmpty();
+        }
+    }
+
+    /**
+     * signal() method notifies the queue thread a connection slot may be
+     * available.
+     */
+    public void signal() {
+        synchronized (this._monitor) {
+            this._monitor.notifyAll();
+        }
+    }
+
+    /**
+     * shutdown() method stops the queue thread; the waiting sockets are
+     * refused by the queue thread before it exits.
+     */
+    public void shutdown() {
+        this._isActive = false;
+        signal();
+    }
+
+    /**
+     * run() method admits the waiting sockets when connection slots are
+     * available and refuses the sockets which exceed the admission wait time.
+     */
+    @Override
+    public void run() {
+        while (isActive() && getService().isRunning()) {
+            try {
+                PendingSocket pending = null;
+                boolean expired = false;
+
+                synchronized (this._monitor) {
+                    pending = this._queue.peek();
+
+                    if (pending == null) {
+                        // nothing to admit, wait for a new socket
+                        this._monitor.wait(1000);
+                        continue;
+                    }
+
+                    long waited = System.currentTimeMillis()
+                            - pending.getQueuedTime();
+
+                    if (waited >= this._waitTime) {
+                        // socket waited too long, refuse it
+                        this._queue.poll();
+                        this._depth = this._queue.size();
+                        this._totalExpired++;
+                        expired = true;
+                    } else if (getService().reserveConnection(true)) {
+                        // slot is reserved, admit the socket
+                        this._queue.poll();
+                        this._depth = this._queue.size();
+                        this._totalAdmitted++;
+                        this._totalWaitTime += waited;
+
+                        if (waited > this._maximumWaitTime) {
+                            this._maximumWaitTime = waited;
+                        }
+                    } else {
+                        // wait for a slot to be released or the socket
+                        // wait time to expire
+                        this._monitor.wait(Math.max(1L,
+                                Math.min(1000L, this._waitTime - waited)));
+                        continue;
+                    }
+                }
+
+                // refuse or admit the socket outside the queue lock, both
+                // perform socket io
+                if (expired) {
+                    getService().refuseConnection(pending.getSocket(),
+                            "admission wait time exceeded");
+                } else {
+                    getService().admitConnection(pending.getSocket(),
+                            pending.getConnection(), true);
+                }
+            } catch (InterruptedException exi) {
+                break;
+            } catch (Exception ex) {
+                getService().logError(getClass().toString() + ", run(), "
+                        + getService().getServiceConfig().getServiceName()
+                        + ", " + ex.getMessage());
+            }
+
+            // yield processing to other threads
+            Thread.yield();
+        }
+
+        // refuse all the sockets still waiting
+        PendingSocket pending;
+        while ((pending = pollPending()) != null) {
+            getService().refuseConnection(pending.getSocket(),
+                    "service shutdown");
+        }
+    }
+
+    private PendingSocket pollPending() {
+        synchronized (this._monitor) {
+            PendingSocket result = this._queue.poll();
+            this._depth = this._queue.size();
+
+            return result;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<depth>").append(getDepth()).append("</depth>");
+        result.append("<maximumDepth>").append(getMaximumDepth()).append("</maximumDepth>");
+        result.append("<totalQueued>").append(getTotalQueued()).append("</totalQueued>");
+        result.append("<totalAdmitted>").append(getTotalAdmitted()).append("</totalAdmitted>");
+        result.append("<totalExpired>").append(getTotalExpired()).append("</totalExpired>");
+        result.append("<totalOverflow>").append(getTotalOverflow()).append("</totalOverflow>");
+        result.append("<averageWaitTime>").append(getAverageWaitTime()).append("</averageWaitTime>");
+        result.append("<maximumWaitTime>").append(getMaximumWaitTime()).append("</maximumWaitTime>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class pending socket">
+    /**
+     * PendingSocket class stores the socket, the connection (if created by
+     * the listener), and the time it was queued.
+     */
+    private static class PendingSocket {
+
+        private final Socket _socket;
+        private final AbstractConnection _connection;
+        private final long _queuedTime;
+
+        PendingSocket(Socket socket, AbstractConnection connection) {
+            this._socket = socket;
+            this._connection = connection;
+            this._queuedTime = System.currentTimeMillis();
+        }
+
+        Socket getSocket() {
+            return this._socket;
+        }
+
+        AbstractConnection getConnection() {
+            return this._connection;
+        }
+
+        long getQueuedTime() {
+            return this._queuedTime;
+        }
+    }
+    // </editor-fold>
+}
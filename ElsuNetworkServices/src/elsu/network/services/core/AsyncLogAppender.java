@@ -0,0 +1,319 @@
+package elsu.network.services.core;
+
+import elsu.network.core.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * AsyncLogAppender class moves the formatting and the writing of the service
+ * log messages off the service threads. Messages are published to a fixed
+ * size ring buffer without a lock and a single daemon thread formats them and
+ * writes them to the service log.
+ * <p>
+ * The parameters of a message are formatted by the log thread; callers must
+ * pass values which do not change after the call (strings, numbers).
+ * <p>
+ * When the ring buffer is full, debug messages are discarded and counted;
+ * other messages are written by the caller so they are never lost. Messages
+ * the service log fails to write are counted as failed.
+ *
+ * @see AbstractService
+ */
+public class AsyncLogAppender {
+
+    // <editor-fold desc="class private storage">
+    // default # of messages held by the ring buffer
+    public static final int DEFAULT_CAPACITY = 8192;
+
+    // time (ns) the log thread waits when there are no messages
+    private static final long IDLE_WAIT = 100000000L;
+
+    // appender shared by all services
+    private static volatile AsyncLogAppender _default = null;
+
+    // ring buffer of messages, size is a power of two
+    private final LogEntry[] _ring;
+    private final int _mask;
+
+    // sequence of each slot; a slot can be written when its sequence equals
+    // the producer position and read when it equals the position + 1
+    private final AtomicLongArray _sequences;
+
+    // next position to write, claimed by the producers
+    private final AtomicLong _producerPosition = new AtomicLong(0L);
+
+    // next position to read, only updated by the log thread
+    private volatile long _consumerPosition = 0L;
+
+    // log thread and its wait status
+    private final Thread _consumer;
+    private volatile boolean _isWaiting = false;
+
+    // appender metrics
+    private final StripedCounter _totalPublished = new StripedCounter();
+    private final StripedCounter _totalDiscarded = new StripedCounter();
+    private final StripedCounter _totalBypassed = new StripedCounter();
+    private final StripedCounter _totalFailed = new StripedCounter();
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public AsyncLogAppender(int capacity) {
+        // round the capacity to a power of two so the slot index is a mask
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+
+        this._ring = new LogEntry[size];
+        this._mask = size - 1;
+        this._sequences = new AtomicLongArray(size);
+
+        for (int i = 0; i < size; i++) {
+            this._ring[i] = new LogEntry();
+            this._sequences.set(i, i);
+        }
+
+        this._consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "AsyncLog");
+        this._consumer.setDaemon(true);
+        this._consumer.start();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getDefault() method returns the appender shared by all services; the
+     * appender is created on first use.
+     *
+     * @return <code>AsyncLogAppender</code>
+     */
+    public static AsyncLogAppender getDefault() {
+        AsyncLogAppender result = _default;
+
+        if (result == null) {
+            synchronized (AsyncLogAppender.class) {
+                result = _default;
+
+                if (result == null) {
+                    result = new AsyncLogAppender(DEFAULT_CAPACITY);
+                    _default = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public int getCapacity() {
+        return this._ring.length;
+    }
+
+    public long getDepth() {
+        return this._producerPosition.get() - this._consumerPosition;
+    }
+
+    public long getTotalPublished() {
+        return this._totalPublished.sum();
+    }
+
+    public long getTotalDiscarded() {
+        return this._totalDiscarded.sum();
+    }
+
+    public long getTotalBypassed() {
+        return this._totalBypassed.sum();
+    }
+
+    public long getTotalFailed() {
+        return this._totalFailed.sum();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * append(...) method publishes the message to the ring buffer for the log
+     * thread to format and write to the service log.
+     *
+     * @param service
+     * @param level
+     * @param format message with {} placeholders, or the message if args is
+     * null
+     * @param args
+     */
+    public void append(AbstractService service, LogLevelType level,
+            String format, Object[] args) {
+        long position;
+
+        // claim a slot, if the ring is full the caller handles the message
+        for (;;) {
+            position = this._producerPosition.get();
+            int index = (int) (position & this._mask);
+            long sequence = this._sequences.get(index);
+
+            if (sequence == position) {
+                if (this._producerPosition.compareAndSet(position,
+                        position + 1)) {
+                    break;
+                }
+            } else if (sequence < position) {
+                // the ring is full
+                if (level == LogLevelType.DEBUG) {
+                    this._totalDiscarded.increment();
+                } else {
+                    this._totalBypassed.increment();
+                    service.writeLog(level, format(format, args));
+                }
+
+                return;
+            }
+        }
+
+        // store the message and publish the slot to the log thread
+        int index = (int) (position & this._mask);
+        LogEntry entry = this._ring[index];
+        entry._service = service;
+        entry._level = level;
+        entry._format = format;
+        entry._args = args;
+        this._sequences.set(index, position + 1);
+
+        this._totalPublished.increment();
+
+        // wake the log thread if it is waiting
+        if (this._isWaiting) {
+            LockSupport.unpark(this._consumer);
+        }
+    }
+
+    /**
+     * flush(...) method waits until the messages published before the call
+     * have been written or the timeout (ms) expires.
+     *
+     * @param timeout
+     */
+    public void flush(long timeout) {
+        long target = this._producerPosition.get();
+        long deadline = System.currentTimeMillis() + timeout;
+
+        while ((this._consumerPosition < target)
+                && (System.currentTimeMillis() < deadline)) {
+            LockSupport.unpark(this._consumer);
+
+            // yield processing to other threads
+            Thread.yield();
+        }
+    }
+
+    /**
+     * consume() method is the log thread loop; it formats and writes the
+     * published messages in order.
+     */
+    private void consume() {
+        for (;;) {
+            long position = this._consumerPosition;
+            int index = (int) (position & this._mask);
+
+            // wait if the next slot has not been published
+            if (this._sequences.get(index) != (position + 1)) {
+                this._isWaiting = true;
+
+                if (this._sequences.get(index) != (position + 1)) {
+                    LockSupport.parkNanos(this, IDLE_WAIT);
+                }
+
+                this._isWaiting = false;
+                continue;
+            }
+
+            // take the message and release the slot to the producers
+            LogEntry entry = this._ring[index];
+            AbstractService service = entry._service;
+            LogLevelType level = entry._level;
+            String format = entry._format;
+            Object[] args = entry._args;
+
+            entry._service = null;
+            entry._format = null;
+            entry._args = null;
+
+            this._sequences.set(index, position + this._ring.length);
+            this._consumerPosition = position + 1;
+
+            // write the message, errors must not stop the log thread; the
+            // log is not available to report them, they are counted
+            try {
+                service.writeLog(level, format(format, args));
+            } catch (Throwable ex) {
+                this._totalFailed.increment();
+            }
+        }
+    }
+
+    /**
+     * format(...) method replaces each {} placeholder in the format with the
+     * string value of the next parameter; placeholders without parameters
+     * are left as is.
+     *
+     * @param format
+     * @param args
+     * @return <code>String</code> formatted message
+     */
+    public static String format(String format, Object[] args) {
+        if ((args == null) || (args.length == 0)) {
+            return format;
+        }
+
+        StringBuilder result = new StringBuilder(format.length() + 16 * args.length);
+        int start = 0;
+        int arg = 0;
+
+        while (arg < args.length) {
+            int index = format.indexOf("{}", start);
+            if (index < 0) {
+                break;
+            }
+
+            result.append(format, start, index);
+            result.append(String.valueOf(args[arg++]));
+            start = index + 2;
+        }
+
+        result.append(format, start, format.length());
+
+        return result.toString();
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<capacity>").append(getCapacity()).append("</capacity>");
+        result.append("<depth>").append(getDepth()).append("</depth>");
+        result.append("<totalPublished>").append(getTotalPublished()).append("</totalPublished>");
+        result.append("<totalDiscarded>").append(getTotalDiscarded()).append("</totalDiscarded>");
+        result.append("<totalBypassed>").append(getTotalBypassed()).append("</totalBypassed>");
+        result.append("<totalFailed>").append(getTotalFailed()).append("</totalFailed>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+    // </editor-fold>
+
+    /**
+     * LogEntry class is a slot of the ring buffer; slots are reused.
+     */
+    private static final class LogEntry {
+
+        // <editor-fold desc="class private storage">
+        private AbstractService _service;
+        private LogLevelType _level;
+        private String _format;
+        private Object[] _args;
+        // </editor-fold>
+    }
+}
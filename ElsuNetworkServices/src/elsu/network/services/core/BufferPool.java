@@ -0,0 +1,164 @@
+package elsu.network.services.core;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * BufferPool class keeps a shared set of fixed size byte arrays used by the
+ * record framers to read the client sockets. Buffers are returned to the pool
+ * when the reader is closed; the pool holds at most the configured # of idle
+ * buffers, additional buffers are left to the garbage collector.
+ *
+ * @see RecordFramer
+ * @see RecordReader
+ */
+public class BufferPool {
+
+    // <editor-fold desc="class private storage">
+    // size of the pooled buffers
+    public static final int BUFFER_SIZE = 8192;
+
+    // maximum # of idle buffers held by the default pool
+    private static final int DEFAULT_MAXIMUM_IDLE = 1024;
+
+    // pool shared by all services
+    private static final BufferPool _default
+            = new BufferPool(BUFFER_SIZE, DEFAULT_MAXIMUM_IDLE);
+
+    // size of the buffers managed by the pool
+    private final int _bufferSize;
+
+    // maximum # of idle buffers
+    private volatile int _maximumIdle;
+
+    // idle buffers
+    private final ConcurrentLinkedQueue<byte[]> _buffers
+            = new ConcurrentLinkedQueue<>();
+
+    // # of idle buffers, tracked separately since the queue size is O(n)
+    private final AtomicInteger _idle = new AtomicInteger(0);
+
+    // pool metrics
+    private final AtomicLong _totalAllocated = new AtomicLong(0L);
+    private final AtomicLong _totalReused = new AtomicLong(0L);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public BufferPool(int bufferSize, int maximumIdle) {
+        this._bufferSize = bufferSize;
+        this._maximumIdle = maximumIdle;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getDefault() method returns the pool shared by all services.
+     *
+     * @return <code>BufferPool</code>
+     */
+    public static BufferPool getDefault() {
+        return _default;
+    }
+
+    public int getBufferSize() {
+        return this._bufferSize;
+    }
+
+    public int getIdle() {
+        return this._idle.get();
+    }
+
+    public int getMaximumIdle() {
+        return this._maximumIdle;
+    }
+
+    public void setMaximumIdle(int maximumIdle) {
+        this._maximumIdle = maximumIdle;
+    }
+
+    public long getTotalAllocated() {
+        return this._totalAllocated.get();
+    }
+
+    public long getTotalReused() {
+        return this._totalReused.get();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * acquire() method returns an idle buffer or allocates a new buffer if the
+     * pool is empty.
+     *
+     * @return <code>byte[]</code> buffer of the pool buffer size
+     */
+    public byte[] acquire() {
+        byte[] result = this._buffers.poll();
+
+        if (result != null) {
+            this._idle.decrementAndGet();
+            this._totalReused.incrementAndGet();
+        } else {
+            result = new byte[this._bufferSize];
+            this._totalAllocated.incrementAndGet();
+        }
+
+        return result;
+    }
+
+    /**
+     * release(...) method returns the buffer to the pool. Buffers which are
+     * not the pool size or exceed the idle limit are discarded.
+     *
+     * @param buffer
+     */
+    public void release(byte[] buffer) {
+        if ((buffer == null) || (buffer.length != this._bufferSize)) {
+            return;
+        }
+
+        if (this._idle.incrementAndGet() <= this._maximumIdle) {
+            this._buffers.add(buffer);
+        } else {
+            this._idle.decrementAndGet();
+        }
+    }
+
+    /**
+     * trim(...) method releases idle buffers to the garbage collector until
+     * the # of idle buffers is less than or equal to the value provided.
+     *
+     * @param maximumIdle
+     * @return <code>int</code> # of buffers released
+     */
+    public int trim(int maximumIdle) {
+        int result = 0;
+
+        while (this._idle.get() > maximumIdle) {
+            if (this._buffers.poll() == null) {
+                break;
+            }
+
+            this._idle.decrementAndGet();
+            result++;
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<bufferSize>").append(getBufferSize()).append("</bufferSize>");
+        result.append("<idle>").append(getIdle()).append("</idle>");
+        result.append("<maximumIdle>").append(getMaximumIdle()).append("</maximumIdle>");
+        result.append("<totalAllocated>").append(getTotalAllocated()).append("</totalAllocated>");
+        result.append("<totalReused>").append(getTotalReused()).append("</totalReused>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+    // </editor-fold>
+}
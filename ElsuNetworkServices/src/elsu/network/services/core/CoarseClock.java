@@ -0,0 +1,95 @@
+package elsu.network.services.core;
+
+import java.util.*;
+
+/**
+ * CoarseClock class provides the current time in milliseconds without calling
+ * the system clock or allocating a Date for every message. A single daemon
+ * ticker thread updates the shared time every millisecond; readers only
+ * perform a volatile read.
+ * <p>
+ * The clock is intended for statistics and message timestamps where a
+ * resolution of a few milliseconds is acceptable; it must not be used to
+ * measure elapsed time of short operations.
+ *
+ * @see AbstractServiceRuntimeProperties
+ */
+public final class CoarseClock {
+
+    // <editor-fold desc="class private storage">
+    // interval (ms) between ticks of the clock
+    private static final long TICK_INTERVAL = 1L;
+
+    // current time of the clock
+    private static volatile long _currentTimeMillis
+            = System.currentTimeMillis();
+
+    // ticker thread, started when the class is loaded
+    private static final Thread _ticker = createTicker();
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    private CoarseClock() {
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * currentTimeMillis() method returns the time of the last clock tick.
+     *
+     * @return <code>long</code> current time in milliseconds
+     */
+    public static long currentTimeMillis() {
+        return _currentTimeMillis;
+    }
+
+    /**
+     * currentDate() method returns a new Date object for the current clock
+     * time; used only when a Date is required by the caller.
+     *
+     * @return <code>Date</code> current time
+     */
+    public static Date currentDate() {
+        return new Date(_currentTimeMillis);
+    }
+
+    /**
+     * toDate(...) method returns a Date for the time provided, zero is
+     * treated as not set and null is returned.
+     *
+     * @param timeMillis
+     * @return <code>Date</code> or null
+     */
+    public static Date toDate(long timeMillis) {
+        return (timeMillis == 0L) ? null : new Date(timeMillis);
+    }
+
+    /**
+     * createTicker() method creates and starts the daemon thread which
+     * updates the clock.
+     *
+     * @return <code>Thread</code> ticker thread
+     */
+    private static Thread createTicker() {
+        Thread result = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (;;) {
+                    _currentTimeMillis = System.currentTimeMillis();
+
+                    try {
+                        Thread.sleep(TICK_INTERVAL);
+                    } catch (InterruptedException ex) {
+                        // the clock runs for the life of the jvm
+                    }
+                }
+            }
+        }, "CoarseClock");
+
+        result.setDaemon(true);
+        result.start();
+
+        return result;
+    }
+    // </editor-fold>
+}
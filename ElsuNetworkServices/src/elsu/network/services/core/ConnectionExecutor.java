@@ -0,0 +1,445 @@
+package elsu.network.services.core;
+
+import elsu.network.core.*;
+import elsu.network.services.*;
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * ConnectionExecutor class executes the connection serve(...) processing and
+ * the connection child threads (readers) for a service using the execution
+ * type defined by the service config.
+ * <p>
+ * Child tasks which the connections wait for (readers, connect attempts)
+ * are started with executeHelper(...); they are not queued behind the
+ * connections in the POOLED pool, otherwise a full pool of connections
+ * waiting for their readers would never run the readers.
+ * <p>
+ * PLATFORM creates a thread in the service thread group for each task, which
+ * is the original behaviour of the connections. POOLED serves the tasks using
+ * a bounded pool of threads (bulkhead) so a burst on one service cannot use
+ * the threads and memory of the other services; tasks wait in the pool queue
+ * when all the threads are busy and are rejected when the queue is full.
+ * VIRTUAL creates a virtual thread for each task; the
+ * executor is located through reflection to allow the framework to run on
+ * older JVMs, if virtual threads are not supported PLATFORM is used.
+ *
+ * @see ConnectionExecutionType
+ * @see AbstractService
+ */
+public class ConnectionExecutor {
+
+    // <editor-fold desc="class private storage">
+    // service which owns the executor
+    private volatile IService _service = null;
+
+    // execution type in use, this can differ from the service config if the
+    // JVM does not support the requested type
+    private volatile ConnectionExecutionType _executionType
+            = ConnectionExecutionType.PLATFORM;
+
+    // executor for POOLED and VIRTUAL execution types
+    private volatile ExecutorService _executor = null;
+
+    // executor of the helper tasks for the POOLED execution type, the
+    // threads are created on demand and released after 60 seconds idle
+    private volatile ExecutorService _helperExecutor = null;
+
+    // # of tasks currently executing
+    private final AtomicInteger _liveThreads = new AtomicInteger(0);
+
+    // # of tasks started by the executor
+    private final AtomicLong _totalTasks = new AtomicLong(0);
+
+    // # of tasks rejected by the pool
+    private final AtomicLong _totalRejected = new AtomicLong(0);
+
+    // time (ns) the tasks waited in the pool queue and were executing
+    private final AtomicLong _totalWaitTime = new AtomicLong(0);
+    private final AtomicLong _maximumWaitTime = new AtomicLong(0);
+    private final AtomicLong _totalRunTime = new AtomicLong(0);
+    private final AtomicLong _completedTasks = new AtomicLong(0);
+
+    // sequence used to name the pool threads
+    private final AtomicInteger _threadSequence = new AtomicInteger(0);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    /**
+     * ConnectionExecutor(...) constructor creates the executor for the
+     * execution type defined in the service config.
+     *
+     * @param service
+     */
+    public ConnectionExecutor(IService service) {
+        this._service = service;
+        this._executionType = service.getServiceConfig().getExecutionType();
+
+        switch (this._executionType) {
+            case POOLED:
+                this._executor = createPooledExecutor(
+                        service.getServiceConfig().getExecutionCoreThreads(),
+                        Math.max(1,
+                                service.getServiceConfig().getExecutionThreads()),
+                        service.getServiceConfig().getExecutionQueueDepth());
+                this._helperExecutor = createHelperExecutor();
+                break;
+            case VIRTUAL:
+                this._executor = createVirtualExecutor();
+
+                // virtual threads are not supported by the JVM, use platform
+                // threads
+                if (this._executor == null) {
+                    this._executionType = ConnectionExecutionType.PLATFORM;
+
+                    service.logInfo(getClass().toString()
+                            + ", ConnectionExecutor(), "
+                            + service.getServiceConfig().getServiceName()
+                            + ", virtual threads not supported, using "
+                            + this._executionType);
+                }
+                break;
+            default:
+                break;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public ConnectionExecutionType getExecutionType() {
+        return this._executionType;
+    }
+
+    /**
+     * getLiveThreads() method returns the # of tasks currently executing.
+     *
+     * @return <code>int</code> # of live tasks
+     */
+    public int getLiveThreads() {
+        return this._liveThreads.get();
+    }
+
+    public long getTotalTasks() {
+        return this._totalTasks.get();
+    }
+
+    /**
+     * getQueuedTasks() method returns the # of tasks waiting for a pool
+     * thread.
+     *
+     * @return <code>int</code> # of queued tasks
+     */
+    public int getQueuedTasks() {
+        if (this._executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) this._executor).getQueue().size();
+        }
+
+        return 0;
+    }
+
+    /**
+     * getPoolSize() method returns the # of threads in the pool, zero if the
+     * execution type does not use a pool.
+     *
+     * @return <code>int</code> # of pool threads
+     */
+    public int getPoolSize() {
+        if (this._executor instanceof ThreadPoolExecutor) {
+            return ((ThreadPoolExecutor) this._executor).getPoolSize();
+        }
+
+        return 0;
+    }
+
+    public long getTotalRejected() {
+        return this._totalRejected.get();
+    }
+
+    /**
+     * getAverageWaitTime() method returns the average time (microseconds)
+     * the tasks waited for a thread.
+     *
+     * @return <code>long</code>
+     */
+    public long getAverageWaitTime() {
+        long tasks = this._totalTasks.get();
+
+        if (tasks == 0L) {
+            return 0L;
+        }
+
+        return (this._totalWaitTime.get() / tasks) / 1000L;
+    }
+
+    /**
+     * getMaximumWaitTime() method returns the longest time (microseconds) a
+     * task waited for a thread.
+     *
+     * @return <code>long</code>
+     */
+    public long getMaximumWaitTime() {
+        return this._maximumWaitTime.get() / 1000L;
+    }
+
+    /**
+     * getAverageRunTime() method returns the average time (milliseconds) the
+     * completed tasks were executing; for connections this is the connection
+     * duration.
+     *
+     * @return <code>long</code>
+     */
+    public long getAverageRunTime() {
+        long tasks = this._completedTasks.get();
+
+        if (tasks == 0L) {
+            return 0L;
+        }
+
+        return (this._totalRunTime.get() / tasks) / 1000000L;
+    }
+
+    public IService getService() {
+        return this._service;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * execute(...) method starts the connection processing. Connections which
+     * do not require a thread (channel connections) are started directly.
+     *
+     * @param connection
+     */
+    public void execute(AbstractConnection connection) {
+        if (!connection.isThreaded()) {
+            connection.start();
+        } else {
+            execute(connection, connection.getName());
+        }
+    }
+
+    /**
+     * execute(...) method executes the task using the execution type; the name
+     * is applied to the platform and pool threads for debugging.
+     * <p>
+     * RejectedExecutionException is raised when the pool and its queue are
+     * full; the caller is responsible to release the task resources.
+     *
+     * @param task
+     * @param name
+     */
+    public void execute(Runnable task, String name) {
+        Runnable wrapper = new TrackedTask(task, name);
+
+        if (this._executor == null) {
+            Thread thread = new Thread(getService().getThreadGroup(), wrapper,
+                    name);
+            thread.start();
+        } else {
+            try {
+                this._executor.execute(wrapper);
+            } catch (RejectedExecutionException ex) {
+                this._totalRejected.incrementAndGet();
+                throw ex;
+            }
+        }
+    }
+
+    /**
+     * executeHelper(...) method executes a child task of a connection or of
+     * the service (reader, connect attempt). The task is not counted against
+     * the POOLED pool and its queue: it runs on a helper thread of the
+     * service thread group; PLATFORM and VIRTUAL execute it as any task.
+     *
+     * @param task
+     * @param name
+     */
+    public void executeHelper(Runnable task, String name) {
+        if (this._helperExecutor == null) {
+            execute(task, name);
+        } else {
+            this._helperExecutor.execute(new TrackedTask(task, name));
+        }
+    }
+
+    /**
+     * shutdown() method stops the executor from accepting new tasks. Running
+     * tasks are terminated by the service when the connections are removed.
+     */
+    public void shutdown() {
+        if (this._executor != null) {
+            this._executor.shutdown();
+        }
+
+        if (this._helperExecutor != null) {
+            this._helperExecutor.shutdown();
+        }
+    }
+
+    /**
+     * createPooledExecutor(...) method creates the bounded pool with threads
+     * in the service thread group. The pool keeps the core threads and grows
+     * to the maximum threads when the queue is full; threads above the core
+     * size are released after 60 seconds idle. A zero core size uses the
+     * maximum (fixed pool) and a zero queue depth is unbounded, in which case
+     * the pool does not grow above the core size.
+     *
+     * @param coreThreads
+     * @param maximumThreads
+     * @param queueDepth
+     * @return <code>ExecutorService</code>
+     */
+    private ExecutorService createPooledExecutor(int coreThreads,
+            int maximumThreads, int queueDepth) {
+        int core = ((coreThreads <= 0) || (coreThreads > maximumThreads))
+                ? maximumThreads : coreThreads;
+
+        BlockingQueue<Runnable> queue = (queueDepth > 0)
+                ? new ArrayBlockingQueue<Runnable>(queueDepth)
+                : new LinkedBlockingQueue<Runnable>();
+
+        return new ThreadPoolExecutor(core, maximumThreads, 60L,
+                TimeUnit.SECONDS, queue, new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(getService().getThreadGroup(), r,
+                                "Pool:" + getService().getServiceConfig().getServiceName()
+                                + ":" + _threadSequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * createHelperExecutor() method creates the unbounded pool of the helper
+     * tasks, a thread is created when no idle thread is available.
+     *
+     * @return <code>ExecutorService</code>
+     */
+    private ExecutorService createHelperExecutor() {
+        return new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60L,
+                TimeUnit.SECONDS, new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        Thread thread = new Thread(getService().getThreadGroup(), r,
+                                "Helper:" + getService().getServiceConfig().getServiceName()
+                                + ":" + _threadSequence.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+    }
+
+    /**
+     * createVirtualExecutor() method creates the virtual thread per task
+     * executor using reflection; null is returned if the JVM does not provide
+     * virtual threads.
+     *
+     * @return <code>ExecutorService</code> or null
+     */
+    private static ExecutorService createVirtualExecutor() {
+        try {
+            Method method = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) method.invoke(null);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<executionType>").append(getExecutionType()).append("</executionType>");
+        result.append("<liveThreads>").append(getLiveThreads()).append("</liveThreads>");
+        result.append("<totalTasks>").append(getTotalTasks()).append("</totalTasks>");
+        result.append("<poolSize>").append(getPoolSize()).append("</poolSize>");
+        result.append("<queuedTasks>").append(getQueuedTasks()).append("</queuedTasks>");
+        result.append("<totalRejected>").append(getTotalRejected()).append("</totalRejected>");
+        result.append("<averageWaitTime>").append(getAverageWaitTime()).append("</averageWaitTime>");
+        result.append("<maximumWaitTime>").append(getMaximumWaitTime()).append("</maximumWaitTime>");
+        result.append("<averageRunTime>").append(getAverageRunTime()).append("</averageRunTime>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class task wrapper">
+    /**
+     * TrackedTask class maintains the live thread count for the task and
+     * names the pool thread while the task is running.
+     */
+    private class TrackedTask implements Runnable {
+
+        private final Runnable _task;
+        private final String _name;
+        // time (ns) the task was submitted
+        private final long _submitTime;
+
+        TrackedTask(Runnable task, String name) {
+            this._task = task;
+            this._name = name;
+            this._submitTime = System.nanoTime();
+        }
+
+        @Override
+        public void run() {
+            long startTime = System.nanoTime();
+
+            _liveThreads.incrementAndGet();
+            _totalTasks.incrementAndGet();
+
+            // record the time the task waited for a thread
+            long waitTime = startTime - this._submitTime;
+            _totalWaitTime.addAndGet(waitTime);
+            long maximum;
+            while (waitTime > (maximum = _maximumWaitTime.get())) {
+                if (_maximumWaitTime.compareAndSet(maximum, waitTime)) {
+                    break;
+                }
+            }
+
+            // pool threads are renamed to the task for debugging
+            Thread current = Thread.currentThread();
+            String threadName = current.getName();
+            if (_executor != null) {
+                current.setName(this._name);
+            }
+
+            // connections record the thread serving them, used by the
+            // service drain to skip and interrupt the connection
+            AbstractConnection connection = null;
+            if (this._task instanceof AbstractConnection) {
+                connection = (AbstractConnection) this._task;
+                connection.setServingThread(current);
+            }
+
+            try {
+                this._task.run();
+            } catch (Exception ex) {
+                getService().logError(getClass().toString() + ", run(), "
+                        + getService().getServiceConfig().getServiceName()
+                        + ", " + this._name + ", " + ex.getMessage());
+            } finally {
+                if (connection != null) {
+                    connection.setServingThread(null);
+                }
+
+                if (_executor != null) {
+                    current.setName(threadName);
+                }
+
+                _totalRunTime.addAndGet(System.nanoTime() - startTime);
+                _completedTasks.incrementAndGet();
+                _liveThreads.decrementAndGet();
+            }
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,197 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * ConnectionRegistry class stores the active connections of a service. The
+ * connections are indexed by the connection id and by the remote host address
+ * of the client socket; add, remove, and lookup do not lock the registry and
+ * the collections returned can be iterated while connections are added or
+ * removed (weakly consistent).
+ * <p>
+ * The per remote host index allows admission decisions to be made on the # of
+ * connections from a single host. The set of a host is updated under its own
+ * lock, so a set emptied and removed by one thread is never used by a
+ * concurrent add; other hosts are not blocked.
+ *
+ * @see AbstractConnection
+ * @see AbstractServiceProperties
+ */
+public class ConnectionRegistry {
+
+    // <editor-fold desc="class private storage">
+    // connections indexed by the connection id
+    private final ConcurrentHashMap<Long, AbstractConnection> _connections;
+
+    // connections indexed by the remote host address, connections without
+    // a socket are not indexed
+    private final ConcurrentHashMap<String, Set<AbstractConnection>> _hosts;
+
+    // read only view of the connections
+    private final Collection<AbstractConnection> _view;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    /**
+     * ConnectionRegistry(...) constructor creates the indexes sized for the
+     * expected # of connections.
+     *
+     * @param initialCapacity
+     */
+    public ConnectionRegistry(int initialCapacity) {
+        this._connections = new ConcurrentHashMap<>(
+                Math.max(16, initialCapacity));
+        this._hosts = new ConcurrentHashMap<>();
+        this._view = Collections.unmodifiableCollection(
+                this._connections.values());
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getConnections() method returns a read only view of the connections.
+     * The view reflects connections added or removed after it is returned.
+     *
+     * @return <code>Collection</code> of the connections
+     */
+    public Collection<AbstractConnection> getConnections() {
+        return this._view;
+    }
+
+    /**
+     * getConnection(...) method returns the connection for the id or null if
+     * the connection is not registered.
+     *
+     * @param connectionId
+     * @return <code>AbstractConnection</code>
+     */
+    public AbstractConnection getConnection(long connectionId) {
+        return this._connections.get(connectionId);
+    }
+
+    /**
+     * getConnections(...) method returns the connections from the remote host.
+     *
+     * @param remoteHost
+     * @return <code>Collection</code> of the connections, empty if none
+     */
+    public Collection<AbstractConnection> getConnections(String remoteHost) {
+        Set<AbstractConnection> result = this._hosts.get(remoteHost);
+
+        if (result == null) {
+            return Collections.emptySet();
+        }
+
+        return Collections.unmodifiableSet(result);
+    }
+
+    /**
+     * getHostCount(...) method returns the # of connections from the remote
+     * host.
+     *
+     * @param remoteHost
+     * @return <code>int</code> # of connections
+     */
+    public int getHostCount(String remoteHost) {
+        Set<AbstractConnection> result = this._hosts.get(remoteHost);
+
+        return (result == null) ? 0 : result.size();
+    }
+
+    /**
+     * getHosts() method returns the remote hosts which have connections.
+     *
+     * @return <code>Set</code> of remote host addresses
+     */
+    public Set<String> getHosts() {
+        return Collections.unmodifiableSet(this._hosts.keySet());
+    }
+
+    public int size() {
+        return this._connections.size();
+    }
+
+    public boolean isEmpty() {
+        return this._connections.isEmpty();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * add(...) method registers the connection.
+     *
+     * @param connection
+     * @return <code>boolean</code> false if the connection was registered
+     */
+    public boolean add(AbstractConnection connection) {
+        if (this._connections.putIfAbsent(connection.getConnectionId(),
+                connection) != null) {
+            return false;
+        }
+
+        String host = connection.getRemoteHost();
+        if (host != null) {
+            // the host set may be removed by a concurrent remove once it is
+            // empty; the set is checked and updated under its lock and the
+            // add is retried on the new set if it was removed
+            for (;;) {
+                Set<AbstractConnection> hostSet = this._hosts.get(host);
+
+                if (hostSet == null) {
+                    Set<AbstractConnection> newSet = Collections.newSetFromMap(
+                            new ConcurrentHashMap<AbstractConnection, Boolean>());
+                    hostSet = this._hosts.putIfAbsent(host, newSet);
+
+                    if (hostSet == null) {
+                        hostSet = newSet;
+                    }
+                }
+
+                synchronized (hostSet) {
+                    if (this._hosts.get(host) == hostSet) {
+                        hostSet.add(connection);
+                        break;
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * remove(...) method removes the connection. The method can be called more
+     * than once for a connection, only the first call returns true.
+     *
+     * @param connection
+     * @return <code>boolean</code> true if the connection was removed
+     */
+    public boolean remove(AbstractConnection connection) {
+        if (!this._connections.remove(connection.getConnectionId(),
+                connection)) {
+            return false;
+        }
+
+        String host = connection.getRemoteHost();
+        if (host != null) {
+            Set<AbstractConnection> hostSet = this._hosts.get(host);
+
+            if (hostSet != null) {
+                // the empty set is removed under its lock so a concurrent add
+                // cannot add to it after the check
+                synchronized (hostSet) {
+                    hostSet.remove(connection);
+
+                    if (hostSet.isEmpty()) {
+                        this._hosts.remove(host, hostSet);
+                    }
+                }
+            }
+        }
+
+        return true;
+    }
+    // </editor-fold>
+}
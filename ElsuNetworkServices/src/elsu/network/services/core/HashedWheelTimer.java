@@ -0,0 +1,467 @@
+package elsu.network.services.core;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * HashedWheelTimer class schedules timeouts for large # of connections using
+ * one thread. Timeouts are hashed into a fixed wheel of buckets by their
+ * deadline; on every tick only the bucket of the current tick is processed,
+ * so the cost of a tick does not depend on the # of scheduled timeouts.
+ * Scheduling and cancelling a timeout are O(1).
+ * <p>
+ * The resolution of the timer is the tick duration; timeouts may expire up
+ * to one tick late. Tasks are executed on the timer thread and must not
+ * block. While no timeouts are pending the timer thread waits instead of
+ * ticking.
+ * <p>
+ * Connections record their last activity with AbstractConnection.touch(); the
+ * idle timeout checks the activity when it expires and reschedules itself for
+ * the remaining time, so activity does not touch the wheel.
+ *
+ * @see WheelTimeout
+ * @see ITimeoutTask
+ */
+public class HashedWheelTimer extends Thread {
+
+    // <editor-fold desc="class private storage">
+    // default duration (ms) of a tick
+    public static final long DEFAULT_TICK_DURATION = 100L;
+
+    // default # of buckets in the wheel
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    // maximum # of new timeouts moved to the wheel on one tick, the rest are
+    // moved on the next tick
+    private static final int MAXIMUM_TRANSFER = 100000;
+
+    // timer shared by all services
+    private static volatile HashedWheelTimer _default = null;
+
+    // duration (ns) of a tick
+    private final long _tickDuration;
+
+    // buckets of the wheel, size is a power of two
+    private final WheelBucket[] _wheel;
+    private final int _mask;
+
+    // timeouts scheduled since the last tick
+    private final Queue<WheelTimeout> _pendingTimeouts
+            = new ConcurrentLinkedQueue<>();
+
+    // timeouts cancelled since the last tick
+    private final Queue<WheelTimeout> _cancelledTimeouts
+            = new ConcurrentLinkedQueue<>();
+
+    // start time (ns) of the timer, deadlines are relative to it
+    private final long _startTime = System.nanoTime();
+
+    // current tick, only accessed by the timer thread
+    private long _tick = 0L;
+
+    // status of the timer
+    private volatile boolean _isActive = true;
+
+    // set while the timer thread waits for a timeout to be scheduled
+    private volatile boolean _isIdle = false;
+
+    // timer metrics
+    private final AtomicLong _pending = new AtomicLong(0L);
+    private final AtomicLong _totalScheduled = new AtomicLong(0L);
+    private final AtomicLong _totalExpired = new AtomicLong(0L);
+    private final AtomicLong _totalCancelled = new AtomicLong(0L);
+    private final AtomicLong _totalFailed = new AtomicLong(0L);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public HashedWheelTimer(String name, long tickDuration, int wheelSize) {
+        super(name);
+
+        this._tickDuration = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(1L, tickDuration));
+
+        // round the wheel size to a power of two so the bucket index is a mask
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+
+        this._wheel = new WheelBucket[size];
+        for (int i = 0; i < size; i++) {
+            this._wheel[i] = new WheelBucket();
+        }
+        this._mask = size - 1;
+
+        setDaemon(true);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getDefault() method returns the timer shared by all services; the timer
+     * is created and started on first use.
+     *
+     * @return <code>HashedWheelTimer</code>
+     */
+    public static HashedWheelTimer getDefault() {
+        HashedWheelTimer result = _default;
+
+        if (result == null) {
+            synchronized (HashedWheelTimer.class) {
+                result = _default;
+
+                if (result == null) {
+                    result = new HashedWheelTimer("WheelTimer",
+                            DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+                    result.start();
+
+                    _default = result;
+                }
+            }
+        }
+
+        return result;
+    }
+
+    public long getTickDuration() {
+        return TimeUnit.NANOSECONDS.toMillis(this._tickDuration);
+    }
+
+    public int getWheelSize() {
+        return this._wheel.length;
+    }
+
+    public long getPending() {
+        return this._pending.get();
+    }
+
+    public long getTotalScheduled() {
+        return this._totalScheduled.get();
+    }
+
+    public long getTotalExpired() {
+        return this._totalExpired.get();
+    }
+
+    public long getTotalCancelled() {
+        return this._totalCancelled.get();
+    }
+
+    public long getTotalFailed() {
+        return this._totalFailed.get();
+    }
+
+    public boolean isActive() {
+        return this._isActive;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * newTimeout(...) method schedules the task to be executed after the
+     * delay (ms).
+     *
+     * @param task
+     * @param delay
+     * @return <code>WheelTimeout</code> handle used to cancel the task
+     */
+    public WheelTimeout newTimeout(ITimeoutTask task, long delay) {
+        return newTimeout(task, delay, null);
+    }
+
+    /**
+     * newTimeout(...) method schedules the task of the service to be executed
+     * after the delay (ms); if the task fails the error is written to the
+     * service log.
+     *
+     * @param task
+     * @param delay
+     * @param service
+     * @return <code>WheelTimeout</code> handle used to cancel the task
+     */
+    public WheelTimeout newTimeout(ITimeoutTask task, long delay,
+            IService service) {
+        long deadline = (System.nanoTime() - this._startTime)
+                + TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delay));
+
+        WheelTimeout result = new WheelTimeout(this, task, deadline, service);
+
+        this._pending.incrementAndGet();
+        this._totalScheduled.incrementAndGet();
+        this._pendingTimeouts.add(result);
+
+        // wake the timer thread if it is waiting for a timeout
+        if (this._isIdle) {
+            LockSupport.unpark(this);
+        }
+
+        return result;
+    }
+
+    /**
+     * shutdown() method stops the timer thread; pending timeouts are not
+     * executed.
+     */
+    public void shutdown() {
+        this._isActive = false;
+        this.interrupt();
+    }
+
+    /**
+     * run() method advances the wheel one bucket per tick and expires the
+     * timeouts of the bucket.
+     */
+    @Override
+    public void run() {
+        while (isActive()) {
+            // no timeouts pending, wait instead of ticking
+            if (this._pending.get() <= 0L) {
+                waitForTimeout();
+                continue;
+            }
+
+            long deadline = waitForNextTick();
+            if (deadline < 0L) {
+                continue;
+            }
+
+            removeCancelledTimeouts();
+            transferTimeouts();
+
+            this._wheel[(int) (this._tick & this._mask)].expireTimeouts(
+                    deadline);
+            this._tick++;
+        }
+    }
+
+    /**
+     * cancelled(...) method queues the cancelled timeout to be removed from
+     * its bucket by the timer thread.
+     *
+     * @param timeout
+     */
+    void cancelled(WheelTimeout timeout) {
+        this._pending.decrementAndGet();
+        this._totalCancelled.incrementAndGet();
+        this._cancelledTimeouts.add(timeout);
+    }
+
+    /**
+     * taskFailed(...) method is called when the task throws an exception; the
+     * failure is counted and the exception is written to the log of the
+     * service which scheduled the task, if any.
+     *
+     * @param timeout
+     * @param ex
+     */
+    void taskFailed(WheelTimeout timeout, Throwable ex) {
+        this._totalFailed.incrementAndGet();
+
+        if (timeout.getService() != null) {
+            try {
+                timeout.getService().logError(getClass().toString()
+                        + ", taskFailed(), "
+                        + timeout.getTask().getClass().getName() + ", "
+                        + ex.getMessage());
+            } catch (Exception exi) {
+                // the timer thread must not be stopped by the log
+            }
+        }
+    }
+
+    /**
+     * waitForTimeout() method parks the timer thread until a timeout is
+     * scheduled; the wheel resumes from the current tick, there are no
+     * pending timeouts in the buckets.
+     */
+    private void waitForTimeout() {
+        // set the flag before the check, newTimeout(...) increments the
+        // pending count before it reads the flag
+        this._isIdle = true;
+
+        while (isActive() && (this._pending.get() <= 0L)) {
+            LockSupport.park(this);
+        }
+
+        this._isIdle = false;
+
+        this._tick = (System.nanoTime() - this._startTime)
+                / this._tickDuration;
+    }
+
+    /**
+     * waitForNextTick() method sleeps until the start of the next tick.
+     *
+     * @return <code>long</code> deadline (ns) of the tick or -1 if the wait
+     * was interrupted
+     */
+    private long waitForNextTick() {
+        long deadline = this._tickDuration * (this._tick + 1);
+
+        for (;;) {
+            long current = System.nanoTime() - this._startTime;
+            long sleepTime = (deadline - current + 999999L) / 1000000L;
+
+            if (sleepTime <= 0L) {
+                return current;
+            }
+
+            try {
+                Thread.sleep(sleepTime);
+            } catch (InterruptedException ex) {
+                if (!isActive()) {
+                    return -1L;
+                }
+            }
+        }
+    }
+
+    /**
+     * transferTimeouts() method moves the new timeouts to their bucket.
+     */
+    private void transferTimeouts() {
+        for (int i = 0; i < MAXIMUM_TRANSFER; i++) {
+            WheelTimeout timeout = this._pendingTimeouts.poll();
+            if (timeout == null) {
+                break;
+            }
+
+            // the timeout was cancelled before it was added to the wheel
+            if (timeout.isCancelled()) {
+                continue;
+            }
+
+            long calculated = timeout._deadline / this._tickDuration;
+            timeout._remainingRounds = (calculated - this._tick)
+                    / this._wheel.length;
+
+            // timeouts already due are expired on the current tick
+            long ticks = Math.max(calculated, this._tick);
+            this._wheel[(int) (ticks & this._mask)].add(timeout);
+        }
+    }
+
+    /**
+     * removeCancelledTimeouts() method removes the cancelled timeouts from
+     * their bucket.
+     */
+    private void removeCancelledTimeouts() {
+        WheelTimeout timeout;
+
+        while ((timeout = this._cancelledTimeouts.poll()) != null) {
+            if (timeout._bucket != null) {
+                timeout._bucket.remove(timeout);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<tickDuration>").append(getTickDuration()).append("</tickDuration>");
+        result.append("<wheelSize>").append(getWheelSize()).append("</wheelSize>");
+        result.append("<pending>").append(getPending()).append("</pending>");
+        result.append("<totalScheduled>").append(getTotalScheduled()).append("</totalScheduled>");
+        result.append("<totalExpired>").append(getTotalExpired()).append("</totalExpired>");
+        result.append("<totalCancelled>").append(getTotalCancelled()).append("</totalCancelled>");
+        result.append("<totalFailed>").append(getTotalFailed()).append("</totalFailed>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+    // </editor-fold>
+
+    /**
+     * WheelBucket class is a doubly linked list of the timeouts hashed to one
+     * slot of the wheel; only accessed by the timer thread.
+     */
+    final class WheelBucket {
+
+        // <editor-fold desc="class private storage">
+        private WheelTimeout _head;
+        private WheelTimeout _tail;
+        // </editor-fold>
+
+        // <editor-fold desc="class methods">
+        void add(WheelTimeout timeout) {
+            timeout._bucket = this;
+
+            if (this._head == null) {
+                this._head = this._tail = timeout;
+            } else {
+                this._tail._next = timeout;
+                timeout._prev = this._tail;
+                this._tail = timeout;
+            }
+        }
+
+        /**
+         * expireTimeouts(...) method expires the timeouts in the bucket whose
+         * deadline has passed and decreases the rounds of the others.
+         *
+         * @param deadline
+         */
+        void expireTimeouts(long deadline) {
+            WheelTimeout timeout = this._head;
+
+            while (timeout != null) {
+                WheelTimeout next = timeout._next;
+
+                if (timeout._remainingRounds <= 0L) {
+                    remove(timeout);
+
+                    if (timeout._deadline <= deadline) {
+                        // a timeout cancelled since the last tick has
+                        // already been counted by cancelled(...)
+                        if (timeout.expire()) {
+                            _pending.decrementAndGet();
+                            _totalExpired.incrementAndGet();
+                        }
+                    } else {
+                        // the timeout was placed in the wrong bucket, this
+                        // should not happen; reschedule it
+                        _pendingTimeouts.add(timeout);
+                    }
+                } else if (timeout.isCancelled()) {
+                    remove(timeout);
+                } else {
+                    timeout._remainingRounds--;
+                }
+
+                timeout = next;
+            }
+        }
+
+        void remove(WheelTimeout timeout) {
+            // the timeout has already been removed
+            if (timeout._bucket != this) {
+                return;
+            }
+
+            WheelTimeout next = timeout._next;
+
+            if (timeout._prev != null) {
+                timeout._prev._next = next;
+            }
+            if (next != null) {
+                next._prev = timeout._prev;
+            }
+
+            if (timeout == this._head) {
+                this._head = next;
+            }
+            if (timeout == this._tail) {
+                this._tail = timeout._prev;
+            }
+
+            timeout._prev = null;
+            timeout._next = null;
+            timeout._bucket = null;
+        }
+        // </editor-fold>
+    }
+}
@@ -0,0 +1,18 @@
+package elsu.network.services.core;
+
+/**
+ * IMessageDecoder interface is the inbound stage of the service pipeline; it
+ * converts the record received from the client into the message processed by
+ * the handler. decode(...) returns null if the record does not produce a
+ * message.
+ * <p>
+ * The record view is only valid during the call, messages which are kept
+ * after the handler returns must be copied by the decoder.
+ *
+ * @param <I> message type passed to the handler
+ * @see AbstractPipelineService
+ */
+public interface IMessageDecoder<I> {
+
+    I decode(RecordView record) throws Exception;
+}
@@ -0,0 +1,14 @@
+package elsu.network.services.core;
+
+/**
+ * IMessageEncoder interface is the outbound stage of the service pipeline; it
+ * converts the message written by the handler into the record sent to the
+ * client. The record terminator is appended by the pipeline.
+ *
+ * @param <O> message type received from the handler
+ * @see AbstractPipelineService
+ */
+public interface IMessageEncoder<O> {
+
+    CharSequence encode(O message) throws Exception;
+}
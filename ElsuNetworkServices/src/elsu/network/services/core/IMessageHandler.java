@@ -0,0 +1,17 @@
+package elsu.network.services.core;
+
+/**
+ * IMessageHandler interface is the business stage of the service pipeline;
+ * it processes the decoded message and writes the replies through the
+ * pipeline context. handle(...) is called on the connection thread or on the
+ * reactor io thread (NIO) and must not block in the later case.
+ *
+ * @param <I> message type received from the decoder
+ * @param <O> message type passed to the encoder
+ * @see AbstractPipelineService
+ * @see IPipelineContext
+ */
+public interface IMessageHandler<I, O> {
+
+    void handle(IPipelineContext<O> context, I message) throws Exception;
+}
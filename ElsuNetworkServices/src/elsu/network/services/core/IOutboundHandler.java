@@ -0,0 +1,20 @@
+package elsu.network.services.core;
+
+import java.net.*;
+
+/**
+ * IOutboundHandler interface is implemented by the services which use the
+ * OutboundConnector to maintain a connection to a remote service.
+ * isConnectRequired() is checked before each connect attempt, the attempts
+ * stop when it returns false. connected(...) receives the connected socket
+ * and normally adds the connection to the service.
+ *
+ * @see OutboundConnector
+ */
+public interface IOutboundHandler {
+
+    boolean isConnectRequired();
+
+    void connected(OutboundConnector connector, String host, Socket socket)
+            throws Exception;
+}
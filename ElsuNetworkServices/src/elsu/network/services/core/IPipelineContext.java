@@ -0,0 +1,23 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+
+/**
+ * IPipelineContext interface is passed to the pipeline handler to send the
+ * replies to the client connection. write(...) encodes the message and
+ * queues it on the connection; the pipeline decides when the connection is
+ * flushed. close() ends the connection after the pending replies are sent.
+ *
+ * @param <O> message type passed to the encoder
+ * @see AbstractPipelineService
+ */
+public interface IPipelineContext<O> {
+
+    AbstractConnection getConnection();
+
+    boolean isClosed();
+
+    void write(O message) throws Exception;
+
+    void close();
+}
@@ -0,0 +1,20 @@
+package elsu.network.services.core;
+
+/**
+ * IPipelineService interface is implemented by services which process the
+ * client records through a decoder, handler, encoder pipeline instead of
+ * implementing the serve(...) read loop. The io loop is provided by
+ * AbstractPipelineService for the BLOCKING and NIO io types.
+ *
+ * @param <I> message type produced by the decoder
+ * @param <O> message type consumed by the encoder
+ * @see AbstractPipelineService
+ */
+public interface IPipelineService<I, O> extends IRecordService {
+
+    IMessageDecoder<I> getDecoder();
+
+    IMessageHandler<I, O> getHandler();
+
+    IMessageEncoder<O> getEncoder();
+}
@@ -0,0 +1,22 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+
+/**
+ * IRecordService interface is implemented by services which can process
+ * framed records delivered by the NIO reactor. Services configured with
+ * ioType NIO which do not implement this interface are served through the
+ * blocking serve(...) method on a connection thread.
+ * <p>
+ * serveRecord(...) is called on the reactor io thread and must not block;
+ * replies are queued on the connection using ChannelConnection.write(...).
+ * The record view is only valid during the call, toString() or getBytes()
+ * must be used to keep the record.
+ *
+ * @see ServiceReactor
+ * @see ChannelConnection
+ */
+public interface IRecordService extends IService {
+
+    void serveRecord(ChannelConnection conn, RecordView record) throws Exception;
+}
@@ -16,25 +16,40 @@ public interface IService {
 
     void addConnection(Socket socket,
             AbstractConnection connection) throws Exception;
+
+    void acceptConnection(Socket socket,
+            AbstractConnection connection) throws Exception;
         
     void checkConnection(AbstractConnection conn);
 
     void checkConnections();
 
+    AcceptMetrics getAcceptMetrics();
+
+    ServiceMetrics getServiceMetrics();
+
     ServiceListener getListener();
 
     ServiceConfig getServiceConfig();
 
     ThreadGroup getThreadGroup();
 
+    RemoteHostLimiter getHostLimiter();
+
+    boolean isDebugEnabled();
+
     boolean isRunning();
     
     void logDebug(Object obj);
 
+    void logDebug(String format, Object... args);
+
     void logError(Object obj);
 
     void logInfo(Object obj);
 
+    void logInfo(String format, Object... args);
+
     void removeConnection(AbstractConnection conn);
 
     void start() throws Exception;
@@ -0,0 +1,30 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+import java.net.*;
+
+/**
+ * IServiceTracer interface is implemented by the tracing providers loaded by
+ * ServiceTrace (java.util.ServiceLoader, META-INF/services). Each begin
+ * method is called when the operation starts and the span returned is ended
+ * by the caller, in a finally block, when the operation completes.
+ * <p>
+ * The methods are called on the listener, connection and io threads for
+ * every connection and record; they must not block and should return a
+ * shared span when the operation is not traced.
+ *
+ * @see ITraceSpan
+ * @see ServiceTrace
+ */
+public interface IServiceTracer {
+
+    ITraceSpan beginAccept(IService service, Socket client);
+
+    ITraceSpan beginConnection(IService service, AbstractConnection connection);
+
+    ITraceSpan beginRecord(IService service, AbstractConnection connection);
+
+    ITraceSpan beginFileWrite(IService service, String fileName);
+
+    ITraceSpan beginDatabaseCall(IService service, String procedure);
+}
@@ -0,0 +1,15 @@
+package elsu.network.services.core;
+
+/**
+ * ITimeoutTask interface is implemented by the tasks scheduled on the
+ * HashedWheelTimer. expired(...) is called on the timer thread and must not
+ * block; tasks which perform io should hand the work to the service
+ * connection executor.
+ *
+ * @see HashedWheelTimer
+ * @see WheelTimeout
+ */
+public interface ITimeoutTask {
+
+    void expired(WheelTimeout timeout) throws Exception;
+}
@@ -0,0 +1,15 @@
+package elsu.network.services.core;
+
+/**
+ * ITraceSpan interface is returned by the IServiceTracer begin methods and
+ * ends the traced operation. The byte counts are the data received and sent
+ * by the operation (written, for the file writes), zero if not applicable;
+ * character streams report the # of characters.
+ *
+ * @see IServiceTracer
+ * @see ServiceTrace
+ */
+public interface ITraceSpan {
+
+    void end(long bytesReceived, long bytesSent);
+}
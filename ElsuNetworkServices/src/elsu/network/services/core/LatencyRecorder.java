@@ -0,0 +1,322 @@
+package elsu.network.services.core;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * LatencyRecorder class counts the time (ns) of a service operation into
+ * log-linear buckets, the layout used by HdrHistogram: values below 64 are
+ * counted exactly and larger values in 32 steps for each power of two, so
+ * the percentiles are within 3% of the values recorded.
+ * <p>
+ * record(...) updates one bucket, the sum and, rarely, the maximum; it does
+ * not lock or allocate and can be called by all the connections of the
+ * service. The percentiles are calculated from a Snapshot; the difference of
+ * two snapshots gives the values of the interval between them, or
+ * snapshotAndReset() returns the values and restarts the recorder.
+ *
+ * @see ServiceMetrics
+ */
+public class LatencyRecorder {
+
+    // <editor-fold desc="class private storage">
+    // # of values counted exactly, and the # of steps of each power of two
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int SUB_BUCKET_HALF_COUNT = SUB_BUCKET_COUNT >> 1;
+
+    // # of buckets, covers all positive longs
+    private static final int BUCKET_COUNT
+            = ((64 - SUB_BUCKET_BITS) * SUB_BUCKET_HALF_COUNT) + SUB_BUCKET_COUNT;
+
+    // name of the operation recorded
+    private final String _name;
+
+    // count of the values in each bucket
+    private final AtomicLongArray _counts = new AtomicLongArray(BUCKET_COUNT);
+
+    // sum (ns) of the values recorded
+    private final StripedCounter _totalValue = new StripedCounter();
+
+    // maximum value (ns) recorded
+    private final AtomicLong _maximumValue = new AtomicLong(0L);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public LatencyRecorder(String name) {
+        this._name = name;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public String getName() {
+        return this._name;
+    }
+
+    /**
+     * getSnapshot() method returns a copy of the counts; values recorded
+     * while the copy is made may be included or not.
+     *
+     * @return <code>Snapshot</code>
+     */
+    public Snapshot getSnapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        long totalCount = 0L;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = this._counts.get(i);
+            totalCount += counts[i];
+        }
+
+        return new Snapshot(this._name, counts, totalCount,
+                this._totalValue.sum(), this._maximumValue.get());
+    }
+
+    /**
+     * snapshotAndReset() method returns the counts and removes them from the
+     * recorder; each bucket is read and cleared atomically, so a value
+     * recorded during the call is in either the snapshot or the recorder and
+     * is never lost.
+     *
+     * @return <code>Snapshot</code>
+     */
+    public Snapshot snapshotAndReset() {
+        long[] counts = new long[BUCKET_COUNT];
+        long totalCount = 0L;
+
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = this._counts.getAndSet(i, 0L);
+            totalCount += counts[i];
+        }
+
+        return new Snapshot(this._name, counts, totalCount,
+                this._totalValue.sumThenReset(),
+                this._maximumValue.getAndSet(0L));
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * record(...) method counts the time (ns) of one operation; negative
+     * values (clock adjustments) are counted as zero.
+     *
+     * @param value
+     */
+    public void record(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+
+        this._counts.incrementAndGet(getIndex(value));
+        this._totalValue.add(value);
+
+        // update the maximum if this operation took longer
+        long maximum = this._maximumValue.get();
+        while ((value > maximum)
+                && !this._maximumValue.compareAndSet(maximum, value)) {
+            maximum = this._maximumValue.get();
+        }
+    }
+
+    /**
+     * reset() method removes the values recorded; values recorded during the
+     * reset may be kept.
+     */
+    public void reset() {
+        snapshotAndReset();
+    }
+
+    /**
+     * getIndex(...) method returns the bucket of the value; the value is
+     * shifted right until it fits in the sub buckets, the # of shifts is the
+     * bucket of the power of two.
+     *
+     * @param value
+     * @return <code>int</code>
+     */
+    private static int getIndex(long value) {
+        int shift = Math.max(0,
+                64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS);
+
+        if (shift == 0) {
+            return (int) value;
+        }
+
+        return (shift * SUB_BUCKET_HALF_COUNT) + (int) (value >>> shift);
+    }
+
+    /**
+     * getHighestValue(...) method returns the highest value counted in the
+     * bucket.
+     *
+     * @param index
+     * @return <code>long</code>
+     */
+    private static long getHighestValue(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+
+        int shift = (index >> (SUB_BUCKET_BITS - 1)) - 1;
+        long subBucket = index - (shift * SUB_BUCKET_HALF_COUNT);
+
+        return ((subBucket + 1L) << shift) - 1L;
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        return getSnapshot().toString();
+    }
+
+    /**
+     * Snapshot class is a copy of the recorder counts used to calculate the
+     * percentiles; the values are in ns.
+     */
+    public static class Snapshot {
+
+        private final String _name;
+        private final long _timestamp;
+        private final long[] _counts;
+        private final long _totalCount;
+        private final long _totalValue;
+        private final long _maximumValue;
+
+        Snapshot(String name, long[] counts, long totalCount, long totalValue,
+                long maximumValue) {
+            this._name = name;
+            this._timestamp = System.currentTimeMillis();
+            this._counts = counts;
+            this._totalCount = totalCount;
+            this._totalValue = totalValue;
+            this._maximumValue = maximumValue;
+        }
+
+        public String getName() {
+            return this._name;
+        }
+
+        public long getTimestamp() {
+            return this._timestamp;
+        }
+
+        public long getTotalCount() {
+            return this._totalCount;
+        }
+
+        public long getTotalValue() {
+            return this._totalValue;
+        }
+
+        public long getMaximumValue() {
+            return this._maximumValue;
+        }
+
+        public long getMeanValue() {
+            return (this._totalCount == 0L) ? 0L
+                    : this._totalValue / this._totalCount;
+        }
+
+        /**
+         * getValueAtPercentile(...) method returns the value below or equal
+         * to which the percentage of the values fall; the highest value of the
+         * bucket is returned, capped to the maximum value.
+         *
+         * @param percentile 0.0 to 100.0
+         * @return <code>long</code> value (ns), 0 if there are no values
+         */
+        public long getValueAtPercentile(double percentile) {
+            if (this._totalCount == 0L) {
+                return 0L;
+            }
+
+            double percent = Math.min(100.0, Math.max(0.0, percentile));
+            long countAtPercentile = Math.max(1L,
+                    (long) Math.ceil((percent / 100.0) * this._totalCount));
+
+            long count = 0L;
+            for (int i = 0; i < this._counts.length; i++) {
+                count += this._counts[i];
+
+                if (count >= countAtPercentile) {
+                    return Math.min(this._maximumValue, getHighestValue(i));
+                }
+            }
+
+            return this._maximumValue;
+        }
+
+        /**
+         * getDelta(...) method returns the values recorded since the previous
+         * snapshot of the same recorder. The maximum of the interval is the
+         * highest bucket counted in the interval.
+         *
+         * @param previous snapshot, null returns this snapshot
+         * @return <code>Snapshot</code>
+         */
+        public Snapshot getDelta(Snapshot previous) {
+            if (previous == null) {
+                return this;
+            }
+
+            long[] counts = new long[this._counts.length];
+            long totalCount = 0L;
+            long maximumValue = 0L;
+
+            for (int i = 0; i < counts.length; i++) {
+                // a reset between the snapshots restarts the counts
+                counts[i] = Math.max(0L, this._counts[i] - previous._counts[i]);
+                totalCount += counts[i];
+
+                if (counts[i] > 0L) {
+                    maximumValue = getHighestValue(i);
+                }
+            }
+
+            return new Snapshot(this._name, counts, totalCount,
+                    Math.max(0L, this._totalValue - previous._totalValue),
+                    Math.min(this._maximumValue, maximumValue));
+        }
+
+        /**
+         * toText(...) method returns the snapshot as one line of fields
+         * (us), the format returned by the control service metrics command:
+         * <pre>
+         * prefix.name count=N mean=us p50=us p90=us p99=us p999=us max=us
+         * </pre>
+         *
+         * @param prefix
+         * @return <code>String</code>
+         */
+        public String toText(String prefix) {
+            StringBuilder result = new StringBuilder();
+
+            result.append(prefix).append('.').append(getName());
+            result.append(" count=").append(getTotalCount());
+            result.append(" mean=").append(getMeanValue() / 1000L);
+            result.append(" p50=").append(getValueAtPercentile(50.0) / 1000L);
+            result.append(" p90=").append(getValueAtPercentile(90.0) / 1000L);
+            result.append(" p99=").append(getValueAtPercentile(99.0) / 1000L);
+            result.append(" p999=").append(getValueAtPercentile(99.9) / 1000L);
+            result.append(" max=").append(getMaximumValue() / 1000L);
+
+            return result.toString();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+
+            result.append("<object attr='").append(getClass().getName()).append("'>");
+            result.append("<name>").append(getName()).append("</name>");
+            result.append("<count>").append(getTotalCount()).append("</count>");
+            result.append("<mean>").append(getMeanValue() / 1000L).append("</mean>");
+            result.append("<p50>").append(getValueAtPercentile(50.0) / 1000L).append("</p50>");
+            result.append("<p99>").append(getValueAtPercentile(99.0) / 1000L).append("</p99>");
+            result.append("<p999>").append(getValueAtPercentile(99.9) / 1000L).append("</p999>");
+            result.append("<max>").append(getMaximumValue() / 1000L).append("</max>");
+            result.append("</object>");
+
+            return result.toString();
+        }
+    }
+}
@@ -0,0 +1,565 @@
+package elsu.network.services.core;
+
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * OutboundConnector class creates the outbound connections of a service to a
+ * list of remote hosts. The sockets are created with the service socket
+ * options and connect timeout.
+ * <p>
+ * Each host has a health state; a host which fails to connect is not tried
+ * again until its backoff delay expires. The delay doubles for each
+ * consecutive failure from the service reconnectDelay up to the
+ * reconnectMaximumDelay, with a random jitter so that services do not
+ * reconnect in step after a remote outage. When more than one host is
+ * available the hosts are tried in parallel and the first connection is
+ * used (failover without waiting for the connect timeout of each host). The
+ * parallel attempts run on the helper threads of the service executor so
+ * they are not queued behind the connections of a full pool.
+ * <p>
+ * start() maintains the connection for an IOutboundHandler: the attempts are
+ * executed by the service connection executor and rescheduled on the service
+ * timer until the handler is connected; no thread is held during the
+ * backoff. A host is healthy again only when the handler accepts its
+ * connection; if the handler fails the host backoff is extended as for a
+ * failed connect. connect() makes one synchronous attempt for services which
+ * connect on demand.
+ *
+ * @see IOutboundHandler
+ * @see AbstractService#createOutboundConnector
+ */
+public class OutboundConnector {
+
+    // <editor-fold desc="class private storage">
+    // marks a parallel connect the caller stopped waiting for
+    private static final Connected ABANDONED = new Connected(null, null, 0L);
+    // service which owns the connector
+    private final AbstractService _service;
+    // name of the connector for logging and status
+    private final String _name;
+    // remote port of the hosts
+    private final int _port;
+    // health state of the remote hosts, in the configured priority order
+    private final List<HostState> _hosts = new ArrayList<>();
+    // handler receiving the connections made by start(), null for connect()
+    private final IOutboundHandler _handler;
+    // status of the connect attempts started by start()
+    private final AtomicBoolean _isActive = new AtomicBoolean(false);
+    // next attempt scheduled on the service timer
+    private volatile WheelTimeout _retryTimeout = null;
+    // connect metrics
+    private final AtomicLong _totalAttempts = new AtomicLong(0);
+    private final AtomicLong _totalFailures = new AtomicLong(0);
+    private final AtomicLong _totalConnects = new AtomicLong(0);
+    private final AtomicLong _totalLatency = new AtomicLong(0);
+    private final AtomicLong _maximumLatency = new AtomicLong(0);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public OutboundConnector(AbstractService service, String name,
+            List<String> hosts, int port, IOutboundHandler handler) {
+        this._service = service;
+        this._name = name;
+        this._port = port;
+        this._handler = handler;
+
+        for (String host : hosts) {
+            this._hosts.add(new HostState(host));
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public String getName() {
+        return this._name;
+    }
+
+    public int getPort() {
+        return this._port;
+    }
+
+    /**
+     * isActive() method returns true while start() is trying to connect.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isActive() {
+        return this._isActive.get();
+    }
+
+    /**
+     * isHealthy() method returns true if at least one host connected on its
+     * last attempt (or has not been tried).
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean isHealthy() {
+        for (HostState host : this._hosts) {
+            if (host.getConsecutiveFailures() == 0) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    public long getTotalAttempts() {
+        return this._totalAttempts.get();
+    }
+
+    public long getTotalFailures() {
+        return this._totalFailures.get();
+    }
+
+    public long getTotalConnects() {
+        return this._totalConnects.get();
+    }
+
+    /**
+     * getAverageLatency() method returns the average time (ms) of the
+     * successful connects.
+     *
+     * @return <code>long</code>
+     */
+    public long getAverageLatency() {
+        long connects = this._totalConnects.get();
+
+        if (connects == 0L) {
+            return 0L;
+        }
+
+        return this._totalLatency.get() / connects;
+    }
+
+    public long getMaximumLatency() {
+        return this._maximumLatency.get();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * start() method starts the connect attempts for the handler if they are
+     * not already running. The attempts stop when the handler is connected,
+     * the handler no longer requires the connection or the service stops.
+     */
+    public void start() {
+        if (this._isActive.compareAndSet(false, true)) {
+            submit();
+        }
+    }
+
+    /**
+     * shutdown() method cancels the scheduled attempt; a running attempt
+     * completes.
+     */
+    public void shutdown() {
+        WheelTimeout timeout = this._retryTimeout;
+
+        if (timeout != null) {
+            timeout.cancel();
+            this._retryTimeout = null;
+        }
+
+        this._isActive.set(false);
+    }
+
+    /**
+     * connect() method connects to the first available host; the hosts in
+     * backoff are skipped, the others are tried in parallel.
+     *
+     * @return <code>Socket</code> connected socket
+     * @throws IOException if no host could be connected
+     */
+    public Socket connect() throws IOException {
+        Connected result = connectHost();
+
+        // the connection is returned to the caller, the host is healthy
+        result.getHostState().connected(result.getLatency());
+        return result.getSocket();
+    }
+
+    /**
+     * submit() method executes the next attempt on the service connection
+     * executor; if the executor is saturated the attempt is rescheduled.
+     */
+    private void submit() {
+        try {
+            this._service.getConnectionExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    attempt();
+                }
+            }, "Connector:" + this._name);
+        } catch (RejectedExecutionException ex) {
+            schedule(this._service.getServiceConfig().getReconnectDelay());
+        }
+    }
+
+    /**
+     * attempt() method is one connect attempt for start(); the connection is
+     * passed to the handler or the next attempt is scheduled when the first
+     * host backoff expires.
+     */
+    private void attempt() {
+        // the connection is no longer required, release the connector
+        if (!this._service.isRunning() || !this._handler.isConnectRequired()) {
+            this._isActive.set(false);
+            return;
+        }
+
+        Connected result = null;
+
+        try {
+            result = connectHost();
+
+            this._handler.connected(this, result.getHost(), result.getSocket());
+
+            // the handler owns the connection, the host is healthy
+            result.getHostState().connected(result.getLatency());
+
+            // release the connector
+            this._isActive.set(false);
+            return;
+        } catch (Exception ex) {
+            // the handler failed to use the connection, close it
+            if (result != null) {
+                try {
+                    result.getSocket().close();
+                } catch (Exception exi) {
+                }
+
+                // the host is backed off as for a failed connect, otherwise
+                // the next attempt is made at once and the handler fails in
+                // a loop
+                result.getHostState().failed(ex,
+                        this._service.getServiceConfig().getReconnectDelay(),
+                        this._service.getServiceConfig().getReconnectMaximumDelay());
+            }
+
+            // log error for tracking
+            this._service.logError(getClass().toString() + ", attempt(), "
+                    + this._service.getServiceConfig().getServiceName() + ", "
+                    + this._name + ", error creating connection on port "
+                    + this._port + ", " + ex.getMessage());
+        }
+
+        schedule(getRetryDelay());
+    }
+
+    /**
+     * schedule(...) method schedules the next attempt on the service timer.
+     *
+     * @param delay
+     */
+    private void schedule(long delay) {
+        this._retryTimeout = this._service.getTimer().newTimeout(
+                new ITimeoutTask() {
+            @Override
+            public void expired(WheelTimeout timeout) throws Exception {
+                _retryTimeout = null;
+
+                // the timer thread must not block, the attempt is executed
+                // by the connection executor
+                if (_isActive.get()) {
+                    submit();
+                }
+            }
+        }, Math.max(10L, delay), this._service);
+    }
+
+    /**
+     * getRetryDelay() method returns the time (ms) until the backoff of the
+     * first host expires.
+     *
+     * @return <code>long</code>
+     */
+    private long getRetryDelay() {
+        long now = System.currentTimeMillis();
+        long result = Long.MAX_VALUE;
+
+        for (HostState host : this._hosts) {
+            result = Math.min(result, host.getNextAttemptTime() - now);
+        }
+
+        return Math.max(0L, result);
+    }
+
+    /**
+     * connectHost() method connects to the hosts which are not in backoff;
+     * healthy hosts are listed first. One host is connected on the calling
+     * thread; multiple hosts are connected in parallel using the helper
+     * threads of the service executor and the first connection is returned,
+     * the others are closed.
+     *
+     * @return <code>Connected</code>
+     * @throws IOException
+     */
+    private Connected connectHost() throws IOException {
+        long now = System.currentTimeMillis();
+
+        // collect the hosts which can be tried, the healthy ones first
+        List<HostState> ready = new ArrayList<>();
+        for (HostState host : this._hosts) {
+            if (host.getNextAttemptTime() <= now) {
+                ready.add(host);
+            }
+        }
+        Collections.sort(ready, new Comparator<HostState>() {
+            @Override
+            public int compare(HostState o1, HostState o2) {
+                return Integer.compare(o1.getConsecutiveFailures(),
+                        o2.getConsecutiveFailures());
+            }
+        });
+
+        if (ready.isEmpty()) {
+            throw new ConnectException(this._name
+                    + ", all hosts are waiting to reconnect");
+        }
+
+        // single host, connect on the calling thread
+        if (ready.size() == 1) {
+            return connect(ready.get(0));
+        }
+
+        // multiple hosts, the first connection is used; the winner is handed
+        // over through one reference, set to ABANDONED once the caller stops
+        // waiting so the late connections are closed by their helper
+        final BlockingQueue<Object> results = new LinkedBlockingQueue<>();
+        final AtomicReference<Connected> winner = new AtomicReference<>();
+
+        for (final HostState host : ready) {
+            try {
+                // the calling attempt can hold a pool thread, the parallel
+                // connects must not wait for the pool
+                this._service.getConnectionExecutor().executeHelper(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            Connected connected = connect(host);
+
+                            if (winner.compareAndSet(null, connected)) {
+                                results.add(connected);
+                            } else {
+                                // the host is reachable but not used, or the
+                                // caller has given up
+                                host.connected(connected.getLatency());
+                                connected.getSocket().close();
+                            }
+                        } catch (Exception ex) {
+                            results.add(ex);
+                        }
+                    }
+                }, "Connector:" + this._name + ":" + host.getHost());
+            } catch (RejectedExecutionException ex) {
+                results.add(ex);
+            }
+        }
+
+        // wait for the first connection or all the failures
+        int timeout = this._service.getServiceConfig().getConnectTimeout();
+        Object lastError = null;
+
+        try {
+            for (int i = 0; i < ready.size(); i++) {
+                Object result = (timeout > 0)
+                        ? results.poll(timeout + 1000L, TimeUnit.MILLISECONDS)
+                        : results.take();
+
+                if (result instanceof Connected) {
+                    return (Connected) result;
+                } else if (result == null) {
+                    break;
+                }
+
+                lastError = result;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        // stop the late connections from being used; if one won before the
+        // caller gave up, it is still returned
+        if (!winner.compareAndSet(null, ABANDONED)) {
+            return winner.get();
+        }
+
+        throw new ConnectException(this._name + ", no host connected"
+                + ((lastError != null)
+                        ? ", " + ((Exception) lastError).getMessage() : ""));
+    }
+
+    /**
+     * connect(...) method connects the socket to the host and updates the
+     * connect metrics; a failure sets the host backoff. The host is marked
+     * healthy by the caller once the connection is used.
+     *
+     * @param host
+     * @return <code>Connected</code>
+     * @throws IOException
+     */
+    private Connected connect(HostState host) throws IOException {
+        this._totalAttempts.incrementAndGet();
+        long start = System.nanoTime();
+
+        try {
+            Socket result = this._service.createClientSocket(host.getHost(),
+                    this._port);
+
+            long latency = (System.nanoTime() - start) / 1000000L;
+            this._totalConnects.incrementAndGet();
+            this._totalLatency.addAndGet(latency);
+            long maximum;
+            while (latency > (maximum = this._maximumLatency.get())) {
+                if (this._maximumLatency.compareAndSet(maximum, latency)) {
+                    break;
+                }
+            }
+
+            return new Connected(host, result, latency);
+        } catch (IOException ex) {
+            this._totalFailures.incrementAndGet();
+            host.failed(ex,
+                    this._service.getServiceConfig().getReconnectDelay(),
+                    this._service.getServiceConfig().getReconnectMaximumDelay());
+            throw ex;
+        }
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<name>").append(getName()).append("</name>");
+        result.append("<port>").append(getPort()).append("</port>");
+        result.append("<isActive>").append(isActive()).append("</isActive>");
+        result.append("<isHealthy>").append(isHealthy()).append("</isHealthy>");
+        result.append("<totalAttempts>").append(getTotalAttempts()).append("</totalAttempts>");
+        result.append("<totalFailures>").append(getTotalFailures()).append("</totalFailures>");
+        result.append("<totalConnects>").append(getTotalConnects()).append("</totalConnects>");
+        result.append("<averageLatency>").append(getAverageLatency()).append("</averageLatency>");
+        result.append("<maximumLatency>").append(getMaximumLatency()).append("</maximumLatency>");
+        result.append("<hosts>");
+        for (HostState host : this._hosts) {
+            result.append(host.toString());
+        }
+        result.append("</hosts>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+
+    /**
+     * HostState class stores the health and backoff state of a remote host.
+     */
+    private static class HostState {
+
+        // remote host address
+        private final String _host;
+        // # of failed attempts since the last connect
+        private volatile int _consecutiveFailures = 0;
+        // time (ms) before which the host is not tried
+        private volatile long _nextAttemptTime = 0L;
+        // time (ms) of the last successful connect
+        private volatile long _lastLatency = 0L;
+        // error of the last failed attempt
+        private volatile String _lastError = null;
+
+        HostState(String host) {
+            this._host = host;
+        }
+
+        String getHost() {
+            return this._host;
+        }
+
+        int getConsecutiveFailures() {
+            return this._consecutiveFailures;
+        }
+
+        long getNextAttemptTime() {
+            return this._nextAttemptTime;
+        }
+
+        synchronized void connected(long latency) {
+            this._consecutiveFailures = 0;
+            this._nextAttemptTime = 0L;
+            this._lastLatency = latency;
+        }
+
+        /**
+         * failed(...) method sets the backoff of the host; the delay doubles
+         * for each consecutive failure up to the maximum, and the wait is a
+         * random time between half and the full delay.
+         *
+         * @param ex
+         * @param delay
+         * @param maximumDelay
+         */
+        synchronized void failed(Exception ex, long delay, long maximumDelay) {
+            int failures = ++this._consecutiveFailures;
+
+            long backoff = Math.min(maximumDelay,
+                    delay << Math.min(failures - 1, 20));
+            long jitter = ThreadLocalRandom.current().nextLong(
+                    (backoff / 2L) + 1L);
+
+            this._nextAttemptTime = System.currentTimeMillis()
+                    + (backoff - jitter);
+            this._lastError = ex.getMessage();
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+
+            result.append("<host name='").append(this._host).append("'>");
+            result.append("<consecutiveFailures>").append(this._consecutiveFailures).append("</consecutiveFailures>");
+            result.append("<nextAttemptTime>").append(this._nextAttemptTime).append("</nextAttemptTime>");
+            result.append("<lastLatency>").append(this._lastLatency).append("</lastLatency>");
+            result.append("<lastError>").append(this._lastError).append("</lastError>");
+            result.append("</host>");
+
+            return result.toString();
+        }
+    }
+
+    /**
+     * Connected class is the socket connected to a host.
+     */
+    private static class Connected {
+
+        private final HostState _host;
+        private final Socket _socket;
+        // time (ms) of the connect
+        private final long _latency;
+
+        Connected(HostState host, Socket socket, long latency) {
+            this._host = host;
+            this._socket = socket;
+            this._latency = latency;
+        }
+
+        String getHost() {
+            return this._host.getHost();
+        }
+
+        HostState getHostState() {
+            return this._host;
+        }
+
+        Socket getSocket() {
+            return this._socket;
+        }
+
+        long getLatency() {
+            return this._latency;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package elsu.network.services.core;
+
+/**
+ * RecordCodec class passes the record view through the pipeline without
+ * decoding it; NIO services send the record bytes back to the client without
+ * conversion. The view is only valid while the record is being handled.
+ *
+ * @see AbstractPipelineService
+ */
+public class RecordCodec implements IMessageDecoder<RecordView>,
+        IMessageEncoder<RecordView> {
+
+    @Override
+    public RecordView decode(RecordView record) throws Exception {
+        return record;
+    }
+
+    @Override
+    public CharSequence encode(RecordView message) throws Exception {
+        return message;
+    }
+}
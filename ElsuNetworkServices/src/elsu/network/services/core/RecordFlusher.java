@@ -0,0 +1,179 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * RecordFlusher class flushes the record writers which hold records longer
+ * than their flush interval. A writer arms one deadline on the flush timer
+ * when it starts holding records; writers with the IMMEDIATE policy never arm
+ * a deadline and nothing is checked while no records are held.
+ * <p>
+ * The timer thread never writes to a socket: the due writers are flushed by
+ * a bounded flush pool, at most one flush per writer at a time, so a peer
+ * which stops reading holds one pool thread and the other writers wait in the
+ * pool queue.
+ *
+ * @see RecordWriter
+ * @see HashedWheelTimer
+ */
+final class RecordFlusher {
+
+    // <editor-fold desc="class private storage">
+    // duration (ms) of a tick of the flush timer; the flush intervals are a
+    // few ms, the shared connection timer tick is too coarse
+    private static final long TICK_DURATION = 1L;
+
+    // # of buckets in the flush timer wheel
+    private static final int WHEEL_SIZE = 512;
+
+    // maximum # of threads writing the due writers to their sockets
+    private static final int FLUSH_THREADS = Math.max(2,
+            Runtime.getRuntime().availableProcessors());
+
+    // writers which batch their output, keyed by the connection id
+    private static final ConcurrentMap<Long, RecordWriter> _writers
+            = new ConcurrentHashMap<>();
+
+    // threads writing the due writers to their sockets, released when idle
+    private static final ExecutorService _flushPool = createFlushPool();
+
+    // timer holding the flush deadlines, idle while no records are held
+    private static final HashedWheelTimer _timer = createTimer();
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    private RecordFlusher() {
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * register(...) method adds the writer to the writers of the connections
+     * so its deadline is cancelled when the connection is removed.
+     *
+     * @param writer
+     */
+    static void register(RecordWriter writer) {
+        if (writer.getConnection() != null) {
+            _writers.put(writer.getConnection().getConnectionId(), writer);
+        }
+    }
+
+    /**
+     * unregister(...) method cancels the deadline of the writer; called when
+     * the writer is closed.
+     *
+     * @param writer
+     */
+    static void unregister(RecordWriter writer) {
+        if (writer.getConnection() != null) {
+            _writers.remove(writer.getConnection().getConnectionId(), writer);
+        }
+
+        writer.cancelFlush();
+    }
+
+    /**
+     * unregister(...) method cancels the deadline of the connection writer;
+     * called when the connection is removed from the service, the writer may
+     * not have been closed by the service.
+     *
+     * @param connection
+     */
+    static void unregister(AbstractConnection connection) {
+        RecordWriter writer = _writers.remove(connection.getConnectionId());
+
+        if (writer != null) {
+            writer.cancelFlush();
+        }
+    }
+
+    /**
+     * arm(...) method schedules the flush of the writer after the delay (ms)
+     * unless a deadline is already armed or a flush of the writer is running.
+     *
+     * @param writer
+     * @param delay
+     */
+    static void arm(final RecordWriter writer, long delay) {
+        if (!writer.setFlushScheduled(true)) {
+            return;
+        }
+
+        writer.setFlushTimeout(_timer.newTimeout(new ITimeoutTask() {
+            @Override
+            public void expired(WheelTimeout timeout) {
+                schedule(writer);
+            }
+        }, delay));
+    }
+
+    /**
+     * schedule(...) method submits the flush of the writer to the flush pool;
+     * called on the timer thread when the deadline expires. The writer arms
+     * a new deadline if it still holds records after the flush.
+     *
+     * @param writer
+     */
+    private static void schedule(final RecordWriter writer) {
+        try {
+            _flushPool.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        writer.flushIfDue(CoarseClock.currentTimeMillis());
+                    } finally {
+                        writer.setFlushScheduled(false);
+                        writer.armFlush();
+                    }
+                }
+            });
+        } catch (RejectedExecutionException ex) {
+            writer.setFlushScheduled(false);
+        }
+    }
+
+    /**
+     * createFlushPool() method creates the bounded pool of daemon threads
+     * which write the due writers; each writer has at most one flush queued
+     * and idle threads are released after a minute.
+     *
+     * @return <code>ExecutorService</code> flush pool
+     */
+    private static ExecutorService createFlushPool() {
+        final AtomicInteger sequence = new AtomicInteger(0);
+
+        ThreadPoolExecutor result = new ThreadPoolExecutor(FLUSH_THREADS,
+                FLUSH_THREADS, 60L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable task) {
+                Thread result = new Thread(task,
+                        "RecordFlusher:" + sequence.incrementAndGet());
+                result.setDaemon(true);
+
+                return result;
+            }
+        });
+        result.allowCoreThreadTimeOut(true);
+
+        return result;
+    }
+
+    /**
+     * createTimer() method creates and starts the timer holding the flush
+     * deadlines.
+     *
+     * @return <code>HashedWheelTimer</code> flush timer
+     */
+    private static HashedWheelTimer createTimer() {
+        HashedWheelTimer result = new HashedWheelTimer("RecordFlusher",
+                TICK_DURATION, WHEEL_SIZE);
+        result.start();
+
+        return result;
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,327 @@
+package elsu.network.services.core;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+
+/**
+ * RecordFramer class splits the bytes received from a client into records
+ * using the record terminator. The bytes are read into a pooled buffer and
+ * the records are returned as views of the buffer; records are not copied or
+ * decoded by the framer.
+ * <p>
+ * The framer is filled from a blocking input stream (RecordReader) or from a
+ * non-blocking channel (ChannelConnection), and next() returns the records
+ * which are complete. When the terminator is a line feed, a carriage return
+ * before the terminator is removed to match BufferedReader.readLine().
+ * <p>
+ * The framer is not thread safe, it is owned by the connection reading the
+ * client.
+ *
+ * @see RecordView
+ * @see RecordReader
+ * @see BufferPool
+ */
+public class RecordFramer {
+
+    // <editor-fold desc="class private storage">
+    // default maximum length of a record, protects the service from clients
+    // which never send the terminator
+    public static final int DEFAULT_MAXIMUM_RECORD_LENGTH = 1024 * 1024;
+
+    // pool which provides the read buffer
+    private final BufferPool _pool;
+
+    // record terminator bytes
+    private final byte[] _terminator;
+
+    // last byte of the terminator, used for the scan
+    private final byte _terminatorLast;
+
+    // true if the carriage return before the terminator is removed
+    private final boolean _isStripCarriageReturn;
+
+    // maximum length of a record
+    private final int _maximumRecordLength;
+
+    // read buffer; data between start and end has not been consumed
+    private byte[] _buffer;
+    private int _start = 0;
+    private int _scan = 0;
+    private int _end = 0;
+
+    // wrapper of the read buffer for channel reads
+    private ByteBuffer _channelBuffer;
+
+    // view returned for each record
+    private final RecordView _view;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public RecordFramer(String terminator, Charset charset) {
+        this(terminator, charset, BufferPool.getDefault(),
+                DEFAULT_MAXIMUM_RECORD_LENGTH);
+    }
+
+    /**
+     * RecordFramer(...) constructor creates the framer for the terminator; the
+     * read buffer is acquired from the pool.
+     *
+     * @param terminator
+     * @param charset
+     * @param pool
+     * @param maximumRecordLength
+     */
+    public RecordFramer(String terminator, Charset charset, BufferPool pool,
+            int maximumRecordLength) {
+        if ((terminator == null) || terminator.isEmpty()) {
+            terminator = "\n";
+        }
+
+        this._pool = pool;
+        this._terminator = terminator.getBytes(charset);
+        this._terminatorLast = this._terminator[this._terminator.length - 1];
+        this._isStripCarriageReturn = terminator.equals("\n");
+        this._maximumRecordLength = maximumRecordLength;
+        this._buffer = pool.acquire();
+        this._channelBuffer = ByteBuffer.wrap(this._buffer);
+        this._view = new RecordView(charset);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public byte[] getTerminator() {
+        return this._terminator.clone();
+    }
+
+    /**
+     * remaining() method returns the # of bytes read which have not been
+     * returned as records.
+     *
+     * @return <code>int</code> # of bytes
+     */
+    public int remaining() {
+        return this._end - this._start;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * fill(...) method reads the available bytes from the stream; the call
+     * blocks until at least one byte is read.
+     *
+     * @param in
+     * @return <code>int</code> # of bytes read, -1 at end of stream
+     * @throws IOException
+     */
+    public int fill(InputStream in) throws IOException {
+        prepareFill();
+
+        int result = in.read(this._buffer, this._end,
+                this._buffer.length - this._end);
+        if (result > 0) {
+            this._end += result;
+        }
+
+        return result;
+    }
+
+    /**
+     * fill(...) method reads the available bytes from the channel; for a
+     * non-blocking channel zero is returned if there is no data.
+     *
+     * @param channel
+     * @return <code>int</code> # of bytes read, -1 at end of stream
+     * @throws IOException
+     */
+    public int fill(ReadableByteChannel channel) throws IOException {
+        prepareFill();
+
+        this._channelBuffer.limit(this._buffer.length);
+        this._channelBuffer.position(this._end);
+
+        int result = channel.read(this._channelBuffer);
+        if (result > 0) {
+            this._end += result;
+        }
+
+        return result;
+    }
+
+    /**
+     * next() method returns the next complete record or null if the buffer
+     * does not contain a terminator. The view returned is reused for the next
+     * record.
+     *
+     * @return <code>RecordView</code> or null
+     * @throws IOException if the record exceeds the maximum length
+     */
+    public RecordView next() throws IOException {
+        byte[] data = this._buffer;
+        int termLength = this._terminator.length;
+
+        for (int i = this._scan; i < this._end; i++) {
+            if ((data[i] == this._terminatorLast)
+                    && (i - this._start + 1 >= termLength)
+                    && isTerminator(i + 1 - termLength)) {
+                int length = i + 1 - termLength - this._start;
+
+                if (this._isStripCarriageReturn && (length > 0)
+                        && (data[this._start + length - 1] == '\r')) {
+                    length--;
+                }
+
+                this._view.set(data, this._start, length);
+                this._start = i + 1;
+                this._scan = this._start;
+
+                return this._view;
+            }
+        }
+
+        this._scan = this._end;
+
+        if ((this._end - this._start) > this._maximumRecordLength) {
+            throw new IOException("record exceeds maximum length ("
+                    + this._maximumRecordLength + ")");
+        }
+
+        return null;
+    }
+
+    /**
+     * hasRecord() method returns true if the buffer contains a complete
+     * record; the record is not consumed. The bytes scanned without a
+     * terminator are not scanned again.
+     *
+     * @return <code>boolean</code>
+     */
+    public boolean hasRecord() {
+        byte[] data = this._buffer;
+        int termLength = this._terminator.length;
+
+        if (data == null) {
+            return false;
+        }
+
+        for (int i = this._scan; i < this._end; i++) {
+            if ((data[i] == this._terminatorLast)
+                    && (i - this._start + 1 >= termLength)
+                    && isTerminator(i + 1 - termLength)) {
+                return true;
+            }
+        }
+
+        this._scan = this._end;
+
+        return false;
+    }
+
+    /**
+     * flush() method returns the remaining bytes as a record, used at the end
+     * of the stream for a last record without a terminator.
+     *
+     * @return <code>RecordView</code> or null if there are no bytes
+     */
+    public RecordView flush() {
+        if (this._end == this._start) {
+            return null;
+        }
+
+        this._view.set(this._buffer, this._start, this._end - this._start);
+        this._start = this._end;
+        this._scan = this._end;
+
+        return this._view;
+    }
+
+    /**
+     * drain(...) method copies the unconsumed bytes to the array, used when
+     * the client switches from records to raw data.
+     *
+     * @param dest
+     * @param offset
+     * @param length
+     * @return <code>int</code> # of bytes copied
+     */
+    public int drain(byte[] dest, int offset, int length) {
+        int result = Math.min(length, this._end - this._start);
+
+        System.arraycopy(this._buffer, this._start, dest, offset, result);
+        this._start += result;
+        this._scan = Math.max(this._scan, this._start);
+
+        return result;
+    }
+
+    /**
+     * release() method returns the read buffer to the pool; the framer can
+     * not be used after it is released.
+     */
+    public void release() {
+        if (this._buffer != null) {
+            this._pool.release(this._buffer);
+            this._buffer = null;
+            this._channelBuffer = null;
+            this._start = this._scan = this._end = 0;
+        }
+    }
+
+    /**
+     * prepareFill() method makes room at the end of the buffer by moving the
+     * unconsumed bytes to the front, or growing the buffer if it is full of
+     * a partial record.
+     */
+    private void prepareFill() throws IOException {
+        if (this._buffer == null) {
+            throw new IOException("record framer released");
+        }
+
+        if (this._start == this._end) {
+            this._start = this._scan = this._end = 0;
+        }
+
+        if (this._end < this._buffer.length) {
+            return;
+        }
+
+        int pending = this._end - this._start;
+
+        if (this._start > 0) {
+            System.arraycopy(this._buffer, this._start, this._buffer, 0,
+                    pending);
+        } else {
+            // the partial record fills the buffer, replace it with a larger
+            // buffer; the larger buffer is not returned to the pool
+            byte[] buffer = new byte[this._buffer.length * 2];
+            System.arraycopy(this._buffer, 0, buffer, 0, pending);
+
+            this._pool.release(this._buffer);
+            this._buffer = buffer;
+            this._channelBuffer = ByteBuffer.wrap(buffer);
+        }
+
+        this._scan -= this._start;
+        this._end = pending;
+        this._start = 0;
+    }
+
+    /**
+     * isTerminator(...) method compares the terminator to the buffer at the
+     * offset.
+     *
+     * @param offset
+     * @return <code>boolean</code>
+     */
+    private boolean isTerminator(int offset) {
+        for (int i = 0; i < this._terminator.length - 1; i++) {
+            if (this._buffer[offset + i] != this._terminator[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,201 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+import java.io.*;
+import java.nio.charset.*;
+
+/**
+ * RecordReader class reads records from a blocking input stream using the
+ * RecordFramer. It replaces the BufferedReader used by the services; the
+ * readLine() method is provided for services which require a String, and
+ * readRecord() returns a view of the record which is decoded only if
+ * requested.
+ * <p>
+ * close() closes the stream and returns the read buffer to the pool.
+ *
+ * @see RecordFramer
+ * @see RecordView
+ */
+public class RecordReader implements Closeable {
+
+    // <editor-fold desc="class private storage">
+    // stream being read
+    private final InputStream _in;
+
+    // framer used to split the stream into records
+    private final RecordFramer _framer;
+
+    // connection which owns the stream, touched when data is received
+    private final AbstractConnection _connection;
+
+    // status of the stream
+    private boolean _isEndOfStream = false;
+
+    // host record rate applied to the records read, null if not limited
+    private RemoteHostLimiter _hostLimiter = null;
+    private String _remoteHost = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public RecordReader(InputStream in, String terminator, Charset charset) {
+        this(in, terminator, charset, null);
+    }
+
+    public RecordReader(InputStream in, String terminator, Charset charset,
+            AbstractConnection connection) {
+        this._in = in;
+        this._framer = new RecordFramer(terminator, charset);
+        this._connection = connection;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * setHostLimiter(...) method applies the host record rate of the limiter
+     * to the records read; readRecord() waits or fails when the rate is
+     * exceeded.
+     *
+     * @param limiter
+     * @param remoteHost
+     */
+    public void setHostLimiter(RemoteHostLimiter limiter, String remoteHost) {
+        this._hostLimiter = limiter;
+        this._remoteHost = remoteHost;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * readRecord() method returns the next record from the stream, blocking
+     * until the record is complete. A last record without a terminator is
+     * returned at the end of the stream, after which null is returned.
+     * <p>
+     * The view returned is only valid until the next read.
+     *
+     * @return <code>RecordView</code> or null at the end of the stream
+     * @throws IOException
+     */
+    public RecordView readRecord() throws IOException {
+        for (;;) {
+            RecordView result = this._framer.next();
+            if (result != null) {
+                // apply the host record rate
+                if (this._hostLimiter != null) {
+                    this._hostLimiter.acquireRecord(this._remoteHost);
+                }
+
+                return result;
+            }
+
+            if (this._isEndOfStream) {
+                return null;
+            }
+
+            int count = this._framer.fill(this._in);
+            if (count < 0) {
+                this._isEndOfStream = true;
+                return this._framer.flush();
+            }
+
+            // record the activity for the idle timeout
+            touch(count);
+        }
+    }
+
+    /**
+     * readLine() method returns the next record as a String; same as
+     * readRecord() but the record is decoded.
+     *
+     * @return <code>String</code> or null at the end of the stream
+     * @throws IOException
+     */
+    public String readLine() throws IOException {
+        RecordView result = readRecord();
+
+        return (result == null) ? null : result.toString();
+    }
+
+    /**
+     * isReady() method checks if more data is available without blocking,
+     * either a complete record already read by the framer or data waiting in
+     * the stream. A partial record without data waiting is not ready, the
+     * rest of the record may never arrive. The framer is scanned, so the
+     * method must be called on the thread reading the records.
+     *
+     * @return <code>boolean</code> true if data is available
+     * @throws IOException
+     */
+    public boolean isReady() throws IOException {
+        return this._framer.hasRecord() || (this._in.available() > 0);
+    }
+
+    /**
+     * read(...) method reads raw bytes, bytes already read by the framer are
+     * returned first.
+     *
+     * @param buffer
+     * @return <code>int</code> # of bytes read, -1 at end of stream
+     * @throws IOException
+     */
+    public int read(byte[] buffer) throws IOException {
+        if (this._framer.remaining() > 0) {
+            return this._framer.drain(buffer, 0, buffer.length);
+        }
+
+        int result = this._in.read(buffer);
+
+        // record the activity for the idle timeout
+        if (result > 0) {
+            touch(result);
+        }
+
+        return result;
+    }
+
+    /**
+     * read(...) method reads raw data as characters, each byte is mapped to
+     * one character (ISO-8859-1); used by services which transfer binary
+     * data through character arrays.
+     *
+     * @param buffer
+     * @return <code>int</code> # of characters read, -1 at end of stream
+     * @throws IOException
+     */
+    public int read(char[] buffer) throws IOException {
+        byte[] data = new byte[buffer.length];
+        int result = read(data);
+
+        for (int i = 0; i < result; i++) {
+            buffer[i] = (char) (data[i] & 0xFF);
+        }
+
+        return result;
+    }
+
+    /**
+     * touch(...) method records the data received on the connection, if
+     * provided.
+     *
+     * @param bytes
+     */
+    private void touch(int bytes) {
+        if (this._connection != null) {
+            this._connection.received(bytes);
+        }
+    }
+
+    /**
+     * close() method closes the stream and releases the read buffer.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this._in.close();
+        } finally {
+            this._framer.release();
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,236 @@
+package elsu.network.services.core;
+
+import java.io.*;
+import java.nio.charset.*;
+
+/**
+ * RecordView class is a view of a single record in the buffer of a record
+ * framer. The record is not copied or decoded when it is framed; the bytes
+ * are decoded to a String only when toString() is called and the String is
+ * kept for later calls.
+ * <p>
+ * The view is reused by the framer and is only valid until the next record is
+ * requested or the next read is performed. Callers which need to keep the
+ * record must call toString() or getBytes().
+ *
+ * @see RecordFramer
+ */
+public class RecordView implements CharSequence {
+
+    // <editor-fold desc="class private storage">
+    // buffer holding the record
+    private byte[] _data = null;
+
+    // offset of the record in the buffer
+    private int _offset = 0;
+
+    // length of the record in bytes
+    private int _length = 0;
+
+    // charset used to decode the record
+    private final Charset _charset;
+
+    // decoded record, created on first request
+    private String _value = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public RecordView(Charset charset) {
+        this._charset = charset;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * set(...) method points the view to a new record; called by the framer.
+     *
+     * @param data
+     * @param offset
+     * @param length
+     */
+    void set(byte[] data, int offset, int length) {
+        this._data = data;
+        this._offset = offset;
+        this._length = length;
+        this._value = null;
+    }
+
+    public byte[] getArray() {
+        return this._data;
+    }
+
+    public int getOffset() {
+        return this._offset;
+    }
+
+    public Charset getCharset() {
+        return this._charset;
+    }
+
+    /**
+     * getByteLength() method returns the length of the record in bytes.
+     *
+     * @return <code>int</code> # of bytes
+     */
+    public int getByteLength() {
+        return this._length;
+    }
+
+    public boolean isEmpty() {
+        return this._length == 0;
+    }
+
+    /**
+     * byteAt(...) method returns the byte at the index of the record.
+     *
+     * @param index
+     * @return <code>byte</code>
+     */
+    public byte byteAt(int index) {
+        if ((index < 0) || (index >= this._length)) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+
+        return this._data[this._offset + index];
+    }
+
+    /**
+     * getBytes() method returns a copy of the record bytes.
+     *
+     * @return <code>byte[]</code>
+     */
+    public byte[] getBytes() {
+        byte[] result = new byte[this._length];
+        System.arraycopy(this._data, this._offset, result, 0, this._length);
+
+        return result;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * contentEquals(...) method compares the record to the value without
+     * decoding the record when the value is ascii.
+     *
+     * @param value
+     * @return <code>boolean</code> true if the record matches the value
+     */
+    public boolean contentEquals(String value) {
+        if (value == null) {
+            return false;
+        }
+
+        if (value.length() != this._length) {
+            return isNonAscii(value) && toString().equals(value);
+        }
+
+        for (int i = 0; i < this._length; i++) {
+            char c = value.charAt(i);
+
+            if (c > 0x7F) {
+                return toString().equals(value);
+            }
+
+            if (this._data[this._offset + i] != (byte) c) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * startsWith(...) method checks if the record starts with the value
+     * without decoding the record when the value is ascii.
+     *
+     * @param value
+     * @return <code>boolean</code> true if the record starts with the value
+     */
+    public boolean startsWith(String value) {
+        if (isNonAscii(value)) {
+            return toString().startsWith(value);
+        }
+
+        if (value.length() > this._length) {
+            return false;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            if (this._data[this._offset + i] != (byte) value.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * indexOf(...) method returns the index of the first occurrence of the
+     * byte in the record or -1.
+     *
+     * @param value
+     * @return <code>int</code> index of the byte
+     */
+    public int indexOf(byte value) {
+        for (int i = 0; i < this._length; i++) {
+            if (this._data[this._offset + i] == value) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * writeTo(...) method writes the record bytes to the stream without
+     * decoding.
+     *
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(this._data, this._offset, this._length);
+    }
+
+    private static boolean isNonAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7F) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * toString() method decodes the record; the decoded value is kept until
+     * the view is pointed to the next record.
+     *
+     * @return <code>String</code> decoded record
+     */
+    @Override
+    public String toString() {
+        if (this._value == null) {
+            this._value = new String(this._data, this._offset, this._length,
+                    this._charset);
+        }
+
+        return this._value;
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,409 @@
+package elsu.network.services.core;
+
+import elsu.network.core.*;
+import elsu.network.services.*;
+import java.io.*;
+import java.nio.charset.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * RecordWriter class is a PrintWriter which applies the service flush policy
+ * to the records written to the connection. Services call flush() after each
+ * record as before; depending on the policy the records are held and written
+ * to the socket as a single batch.
+ * <p>
+ * IMMEDIATE flushes every call. SIZE flushes once the flush size is reached.
+ * TIME flushes once the oldest record is held for the flush interval.
+ * ADAPTIVE flushes as soon as there is no more inbound data waiting, so a
+ * request/response exchange is never delayed but a burst of requests is
+ * answered with one write. For all policies except IMMEDIATE the records are
+ * never held longer than the flush interval or beyond the flush size.
+ * <p>
+ * The data sent recorded on the connection is the # of encoded bytes written
+ * to the socket, not the # of characters written to the writer.
+ *
+ * @see FlushPolicyType
+ * @see RecordFlusher
+ */
+public class RecordWriter extends PrintWriter {
+
+    // <editor-fold desc="class private storage">
+    // flush policy for the writer
+    private final FlushPolicyType _policy;
+
+    // # of characters held before the writer is flushed
+    private final int _flushSize;
+
+    // maximum time (ms) a record is held before the writer is flushed
+    private final long _flushInterval;
+
+    // reader for the connection, checked by the ADAPTIVE policy
+    private final RecordReader _reader;
+
+    // connection which owns the stream, touched when data is sent
+    private final AbstractConnection _connection;
+
+    // socket stream counting the encoded bytes written
+    private final ByteCountingStream _counter;
+
+    // # of characters written since the last flush, updated under the lock
+    // and read by the flush pool without it
+    private volatile int _pending = 0;
+
+    // time the first character was written since the last flush
+    private volatile long _pendingTime = 0L;
+
+    // status of the flush deadline armed on the flusher
+    private final AtomicBoolean _isFlushScheduled = new AtomicBoolean(false);
+
+    // flush deadline armed on the flusher
+    private volatile WheelTimeout _flushTimeout = null;
+
+    // set when the writer is closed or the connection removed, no deadline
+    // is armed afterwards
+    private volatile boolean _isFlushCancelled = false;
+
+    // # of flushes to the socket
+    private volatile long _flushCount = 0L;
+
+    // # of flush calls held by the policy
+    private volatile long _deferredCount = 0L;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public RecordWriter(OutputStream out, Charset charset,
+            FlushPolicyType policy, int flushSize, long flushInterval,
+            RecordReader reader) {
+        this(out, charset, policy, flushSize, flushInterval, reader, null);
+    }
+
+    public RecordWriter(OutputStream out, Charset charset,
+            FlushPolicyType policy, int flushSize, long flushInterval,
+            RecordReader reader, AbstractConnection connection) {
+        this(new ByteCountingStream(out), charset, policy, flushSize,
+                flushInterval, reader, connection);
+    }
+
+    private RecordWriter(ByteCountingStream out, Charset charset,
+            FlushPolicyType policy, int flushSize, long flushInterval,
+            RecordReader reader, AbstractConnection connection) {
+        super(new BufferedWriter(new OutputStreamWriter(out, charset),
+                Math.max(flushSize, 1)));
+
+        this._counter = out;
+        this._policy = policy;
+        this._flushSize = Math.max(flushSize, 1);
+        this._flushInterval = flushInterval;
+        this._reader = reader;
+        this._connection = connection;
+
+        // writers which batch records need the flusher to bound the latency
+        if (this._policy != FlushPolicyType.IMMEDIATE) {
+            RecordFlusher.register(this);
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public FlushPolicyType getFlushPolicy() {
+        return this._policy;
+    }
+
+    public long getFlushCount() {
+        return this._flushCount;
+    }
+
+    public long getDeferredCount() {
+        return this._deferredCount;
+    }
+
+    AbstractConnection getConnection() {
+        return this._connection;
+    }
+
+    /**
+     * setFlushScheduled(...) method sets the status of the flush deadline
+     * armed on the flusher.
+     *
+     * @param scheduled
+     * @return <code>boolean</code> true if the status was changed
+     */
+    boolean setFlushScheduled(boolean scheduled) {
+        return this._isFlushScheduled.compareAndSet(!scheduled, scheduled);
+    }
+
+    /**
+     * setFlushTimeout(...) method stores the flush deadline armed on the
+     * flusher; the deadline is cancelled if the writer was closed meanwhile.
+     *
+     * @param timeout
+     */
+    void setFlushTimeout(WheelTimeout timeout) {
+        this._flushTimeout = timeout;
+
+        if (this._isFlushCancelled) {
+            timeout.cancel();
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    @Override
+    public void write(int c) {
+        synchronized (this.lock) {
+            super.write(c);
+            addPending(1);
+        }
+    }
+
+    @Override
+    public void write(char[] buf, int off, int len) {
+        synchronized (this.lock) {
+            super.write(buf, off, len);
+            addPending(len);
+        }
+    }
+
+    @Override
+    public void write(String s, int off, int len) {
+        synchronized (this.lock) {
+            super.write(s, off, len);
+            addPending(len);
+        }
+    }
+
+    /**
+     * flush() method applies the flush policy; the records are written to
+     * the socket only if the policy allows it, otherwise they are held until
+     * the size or the interval is reached.
+     */
+    @Override
+    public void flush() {
+        flush(false);
+    }
+
+    /**
+     * flush(...) method applies the flush policy; more is set by the caller
+     * when it has more records ready to write (e.g. a file being replayed)
+     * and is treated the same as inbound data waiting for the ADAPTIVE
+     * policy.
+     *
+     * @param more
+     */
+    public void flush(boolean more) {
+        synchronized (this.lock) {
+            // nothing written since the last flush
+            if (this._pending == 0) {
+                return;
+            }
+
+            // check if the policy allows the flush
+            if (isFlushRequired(more, CoarseClock.currentTimeMillis())) {
+                flushNow();
+            } else {
+                this._deferredCount++;
+            }
+        }
+    }
+
+    /**
+     * flushNow() method writes the held records to the socket regardless of
+     * the policy.
+     */
+    public void flushNow() {
+        synchronized (this.lock) {
+            // time the socket write for the service metrics
+            long writeStart = System.nanoTime();
+            super.flush();
+            if (this._connection != null) {
+                this._connection.getService().getServiceMetrics()
+                        .getOutboundWrite().record(System.nanoTime() - writeStart);
+            }
+
+            // record the bytes sent since the last flush and the activity
+            // for the idle timeout
+            long bytes = this._counter.getAndReset();
+            if (this._connection != null) {
+                this._connection.sent(bytes);
+            }
+
+            this._pending = 0;
+            this._pendingTime = 0L;
+            this._flushCount++;
+        }
+    }
+
+    /**
+     * flushIfDue(...) method is called by the flush pool to write the records
+     * which have been held for the flush interval.
+     *
+     * @param now
+     */
+    void flushIfDue(long now) {
+        synchronized (this.lock) {
+            if ((this._pending > 0)
+                    && ((now - this._pendingTime) >= this._flushInterval)) {
+                flushNow();
+            }
+        }
+    }
+
+    /**
+     * armFlush() method arms the flush deadline for the time left of the
+     * flush interval of the records held; called when the first record is
+     * held and after a flush by the flush pool. It is checked without the
+     * writer lock, the flush pool must not wait for a writer which is
+     * blocked on its socket.
+     */
+    void armFlush() {
+        if (this._isFlushCancelled || (this._pending == 0)) {
+            return;
+        }
+
+        long elapsed = CoarseClock.currentTimeMillis() - this._pendingTime;
+        RecordFlusher.arm(this, Math.max(0L, this._flushInterval - elapsed));
+    }
+
+    /**
+     * cancelFlush() method cancels the flush deadline of the writer; called
+     * when the writer is closed or the connection is removed.
+     */
+    void cancelFlush() {
+        this._isFlushCancelled = true;
+
+        WheelTimeout timeout = this._flushTimeout;
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    /**
+     * close() method removes the writer from the flusher and closes the
+     * stream; held records are written before the stream is closed.
+     */
+    @Override
+    public void close() {
+        // remove the writer from the flusher
+        RecordFlusher.unregister(this);
+
+        synchronized (this.lock) {
+            this._pending = 0;
+            super.close();
+        }
+    }
+
+    /**
+     * addPending(...) method updates the # of characters held and the time
+     * the first one was written; the writer is flushed if the flush size is
+     * reached.
+     *
+     * @param count
+     */
+    private void addPending(int count) {
+        // capture the time of the first record held
+        boolean isFirst = (this._pending == 0);
+        if (isFirst) {
+            this._pendingTime = CoarseClock.currentTimeMillis();
+        }
+
+        this._pending += count;
+
+        if (this._policy != FlushPolicyType.IMMEDIATE) {
+            // the flush size bounds the records held by all policies, the
+            // flush deadline bounds the time they are held
+            if (this._pending >= this._flushSize) {
+                flushNow();
+            } else if (isFirst) {
+                armFlush();
+            }
+        }
+    }
+
+    /**
+     * isFlushRequired(...) method checks the flush policy against the records
+     * held by the writer.
+     *
+     * @param more
+     * @param now
+     * @return <code>boolean</code> true if the writer should be flushed
+     */
+    private boolean isFlushRequired(boolean more, long now) {
+        boolean result = true;
+
+        switch (this._policy) {
+            case SIZE:
+                result = (this._pending >= this._flushSize);
+                break;
+            case TIME:
+                result = ((now - this._pendingTime) >= this._flushInterval);
+                break;
+            case ADAPTIVE:
+                result = !(more || isInboundReady())
+                        || ((now - this._pendingTime) >= this._flushInterval);
+                break;
+            default:
+                break;
+        }
+
+        return result;
+    }
+
+    /**
+     * isInboundReady() method checks if the connection has inbound data
+     * waiting; any exception is treated as no data.
+     *
+     * @return <code>boolean</code> true if inbound data is waiting
+     */
+    private boolean isInboundReady() {
+        boolean result = false;
+
+        if (this._reader != null) {
+            try {
+                result = this._reader.isReady();
+            } catch (Exception ex) {
+            }
+        }
+
+        return result;
+    }
+    // </editor-fold>
+
+    /**
+     * ByteCountingStream class counts the bytes written to the socket stream;
+     * only accessed under the writer lock.
+     */
+    private static final class ByteCountingStream extends FilterOutputStream {
+
+        // <editor-fold desc="class private storage">
+        // # of bytes written since the last reset
+        private long _count = 0L;
+        // </editor-fold>
+
+        // <editor-fold desc="class constructor destructor">
+        ByteCountingStream(OutputStream out) {
+            super(out);
+        }
+        // </editor-fold>
+
+        // <editor-fold desc="class methods">
+        long getAndReset() {
+            long result = this._count;
+            this._count = 0L;
+
+            return result;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this._count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this._count += len;
+        }
+        // </editor-fold>
+    }
+}
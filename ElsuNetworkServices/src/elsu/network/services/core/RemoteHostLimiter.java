@@ -0,0 +1,335 @@
+package elsu.network.services.core;
+
+import elsu.network.core.*;
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * RemoteHostLimiter class applies the connection rate and the record rate
+ * limits of a service to each remote host address. Each host has its own
+ * token buckets so a host which reconnects in a loop or floods records does
+ * not use the capacity of the other hosts.
+ * <p>
+ * Connections above the host connection rate are refused. Records above the
+ * host record rate are delayed (the connection reader waits, the client is
+ * slowed by tcp flow control) or the connection is closed, based on the
+ * service hostRateAction.
+ * <p>
+ * The hosts which exceeded the limits are reported by getOffenders(...);
+ * hosts idle for the purge time are removed from the limiter.
+ *
+ * @see TokenBucket
+ * @see AbstractService
+ */
+public class RemoteHostLimiter {
+
+    // <editor-fold desc="class private storage">
+    // time (ms) a host is kept after its last connection or record
+    private static final long _purgeTime = 600000L;
+    // connections per second allowed for a host, zero is unlimited
+    private final int _connectionRate;
+    // # of connections a host can open at once above the rate
+    private final int _connectionBurst;
+    // records per second allowed for a host, zero is unlimited
+    private final int _recordRate;
+    // # of records a host can send at once above the rate
+    private final int _recordBurst;
+    // action for the records above the rate
+    private final RateLimitActionType _action;
+    // rate state of each remote host
+    private final ConcurrentHashMap<String, HostRate> _hosts
+            = new ConcurrentHashMap<>();
+    // # of hosts which triggers the next purge of the idle hosts
+    private volatile int _purgeThreshold = 1024;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public RemoteHostLimiter(int connectionRate, int connectionBurst,
+            int recordRate, int recordBurst, RateLimitActionType action) {
+        this._connectionRate = connectionRate;
+        this._connectionBurst = (connectionBurst > 0) ? connectionBurst
+                : connectionRate;
+        this._recordRate = recordRate;
+        this._recordBurst = (recordBurst > 0) ? recordBurst : recordRate;
+        this._action = action;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public boolean isConnectionLimited() {
+        return this._connectionRate > 0;
+    }
+
+    public boolean isRecordLimited() {
+        return this._recordRate > 0;
+    }
+
+    public RateLimitActionType getAction() {
+        return this._action;
+    }
+
+    public int getHostCount() {
+        return this._hosts.size();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * tryConnect(...) method returns false if the host exceeded the
+     * connection rate; the refusal is counted for the host.
+     *
+     * @param host
+     * @return <code>boolean</code>
+     */
+    public boolean tryConnect(String host) {
+        if (!isConnectionLimited() || (host == null)) {
+            return true;
+        }
+
+        HostRate rate = getHostRate(host);
+
+        if (rate.getConnectionBucket().tryAcquire()) {
+            return true;
+        }
+
+        rate._connectionsRejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * tryRecord(...) method returns false if the host exceeded the record
+     * rate; used by the NIO io threads which cannot wait.
+     *
+     * @param host
+     * @return <code>boolean</code>
+     */
+    public boolean tryRecord(String host) {
+        if (!isRecordLimited() || (host == null)) {
+            return true;
+        }
+
+        HostRate rate = getHostRate(host);
+
+        if (rate.getRecordBucket().tryAcquire()) {
+            return true;
+        }
+
+        rate._recordsRejected.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * acquireRecord(...) method applies the record rate for the blocking
+     * connections; the caller waits until the record is allowed or, if the
+     * action is REJECT, an exception is raised to close the connection.
+     *
+     * @param host
+     * @throws IOException
+     */
+    public void acquireRecord(String host) throws IOException {
+        if (!isRecordLimited() || (host == null)) {
+            return;
+        }
+
+        // reject the record without taking a token
+        if (this._action == RateLimitActionType.REJECT) {
+            if (!tryRecord(host)) {
+                throw new IOException("record rate exceeded by " + host);
+            }
+
+            return;
+        }
+
+        HostRate rate = getHostRate(host);
+        long delay = rate.getRecordBucket().reserve();
+
+        if (delay > 0L) {
+            rate._recordsDelayed.incrementAndGet();
+            rate._delayTime.addAndGet(delay / 1000000L);
+
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("record rate delay "
+                        + "interrupted for " + host);
+            }
+        }
+    }
+
+    /**
+     * getOffenders(...) method returns the hosts which exceeded the limits,
+     * ordered by the # of connections and records refused or delayed.
+     *
+     * @param count maximum # of hosts returned
+     * @return <code>List</code>
+     */
+    public List<HostRate> getOffenders(int count) {
+        List<HostRate> result = new ArrayList<>();
+
+        for (HostRate rate : this._hosts.values()) {
+            if (rate.getOffenses() > 0L) {
+                result.add(rate);
+            }
+        }
+
+        Collections.sort(result, new Comparator<HostRate>() {
+            @Override
+            public int compare(HostRate o1, HostRate o2) {
+                return Long.compare(o2.getOffenses(), o1.getOffenses());
+            }
+        });
+
+        if (result.size() > count) {
+            result = new ArrayList<>(result.subList(0, count));
+        }
+
+        return result;
+    }
+
+    /**
+     * getHostRate(...) method returns the rate state of the host, creating it
+     * for new hosts; when the # of hosts reaches the purge threshold the idle
+     * hosts are removed.
+     *
+     * @param host
+     * @return <code>HostRate</code>
+     */
+    private HostRate getHostRate(String host) {
+        HostRate result = this._hosts.get(host);
+
+        if (result == null) {
+            HostRate rate = new HostRate(host);
+
+            result = this._hosts.putIfAbsent(host, rate);
+            if (result == null) {
+                result = rate;
+
+                if (this._hosts.size() >= this._purgeThreshold) {
+                    purge();
+                }
+            }
+        }
+
+        result._lastActivity = CoarseClock.currentTimeMillis();
+        return result;
+    }
+
+    /**
+     * purge() method removes the hosts which have been idle for the purge
+     * time and adjusts the threshold for the next purge.
+     */
+    private synchronized void purge() {
+        long expired = CoarseClock.currentTimeMillis() - _purgeTime;
+
+        Iterator<HostRate> it = this._hosts.values().iterator();
+        while (it.hasNext()) {
+            if (it.next()._lastActivity < expired) {
+                it.remove();
+            }
+        }
+
+        // the next purge is due when the # of active hosts doubles
+        this._purgeThreshold = Math.max(1024, this._hosts.size() * 2);
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<connectionRate>").append(this._connectionRate).append("</connectionRate>");
+        result.append("<connectionBurst>").append(this._connectionBurst).append("</connectionBurst>");
+        result.append("<recordRate>").append(this._recordRate).append("</recordRate>");
+        result.append("<recordBurst>").append(this._recordBurst).append("</recordBurst>");
+        result.append("<action>").append(this._action).append("</action>");
+        result.append("<hosts>").append(getHostCount()).append("</hosts>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+
+    /**
+     * HostRate class stores the token buckets and the limit counters of a
+     * remote host.
+     */
+    public class HostRate {
+
+        // remote host address
+        private final String _host;
+        // buckets created on first use
+        private volatile TokenBucket _connectionBucket = null;
+        private volatile TokenBucket _recordBucket = null;
+        // limit counters
+        private final AtomicLong _connectionsRejected = new AtomicLong();
+        private final AtomicLong _recordsDelayed = new AtomicLong();
+        private final AtomicLong _recordsRejected = new AtomicLong();
+        private final AtomicLong _delayTime = new AtomicLong();
+        // time (ms) of the last connection or record
+        private volatile long _lastActivity = 0L;
+
+        HostRate(String host) {
+            this._host = host;
+        }
+
+        public String getHost() {
+            return this._host;
+        }
+
+        public long getConnectionsRejected() {
+            return this._connectionsRejected.get();
+        }
+
+        public long getRecordsDelayed() {
+            return this._recordsDelayed.get();
+        }
+
+        public long getRecordsRejected() {
+            return this._recordsRejected.get();
+        }
+
+        public long getDelayTime() {
+            return this._delayTime.get();
+        }
+
+        public long getOffenses() {
+            return getConnectionsRejected() + getRecordsDelayed()
+                    + getRecordsRejected();
+        }
+
+        synchronized TokenBucket getConnectionBucket() {
+            if (this._connectionBucket == null) {
+                this._connectionBucket = new TokenBucket(_connectionRate,
+                        _connectionBurst);
+            }
+
+            return this._connectionBucket;
+        }
+
+        synchronized TokenBucket getRecordBucket() {
+            if (this._recordBucket == null) {
+                this._recordBucket = new TokenBucket(_recordRate,
+                        _recordBurst);
+            }
+
+            return this._recordBucket;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder();
+
+            result.append("<host name='").append(getHost()).append("'>");
+            result.append("<connectionsRejected>").append(getConnectionsRejected()).append("</connectionsRejected>");
+            result.append("<recordsDelayed>").append(getRecordsDelayed()).append("</recordsDelayed>");
+            result.append("<recordsRejected>").append(getRecordsRejected()).append("</recordsRejected>");
+            result.append("<delayTime>").append(getDelayTime()).append("</delayTime>");
+            result.append("</host>");
+
+            return result.toString();
+        }
+    }
+}
@@ -54,6 +54,106 @@ public class ServiceConfig {
     // service at one time
     private volatile int _maximumConnections = 10;
 
+    // service io type: BLOCKING, NIO
+    // BLOCKING services use a connection thread for each client socket
+    // NIO services use a selector reactor with a fixed set of io threads
+    private volatile ServiceIOType _ioType = ServiceIOType.BLOCKING;
+
+    // # of selector threads used by the NIO reactor to read client sockets
+    private volatile int _ioThreads = 2;
+
+    // time (ms) a connection can be idle (no data received or sent) before
+    // it is closed, zero disables the idle timeout
+    private volatile long _idleTimeout = 0L;
+
+    // # of threads accepting connections on the service port; when the
+    // platform supports SO_REUSEPORT each thread has its own listener socket
+    // otherwise the threads share one listener socket
+    private volatile int _acceptorCount = 1;
+
+    // connection execution type: PLATFORM, POOLED, VIRTUAL
+    // PLATFORM creates an os thread for each connection
+    // POOLED serves the connections using a bounded pool of threads
+    // VIRTUAL creates a virtual thread for each connection if supported
+    private volatile ConnectionExecutionType _executionType
+            = ConnectionExecutionType.PLATFORM;
+
+    // maximum # of threads in the pool when the execution type is POOLED
+    private volatile int _executionThreads = 64;
+
+    // # of threads kept in the pool when the execution type is POOLED, zero
+    // keeps the execution threads (fixed pool)
+    private volatile int _executionCoreThreads = 0;
+
+    // # of tasks waiting for a pool thread before new connections are
+    // refused, zero is unbounded
+    private volatile int _executionQueueDepth = 0;
+
+    // admission type: REFUSE, QUEUE
+    // REFUSE closes new connections when the connection limit is reached
+    // QUEUE holds new connections until a connection slot is available
+    private volatile ServiceAdmissionType _admissionType
+            = ServiceAdmissionType.REFUSE;
+
+    // maximum # of connections waiting in the admission queue
+    private volatile int _admissionQueueDepth = 50;
+
+    // maximum time (ms) a connection waits in the admission queue before it
+    // is refused
+    private volatile long _admissionWaitTime = 30000L;
+
+    // flush policy for the connection out streams: IMMEDIATE, SIZE, TIME,
+    // ADAPTIVE
+    // IMMEDIATE flushes every record to the socket
+    // SIZE, TIME, ADAPTIVE batch records into a single socket write
+    private volatile FlushPolicyType _flushPolicy = FlushPolicyType.IMMEDIATE;
+
+    // # of characters held before the out stream is flushed
+    private volatile int _flushSize = 8192;
+
+    // maximum time (ms) a record is held before the out stream is flushed
+    private volatile long _flushInterval = 5L;
+
+    // # of pending connections the os queues on the listener socket
+    private volatile int _backlog = 50;
+
+    // socket options applied to the inbound and outbound client sockets;
+    // zero buffer sizes use the os defaults
+    private volatile boolean _isTcpNoDelay = false;
+    private volatile int _sendBufferSize = 0;
+    private volatile int _receiveBufferSize = 0;
+    private volatile boolean _isKeepAlive = false;
+
+    // time (ms) allowed to connect outbound sockets, zero waits indefinitely
+    private volatile int _connectTimeout = 30000;
+
+    // time (ms) a read on a client socket blocks before it fails, zero waits
+    // indefinitely
+    private volatile int _readTimeout = 0;
+
+    // time (ms) before an outbound host is tried again after a failed
+    // connect; the delay doubles for each failure up to the maximum delay
+    private volatile long _reconnectDelay = 1000L;
+    private volatile long _reconnectMaximumDelay = 60000L;
+
+    // time (ms) the service shutdown waits for the connections to finish the
+    // records in progress before they are closed, zero closes immediately
+    private volatile long _drainTimeout = 5000L;
+
+    // connections per second and records per second allowed for each remote
+    // host, zero is unlimited; the burst is the # allowed at once above the
+    // rate, zero uses the rate
+    private volatile int _hostConnectionRate = 0;
+    private volatile int _hostConnectionBurst = 0;
+    private volatile int _hostRecordRate = 0;
+    private volatile int _hostRecordBurst = 0;
+
+    // host rate action: DELAY, REJECT
+    // DELAY holds the records above the host record rate
+    // REJECT closes the connection of the host above the record rate
+    private volatile RateLimitActionType _hostRateAction
+            = RateLimitActionType.DELAY;
+
     // custom attributes defined for the service
     private volatile Map<String, String> _attributes = null;
     // </editor-fold>
@@ -124,6 +224,470 @@ public class ServiceConfig {
         return isIgnoreConnectionLimit();
     }
 
+    public ServiceIOType getIOType() {
+        ServiceIOType result = ServiceIOType.BLOCKING;
+
+        synchronized (this._runtimeSync) {
+            result = this._ioType;
+        }
+
+        return result;
+    }
+
+    public void setIOType(ServiceIOType type) {
+        synchronized (this._runtimeSync) {
+            this._ioType = type;
+        }
+    }
+
+    public int getIOThreads() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._ioThreads;
+        }
+
+        return result;
+    }
+
+    public void setIOThreads(int threads) {
+        synchronized (this._runtimeSync) {
+            this._ioThreads = threads;
+        }
+    }
+
+    public ConnectionExecutionType getExecutionType() {
+        ConnectionExecutionType result = ConnectionExecutionType.PLATFORM;
+
+        synchronized (this._runtimeSync) {
+            result = this._executionType;
+        }
+
+        return result;
+    }
+
+    public void setExecutionType(ConnectionExecutionType type) {
+        synchronized (this._runtimeSync) {
+            this._executionType = type;
+        }
+    }
+
+    public int getExecutionThreads() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._executionThreads;
+        }
+
+        return result;
+    }
+
+    public void setExecutionThreads(int threads) {
+        synchronized (this._runtimeSync) {
+            this._executionThreads = threads;
+        }
+    }
+
+    public int getExecutionCoreThreads() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._executionCoreThreads;
+        }
+
+        return result;
+    }
+
+    public void setExecutionCoreThreads(int value) {
+        synchronized (this._runtimeSync) {
+            this._executionCoreThreads = value;
+        }
+    }
+
+    public int getExecutionQueueDepth() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._executionQueueDepth;
+        }
+
+        return result;
+    }
+
+    public void setExecutionQueueDepth(int value) {
+        synchronized (this._runtimeSync) {
+            this._executionQueueDepth = value;
+        }
+    }
+
+    public long getIdleTimeout() {
+        long result = 0L;
+
+        synchronized (this._runtimeSync) {
+            result = this._idleTimeout;
+        }
+
+        return result;
+    }
+
+    public void setIdleTimeout(long timeout) {
+        synchronized (this._runtimeSync) {
+            this._idleTimeout = timeout;
+        }
+    }
+
+    public int getAcceptorCount() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._acceptorCount;
+        }
+
+        return result;
+    }
+
+    public void setAcceptorCount(int count) {
+        synchronized (this._runtimeSync) {
+            this._acceptorCount = count;
+        }
+    }
+
+    public ServiceAdmissionType getAdmissionType() {
+        ServiceAdmissionType result = ServiceAdmissionType.REFUSE;
+
+        synchronized (this._runtimeSync) {
+            result = this._admissionType;
+        }
+
+        return result;
+    }
+
+    public void setAdmissionType(ServiceAdmissionType type) {
+        synchronized (this._runtimeSync) {
+            this._admissionType = type;
+        }
+    }
+
+    public int getAdmissionQueueDepth() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._admissionQueueDepth;
+        }
+
+        return result;
+    }
+
+    public void setAdmissionQueueDepth(int depth) {
+        synchronized (this._runtimeSync) {
+            this._admissionQueueDepth = depth;
+        }
+    }
+
+    public long getAdmissionWaitTime() {
+        long result = 0L;
+
+        synchronized (this._runtimeSync) {
+            result = this._admissionWaitTime;
+        }
+
+        return result;
+    }
+
+    public void setAdmissionWaitTime(long waitTime) {
+        synchronized (this._runtimeSync) {
+            this._admissionWaitTime = waitTime;
+        }
+    }
+
+    public FlushPolicyType getFlushPolicy() {
+        FlushPolicyType result = FlushPolicyType.IMMEDIATE;
+
+        synchronized (this._runtimeSync) {
+            result = this._flushPolicy;
+        }
+
+        return result;
+    }
+
+    public void setFlushPolicy(FlushPolicyType policy) {
+        synchronized (this._runtimeSync) {
+            this._flushPolicy = policy;
+        }
+    }
+
+    public int getFlushSize() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._flushSize;
+        }
+
+        return result;
+    }
+
+    public void setFlushSize(int size) {
+        synchronized (this._runtimeSync) {
+            this._flushSize = size;
+        }
+    }
+
+    public long getFlushInterval() {
+        long result = 0L;
+
+        synchronized (this._runtimeSync) {
+            result = this._flushInterval;
+        }
+
+        return result;
+    }
+
+    public void setFlushInterval(long interval) {
+        synchronized (this._runtimeSync) {
+            this._flushInterval = interval;
+        }
+    }
+
+    public int getBacklog() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._backlog;
+        }
+
+        return result;
+    }
+
+    public void setBacklog(int value) {
+        synchronized (this._runtimeSync) {
+            this._backlog = value;
+        }
+    }
+
+    public boolean isTcpNoDelay() {
+        boolean result = false;
+
+        synchronized (this._runtimeSync) {
+            result = this._isTcpNoDelay;
+        }
+
+        return result;
+    }
+
+    public void isTcpNoDelay(boolean enabled) {
+        synchronized (this._runtimeSync) {
+            this._isTcpNoDelay = enabled;
+        }
+    }
+
+    public int getSendBufferSize() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._sendBufferSize;
+        }
+
+        return result;
+    }
+
+    public void setSendBufferSize(int value) {
+        synchronized (this._runtimeSync) {
+            this._sendBufferSize = value;
+        }
+    }
+
+    public int getReceiveBufferSize() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._receiveBufferSize;
+        }
+
+        return result;
+    }
+
+    public void setReceiveBufferSize(int value) {
+        synchronized (this._runtimeSync) {
+            this._receiveBufferSize = value;
+        }
+    }
+
+    public boolean isKeepAlive() {
+        boolean result = false;
+
+        synchronized (this._runtimeSync) {
+            result = this._isKeepAlive;
+        }
+
+        return result;
+    }
+
+    public void isKeepAlive(boolean enabled) {
+        synchronized (this._runtimeSync) {
+            this._isKeepAlive = enabled;
+        }
+    }
+
+    public int getConnectTimeout() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._connectTimeout;
+        }
+
+        return result;
+    }
+
+    public void setConnectTimeout(int value) {
+        synchronized (this._runtimeSync) {
+            this._connectTimeout = value;
+        }
+    }
+
+    public int getReadTimeout() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._readTimeout;
+        }
+
+        return result;
+    }
+
+    public void setReadTimeout(int value) {
+        synchronized (this._runtimeSync) {
+            this._readTimeout = value;
+        }
+    }
+
+    public long getReconnectDelay() {
+        long result = 0L;
+
+        synchronized (this._runtimeSync) {
+            result = this._reconnectDelay;
+        }
+
+        return result;
+    }
+
+    public void setReconnectDelay(long delay) {
+        synchronized (this._runtimeSync) {
+            this._reconnectDelay = delay;
+        }
+    }
+
+    public long getReconnectMaximumDelay() {
+        long result = 0L;
+
+        synchronized (this._runtimeSync) {
+            result = this._reconnectMaximumDelay;
+        }
+
+        return result;
+    }
+
+    public void setReconnectMaximumDelay(long delay) {
+        synchronized (this._runtimeSync) {
+            this._reconnectMaximumDelay = delay;
+        }
+    }
+
+    public long getDrainTimeout() {
+        long result = 0L;
+
+        synchronized (this._runtimeSync) {
+            result = this._drainTimeout;
+        }
+
+        return result;
+    }
+
+    public void setDrainTimeout(long timeout) {
+        synchronized (this._runtimeSync) {
+            this._drainTimeout = timeout;
+        }
+    }
+
+    public int getHostConnectionRate() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._hostConnectionRate;
+        }
+
+        return result;
+    }
+
+    public void setHostConnectionRate(int value) {
+        synchronized (this._runtimeSync) {
+            this._hostConnectionRate = value;
+        }
+    }
+
+    public int getHostConnectionBurst() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._hostConnectionBurst;
+        }
+
+        return result;
+    }
+
+    public void setHostConnectionBurst(int value) {
+        synchronized (this._runtimeSync) {
+            this._hostConnectionBurst = value;
+        }
+    }
+
+    public int getHostRecordRate() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._hostRecordRate;
+        }
+
+        return result;
+    }
+
+    public void setHostRecordRate(int value) {
+        synchronized (this._runtimeSync) {
+            this._hostRecordRate = value;
+        }
+    }
+
+    public int getHostRecordBurst() {
+        int result = 0;
+
+        synchronized (this._runtimeSync) {
+            result = this._hostRecordBurst;
+        }
+
+        return result;
+    }
+
+    public void setHostRecordBurst(int value) {
+        synchronized (this._runtimeSync) {
+            this._hostRecordBurst = value;
+        }
+    }
+
+    public RateLimitActionType getHostRateAction() {
+        RateLimitActionType result = RateLimitActionType.DELAY;
+
+        synchronized (this._runtimeSync) {
+            result = this._hostRateAction;
+        }
+
+        return result;
+    }
+
+    public void setHostRateAction(RateLimitActionType action) {
+        synchronized (this._runtimeSync) {
+            this._hostRateAction = action;
+        }
+    }
+
     public int getMaximumConnections() {
         int result = 0;
 
@@ -231,6 +795,35 @@ public class ServiceConfig {
         copyConfig.setStartupType(getStartupType());
         copyConfig.isIgnoreConnectionLimit(isIgnoreConnectionLimit());
         copyConfig.setMaximumConnections(getMaximumConnections());
+        copyConfig.setIOType(getIOType());
+        copyConfig.setIOThreads(getIOThreads());
+        copyConfig.setExecutionType(getExecutionType());
+        copyConfig.setExecutionThreads(getExecutionThreads());
+        copyConfig.setExecutionCoreThreads(getExecutionCoreThreads());
+        copyConfig.setExecutionQueueDepth(getExecutionQueueDepth());
+        copyConfig.setIdleTimeout(getIdleTimeout());
+        copyConfig.setAcceptorCount(getAcceptorCount());
+        copyConfig.setAdmissionType(getAdmissionType());
+        copyConfig.setAdmissionQueueDepth(getAdmissionQueueDepth());
+        copyConfig.setAdmissionWaitTime(getAdmissionWaitTime());
+        copyConfig.setFlushPolicy(getFlushPolicy());
+        copyConfig.setFlushSize(getFlushSize());
+        copyConfig.setFlushInterval(getFlushInterval());
+        copyConfig.setBacklog(getBacklog());
+        copyConfig.isTcpNoDelay(isTcpNoDelay());
+        copyConfig.setSendBufferSize(getSendBufferSize());
+        copyConfig.setReceiveBufferSize(getReceiveBufferSize());
+        copyConfig.isKeepAlive(isKeepAlive());
+        copyConfig.setConnectTimeout(getConnectTimeout());
+        copyConfig.setReadTimeout(getReadTimeout());
+        copyConfig.setReconnectDelay(getReconnectDelay());
+        copyConfig.setReconnectMaximumDelay(getReconnectMaximumDelay());
+        copyConfig.setDrainTimeout(getDrainTimeout());
+        copyConfig.setHostConnectionRate(getHostConnectionRate());
+        copyConfig.setHostConnectionBurst(getHostConnectionBurst());
+        copyConfig.setHostRecordRate(getHostRecordRate());
+        copyConfig.setHostRecordBurst(getHostRecordBurst());
+        copyConfig.setHostRateAction(getHostRateAction());
 
         // copy the original objects attributes to new object
         if (!getAttributes().isEmpty()) {
@@ -271,6 +864,81 @@ public class ServiceConfig {
         sc.isIgnoreConnectionLimit(Boolean.valueOf(config.getProperty(serviceName + ".ignoreConnectionLimit").toString()));
         sc.setMaximumConnections(Integer.valueOf(config.getProperty(serviceName + ".maxConnections").toString()));
 
+        // optional properties, services which do not define them use the
+        // default values
+        sc.setIOType(ServiceIOType.valueOf(getOptionalProperty(config,
+                serviceName + ".ioType", sc.getIOType().toString())));
+        sc.setIOThreads(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".ioThreads", String.valueOf(sc.getIOThreads()))));
+        sc.setExecutionType(ConnectionExecutionType.valueOf(getOptionalProperty(
+                config, serviceName + ".executionType",
+                sc.getExecutionType().toString())));
+        sc.setExecutionThreads(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".executionThreads",
+                String.valueOf(sc.getExecutionThreads()))));
+        sc.setExecutionCoreThreads(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".executionCoreThreads",
+                String.valueOf(sc.getExecutionCoreThreads()))));
+        sc.setExecutionQueueDepth(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".executionQueueDepth",
+                String.valueOf(sc.getExecutionQueueDepth()))));
+        sc.setIdleTimeout(Long.valueOf(getOptionalProperty(config,
+                serviceName + ".idleTimeout",
+                String.valueOf(sc.getIdleTimeout()))));
+        sc.setAcceptorCount(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".acceptorCount",
+                String.valueOf(sc.getAcceptorCount()))));
+        sc.setAdmissionType(ServiceAdmissionType.valueOf(getOptionalProperty(
+                config, serviceName + ".admissionType",
+                sc.getAdmissionType().toString())));
+        sc.setAdmissionQueueDepth(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".admissionQueueDepth",
+                String.valueOf(sc.getAdmissionQueueDepth()))));
+        sc.setAdmissionWaitTime(Long.valueOf(getOptionalProperty(config,
+                serviceName + ".admissionWaitTime",
+                String.valueOf(sc.getAdmissionWaitTime()))));
+        sc.setFlushPolicy(FlushPolicyType.valueOf(getOptionalProperty(config,
+                serviceName + ".flushPolicy", sc.getFlushPolicy().toString())));
+        sc.setFlushSize(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".flushSize", String.valueOf(sc.getFlushSize()))));
+        sc.setFlushInterval(Long.valueOf(getOptionalProperty(config,
+                serviceName + ".flushInterval",
+                String.valueOf(sc.getFlushInterval()))));
+        sc.setBacklog(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".backlog", String.valueOf(sc.getBacklog()))));
+        sc.isTcpNoDelay(Boolean.valueOf(getOptionalProperty(config,
+                serviceName + ".tcpNoDelay", String.valueOf(sc.isTcpNoDelay()))));
+        sc.setSendBufferSize(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".sendBufferSize", String.valueOf(sc.getSendBufferSize()))));
+        sc.setReceiveBufferSize(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".receiveBufferSize", String.valueOf(sc.getReceiveBufferSize()))));
+        sc.isKeepAlive(Boolean.valueOf(getOptionalProperty(config,
+                serviceName + ".keepAlive", String.valueOf(sc.isKeepAlive()))));
+        sc.setConnectTimeout(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".connectTimeout", String.valueOf(sc.getConnectTimeout()))));
+        sc.setReadTimeout(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".readTimeout", String.valueOf(sc.getReadTimeout()))));
+        sc.setReconnectDelay(Long.valueOf(getOptionalProperty(config,
+                serviceName + ".reconnectDelay",
+                String.valueOf(sc.getReconnectDelay()))));
+        sc.setReconnectMaximumDelay(Long.valueOf(getOptionalProperty(config,
+                serviceName + ".reconnectMaximumDelay",
+                String.valueOf(sc.getReconnectMaximumDelay()))));
+        sc.setDrainTimeout(Long.valueOf(getOptionalProperty(config,
+                serviceName + ".drainTimeout",
+                String.valueOf(sc.getDrainTimeout()))));
+        sc.setHostConnectionRate(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".hostConnectionRate", String.valueOf(sc.getHostConnectionRate()))));
+        sc.setHostConnectionBurst(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".hostConnectionBurst", String.valueOf(sc.getHostConnectionBurst()))));
+        sc.setHostRecordRate(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".hostRecordRate", String.valueOf(sc.getHostRecordRate()))));
+        sc.setHostRecordBurst(Integer.valueOf(getOptionalProperty(config,
+                serviceName + ".hostRecordBurst", String.valueOf(sc.getHostRecordBurst()))));
+        sc.setHostRateAction(RateLimitActionType.valueOf(getOptionalProperty(
+                config, serviceName + ".hostRateAction",
+                sc.getHostRateAction().toString())));
+
         // copy the original objects attributes to new object
         for (String attrKey : config.getKeySet()) {
             if (attrKey.startsWith(serviceName + ".attributes.")) {
@@ -281,6 +949,27 @@ public class ServiceConfig {
 
         return sc;
     }
+
+    /**
+     * getOptionalProperty(...) method returns the value of the config property
+     * or the default value if the property is not defined for the service.
+     *
+     * @param config
+     * @param key
+     * @param defaultValue
+     * @return <code>String</code> value of the property
+     */
+    private static String getOptionalProperty(ConfigLoader config, String key,
+            String defaultValue) {
+        Object value = null;
+
+        try {
+            value = config.getProperty(key);
+        } catch (Exception ex) {
+        }
+
+        return (value == null) ? defaultValue : value.toString();
+    }
     // </editor-fold>
 
     @Override
@@ -295,6 +984,35 @@ public class ServiceConfig {
         result.append("<startupType>").append(getStartupType()).append("</startupType>");
         result.append("<isIgnoreMaximumConnection>").append(isIgnoreConnectionLimit()).append("</isIgnoreMaximumConnection>");
         result.append("<maximumConnections>").append(getMaximumConnections()).append("</maximumConnections>");
+        result.append("<ioType>").append(getIOType()).append("</ioType>");
+        result.append("<ioThreads>").append(getIOThreads()).append("</ioThreads>");
+        result.append("<executionType>").append(getExecutionType()).append("</executionType>");
+        result.append("<executionThreads>").append(getExecutionThreads()).append("</executionThreads>");
+        result.append("<executionCoreThreads>").append(getExecutionCoreThreads()).append("</executionCoreThreads>");
+        result.append("<executionQueueDepth>").append(getExecutionQueueDepth()).append("</executionQueueDepth>");
+        result.append("<idleTimeout>").append(getIdleTimeout()).append("</idleTimeout>");
+        result.append("<acceptorCount>").append(getAcceptorCount()).append("</acceptorCount>");
+        result.append("<admissionType>").append(getAdmissionType()).append("</admissionType>");
+        result.append("<admissionQueueDepth>").append(getAdmissionQueueDepth()).append("</admissionQueueDepth>");
+        result.append("<admissionWaitTime>").append(getAdmissionWaitTime()).append("</admissionWaitTime>");
+        result.append("<flushPolicy>").append(getFlushPolicy()).append("</flushPolicy>");
+        result.append("<flushSize>").append(getFlushSize()).append("</flushSize>");
+        result.append("<flushInterval>").append(getFlushInterval()).append("</flushInterval>");
+        result.append("<backlog>").append(getBacklog()).append("</backlog>");
+        result.append("<tcpNoDelay>").append(isTcpNoDelay()).append("</tcpNoDelay>");
+        result.append("<sendBufferSize>").append(getSendBufferSize()).append("</sendBufferSize>");
+        result.append("<receiveBufferSize>").append(getReceiveBufferSize()).append("</receiveBufferSize>");
+        result.append("<keepAlive>").append(isKeepAlive()).append("</keepAlive>");
+        result.append("<connectTimeout>").append(getConnectTimeout()).append("</connectTimeout>");
+        result.append("<readTimeout>").append(getReadTimeout()).append("</readTimeout>");
+        result.append("<reconnectDelay>").append(getReconnectDelay()).append("</reconnectDelay>");
+        result.append("<reconnectMaximumDelay>").append(getReconnectMaximumDelay()).append("</reconnectMaximumDelay>");
+        result.append("<drainTimeout>").append(getDrainTimeout()).append("</drainTimeout>");
+        result.append("<hostConnectionRate>").append(getHostConnectionRate()).append("</hostConnectionRate>");
+        result.append("<hostConnectionBurst>").append(getHostConnectionBurst()).append("</hostConnectionBurst>");
+        result.append("<hostRecordRate>").append(getHostRecordRate()).append("</hostRecordRate>");
+        result.append("<hostRecordBurst>").append(getHostRecordBurst()).append("</hostRecordBurst>");
+        result.append("<hostRateAction>").append(getHostRateAction()).append("</hostRateAction>");
 
         result.append("<attributes>")
                 .append("<size>").append(getAttributes().size()).append("</size>");
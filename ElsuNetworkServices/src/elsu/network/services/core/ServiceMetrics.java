@@ -0,0 +1,85 @@
+package elsu.network.services.core;
+
+import java.util.*;
+
+/**
+ * ServiceMetrics class stores the latency recorders of a service:
+ * <ul>
+ * <li>recordProcessing, time to decode and handle a record
+ * (pipeline services)</li>
+ * <li>firstByte, time from the accept of a connection to the first data
+ * received</li>
+ * <li>connectionLifetime, time from the accept of a connection to its
+ * removal</li>
+ * <li>outboundWrite, time to write the replies to the socket</li>
+ * </ul>
+ * The recorders are returned by the control service metrics command.
+ *
+ * @see LatencyRecorder
+ */
+public class ServiceMetrics {
+
+    // <editor-fold desc="class private storage">
+    private final LatencyRecorder _recordProcessing
+            = new LatencyRecorder("recordProcessing");
+    private final LatencyRecorder _firstByte
+            = new LatencyRecorder("firstByte");
+    private final LatencyRecorder _connectionLifetime
+            = new LatencyRecorder("connectionLifetime");
+    private final LatencyRecorder _outboundWrite
+            = new LatencyRecorder("outboundWrite");
+
+    // recorders in the order reported
+    private final List<LatencyRecorder> _recorders = Collections.unmodifiableList(
+            Arrays.asList(this._recordProcessing, this._firstByte,
+                    this._connectionLifetime, this._outboundWrite));
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public LatencyRecorder getRecordProcessing() {
+        return this._recordProcessing;
+    }
+
+    public LatencyRecorder getFirstByte() {
+        return this._firstByte;
+    }
+
+    public LatencyRecorder getConnectionLifetime() {
+        return this._connectionLifetime;
+    }
+
+    public LatencyRecorder getOutboundWrite() {
+        return this._outboundWrite;
+    }
+
+    public List<LatencyRecorder> getRecorders() {
+        return this._recorders;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * reset() method removes the values of all the recorders.
+     */
+    public void reset() {
+        for (LatencyRecorder recorder : this._recorders) {
+            recorder.reset();
+        }
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        for (LatencyRecorder recorder : this._recorders) {
+            result.append("<").append(recorder.getName()).append(">")
+                    .append(recorder.toString())
+                    .append("</").append(recorder.getName()).append(">");
+        }
+        result.append("</object>");
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,72 @@
+package elsu.network.services.core;
+
+/**
+ * ServiceStatistics class is a snapshot of the service runtime counters. The
+ * counters are read once when the snapshot is created so reports built from
+ * the snapshot are consistent with each other.
+ *
+ * @see AbstractServiceRuntimeProperties
+ */
+public class ServiceStatistics {
+
+    // <editor-fold desc="class private storage">
+    private final long _timestamp;
+    private final int _activeConnections;
+    private final long _totalConnections;
+    private final long _totalConnectionsRejected;
+    private final long _totalMessagesReceived;
+    private final long _totalMessagesSent;
+    private final long _totalMessagesErrored;
+    private final long _sequenceId;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public ServiceStatistics(int activeConnections, long totalConnections,
+            long totalConnectionsRejected, long totalMessagesReceived,
+            long totalMessagesSent, long totalMessagesErrored,
+            long sequenceId) {
+        this._timestamp = System.currentTimeMillis();
+        this._activeConnections = activeConnections;
+        this._totalConnections = totalConnections;
+        this._totalConnectionsRejected = totalConnectionsRejected;
+        this._totalMessagesReceived = totalMessagesReceived;
+        this._totalMessagesSent = totalMessagesSent;
+        this._totalMessagesErrored = totalMessagesErrored;
+        this._sequenceId = sequenceId;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public long getTimestamp() {
+        return this._timestamp;
+    }
+
+    public int getActiveConnections() {
+        return this._activeConnections;
+    }
+
+    public long getTotalConnections() {
+        return this._totalConnections;
+    }
+
+    public long getTotalConnectionsRejected() {
+        return this._totalConnectionsRejected;
+    }
+
+    public long getTotalMessagesReceived() {
+        return this._totalMessagesReceived;
+    }
+
+    public long getTotalMessagesSent() {
+        return this._totalMessagesSent;
+    }
+
+    public long getTotalMessagesErrored() {
+        return this._totalMessagesErrored;
+    }
+
+    public long getSequenceId() {
+        return this._sequenceId;
+    }
+    // </editor-fold>
+}
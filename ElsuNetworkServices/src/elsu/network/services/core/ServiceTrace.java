@@ -0,0 +1,172 @@
+package elsu.network.services.core;
+
+import elsu.network.services.*;
+import java.net.*;
+import java.util.*;
+
+/**
+ * ServiceTrace class provides the tracer used by the services to report the
+ * connection lifecycle, the records processed, the file writes and the
+ * database calls. The tracer is loaded once from the classpath through
+ * java.util.ServiceLoader; the first IServiceTracer provider found is used,
+ * e.g. the JFR events of ElsuNetworkServicesJfr.
+ * <p>
+ * Without a provider, or with -Delsu.trace=false, the no-op tracer returns
+ * a shared span and the calls do not allocate.
+ *
+ * @see IServiceTracer
+ * @see ITraceSpan
+ */
+public final class ServiceTrace {
+
+    // <editor-fold desc="class private storage">
+    // shared span of the operations which are not traced
+    public static final ITraceSpan NOOP_SPAN = new ITraceSpan() {
+        @Override
+        public void end(long bytesReceived, long bytesSent) {
+        }
+    };
+
+    // tracer used when no provider is available
+    public static final IServiceTracer NOOP_TRACER = new IServiceTracer() {
+        @Override
+        public ITraceSpan beginAccept(IService service, Socket client) {
+            return NOOP_SPAN;
+        }
+
+        @Override
+        public ITraceSpan beginConnection(IService service,
+                AbstractConnection connection) {
+            return NOOP_SPAN;
+        }
+
+        @Override
+        public ITraceSpan beginRecord(IService service,
+                AbstractConnection connection) {
+            return NOOP_SPAN;
+        }
+
+        @Override
+        public ITraceSpan beginFileWrite(IService service, String fileName) {
+            return NOOP_SPAN;
+        }
+
+        @Override
+        public ITraceSpan beginDatabaseCall(IService service,
+                String procedure) {
+            return NOOP_SPAN;
+        }
+    };
+
+    // tracer loaded when the class is loaded
+    private static final IServiceTracer _tracer = loadTracer();
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    private ServiceTrace() {
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public static IServiceTracer getTracer() {
+        return _tracer;
+    }
+
+    public static boolean isEnabled() {
+        return _tracer != NOOP_TRACER;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * beginAccept(...) method traces the handoff of an accepted socket to the
+     * service, from the accept until the connection is started or refused.
+     *
+     * @param service
+     * @param client
+     * @return <code>ITraceSpan</code>
+     */
+    public static ITraceSpan beginAccept(IService service, Socket client) {
+        return _tracer.beginAccept(service, client);
+    }
+
+    /**
+     * beginConnection(...) method traces the connection from its admission
+     * until it is removed from the service.
+     *
+     * @param service
+     * @param connection
+     * @return <code>ITraceSpan</code>
+     */
+    public static ITraceSpan beginConnection(IService service,
+            AbstractConnection connection) {
+        return _tracer.beginConnection(service, connection);
+    }
+
+    /**
+     * beginRecord(...) method traces the processing of one record received
+     * on the connection.
+     *
+     * @param service
+     * @param connection
+     * @return <code>ITraceSpan</code>
+     */
+    public static ITraceSpan beginRecord(IService service,
+            AbstractConnection connection) {
+        return _tracer.beginRecord(service, connection);
+    }
+
+    /**
+     * beginFileWrite(...) method traces a write of the service to a file.
+     *
+     * @param service
+     * @param fileName
+     * @return <code>ITraceSpan</code>
+     */
+    public static ITraceSpan beginFileWrite(IService service,
+            String fileName) {
+        return _tracer.beginFileWrite(service, fileName);
+    }
+
+    /**
+     * beginDatabaseCall(...) method traces a stored procedure call of the
+     * service.
+     *
+     * @param service
+     * @param procedure
+     * @return <code>ITraceSpan</code>
+     */
+    public static ITraceSpan beginDatabaseCall(IService service,
+            String procedure) {
+        return _tracer.beginDatabaseCall(service, procedure);
+    }
+
+    /**
+     * loadTracer() method returns the first tracer provider on the classpath,
+     * or the no-op tracer if tracing is disabled or no provider can be
+     * loaded.
+     *
+     * @return <code>IServiceTracer</code>
+     */
+    private static IServiceTracer loadTracer() {
+        if (!Boolean.parseBoolean(System.getProperty("elsu.trace", "true"))) {
+            return NOOP_TRACER;
+        }
+
+        // a provider which fails to load (e.g. JFR not available on the
+        // jvm) is ignored, tracing is optional and the service logs are not
+        // available when the class is loaded
+        try {
+            Iterator<IServiceTracer> providers = ServiceLoader.load(
+                    IServiceTracer.class).iterator();
+
+            if (providers.hasNext()) {
+                return providers.next();
+            }
+        } catch (Throwable ex) {
+        }
+
+        return NOOP_TRACER;
+    }
+    // </editor-fold>
+}
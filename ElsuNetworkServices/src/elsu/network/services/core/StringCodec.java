@@ -0,0 +1,21 @@
+package elsu.network.services.core;
+
+/**
+ * StringCodec class decodes the records to strings using the record charset
+ * and sends the handler strings to the client unchanged.
+ *
+ * @see AbstractPipelineService
+ */
+public class StringCodec implements IMessageDecoder<String>,
+        IMessageEncoder<String> {
+
+    @Override
+    public String decode(RecordView record) throws Exception {
+        return record.toString();
+    }
+
+    @Override
+    public CharSequence encode(String message) throws Exception {
+        return message;
+    }
+}
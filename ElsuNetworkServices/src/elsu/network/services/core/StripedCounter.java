@@ -0,0 +1,141 @@
+package elsu.network.services.core;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * StripedCounter class is a counter which spreads the updates of concurrent
+ * threads across multiple cells to avoid contention on a single lock or
+ * memory location. The value is the sum of the cells; reads are not atomic
+ * with respect to concurrent updates but are exact when there are no updates
+ * in progress.
+ * <p>
+ * The cells are padded to separate cache lines. The counter is used for the
+ * service runtime statistics which are updated by every connection thread
+ * and only read for reporting.
+ *
+ * @see AbstractServiceRuntimeProperties
+ */
+public class StripedCounter {
+
+    // <editor-fold desc="class private storage">
+    // # of longs between cells, 128 bytes keeps the cells on separate cache
+    // lines including adjacent line prefetch
+    private static final int PADDING = 16;
+
+    // # of cells, power of two to allow masking of the thread index
+    private static final int STRIPES = stripeCount();
+
+    // storage for the cells, only every PADDING element is used
+    private final AtomicLongArray _cells
+            = new AtomicLongArray(STRIPES * PADDING);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public StripedCounter() {
+    }
+
+    public StripedCounter(long initialValue) {
+        this._cells.set(0, initialValue);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * add(...) method adds the value to the cell of the current thread.
+     *
+     * @param value
+     */
+    public void add(long value) {
+        this._cells.getAndAdd(cellIndex(), value);
+    }
+
+    public void increment() {
+        add(1L);
+    }
+
+    public void decrement() {
+        add(-1L);
+    }
+
+    /**
+     * sum() method returns the value of the counter.
+     *
+     * @return <code>long</code> sum of the cells
+     */
+    public long sum() {
+        long result = 0L;
+
+        for (int i = 0; i < STRIPES; i++) {
+            result += this._cells.get(i * PADDING);
+        }
+
+        return result;
+    }
+
+    /**
+     * intValue() method returns the value of the counter as an int.
+     *
+     * @return <code>int</code> sum of the cells
+     */
+    public int intValue() {
+        return (int) sum();
+    }
+
+    /**
+     * sumThenReset() method returns the value of the counter and resets the
+     * cells to zero. Updates made while the cells are reset may be included
+     * in either the returned value or the next value.
+     *
+     * @return <code>long</code> sum of the cells
+     */
+    public long sumThenReset() {
+        long result = 0L;
+
+        for (int i = 0; i < STRIPES; i++) {
+            result += this._cells.getAndSet(i * PADDING, 0L);
+        }
+
+        return result;
+    }
+
+    public void reset() {
+        sumThenReset();
+    }
+
+    /**
+     * cellIndex() method returns the cell used by the current thread. Thread
+     * ids are assigned sequentially, so threads created together use
+     * different cells.
+     *
+     * @return <code>int</code> index of the cell in the array
+     */
+    private static int cellIndex() {
+        long id = Thread.currentThread().getId();
+        int hash = (int) (id ^ (id >>> 32));
+
+        return (hash & (STRIPES - 1)) * PADDING;
+    }
+
+    /**
+     * stripeCount() method returns the # of cells for the processors
+     * available; twice the processors rounded to a power of two, maximum 64.
+     *
+     * @return <code>int</code> # of cells
+     */
+    private static int stripeCount() {
+        int processors = Runtime.getRuntime().availableProcessors() * 2;
+        int result = 1;
+
+        while ((result < processors) && (result < 64)) {
+            result <<= 1;
+        }
+
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,98 @@
+package elsu.network.services.core;
+
+/**
+ * TokenBucket class limits the rate of events; the bucket is refilled at the
+ * rate (tokens per second) up to the burst capacity and each event takes one
+ * token.
+ * <p>
+ * tryAcquire() takes a token only if one is available. reserve() always takes
+ * the token and returns the time the caller has to wait for it, the bucket
+ * can go into debt so the callers waiting are served in order at the rate.
+ *
+ * @see RemoteHostLimiter
+ */
+public class TokenBucket {
+
+    // <editor-fold desc="class private storage">
+    // tokens added per nanosecond
+    private final double _ratePerNano;
+    // maximum # of tokens held by the bucket
+    private final double _capacity;
+    // # of tokens available, negative when reserved ahead
+    private double _tokens;
+    // time (ns) the tokens were last refilled
+    private long _lastRefill;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public TokenBucket(double ratePerSecond, int burst) {
+        this._ratePerNano = ratePerSecond / 1000000000.0;
+        this._capacity = Math.max(1, burst);
+        this._tokens = this._capacity;
+        this._lastRefill = System.nanoTime();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * tryAcquire() method takes a token if one is available.
+     *
+     * @return <code>boolean</code> false if the rate is exceeded
+     */
+    public synchronized boolean tryAcquire() {
+        refill(System.nanoTime());
+
+        if (this._tokens >= 1.0) {
+            this._tokens -= 1.0;
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * reserve() method takes a token and returns the time (ns) until the
+     * token is available; zero if the token was available.
+     *
+     * @return <code>long</code>
+     */
+    public synchronized long reserve() {
+        refill(System.nanoTime());
+
+        this._tokens -= 1.0;
+
+        if (this._tokens >= 0.0) {
+            return 0L;
+        }
+
+        return (long) (-this._tokens / this._ratePerNano);
+    }
+
+    /**
+     * isFull() method returns true if the bucket has been refilled to its
+     * capacity, i.e. no events were received for the burst period.
+     *
+     * @return <code>boolean</code>
+     */
+    public synchronized boolean isFull() {
+        refill(System.nanoTime());
+
+        return this._tokens >= this._capacity;
+    }
+
+    /**
+     * refill(...) method adds the tokens accumulated since the last refill.
+     *
+     * @param now
+     */
+    private void refill(long now) {
+        long elapsed = now - this._lastRefill;
+
+        if (elapsed > 0L) {
+            this._tokens = Math.min(this._capacity,
+                    this._tokens + (elapsed * this._ratePerNano));
+            this._lastRefill = now;
+        }
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,110 @@
+package elsu.network.services.core;
+
+import java.util.concurrent.atomic.*;
+
+/**
+ * WheelTimeout class is the handle returned when a task is scheduled on the
+ * HashedWheelTimer. It allows the task to be cancelled; the timeout is linked
+ * into one of the wheel buckets by the timer thread.
+ *
+ * @see HashedWheelTimer
+ * @see ITimeoutTask
+ */
+public final class WheelTimeout {
+
+    // <editor-fold desc="class private storage">
+    // states of the timeout
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    // timer which owns the timeout
+    private final HashedWheelTimer _timer;
+
+    // task executed when the timeout expires
+    private final ITimeoutTask _task;
+
+    // service which scheduled the task, used to log task failures; optional
+    private final IService _service;
+
+    // deadline (ns) relative to the timer start
+    final long _deadline;
+
+    // # of wheel rotations before the timeout expires
+    long _remainingRounds;
+
+    // bucket links, only accessed by the timer thread
+    WheelTimeout _next;
+    WheelTimeout _prev;
+    HashedWheelTimer.WheelBucket _bucket;
+
+    // state of the timeout
+    private final AtomicInteger _state = new AtomicInteger(STATE_PENDING);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    WheelTimeout(HashedWheelTimer timer, ITimeoutTask task, long deadline,
+            IService service) {
+        this._timer = timer;
+        this._task = task;
+        this._deadline = deadline;
+        this._service = service;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public ITimeoutTask getTask() {
+        return this._task;
+    }
+
+    public IService getService() {
+        return this._service;
+    }
+
+    public boolean isCancelled() {
+        return this._state.get() == STATE_CANCELLED;
+    }
+
+    public boolean isExpired() {
+        return this._state.get() == STATE_EXPIRED;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * cancel() method cancels the timeout if it has not expired; the timeout
+     * is removed from the wheel on the next tick.
+     *
+     * @return <code>boolean</code> true if the timeout was cancelled
+     */
+    public boolean cancel() {
+        if (!this._state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+            return false;
+        }
+
+        this._timer.cancelled(this);
+        return true;
+    }
+
+    /**
+     * expire() method executes the task if the timeout has not been
+     * cancelled; called by the timer thread.
+     *
+     * @return <code>boolean</code> true if the timeout expired, false if it
+     * was cancelled
+     */
+    boolean expire() {
+        if (!this._state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+            return false;
+        }
+
+        try {
+            this._task.expired(this);
+        } catch (Throwable ex) {
+            this._timer.taskFailed(this, ex);
+        }
+
+        return true;
+    }
+    // </editor-fold>
+}
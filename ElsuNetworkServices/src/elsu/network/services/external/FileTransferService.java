@@ -182,13 +182,11 @@ public class FileTransferService extends AbstractService implements IService {
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
         // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        final RecordWriter out = createRecordWriter(cConn, in);
 
         // capture any exceptions to prevent resource leaks
         try {
@@ -212,9 +210,8 @@ public class FileTransferService extends AbstractService implements IService {
                     // service commands GET, PUT, REMOVE, CHECK, LIST
 
                     // log info for tracking
-                    logDebug("FTS -> STR, "
-                            + getServiceConfig().getConnectionPort() + ", "
-                            + line);
+                    logDebug("FTS -> STR, {}, {}",
+                            getServiceConfig().getConnectionPort(), line);
 
                     // get or put, then do a binary loop once the initial
                     // command string is recognized.  the file transfer is 
@@ -319,10 +316,12 @@ public class FileTransferService extends AbstractService implements IService {
                                                     digest.update(
                                                             getRecordTerminator().getBytes());
 
-                                                    // send the data to the client
+                                                    // send the data to the client,
+                                                    // more lines follow so the
+                                                    // flush policy may batch them
                                                     out.write(ftLine
                                                             + getRecordTerminator());
-                                                    out.flush();
+                                                    out.flush(true);
                                                 } else {
                                                     break;
                                                 }
@@ -402,6 +401,8 @@ public class FileTransferService extends AbstractService implements IService {
 
                                     // local variables for process tracking
                                     FileChannelTextWriter fcWriter = null;
+                                    ITraceSpan fcSpan = ServiceTrace.NOOP_SPAN;
+                                    long bytesRead = 0L;
 
                                     // checksum calculation for bytes read from file
                                     MessageDigest digest
@@ -413,6 +414,11 @@ public class FileTransferService extends AbstractService implements IService {
                                                 ftFilename, ftDestinationPath,
                                                 ftAppend);
 
+                                        // trace the file write until the
+                                        // writer is closed
+                                        fcSpan = ServiceTrace.beginFileWrite(
+                                                this, ftFilename);
+
                                         // send ok, file size
                                         out.write(getStatusOk()
                                                 + getRecordTerminator());
@@ -421,8 +427,6 @@ public class FileTransferService extends AbstractService implements IService {
                                         // read bytes from client and store them,
                                         // if binary, then do char loop else do
                                         // line loop
-                                        long bytesRead = 0L;
-
                                         // if this is binary file, process it using
                                         // byte buffer logic
                                         if (ftBinary) {
@@ -535,6 +539,9 @@ public class FileTransferService extends AbstractService implements IService {
                                             fcWriter.close();
                                         } catch (Exception exi) {
                                         }
+
+                                        // end the trace with the bytes stored
+                                        fcSpan.end(0L, bytesRead);
                                     }
                                 } else {
                                     // return error status to sender
@@ -11,6 +11,8 @@ import elsu.network.services.core.*;
 import elsu.network.services.*;
 import java.io.*;
 import java.net.Socket;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.Arrays;
 import java.util.Calendar;
 
 public class MessageService extends AbstractService implements IService {
@@ -61,18 +63,15 @@ public class MessageService extends AbstractService implements IService {
 	// service specific data, stores the idle timeout used when connection to
 	// a host is not available
 	private volatile int _logRolloverFrequency = 1;
-	// service specific data, status to track if the connection maintained by
-	// the
-	// subscriber service is still running
-	private volatile boolean _isConnectionsCreatorActive = false;
+	// service specific data, connector maintaining the connection to the
+	// equipment
+	private volatile OutboundConnector _siteConnector = null;
 	// service specific data, status to track if the data activity monitor
 	// thread
 	// is active
 	private volatile boolean _isDataMonitorActive = false;
 	// service specific data, stores the writer channel
 	private volatile FileChannelTextWriter _messageWriter = null;
-	// output terminator for output
-	private volatile String _recordTerminatorOutbound = "\r\n";
 	// </editor-fold>
 
 	// <editor-fold desc="class constructor destructor">
@@ -150,16 +149,6 @@ public class MessageService extends AbstractService implements IService {
 			this._port = 0;
 		}
 
-		try {
-			this._recordTerminatorOutbound = getServiceConfig().getAttribute("key.record.terminator.outbound")
-					.toString();
-		} catch (Exception ex) {
-			logError(getClass().toString() + ", initializeLocalProperties(), " + getServiceConfig().getServiceName()
-					+ " on port " + getServiceConfig().getConnectionPort() + ", invalid record.terminator.outbound, "
-					+ ex.getMessage());
-			this._recordTerminatorOutbound = "\r\n";
-		}
-
 		String periodicity = "DAY";
 		try {
 			periodicity = getServiceConfig().getAttribute("key.service.log.rollover.periodicity").toString();
@@ -184,34 +173,6 @@ public class MessageService extends AbstractService implements IService {
 	// </editor-fold>
 
 	// <editor-fold desc="class getter/setters">
-	/**
-	 * isConnectionsCreatorActive() method is used to track if the
-	 * checkConnections method is being processed. checkConnections method uses
-	 * a thread to create the connection to the equipment - if the thread is
-	 * running trying to connect to the equipment, then all other requests are
-	 * ignored.
-	 *
-	 * @return <code>boolean</code> value of the status of connections
-	 */
-	private synchronized boolean isConnectionsCreatorActive() {
-		return this._isConnectionsCreatorActive;
-	}
-
-	/**
-	 * isConnectionsCreatorActive(...) method is used to track if the
-	 * checkConnections method is being processed. checkConnections method uses
-	 * a thread to create the connection to the equipment - if the thread is
-	 * running trying to connect to the equipment, then all other requests are
-	 * ignored.
-	 *
-	 * @param value
-	 * @return <code>boolean</code> value of the status of connections
-	 */
-	private synchronized boolean isConnectionsCreatorActive(boolean active) {
-		this._isConnectionsCreatorActive = active;
-		return isConnectionsCreatorActive();
-	}
-
 	/**
 	 * isConnectionsCreatorActive() method is used to track if the
 	 * checkConnections method is being processed. checkConnections method uses
@@ -374,18 +335,6 @@ public class MessageService extends AbstractService implements IService {
 		return this._port;
 	}
 
-	/**
-	 * getRecordTerminatorOutbound() method returns the record terminator which
-	 * is sent with the outbound packets. The method/config allows custom
-	 * terminator to be specified so both incoming and outbound can work
-	 * independently.
-	 *
-	 * @return string
-	 */
-	private synchronized String getRecordTerminatorOutbound() {
-		return this._recordTerminatorOutbound;
-	}
-
 	/**
 	 * getSiteConnection() return the current site connection established to
 	 * retrieve data.
@@ -469,156 +418,145 @@ public class MessageService extends AbstractService implements IService {
 	 */
 	@Override
 	public synchronized void checkConnections() {
-		// check if the thread is active trying to connect?, if not then
-		// continue, else exit
-		if (!isConnectionsCreatorActive()) {
-			// update thread indicator to ensure multiple threads are not
-			// spawned
-			isConnectionsCreatorActive(true);
-
-			// temp location of parameter to pass to the thread
+		// create the connector to the equipment on first use; the connector
+		// retries with backoff until the subscriber is connected
+		if (this._siteConnector == null) {
+			// temp location of parameter to pass to the handler
 			final IService collector = this;
 
-			// thread to create connection to the equipment
-			Thread tConnections = new Thread(new Runnable() {
-				// thread run method which is executed when thread is started
-				@Override
-				public void run() {
-					// capture all exceptions to ensure proper handling of
-					// memory and
-					// notification to client
-					try {
-						// if the service is running and subscriber is not
-						// running then try to create the connection
-						while (isRunning() && !isSubscriberRunning()) {
-							// capture all exceptions to ensure proper handling
-							// of memory and
-							// notification to client
-							try {
-								logInfo(getClass().toString() + ", checkConnections() - createConnections, "
-										+ getServiceConfig().getServiceName() + " on port " + getPort());
-
-								// create socket to the equipment
-								Socket client = new Socket(getHostUri(), getPort());
-
-								// create connection for the socket
-								Connection dsConn = new Connection(client, collector);
-
-								// add the connection to the service list
-								addConnection(client, dsConn);
-								setSiteConnection(dsConn);
-
-								// indicate that the subscriber is running
-								isSubscriberRunning(true);
-							} catch (Exception ex) {
-								// indicate that the subscriber is not runing
-								isSubscriberRunning(false);
-
-								// log error for tracking
-								logError(getClass().toString() + ", checkConnections() - createConnections, "
-										+ getServiceConfig().getServiceName() + ", error creating connection "
-										+ getServiceConfig().getServiceName() + " on port " + getPort() + ", "
-										+ ex.getMessage());
-							}
-
-							// yield processing to other threads for specified
-							// time, any exceptions are ignored
-							try {
-								Thread.sleep(getIdleTimeout());
-							} catch (Exception exi) {
-							}
+			this._siteConnector = createOutboundConnector(getServiceConfig().getServiceName(),
+					Arrays.asList(getHostUri()), getPort(), new IOutboundHandler() {
+						// if the subscriber is running, the connection is not
+						// required
+						@Override
+						public boolean isConnectRequired() {
+							return !isSubscriberRunning();
 						}
-					} catch (Exception exi) {
-					} finally {
-						// connection was created, reset the indicator
-						isConnectionsCreatorActive(false);
-					}
-				}
-			});
 
-			// start the thread to create connection for the service.
-			tConnections.start();
+						@Override
+						public void connected(OutboundConnector connector, String host, Socket client)
+								throws Exception {
+							logInfo(getClass().toString() + ", checkConnections(), "
+									+ getServiceConfig().getServiceName() + ", connected to " + host + " on port "
+									+ getPort());
+
+							// create connection for the socket
+							Connection dsConn = new Connection(client, collector);
+
+							// add the connection to the service list
+							addConnection(client, dsConn);
+							setSiteConnection(dsConn);
+
+							// indicate that the subscriber is running
+							isSubscriberRunning(true);
+						}
+					});
 		}
 
-		// create a thread to monitor the connection activity for data
+		// start the connect attempts if they are not already running
+		this._siteConnector.start();
+
+		// schedule the data monitor on the service timer to check the
+		// connection activity for data
 		if (!isDataMonitorActive()) {
-			// update thread indicator to ensure multiple threads are not
-			// spawned
+			// update monitor indicator to ensure multiple monitors are not
+			// scheduled
 			isDataMonitorActive(true);
 
-			// thread to create connection to the equipment
-			Thread tMonitor = new Thread(new Runnable() {
-				// thread run method which is executed when thread is started
-				@Override
-				public void run() {
-					// capture all exceptions to ensure proper handling of
-					// memory and
-					// notification to client
-					try {
-						// if the service is running and subscriber is not
-						// running then try to create the connection
-						while (isRunning()) {
-							// yield processing to other threads for specified
-							// time, any exceptions are ignored
+			// schedule the first check
+			scheduleDataMonitor();
+		}
+	}
+
+	/**
+	 * scheduleDataMonitor() method schedules the next data check on the service
+	 * timer. The timer thread must not block, the check is executed on a helper
+	 * thread of the connection executor and schedules the next check when
+	 * complete; if the executor rejects the check it is retried on the next
+	 * period. The monitor is released when the service is stopped.
+	 */
+	private void scheduleDataMonitor() {
+		getTimer().newTimeout(new ITimeoutTask() {
+			@Override
+			public void expired(WheelTimeout timeout) throws Exception {
+				// if the service is stopped, release the monitor
+				if (!isRunning()) {
+					isDataMonitorActive(false);
+					return;
+				}
+
+				// execute the check using a helper thread, the check is not
+				// queued behind the connections of a full pool
+				try {
+					getConnectionExecutor().executeHelper(new Runnable() {
+						@Override
+						public void run() {
+							// capture all exceptions to ensure the next check
+							// is scheduled
 							try {
-								Thread.sleep(getNoDataTimeout());
+								checkForData();
 							} catch (Exception exi) {
+							} finally {
+								scheduleDataMonitor();
 							}
+						}
+					}, getServiceConfig().getServiceName() + "_DataMonitor");
+				} catch (RejectedExecutionException ex) {
+					// the executor is saturated or stopping, the monitor must
+					// not stop with the indicator set; retry on the next period
+					scheduleDataMonitor();
+				}
+			}
+		}, getNoDataTimeout(), this);
+	}
 
-							// check for data and reset only if subscriber is
-							// connected
-							if (isSubscriberRunning()) {
-								logDebug("CS -> BCS, checking for data, " + getNoDataTimeout() + ", "
-										+ getRecordCounter());
-
-								try {
-									// if no data received, reset the connection
-									if (getRecordCounter() == 0) {
-										logInfo(getClass().toString() + ", checkConnections() - noDataTimeout, "
-												+ getServiceConfig().getServiceName() + " on port " + getPort());
-
-										Connection dsConn = getSiteConnection();
-
-										if (dsConn != null) {
-											// set connection status to false to
-											// signal all serving
-											// loops to exit
-											dsConn.isActive(false);
-
-											// remove connection - to clear the
-											// queue
-											removeConnection(dsConn);
-											setSiteConnection(null);
-											isSubscriberRunning(false);
-
-											// restart the connection
-											if (isRunning()) {
-												checkConnections();
-											}
-										}
-									} else {
-										resetRecordCounter();
-									}
-								} catch (Exception ex) {
-									// log error for tracking
-									logError(getClass().toString() + ", checkConnections() - noDataTimeout, "
-											+ getServiceConfig().getServiceName()
-											+ ", error shutting down and restarting connection "
-											+ getServiceConfig().getServiceName() + " on port " + getPort() + ", "
-											+ ex.getMessage());
-								}
-							}
+	/**
+	 * checkForData() method checks if data was received since the last check;
+	 * if not, the connection to the site is reset.
+	 */
+	private void checkForData() {
+		// check for data and reset only if subscriber is
+		// connected
+		if (isSubscriberRunning()) {
+			logDebug("CS -> BCS, checking for data, {}, {}", getNoDataTimeout(),
+					getRecordCounter());
+
+			try {
+				// if no data received, reset the connection
+				if (getRecordCounter() == 0) {
+					logInfo(getClass().toString() + ", checkConnections() - noDataTimeout, "
+							+ getServiceConfig().getServiceName() + " on port " + getPort());
+
+					Connection dsConn = getSiteConnection();
+
+					if (dsConn != null) {
+						// set connection status to false to
+						// signal all serving
+						// loops to exit
+						dsConn.isActive(false);
+
+						// remove connection - to clear the
+						// queue
+						removeConnection(dsConn);
+						setSiteConnection(null);
+						isSubscriberRunning(false);
+
+						// restart the connection
+						if (isRunning()) {
+							checkConnections();
 						}
-					} catch (Exception exi) {
-					} finally {
-						// connection was created, reset the indicator
-						isDataMonitorActive(false);
 					}
+				} else {
+					resetRecordCounter();
 				}
-			});
-
-			// start the thread to create connection for the service.
-			tMonitor.start();
+			} catch (Exception ex) {
+				// log error for tracking
+				logError(getClass().toString() + ", checkConnections() - noDataTimeout, "
+						+ getServiceConfig().getServiceName()
+						+ ", error shutting down and restarting connection "
+						+ getServiceConfig().getServiceName() + " on port " + getPort() + ", "
+						+ ex.getMessage());
+			}
 		}
 	}
 
@@ -642,12 +580,11 @@ public class MessageService extends AbstractService implements IService {
 		final Connection cConn = (Connection) conn;
 
 		// local parameter for reader thread access, passes the socket in stream
-		final BufferedReader in = new BufferedReader(new InputStreamReader(cConn.getClient().getInputStream()));
+		final RecordReader in = createRecordReader(cConn);
 
 		// local parameter for reader thread access, passes the socket out
 		// stream
-		final PrintWriter out = new PrintWriter(
-				new BufferedWriter(new OutputStreamWriter(cConn.getClient().getOutputStream())));
+		final RecordWriter out = createRecordWriter(cConn, in);
 
 		// this is to prevent socket to stay open after error
 		try {
@@ -668,13 +605,16 @@ public class MessageService extends AbstractService implements IService {
 					increaseTotalMessagesReceived();
 					increaseRecordCounter();
 
+					// trace the processing of the record
+					ITraceSpan recordSpan = ServiceTrace.beginRecord(this, cConn);
+
 					// read the incomming message, parse it, validate it, and
 					// then store it for subscriber to pickup and deliver to
 					// the equipment it is connected to.
 					try {
 						// log info for debugging
-						logDebug("CS -> BCS, " + getServiceConfig().getConnectionPort() + ", " + getRecordCounter()
-								+ ", " + line);
+						logDebug("CS -> BCS, {}, {}, {}", getServiceConfig().getConnectionPort(),
+								getRecordCounter(), line);
 
 						// parse the data based on the field delimiter
 						// String[] parseData = line.split(Pattern.quote(
@@ -684,22 +624,28 @@ public class MessageService extends AbstractService implements IService {
 						// to notify the client and exit.
 						try {
 							// this is a message, store it through the
-							// message writer
-							getMessageWriter().write(line + getRecordTerminatorOutbound());
+							// message writer; the write is traced
+							String data = line + getRecordTerminatorOutbound();
+							ITraceSpan span = ServiceTrace.beginFileWrite(this, getFileMask());
+							try {
+								getMessageWriter().write(data);
+							} finally {
+								span.end(0L, data.length());
+							}
 
 							// if site connection is valid, send the info to
 							// site connection
 							if ((cConn != getSiteConnection()) && (getSiteConnection() != null)) {
-								logDebug("CS -> BCS, " + getServiceConfig().getConnectionPort() + ", " + getRecordCounter()
-								+ ", (server command received), " + line);
+								logDebug("CS -> BCS, {}, {}, (server command received), {}",
+										getServiceConfig().getConnectionPort(), getRecordCounter(), line);
 								this._pendingMessage = line;
 							} else if ((cConn == getSiteConnection()) && (getSiteConnection() != null)) {
 								// increase the message sent count
 								increaseTotalMessagesSent();
 
 								if (!this._pendingMessage.isEmpty()) {
-									logDebug("CS -> BCS, " + getServiceConfig().getConnectionPort() + ", " + getRecordCounter()
-									+ ", (server command forwarded), " + line);
+									logDebug("CS -> BCS, {}, {}, (server command forwarded), {}",
+											getServiceConfig().getConnectionPort(), getRecordCounter(), line);
 
 									out.print(this._pendingMessage + getRecordTerminator());
 									out.flush();
@@ -723,6 +669,8 @@ public class MessageService extends AbstractService implements IService {
 						// log error for tracking
 						logError(getClass().toString() + ", serve(), " + getServiceConfig().getServiceName() + ", "
 								+ getStatusInvalidContent() + ", error parsing fields, " + ex.getMessage());
+					} finally {
+						recordSpan.end(line.length(), 0L);
 					}
 				}
 
@@ -126,13 +126,11 @@ public class StateService extends AbstractService implements IService {
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
         // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        final RecordWriter out = createRecordWriter(cConn, in);
 
         // this is to prevent socket to stay open after error
         try {
@@ -20,8 +20,9 @@ import java.util.*;
  * Following commands can be executed through remote connection:
  *
  * add serviceName port; add config.xml; add serviceName newServiceAbstractName
- * port [key=value ....]; help; max intValue; password stringValue; quit; remove
- * port [...]; stop port [...]; start port [...]; status
+ * port [key=value ....]; help; max intValue; metrics [reset|delta] [service];
+ * password stringValue; quit; remove port [...]; stop port [...]; start port
+ * [...]; status
  * <p>
  * All commands except informational require password authentication prior to
  * execution. config.xml file needs to reside on the server; file transfer
@@ -48,6 +49,11 @@ public class ControlService extends AbstractService implements IService {
 
     // local storage for local storage directory
     private volatile String _localStorage = null;
+
+    // metrics returned by the last metrics delta command, by service and
+    // recorder name
+    private final Map<String, LatencyRecorder.Snapshot> _metricsSnapshots
+            = new HashMap<>();
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -543,6 +549,134 @@ public class ControlService extends AbstractService implements IService {
         out.flush();
     }
 
+    /**
+     * commandOffenders(...) method returns the remote hosts which exceeded
+     * the host connection or record rates of the services, ordered by the #
+     * of connections and records refused or delayed.
+     *
+     * @param tokens
+     * @param out
+     */
+    public synchronized void commandOffenders(StringTokenizer tokens,
+            PrintWriter out) {
+        // # of hosts reported for each service, default is 10
+        int count = 10;
+        if ((tokens != null) && tokens.hasMoreTokens()) {
+            count = Integer.parseInt(tokens.nextToken());
+        }
+
+        // collect the list of all services into array list for processing
+        ArrayList<IService> svcList = new ArrayList<>(
+                getServiceManager().getServices().values());
+
+        for (IService service : svcList) {
+            RemoteHostLimiter limiter = service.getHostLimiter();
+
+            // only the services with host rates have offenders
+            if (limiter != null) {
+                StringBuilder result = new StringBuilder();
+
+                result.append("<service name='")
+                        .append(service.getServiceConfig().getServiceName())
+                        .append("'>");
+                for (RemoteHostLimiter.HostRate rate
+                        : limiter.getOffenders(count)) {
+                    result.append(rate.toString());
+                }
+                result.append("</service>");
+
+                out.print(result.toString() + getRecordTerminator());
+            }
+
+            // yield processing to other threads
+            Thread.yield();
+        }
+
+        // return status back to the client
+        out.print(getStatusOk() + getRecordTerminator());
+        out.flush();
+    }
+
+    /**
+     * commandMetrics(...) method returns the latency recorders of the
+     * services, one line for each recorder (times in us):
+     * <pre>
+     * service.recorder count=N mean=us p50=us p90=us p99=us p999=us max=us
+     * </pre>
+     * reset returns the values and removes them from the recorders; delta
+     * returns the values recorded since the previous delta command and the
+     * interval (ms). A service name limits the report to the service.
+     *
+     * @param tokens
+     * @param out
+     */
+    public synchronized void commandMetrics(StringTokenizer tokens,
+            PrintWriter out) {
+        // option of the command and the service reported, default is all
+        String option = "";
+        String serviceName = null;
+        while ((tokens != null) && tokens.hasMoreTokens()) {
+            String token = tokens.nextToken();
+
+            if (token.equalsIgnoreCase("reset")
+                    || token.equalsIgnoreCase("delta")) {
+                option = token.toLowerCase();
+            } else {
+                serviceName = token;
+            }
+        }
+
+        // collect the list of all services into array list for processing
+        ArrayList<IService> svcList = new ArrayList<>(
+                getServiceManager().getServices().values());
+
+        for (IService service : svcList) {
+            String name = service.getServiceConfig().getServiceName();
+
+            if ((serviceName != null) && !serviceName.equals(name)) {
+                continue;
+            }
+
+            ServiceMetrics metrics = service.getServiceMetrics();
+            for (LatencyRecorder recorder : metrics.getRecorders()) {
+                // the values are read and removed in one step on reset, so
+                // values recorded meanwhile are kept for the next report
+                LatencyRecorder.Snapshot snapshot = option.equals("reset")
+                        ? recorder.snapshotAndReset() : recorder.getSnapshot();
+                String key = name + "." + recorder.getName();
+
+                switch (option) {
+                    case "delta":
+                        // report the change since the last delta and keep
+                        // the snapshot for the next one
+                        LatencyRecorder.Snapshot previous
+                                = this._metricsSnapshots.put(key, snapshot);
+                        out.print(snapshot.getDelta(previous).toText(name)
+                                + " interval=" + ((previous == null) ? 0L
+                                        : snapshot.getTimestamp()
+                                        - previous.getTimestamp())
+                                + getRecordTerminator());
+                        break;
+                    case "reset":
+                        // the next delta starts from the reset
+                        this._metricsSnapshots.remove(key);
+                        out.print(snapshot.toText(name) + getRecordTerminator());
+                        break;
+                    default:
+                        out.print(snapshot.toText(name) + getRecordTerminator());
+                        break;
+                }
+            }
+
+            // yield processing to other threads
+            Thread.yield();
+        }
+
+        // return status back to the client
+        out.print(getStatusOk() + getRecordTerminator());
+        out.flush();
+    }
+
     /**
      * commandStatus(...) method returns the factory status which includes all
      * running services and their configuration properties.
@@ -578,6 +712,8 @@ public class ControlService extends AbstractService implements IService {
                 + getRecordTerminator()
                 + "\thelp" + getRecordTerminator()
                 + "\tmax <intValue>" + getRecordTerminator()
+                + "\tmetrics [reset|delta] [<service>]" + getRecordTerminator()
+                + "\toffenders [<count>]" + getRecordTerminator()
                 + "\tpassword <stringValue>" + getRecordTerminator()
                 + "\tquit" + getRecordTerminator()
                 + "\tremove <port> [...]" + getRecordTerminator()
@@ -648,13 +784,11 @@ public class ControlService extends AbstractService implements IService {
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
         // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        final RecordWriter out = createRecordWriter(cConn, in);
 
         // this is to prevent socket to stay open after error
         try {
@@ -777,6 +911,20 @@ public class ControlService extends AbstractService implements IService {
                                 commandAttribute(tokens, out);
                             }
                             break;
+                        case "offenders":
+                            // validate the authorization
+                            if (lValidation.IsAuthorized(authorized, out)) {
+                                // call the command method to execute
+                                commandOffenders(tokens, out);
+                            }
+                            break;
+                        case "metrics":
+                            // validate the authorization
+                            if (lValidation.IsAuthorized(authorized, out)) {
+                                // call the command method to execute
+                                commandMetrics(tokens, out);
+                            }
+                            break;
                         case "status":
                             // validate the authorization
                             if (lValidation.IsAuthorized(authorized, out)) {
@@ -0,0 +1,542 @@
+package elsu.network.services.system;
+
+import elsu.network.application.*;
+import elsu.network.core.*;
+import elsu.network.services.core.*;
+import elsu.network.services.*;
+import java.lang.management.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import javax.management.*;
+import javax.management.openmbean.*;
+
+/**
+ * MemoryMonitorService class monitors the heap through the memory pool and
+ * garbage collector management beans; it replaces the GarbageCollectionService
+ * which forced a full collection on a timer. The service does not force
+ * collections and does not use a connection thread, the garbage collector
+ * notifications are processed when each collection completes.
+ * <p>
+ * The heap used after each collection is compared to the configured
+ * thresholds (percent of the maximum heap). At the highThreshold the idle
+ * buffers of the BufferPool are released; at the criticalThreshold the
+ * services also refuse new socket connections until the heap used drops
+ * below the threshold less the hysteresis. The old generation pools are also
+ * given a collection usage threshold so the pressure is raised as soon as the
+ * pool exceeds the highThreshold.
+ * <p>
+ * The collection count, pause times and the allocation rate are reported in
+ * the service status.
+ *
+ * @see MemoryPressureType
+ * @see BufferPool
+ */
+public class MemoryMonitorService extends AbstractService
+        implements IService {
+
+    // <editor-fold desc="class private storage">
+    // notification type of the garbage collector notifications
+    private static final String GARBAGE_COLLECTION_NOTIFICATION
+            = "com.sun.management.gc.notification";
+
+    // heap used after collection (percent of maximum) which releases the idle
+    // buffers
+    private volatile int _highThreshold = 80;
+
+    // heap used after collection (percent of maximum) which pauses the accept
+    // of new connections
+    private volatile int _criticalThreshold = 90;
+
+    // percent the heap used has to drop below a threshold to leave the level
+    private volatile int _hysteresis = 5;
+
+    // option to pause the accepts at the critical level
+    private volatile boolean _isAcceptPauseEnabled = true;
+
+    // # of idle buffers kept by the buffer pool under pressure
+    private volatile int _pressureIdleBuffers = 0;
+
+    // buffer pool maximum idle to restore when the pressure is normal
+    private volatile int _normalIdleBuffers = -1;
+
+    // current pressure level
+    private volatile MemoryPressureType _pressure = MemoryPressureType.NORMAL;
+
+    // heap used after the last collection (percent of maximum)
+    private volatile int _heapUsedPercent = 0;
+
+    // names of the heap memory pools, used for the allocation rate
+    private final Set<String> _heapPools = new HashSet<>();
+
+    // heap pool usage after the last collection, used for the allocation rate
+    private final Map<String, Long> _poolUsedAfterGc = new HashMap<>();
+
+    // management beans which the listener is registered with
+    private final List<NotificationEmitter> _emitters
+            = new CopyOnWriteArrayList<>();
+
+    // listener for the collection and threshold notifications
+    private final NotificationListener _listener;
+
+    // collection metrics
+    private final AtomicLong _totalCollections = new AtomicLong(0);
+    private final AtomicLong _totalPauseTime = new AtomicLong(0);
+    private volatile long _maximumPause = 0L;
+    private volatile long _lastPause = 0L;
+
+    // allocation metrics, bytes allocated in the young pools between the
+    // collections
+    private volatile long _totalAllocated = 0L;
+    private volatile long _allocationRate = 0L;
+    private volatile long _lastCollectionEnd = 0L;
+
+    // pressure metrics
+    private final AtomicLong _totalThresholdsExceeded = new AtomicLong(0);
+    private final AtomicLong _totalBuffersReleased = new AtomicLong(0);
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public MemoryMonitorService(String threadGroup,
+            ServiceManager serviceManager, ServiceConfig serviceConfig) {
+        // call the super class constructor
+        super(threadGroup, serviceManager, serviceConfig);
+
+        // listener for the management bean notifications, the notifications
+        // are delivered on the management thread and must not block
+        this._listener = new NotificationListener() {
+            @Override
+            public void handleNotification(Notification notification,
+                    Object handback) {
+                processNotification(notification);
+            }
+        };
+    }
+
+    /**
+     * initializeProperties() is a generic method to consolidate all initial
+     * variable instantiation outside of class constructor. It allows the
+     * variables to be reset from another method within a class if required.
+     *
+     */
+    @Override
+    protected void initializeLocalProperties() {
+        super.initializeLocalProperties();
+
+        try {
+            this._highThreshold = Integer.parseInt(getAttribute(
+                    "highThreshold", String.valueOf(this._highThreshold)));
+            this._criticalThreshold = Integer.parseInt(getAttribute(
+                    "criticalThreshold",
+                    String.valueOf(this._criticalThreshold)));
+            this._hysteresis = Integer.parseInt(getAttribute(
+                    "hysteresis", String.valueOf(this._hysteresis)));
+            this._isAcceptPauseEnabled = Boolean.valueOf(getAttribute(
+                    "pauseAccepts", String.valueOf(this._isAcceptPauseEnabled)));
+            this._pressureIdleBuffers = Integer.parseInt(getAttribute(
+                    "pressureIdleBuffers",
+                    String.valueOf(this._pressureIdleBuffers)));
+        } catch (Exception ex) {
+            logError(getClass().toString() + ", initializeLocalProperties(), "
+                    + getServiceConfig().getServiceName() + " on port "
+                    + getServiceConfig().getConnectionPort()
+                    + ", invalid threshold, "
+                    + ex.getMessage());
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    /**
+     * getAttribute(...) method returns the service attribute or the default
+     * value if the attribute is not configured.
+     *
+     * @param key
+     * @param defaultValue
+     * @return <code>String</code>
+     */
+    private String getAttribute(String key, String defaultValue) {
+        Object result = getServiceConfig().getAttributes().get("key." + key);
+
+        return (result == null) ? defaultValue : result.toString();
+    }
+
+    public MemoryPressureType getPressure() {
+        return this._pressure;
+    }
+
+    public int getHeapUsedPercent() {
+        return this._heapUsedPercent;
+    }
+
+    public long getTotalCollections() {
+        return this._totalCollections.get();
+    }
+
+    public long getTotalPauseTime() {
+        return this._totalPauseTime.get();
+    }
+
+    public long getMaximumPause() {
+        return this._maximumPause;
+    }
+
+    public long getLastPause() {
+        return this._lastPause;
+    }
+
+    public long getTotalAllocated() {
+        return this._totalAllocated;
+    }
+
+    /**
+     * getAllocationRate() method returns the bytes allocated per second
+     * between the last two collections.
+     *
+     * @return <code>long</code> bytes per second
+     */
+    public long getAllocationRate() {
+        return this._allocationRate;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    @Override
+    public void checkConnections() {
+        // the service does not use connections
+    }
+
+    @Override
+    public void checkConnection(AbstractConnection connection) {
+        // the service does not use connections
+    }
+
+    /**
+     * start() method overloaded from the super class registers the listener
+     * with the garbage collectors and sets the collection usage threshold of
+     * the heap pools.
+     *
+     * @throws java.lang.Exception
+     */
+    @Override
+    public void start() throws Exception {
+        super.start();
+
+        synchronized (this._poolUsedAfterGc) {
+            this._heapPools.clear();
+            this._poolUsedAfterGc.clear();
+
+            for (MemoryPoolMXBean pool
+                    : ManagementFactory.getMemoryPoolMXBeans()) {
+                if (pool.getType() != MemoryType.HEAP) {
+                    continue;
+                }
+
+                // store the initial usage for the first allocation rate
+                this._heapPools.add(pool.getName());
+                this._poolUsedAfterGc.put(pool.getName(),
+                        pool.getUsage().getUsed());
+
+                // notify when the pool exceeds the high threshold after a
+                // collection, only supported by the old generation pools
+                long maximum = pool.getUsage().getMax();
+                if (pool.isCollectionUsageThresholdSupported()
+                        && (maximum > 0L)) {
+                    pool.setCollectionUsageThreshold(
+                            maximum * this._highThreshold / 100L);
+                }
+            }
+
+            this._lastCollectionEnd
+                    = ManagementFactory.getRuntimeMXBean().getUptime();
+        }
+
+        // the memory bean sends the threshold notifications
+        addListener(ManagementFactory.getMemoryMXBean());
+
+        // each collector sends a notification when a collection completes
+        for (GarbageCollectorMXBean collector
+                : ManagementFactory.getGarbageCollectorMXBeans()) {
+            addListener(collector);
+        }
+    }
+
+    /**
+     * shutdown() method removes the listener and clears the pressure actions
+     * so the services are not left paused.
+     */
+    @Override
+    public void shutdown() {
+        for (NotificationEmitter emitter : this._emitters) {
+            try {
+                emitter.removeNotificationListener(this._listener);
+            } catch (Exception exi) {
+            }
+        }
+        this._emitters.clear();
+
+        setPressure(MemoryPressureType.NORMAL);
+
+        super.shutdown();
+    }
+
+    @Override
+    public void validateService() throws Exception {
+        // the listener is registered by start(), nothing to validate
+    }
+
+    /**
+     * addListener(...) method registers the listener with the management bean
+     * if it sends notifications.
+     *
+     * @param bean
+     */
+    private void addListener(Object bean) {
+        if (bean instanceof NotificationEmitter) {
+            NotificationEmitter emitter = (NotificationEmitter) bean;
+
+            emitter.addNotificationListener(this._listener, null, null);
+            this._emitters.add(emitter);
+        }
+    }
+
+    /**
+     * processNotification(...) method processes the collection and the
+     * threshold notifications; errors are logged to keep the management
+     * thread running.
+     *
+     * @param notification
+     */
+    private void processNotification(Notification notification) {
+        try {
+            String type = notification.getType();
+
+            if (GARBAGE_COLLECTION_NOTIFICATION.equals(type)) {
+                collectionCompleted(
+                        (CompositeData) notification.getUserData());
+            } else if (MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED
+                    .equals(type)) {
+                thresholdExceeded(MemoryNotificationInfo.from(
+                        (CompositeData) notification.getUserData()));
+            }
+        } catch (Exception ex) {
+            logError(getClass().toString() + ", processNotification(), "
+                    + getServiceConfig().getServiceName() + ", "
+                    + ex.getMessage());
+        }
+    }
+
+    /**
+     * collectionCompleted(...) method updates the collection and allocation
+     * metrics from the collector notification and checks the heap used after
+     * the collection against the thresholds.
+     *
+     * @param info garbage collection notification info
+     */
+    private void collectionCompleted(CompositeData info) {
+        CompositeData gcInfo = (CompositeData) info.get("gcInfo");
+        long duration = ((Number) gcInfo.get("duration")).longValue();
+        long endTime = ((Number) gcInfo.get("endTime")).longValue();
+
+        // update the pause metrics
+        this._totalCollections.incrementAndGet();
+        this._totalPauseTime.addAndGet(duration);
+        this._lastPause = duration;
+        if (duration > this._maximumPause) {
+            this._maximumPause = duration;
+        }
+
+        Map<String, MemoryUsage> before = getPoolUsage(
+                (TabularData) gcInfo.get("memoryUsageBeforeGc"));
+        Map<String, MemoryUsage> after = getPoolUsage(
+                (TabularData) gcInfo.get("memoryUsageAfterGc"));
+
+        long heapUsed = 0L;
+
+        synchronized (this._poolUsedAfterGc) {
+            // the bytes allocated since the last collection are the growth
+            // of the heap pools before this collection
+            long allocated = 0L;
+
+            for (String pool : this._heapPools) {
+                MemoryUsage usageBefore = before.get(pool);
+                MemoryUsage usageAfter = after.get(pool);
+                Long lastUsed = this._poolUsedAfterGc.get(pool);
+
+                if ((usageBefore != null) && (lastUsed != null)) {
+                    allocated += Math.max(0L,
+                            usageBefore.getUsed() - lastUsed);
+                }
+
+                if (usageAfter != null) {
+                    this._poolUsedAfterGc.put(pool, usageAfter.getUsed());
+                    heapUsed += usageAfter.getUsed();
+                }
+            }
+
+            this._totalAllocated += allocated;
+
+            long interval = endTime - this._lastCollectionEnd;
+            if (interval > 0L) {
+                this._allocationRate = allocated * 1000L / interval;
+            }
+            this._lastCollectionEnd = endTime;
+        }
+
+        // compare the heap used after the collection to the maximum heap
+        MemoryUsage heap = ManagementFactory.getMemoryMXBean()
+                .getHeapMemoryUsage();
+        long maximum = (heap.getMax() > 0L) ? heap.getMax()
+                : heap.getCommitted();
+
+        if (maximum > 0L) {
+            checkPressure((int) (heapUsed * 100L / maximum));
+        }
+    }
+
+    /**
+     * thresholdExceeded(...) method raises the pressure when a heap pool
+     * exceeds its collection usage threshold.
+     *
+     * @param info memory threshold notification info
+     */
+    private void thresholdExceeded(MemoryNotificationInfo info) {
+        this._totalThresholdsExceeded.incrementAndGet();
+
+        // log info for tracking
+        logInfo(getClass().toString() + ", thresholdExceeded(), "
+                + getServiceConfig().getServiceName() + ", pool "
+                + info.getPoolName() + " used " + info.getUsage().getUsed()
+                + " of " + info.getUsage().getMax());
+
+        long maximum = info.getUsage().getMax();
+        if (maximum > 0L) {
+            int percent = (int) (info.getUsage().getUsed() * 100L / maximum);
+
+            // the pool level only raises the pressure, the heap level of the
+            // next collection lowers it
+            if (percent > this._heapUsedPercent) {
+                checkPressure(percent);
+            }
+        }
+    }
+
+    /**
+     * getPoolUsage(...) method converts the pool usage table of the
+     * collection info to a map of pool name to usage.
+     *
+     * @param table
+     * @return <code>Map</code>
+     */
+    private Map<String, MemoryUsage> getPoolUsage(TabularData table) {
+        Map<String, MemoryUsage> result = new HashMap<>();
+
+        for (Object row : table.values()) {
+            CompositeData entry = (CompositeData) row;
+
+            result.put((String) entry.get("key"),
+                    MemoryUsage.from((CompositeData) entry.get("value")));
+        }
+
+        return result;
+    }
+
+    /**
+     * checkPressure(...) method determines the pressure level for the heap
+     * used; the level is only lowered once the heap used is below the
+     * threshold of the current level less the hysteresis.
+     *
+     * @param heapUsedPercent
+     */
+    private synchronized void checkPressure(int heapUsedPercent) {
+        this._heapUsedPercent = heapUsedPercent;
+
+        MemoryPressureType level = MemoryPressureType.NORMAL;
+        if (heapUsedPercent >= this._criticalThreshold) {
+            level = MemoryPressureType.CRITICAL;
+        } else if (heapUsedPercent >= this._highThreshold) {
+            level = MemoryPressureType.HIGH;
+        }
+
+        // keep the current level until the heap used drops below the
+        // hysteresis
+        if (level.ordinal() < this._pressure.ordinal()) {
+            int threshold = (this._pressure == MemoryPressureType.CRITICAL)
+                    ? this._criticalThreshold : this._highThreshold;
+
+            if (heapUsedPercent >= (threshold - this._hysteresis)) {
+                return;
+            }
+        }
+
+        setPressure(level);
+    }
+
+    /**
+     * setPressure(...) method applies the actions of the pressure level when
+     * the level changes; the idle buffers are released above NORMAL and the
+     * accepts are paused at CRITICAL.
+     *
+     * @param level
+     */
+    private synchronized void setPressure(MemoryPressureType level) {
+        if (level == this._pressure) {
+            return;
+        }
+
+        // log info for tracking
+        logInfo(getClass().toString() + ", setPressure(), "
+                + getServiceConfig().getServiceName() + ", memory pressure "
+                + this._pressure + " to " + level + ", heap used "
+                + this._heapUsedPercent + "%");
+
+        BufferPool pool = BufferPool.getDefault();
+
+        if (level == MemoryPressureType.NORMAL) {
+            // restore the buffer pool idle limit
+            if (this._normalIdleBuffers >= 0) {
+                pool.setMaximumIdle(this._normalIdleBuffers);
+                this._normalIdleBuffers = -1;
+            }
+        } else if (this._pressure == MemoryPressureType.NORMAL) {
+            // release the idle buffers and keep the pool small while the
+            // pressure lasts
+            this._normalIdleBuffers = pool.getMaximumIdle();
+            pool.setMaximumIdle(this._pressureIdleBuffers);
+            this._totalBuffersReleased.addAndGet(
+                    pool.trim(this._pressureIdleBuffers));
+        }
+
+        // pause the accepts only at the critical level
+        if (this._isAcceptPauseEnabled) {
+            getServiceManager().isAcceptPaused(
+                    level == MemoryPressureType.CRITICAL);
+        }
+
+        this._pressure = level;
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<pressure>").append(getPressure()).append("</pressure>");
+        result.append("<heapUsedPercent>").append(getHeapUsedPercent()).append("</heapUsedPercent>");
+        result.append("<highThreshold>").append(this._highThreshold).append("</highThreshold>");
+        result.append("<criticalThreshold>").append(this._criticalThreshold).append("</criticalThreshold>");
+        result.append("<totalCollections>").append(getTotalCollections()).append("</totalCollections>");
+        result.append("<totalPauseTime>").append(getTotalPauseTime()).append("</totalPauseTime>");
+        result.append("<maximumPause>").append(getMaximumPause()).append("</maximumPause>");
+        result.append("<lastPause>").append(getLastPause()).append("</lastPause>");
+        result.append("<totalAllocated>").append(getTotalAllocated()).append("</totalAllocated>");
+        result.append("<allocationRate>").append(getAllocationRate()).append("</allocationRate>");
+        result.append("<totalThresholdsExceeded>").append(this._totalThresholdsExceeded.get()).append("</totalThresholdsExceeded>");
+        result.append("<totalBuffersReleased>").append(this._totalBuffersReleased.get()).append("</totalBuffersReleased>");
+        result.append(super.toString());
+        result.append("</object>");
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,519 @@
+package elsu.network.services.system;
+
+import elsu.network.application.*;
+import elsu.network.services.core.*;
+import elsu.network.services.*;
+import java.io.*;
+import java.lang.management.*;
+import java.nio.charset.*;
+import java.util.*;
+
+/**
+ * MetricsService class serves the metrics of the service manager and its
+ * services in the Prometheus text exposition format (version 0.0.4) so the
+ * monitoring systems can poll the application without the control service
+ * password.
+ * <p>
+ * The service answers HTTP/1.x GET (and HEAD) requests for the metrics path
+ * (attribute path, default /metrics) and closes the connection after each
+ * response. The request must be received within the request timeout (the
+ * service readTimeout, at most 5 seconds) so a client which does not send its
+ * request cannot hold a connection. The exposition includes, for each
+ * service, the runtime counters, the connection and thread counts, the
+ * executor and admission queue depths and the latency recorders (summaries
+ * in seconds), and the manager, buffer pool and jvm thread gauges.
+ * <p>
+ * The values are read from the counters, atomics and volatile fields of the
+ * services; the exposition is rendered without taking the service or the
+ * manager locks, so a scrape does not wait for a busy service.
+ *
+ * @see ServiceMetrics
+ * @see ServiceStatistics
+ */
+public class MetricsService extends AbstractService implements IService {
+
+    // <editor-fold desc="class private storage">
+    // content type of the text exposition format
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    // maximum time (ms) to receive the request
+    private static final int REQUEST_TIMEOUT = 5000;
+
+    // quantiles reported for the latency recorders
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+
+    // request path of the metrics
+    private volatile String _path = "/metrics";
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public MetricsService(String threadGroup, ServiceManager serviceManager,
+            ServiceConfig serviceConfig) {
+        // call the super class constructor
+        super(threadGroup, serviceManager, serviceConfig);
+    }
+
+    /**
+     * initializeProperties() is a generic method to consolidate all initial
+     * variable instantiation outside of class constructor. It allows the
+     * variables to be reset from another method within a class if required.
+     *
+     */
+    @Override
+    protected void initializeLocalProperties() {
+        super.initializeLocalProperties();
+
+        String path = getServiceConfig().getAttribute("key.path");
+        if ((path != null) && !path.isEmpty()) {
+            this._path = path;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public String getPath() {
+        return this._path;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * serve(...) method reads the http request of the client and returns the
+     * exposition; requests for other paths return 404 and other methods 405.
+     * The connection is closed after the response.
+     *
+     * @param conn
+     * @throws Exception
+     */
+    @Override
+    public void serve(AbstractConnection conn) throws Exception {
+        // bound the wait for the request, the service readTimeout is used if
+        // it is shorter
+        int readTimeout = getServiceConfig().getReadTimeout();
+        conn.getClient().setSoTimeout(((readTimeout > 0)
+                && (readTimeout < REQUEST_TIMEOUT))
+                        ? readTimeout : REQUEST_TIMEOUT);
+
+        // http lines are terminated by CRLF, the reader removes the CR
+        final RecordReader in = new RecordReader(
+                conn.getClient().getInputStream(), "\n",
+                StandardCharsets.ISO_8859_1, conn);
+
+        // responses are written as bytes, the record writer would apply the
+        // service record terminator
+        final OutputStream out = new BufferedOutputStream(
+                conn.getClient().getOutputStream());
+
+        // this is to prevent socket to stay open after error
+        try {
+            // request line, method path version
+            String request = in.readLine();
+            if ((request == null) || request.isEmpty()) {
+                return;
+            }
+
+            // increase the total # of incomming messages
+            increaseTotalMessagesReceived();
+
+            // skip the headers, the request has no body
+            String header;
+            while (((header = in.readLine()) != null) && !header.isEmpty()) {
+                // yield processing to other threads
+                Thread.yield();
+            }
+
+            String[] fields = request.split(" ");
+            String method = fields[0];
+            String path = (fields.length > 1) ? fields[1] : "";
+
+            // remove the query, the parameters are not used
+            int query = path.indexOf('?');
+            if (query >= 0) {
+                path = path.substring(0, query);
+            }
+
+            if (!method.equals("GET") && !method.equals("HEAD")) {
+                writeResponse(out, "405 Method Not Allowed",
+                        "method not allowed\n", true);
+            } else if (!path.equals(getPath())) {
+                writeResponse(out, "404 Not Found", "not found\n",
+                        method.equals("GET"));
+            } else {
+                writeResponse(out, "200 OK", getExposition(),
+                        method.equals("GET"));
+            }
+
+            // increase the total # of sent messages
+            increaseTotalMessagesSent();
+        } catch (Exception ex) {
+            // log error for tracking
+            logError(getClass().toString() + ", serve(), "
+                    + getServiceConfig().getServiceName() + " on port "
+                    + getServiceConfig().getConnectionPort() + ", "
+                    + ex.getMessage());
+        } finally {
+            // close out all open in/out streams.
+            try {
+                out.close();
+            } catch (Exception exi) {
+            }
+            try {
+                in.close();
+            } catch (Exception exi) {
+            }
+        }
+    }
+
+    /**
+     * writeResponse(...) method writes the http response; the body is only
+     * sent for GET requests.
+     *
+     * @param out
+     * @param status
+     * @param body
+     * @param isBody
+     * @throws IOException
+     */
+    private void writeResponse(OutputStream out, String status, String body,
+            boolean isBody) throws IOException {
+        byte[] content = body.getBytes(StandardCharsets.UTF_8);
+
+        StringBuilder result = new StringBuilder();
+        result.append("HTTP/1.1 ").append(status).append("\r\n");
+        result.append("Content-Type: ").append(CONTENT_TYPE).append("\r\n");
+        result.append("Content-Length: ").append(content.length).append("\r\n");
+        result.append("Connection: close\r\n");
+        result.append("\r\n");
+
+        out.write(result.toString().getBytes(StandardCharsets.ISO_8859_1));
+        if (isBody) {
+            out.write(content);
+        }
+        out.flush();
+    }
+
+    /**
+     * getExposition() method returns the metrics in the text exposition
+     * format. The values of each service are read once into a sample and the
+     * samples are written by metric, as the format requires all the series of
+     * a metric to be together.
+     *
+     * @return <code>String</code>
+     */
+    public String getExposition() {
+        ServiceManager manager = getServiceManager();
+
+        // read the values of the services, the registry is iterated without
+        // the manager lock
+        List<ServiceSample> samples = new ArrayList<>();
+        for (IService service : manager.getServices().values()) {
+            samples.add(new ServiceSample(service));
+        }
+
+        StringBuilder result = new StringBuilder(8192);
+
+        // service status and counters
+        writeHeader(result, "elsu_service_running", "gauge",
+                "1 if the service is running");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_running", sample._labels,
+                    sample._isRunning ? 1 : 0);
+        }
+
+        writeHeader(result, "elsu_service_connections_active", "gauge",
+                "connections open on the service");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_connections_active",
+                    sample._labels, sample._statistics.getActiveConnections());
+        }
+
+        writeHeader(result, "elsu_service_connections_total", "counter",
+                "connections accepted by the service");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_connections_total",
+                    sample._labels, sample._statistics.getTotalConnections());
+        }
+
+        writeHeader(result, "elsu_service_connections_rejected_total",
+                "counter", "connections refused by the service limits");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_connections_rejected_total",
+                    sample._labels,
+                    sample._statistics.getTotalConnectionsRejected());
+        }
+
+        writeHeader(result, "elsu_service_messages_received_total", "counter",
+                "messages received by the service");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_messages_received_total",
+                    sample._labels, sample._statistics.getTotalMessagesReceived());
+        }
+
+        writeHeader(result, "elsu_service_messages_sent_total", "counter",
+                "messages sent by the service");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_messages_sent_total",
+                    sample._labels, sample._statistics.getTotalMessagesSent());
+        }
+
+        writeHeader(result, "elsu_service_messages_errored_total", "counter",
+                "messages which failed to process");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_messages_errored_total",
+                    sample._labels, sample._statistics.getTotalMessagesErrored());
+        }
+
+        writeHeader(result, "elsu_service_accepted_total", "counter",
+                "sockets accepted by the service listeners");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_accepted_total", sample._labels,
+                    sample._totalAccepted);
+        }
+
+        writeHeader(result, "elsu_service_accept_rate", "gauge",
+                "sockets accepted per second");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_accept_rate", sample._labels,
+                    sample._acceptRate);
+        }
+
+        // threads and queues
+        writeHeader(result, "elsu_service_threads", "gauge",
+                "threads of the service thread group");
+        for (ServiceSample sample : samples) {
+            writeValue(result, "elsu_service_threads", sample._labels,
+                    sample._threads);
+        }
+
+        writeHeader(result, "elsu_service_executor_live_threads", "gauge",
+                "connection tasks executing");
+        for (ServiceSample sample : samples) {
+            if (sample._isExecutor) {
+                writeValue(result, "elsu_service_executor_live_threads",
+                        sample._labels, sample._executorLiveThreads);
+            }
+        }
+
+        writeHeader(result, "elsu_service_executor_queued_tasks", "gauge",
+                "connection tasks waiting for a pool thread");
+        for (ServiceSample sample : samples) {
+            if (sample._isExecutor) {
+                writeValue(result, "elsu_service_executor_queued_tasks",
+                        sample._labels, sample._executorQueuedTasks);
+            }
+        }
+
+        writeHeader(result, "elsu_service_executor_rejected_total", "counter",
+                "connection tasks rejected by the executor");
+        for (ServiceSample sample : samples) {
+            if (sample._isExecutor) {
+                writeValue(result, "elsu_service_executor_rejected_total",
+                        sample._labels, sample._executorRejected);
+            }
+        }
+
+        writeHeader(result, "elsu_service_admission_queue_depth", "gauge",
+                "connections waiting for admission");
+        for (ServiceSample sample : samples) {
+            if (sample._isAdmissionQueue) {
+                writeValue(result, "elsu_service_admission_queue_depth",
+                        sample._labels, sample._admissionDepth);
+            }
+        }
+
+        writeHeader(result, "elsu_service_admission_expired_total", "counter",
+                "connections which expired waiting for admission");
+        for (ServiceSample sample : samples) {
+            if (sample._isAdmissionQueue) {
+                writeValue(result, "elsu_service_admission_expired_total",
+                        sample._labels, sample._admissionExpired);
+            }
+        }
+
+        // latency recorders
+        writeHeader(result, "elsu_service_latency_seconds", "summary",
+                "latency of the service operations");
+        for (ServiceSample sample : samples) {
+            for (LatencyRecorder.Snapshot snapshot : sample._latencies) {
+                String labels = sample._labels + ",operation=\""
+                        + snapshot.getName() + "\"";
+
+                for (double quantile : QUANTILES) {
+                    writeValue(result, "elsu_service_latency_seconds",
+                            labels + ",quantile=\"" + quantile + "\"",
+                            toSeconds(snapshot.getValueAtPercentile(
+                                    quantile * 100.0)));
+                }
+                writeValue(result, "elsu_service_latency_seconds_sum", labels,
+                        toSeconds(snapshot.getTotalValue()));
+                writeValue(result, "elsu_service_latency_seconds_count",
+                        labels, snapshot.getTotalCount());
+            }
+        }
+
+        // manager and process
+        writeHeader(result, "elsu_manager_connections", "gauge",
+                "connections open on all the services");
+        writeValue(result, "elsu_manager_connections", null,
+                manager.getServiceConnections());
+
+        writeHeader(result, "elsu_manager_accept_paused", "gauge",
+                "1 if the services refuse new connections");
+        writeValue(result, "elsu_manager_accept_paused", null,
+                manager.isAcceptPaused() ? 1 : 0);
+
+        writeHeader(result, "elsu_manager_events_pending", "gauge",
+                "lifecycle events queued for the services");
+        writeValue(result, "elsu_manager_events_pending", null,
+                manager.getEventDispatcher().getPendingEvents());
+
+        writeHeader(result, "elsu_buffer_pool_idle", "gauge",
+                "read buffers idle in the shared pool");
+        writeValue(result, "elsu_buffer_pool_idle", null,
+                BufferPool.getDefault().getIdle());
+
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        writeHeader(result, "elsu_jvm_threads", "gauge", "live jvm threads");
+        writeValue(result, "elsu_jvm_threads", null,
+                threadBean.getThreadCount());
+
+        writeHeader(result, "elsu_jvm_threads_daemon", "gauge",
+                "live jvm daemon threads");
+        writeValue(result, "elsu_jvm_threads_daemon", null,
+                threadBean.getDaemonThreadCount());
+
+        return result.toString();
+    }
+
+    /**
+     * writeHeader(...) method writes the help and type lines of a metric.
+     *
+     * @param result
+     * @param name
+     * @param type
+     * @param help
+     */
+    private static void writeHeader(StringBuilder result, String name,
+            String type, String help) {
+        result.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        result.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    /**
+     * writeValue(...) method writes one series of a metric.
+     *
+     * @param result
+     * @param name
+     * @param labels label pairs without the braces, null if none
+     * @param value
+     */
+    private static void writeValue(StringBuilder result, String name,
+            String labels, Object value) {
+        result.append(name);
+        if (labels != null) {
+            result.append('{').append(labels).append('}');
+        }
+        result.append(' ').append(value).append('\n');
+    }
+
+    /**
+     * toSeconds(...) method converts the time (ns) to seconds.
+     *
+     * @param nanos
+     * @return <code>double</code>
+     */
+    private static double toSeconds(long nanos) {
+        return nanos / 1000000000.0;
+    }
+
+    /**
+     * escape(...) method escapes a label value.
+     *
+     * @param value
+     * @return <code>String</code>
+     */
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"")
+                .replace("\n", "\\n");
+    }
+    // </editor-fold>
+
+    @Override
+    public void checkConnection(AbstractConnection connection) {
+        // each connection is closed once the exposition is sent
+    }
+
+    @Override
+    public void checkConnections() {
+        // each connection is closed once the exposition is sent
+    }
+
+    /**
+     * ServiceSample class stores the values of a service read for one
+     * exposition.
+     */
+    private static class ServiceSample {
+
+        private final String _labels;
+        private final boolean _isRunning;
+        private final ServiceStatistics _statistics;
+        private final long _totalAccepted;
+        private final long _acceptRate;
+        private final int _threads;
+        private final boolean _isExecutor;
+        private final int _executorLiveThreads;
+        private final int _executorQueuedTasks;
+        private final long _executorRejected;
+        private final boolean _isAdmissionQueue;
+        private final int _admissionDepth;
+        private final long _admissionExpired;
+        private final List<LatencyRecorder.Snapshot> _latencies
+                = new ArrayList<>();
+
+        ServiceSample(IService service) {
+            this._labels = "service=\""
+                    + escape(service.getServiceConfig().getServiceName())
+                    + "\",port=\""
+                    + service.getServiceConfig().getConnectionPort() + "\"";
+            this._isRunning = service.isRunning();
+
+            ThreadGroup group = service.getThreadGroup();
+            this._threads = (group == null) ? 0 : group.activeCount();
+
+            this._totalAccepted = service.getAcceptMetrics().getTotalAccepted();
+            this._acceptRate = service.getAcceptMetrics().getAcceptRate();
+
+            for (LatencyRecorder recorder
+                    : service.getServiceMetrics().getRecorders()) {
+                this._latencies.add(recorder.getSnapshot());
+            }
+
+            // the executor and the admission queue are only reported for the
+            // services based on AbstractService
+            ConnectionExecutor executor = null;
+            AdmissionQueue admission = null;
+            if (service instanceof AbstractService) {
+                executor = ((AbstractService) service).getConnectionExecutor();
+                admission = ((AbstractService) service).getAdmissionQueue();
+                this._statistics = ((AbstractService) service).getStatistics();
+            } else {
+                this._statistics = new ServiceStatistics(0, 0L, 0L, 0L, 0L,
+                        0L, 0L);
+            }
+
+            this._isExecutor = executor != null;
+            this._executorLiveThreads = (executor == null) ? 0
+                    : executor.getLiveThreads();
+            this._executorQueuedTasks = (executor == null) ? 0
+                    : executor.getQueuedTasks();
+            this._executorRejected = (executor == null) ? 0L
+                    : executor.getTotalRejected();
+
+            this._isAdmissionQueue = admission != null;
+            this._admissionDepth = (admission == null) ? 0
+                    : admission.getDepth();
+            this._admissionExpired = (admission == null) ? 0L
+                    : admission.getTotalExpired();
+        }
+    }
+}
@@ -19,6 +19,9 @@ public class WatcherService extends AbstractService implements IService {
 
 	// local storage for service port list
 	private volatile String _watchList = "";
+
+	// local storage for the next scan scheduled on the service timer
+	private volatile WheelTimeout _scanTimer = null;
 	// </editor-fold>
 
 	// <editor-fold desc="class constructor destructor">
@@ -95,8 +98,35 @@ public class WatcherService extends AbstractService implements IService {
 	// </editor-fold>
 
 	// <editor-fold desc="class methods">
+	/**
+	 * checkConnections() method schedules the next scan on the service timer
+	 * if a scan is not already scheduled or running. The scan is executed by
+	 * a non socket connection when the scan period expires; a thread is not
+	 * held between the scans.
+	 */
 	@Override
-	public void checkConnections() {
+	public synchronized void checkConnections() {
+		if (isRunning()) {
+			// a scan is scheduled or running, exit
+			if (((this._scanTimer != null) && !this._scanTimer.isExpired()) || !getConnections().isEmpty()) {
+				return;
+			}
+
+			// schedule the scan for the scan period
+			this._scanTimer = getTimer().newTimeout(new ITimeoutTask() {
+				@Override
+				public void expired(WheelTimeout timeout) throws Exception {
+					startScan();
+				}
+			}, getScanPeriod(), this);
+		}
+	}
+
+	/**
+	 * startScan() method is called by the timer when the scan period expires
+	 * and creates the non socket connection which performs the scan.
+	 */
+	private void startScan() {
 		if (isRunning()) {
 			try {
 				if (getConnections().isEmpty()) {
@@ -105,13 +135,10 @@ public class WatcherService extends AbstractService implements IService {
 				}
 			} catch (Exception ex) {
 				// log error for tracking
-				logError(getClass().toString() + ", checkConnections(), " + getServiceConfig().getServiceName()
+				logError(getClass().toString() + ", startScan(), " + getServiceConfig().getServiceName()
 						+ ", error creating connection " + getServiceConfig().getServiceName() + " on port "
 						+ getServiceConfig().getConnectionPort() + ", " + ex.getMessage());
 			}
-
-			// yield processing to other threads
-			Thread.yield();
 		}
 	}
 
@@ -136,12 +163,9 @@ public class WatcherService extends AbstractService implements IService {
 			String[] services = getWatchList().split(",");
 			boolean result = false;
 
-			// loop as long as the service is running, since there is no
-			// connection, this is service threaded method
-			while (isRunning()) {
-				// yield processing to other threads
-				Thread.sleep(getScanPeriod());
-
+			// the scan is executed once per connection, the next scan is
+			// scheduled by checkConnections() when the connection exits
+			if (isRunning()) {
 				// check the factory for each port
 				// if service is AUTOMATIC or DELAYEDSTART then start the
 				// service
@@ -169,7 +193,7 @@ public class WatcherService extends AbstractService implements IService {
 			removeConnection(conn);
 
 			// we have exited the method, but if the service is still running
-			// restart the connection
+			// schedule the next scan
 			if (isRunning()) {
 				checkConnections();
 			}
@@ -0,0 +1,64 @@
+package elsu.network.benchmark;
+
+import org.openjdk.jmh.results.format.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * BenchmarkResults class provides the run options shared by the benchmark
+ * main() methods. The results are written in json so the scores of two
+ * releases can be compared by tools (jmh visualizers, build jobs).
+ * <p>
+ * The result file is the first argument of main(), or
+ * target/jmh-&lt;benchmark&gt;.json if none is provided. The benchmark
+ * profile of the pom runs all the benchmarks and writes
+ * target/jmh-result-&lt;version&gt;.json:
+ * <pre>
+ * mvn -B verify -Pbenchmark
+ * </pre>
+ */
+public final class BenchmarkResults {
+
+    // <editor-fold desc="class private storage">
+    // directory of the result files when no file is provided
+    private static final String _resultDirectory = "target/";
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    private BenchmarkResults() {
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * getResultFile(...) method returns the result file from the arguments
+     * or the default file of the benchmark.
+     *
+     * @param benchmark
+     * @param args
+     * @return <code>String</code> path of the json result file
+     */
+    public static String getResultFile(Class<?> benchmark, String[] args) {
+        if ((args != null) && (args.length > 0) && !args[0].isEmpty()) {
+            return args[0];
+        }
+
+        return _resultDirectory + "jmh-" + benchmark.getSimpleName() + ".json";
+    }
+
+    /**
+     * options(...) method returns the options which run the benchmark class
+     * and write the results in json to the result file.
+     *
+     * @param benchmark
+     * @param args
+     * @return <code>ChainedOptionsBuilder</code>
+     */
+    public static ChainedOptionsBuilder options(Class<?> benchmark,
+            String[] args) {
+        return new OptionsBuilder()
+                .include(benchmark.getSimpleName())
+                .resultFormat(ResultFormatType.JSON)
+                .result(getResultFile(benchmark, args));
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,107 @@
+package elsu.network.benchmark;
+
+import elsu.network.services.core.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * CounterBenchmark class measures the service runtime counters. The
+ * synchronized benchmarks reproduce the monitor based counters previously
+ * used by AbstractServiceRuntimeProperties and AbstractServiceManager; the
+ * striped benchmarks use StripedCounter.
+ * <p>
+ * main() runs the benchmarks from 1 thread to the # of processors (doubling)
+ * to show how each counter scales:
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar elsu.network.benchmark.CounterBenchmark
+ * </pre>
+ *
+ * @see StripedCounter
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CounterBenchmark {
+
+    // <editor-fold desc="class private storage">
+    // monitor based counter, same as the original runtime properties
+    private final Object _runtimeSync = new Object();
+    private volatile long _synchronizedCounter = 0L;
+
+    // single atomic counter, reference for cas contention
+    private final AtomicLong _atomicCounter = new AtomicLong(0L);
+
+    // striped counter used by the runtime properties
+    private final StripedCounter _stripedCounter = new StripedCounter();
+    // </editor-fold>
+
+    // <editor-fold desc="class benchmarks">
+    @Benchmark
+    public void synchronizedIncrement() {
+        synchronized (this._runtimeSync) {
+            this._synchronizedCounter++;
+        }
+    }
+
+    @Benchmark
+    public long synchronizedRead() {
+        synchronized (this._runtimeSync) {
+            return this._synchronizedCounter;
+        }
+    }
+
+    @Benchmark
+    public long atomicIncrement() {
+        return this._atomicCounter.incrementAndGet();
+    }
+
+    @Benchmark
+    public void stripedIncrement() {
+        this._stripedCounter.increment();
+    }
+
+    @Benchmark
+    public long stripedRead() {
+        return this._stripedCounter.sum();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the benchmarks with 1 to N threads, N is the #
+     * of processors available. The results of each thread count are written
+     * to a json file, the name of the result file is suffixed with the #
+     * of threads.
+     *
+     * @param args
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        int processors = Runtime.getRuntime().availableProcessors();
+
+        for (int threads = 1; ; threads <<= 1) {
+            threads = Math.min(threads, processors);
+
+            Options options = BenchmarkResults.options(
+                    CounterBenchmark.class, args)
+                    .threads(threads)
+                    .result(BenchmarkResults.getResultFile(
+                            CounterBenchmark.class, args)
+                            .replace(".json", "-" + threads + ".json"))
+                    .build();
+            new Runner(options).run();
+
+            if (threads == processors) {
+                break;
+            }
+        }
+    }
+    // </editor-fold>
+}
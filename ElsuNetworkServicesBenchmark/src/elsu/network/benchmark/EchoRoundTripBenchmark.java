@@ -0,0 +1,159 @@
+package elsu.network.benchmark;
+
+import elsu.network.application.*;
+import elsu.network.services.core.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+
+/**
+ * EchoRoundTripBenchmark class measures the round trip of a record through
+ * the framework in the same process: the service manager loads
+ * config/benchmark.config and starts the echo services, each benchmark
+ * thread connects a client which sends a record and reads the echo.
+ * <p>
+ * echoService uses the blocking io (ServiceListener, Connection and the
+ * EchoService pipeline), echoNioService uses the NIO reactor. The config can
+ * be replaced with the benchmark.config system property:
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar elsu.network.benchmark.EchoRoundTripBenchmark
+ * </pre>
+ *
+ * @see EchoService
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EchoRoundTripBenchmark {
+
+    // <editor-fold desc="class private storage">
+    // record sent by the client, with the record terminator
+    private byte[] _request = null;
+
+    // client connection of the benchmark thread
+    private Socket _socket = null;
+    private OutputStream _out = null;
+    private BufferedReader _in = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class setup">
+    @Setup(Level.Trial)
+    public void connect(ServerState server) throws Exception {
+        StringBuilder request = new StringBuilder();
+        for (int i = 0; i < server._recordLength; i++) {
+            request.append((char) ('a' + (i % 26)));
+        }
+        request.append('\n');
+        this._request = request.toString().getBytes(StandardCharsets.UTF_8);
+
+        this._socket = new Socket("localhost", server.getPort());
+        this._socket.setTcpNoDelay(true);
+        this._out = this._socket.getOutputStream();
+        this._in = new BufferedReader(new InputStreamReader(
+                this._socket.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    @TearDown(Level.Trial)
+    public void disconnect() throws IOException {
+        this._socket.close();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class benchmarks">
+    @Benchmark
+    public String roundTrip() throws IOException {
+        this._out.write(this._request);
+        this._out.flush();
+
+        String result = this._in.readLine();
+        if (result == null) {
+            throw new EOFException("echo service closed the connection");
+        }
+
+        return result;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the benchmarks and writes the results to
+     * the json file named by the first argument.
+     *
+     * @param args
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(BenchmarkResults.options(
+                EchoRoundTripBenchmark.class, args).build()).run();
+    }
+    // </editor-fold>
+
+    /**
+     * ServerState class is the service manager shared by the benchmark
+     * threads; it is started once for each trial.
+     */
+    @State(Scope.Benchmark)
+    public static class ServerState {
+
+        // service receiving the records, as named in the services section
+        // of the config
+        @Param({"echoService", "echoNioService"})
+        String _serviceName;
+
+        // length of the record sent, without the terminator
+        @Param({"16", "512"})
+        int _recordLength;
+
+        // service manager running the echo services
+        private ServiceManager _serviceManager = null;
+
+        // port of the service
+        private int _port = 0;
+
+        int getPort() {
+            return this._port;
+        }
+
+        @Setup(Level.Trial)
+        public void start() throws Exception {
+            this._serviceManager = new ServiceManager(System.getProperty(
+                    "benchmark.config", "config/benchmark.config"));
+            this._serviceManager.run();
+
+            // the services are registered by their full config key
+            IService service = this._serviceManager.getService(
+                    "application.services.service." + this._serviceName);
+            if (service == null) {
+                throw new IllegalStateException(this._serviceName
+                        + " is not configured");
+            }
+            this._port = service.getServiceConfig().getConnectionPort();
+
+            // the listener is started on its own thread, wait for the port
+            long timeout = System.currentTimeMillis() + 10000L;
+            for (;;) {
+                try (Socket socket = new Socket("localhost", this._port)) {
+                    break;
+                } catch (ConnectException ex) {
+                    if (System.currentTimeMillis() > timeout) {
+                        throw ex;
+                    }
+
+                    Thread.sleep(50L);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void stop() {
+            this._serviceManager.shutdownServices();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package elsu.network.benchmark;
+
+import elsu.network.services.core.*;
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.charset.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * RecordFramingBenchmark class measures the split of the client data into
+ * records. The readLine benchmark reproduces the BufferedReader previously
+ * used by the connections; the framer benchmarks use RecordFramer filled from
+ * a stream (blocking connections) and from a channel (NIO connections).
+ * <p>
+ * Each invocation frames the same block of records, the score is per record:
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar elsu.network.benchmark.RecordFramingBenchmark
+ * </pre>
+ *
+ * @see RecordFramer
+ * @see RecordReader
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RecordFramingBenchmark {
+
+    // <editor-fold desc="class private storage">
+    // # of records in the block framed by each invocation
+    private static final int _recordCount = 256;
+
+    // length of each record, including the terminator
+    @Param({"64", "1024"})
+    private int _recordLength;
+
+    // charset of the records, same as the default record.charset
+    private static final Charset _charset = StandardCharsets.UTF_8;
+
+    // block of records read by the benchmarks
+    private ByteArrayInputStream _in = null;
+    private ReadableByteChannel _channel = null;
+
+    // framer reused by the invocations, as a connection does
+    private RecordFramer _framer = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class setup">
+    @Setup(Level.Trial)
+    public void setup() {
+        byte[] data = new byte[_recordCount * this._recordLength];
+
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) ('a' + (i % 26));
+        }
+        for (int i = this._recordLength - 1; i < data.length;
+                i += this._recordLength) {
+            data[i] = '\n';
+        }
+
+        this._in = new ByteArrayInputStream(data);
+        this._channel = Channels.newChannel(this._in);
+        this._framer = new RecordFramer("\n", _charset);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        this._framer.release();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class benchmarks">
+    @Benchmark
+    @OperationsPerInvocation(_recordCount)
+    public void bufferedReaderReadLine(Blackhole blackhole) throws IOException {
+        this._in.reset();
+
+        // reader per invocation, as the original connection per client
+        BufferedReader reader = new BufferedReader(
+                new InputStreamReader(this._in, _charset));
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            blackhole.consume(line);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(_recordCount)
+    public void framerStream(Blackhole blackhole) throws IOException {
+        this._in.reset();
+
+        while (this._framer.fill(this._in) > 0) {
+            RecordView record;
+            while ((record = this._framer.next()) != null) {
+                blackhole.consume(record.getByteLength());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(_recordCount)
+    public void framerChannel(Blackhole blackhole) throws IOException {
+        this._in.reset();
+
+        while (this._framer.fill(this._channel) > 0) {
+            RecordView record;
+            while ((record = this._framer.next()) != null) {
+                blackhole.consume(record.getByteLength());
+            }
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(_recordCount)
+    public void framerStreamDecode(Blackhole blackhole) throws IOException {
+        this._in.reset();
+
+        // same as the framer, the records are decoded as readLine() does
+        while (this._framer.fill(this._in) > 0) {
+            RecordView record;
+            while ((record = this._framer.next()) != null) {
+                blackhole.consume(record.toString());
+            }
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the benchmarks and writes the results to
+     * the json file named by the first argument.
+     *
+     * @param args
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(BenchmarkResults.options(
+                RecordFramingBenchmark.class, args).build()).run();
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,184 @@
+package elsu.network.benchmark;
+
+import elsu.network.application.*;
+import elsu.network.services.core.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import org.openjdk.jmh.runner.options.*;
+
+/**
+ * ServiceRegistryBenchmark class measures the service lookups by name while
+ * services are added and removed. The legacy benchmarks reproduce the
+ * synchronized HashMap scan previously used by
+ * AbstractServiceManager.getService(String); the registry benchmarks use
+ * ServiceRegistry.
+ * <p>
+ * Each group runs 3 lookup threads (the watcher and control services) and 1
+ * thread which registers and unregisters a service:
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar elsu.network.benchmark.ServiceRegistryBenchmark
+ * </pre>
+ *
+ * @see ServiceRegistry
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Group)
+public class ServiceRegistryBenchmark {
+
+    // <editor-fold desc="class private storage">
+    // # of services registered before the benchmark
+    @Param({"16", "128"})
+    private int _serviceCount;
+
+    // first port of the registered services
+    private static final int _basePort = 10000;
+
+    // monitor based registry, same as the original service manager
+    private final Object _runtimeSync = new Object();
+    private final Map<Integer, IService> _legacyServices = new HashMap<>();
+
+    // indexed registry used by the service manager
+    private final ServiceRegistry _registry = new ServiceRegistry();
+
+    // service added and removed by the churn thread
+    private IService _churnService = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class setup">
+    @Setup(Level.Trial)
+    public void setup() {
+        for (int i = 0; i < this._serviceCount; i++) {
+            IService service = createService("service" + i, _basePort + i);
+
+            this._legacyServices.put(_basePort + i, service);
+            this._registry.register(service);
+        }
+
+        this._churnService = createService("churnService",
+                _basePort + this._serviceCount);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class benchmarks">
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(3)
+    public IService legacyLookup() {
+        String serviceName = "service"
+                + ThreadLocalRandom.current().nextInt(this._serviceCount);
+
+        // copy of the key set and scan, as the original getService(...)
+        ArrayList<Integer> svcList;
+        synchronized (this._runtimeSync) {
+            svcList = new ArrayList<>(this._legacyServices.keySet());
+        }
+
+        for (Integer key : svcList) {
+            synchronized (this._runtimeSync) {
+                IService service = this._legacyServices.get(key);
+
+                if ((service != null) && service.getServiceConfig()
+                        .getServiceName().equals(serviceName)) {
+                    return service;
+                }
+            }
+
+            Thread.yield();
+        }
+
+        return null;
+    }
+
+    @Benchmark
+    @Group("legacy")
+    @GroupThreads(1)
+    public void legacyChurn() {
+        Integer port = this._churnService.getServiceConfig().getConnectionPort();
+
+        synchronized (this._runtimeSync) {
+            this._legacyServices.put(port, this._churnService);
+        }
+        synchronized (this._runtimeSync) {
+            this._legacyServices.remove(port);
+        }
+    }
+
+    @Benchmark
+    @Group("registry")
+    @GroupThreads(3)
+    public IService registryLookup() {
+        String serviceName = "service"
+                + ThreadLocalRandom.current().nextInt(this._serviceCount);
+
+        return this._registry.getService(serviceName);
+    }
+
+    @Benchmark
+    @Group("registry")
+    @GroupThreads(1)
+    public void registryChurn() {
+        this._registry.register(this._churnService);
+        this._registry.unregister(
+                this._churnService.getServiceConfig().getConnectionPort());
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * createService(...) method creates a service stub which only provides
+     * the service config; the registry does not call the other methods.
+     *
+     * @param serviceName
+     * @param port
+     * @return <code>IService</code>
+     */
+    private static IService createService(String serviceName, int port) {
+        final ServiceConfig config = new ServiceConfig();
+        config.setServiceName(serviceName);
+        config.setConnectionPort(port);
+
+        return (IService) Proxy.newProxyInstance(
+                IService.class.getClassLoader(),
+                new Class<?>[]{IService.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getServiceConfig":
+                        return config;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return config.getServiceName();
+                    default:
+                        return null;
+                }
+            }
+        });
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the legacy and registry benchmark groups and
+     * writes the results to the json file named by the first argument.
+     *
+     * @param args
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        Options options = BenchmarkResults.options(
+                ServiceRegistryBenchmark.class, args).build();
+        new Runner(options).run();
+    }
+    // </editor-fold>
+}
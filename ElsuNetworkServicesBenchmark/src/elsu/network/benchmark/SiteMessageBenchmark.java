@@ -0,0 +1,90 @@
+package elsu.network.benchmark;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.*;
+import site.service.*;
+
+/**
+ * SiteMessageBenchmark class measures the conversion of the site messages
+ * between the record format (siteId|date|equipmentId|sequence|payload) and
+ * the SiteMessage object, used for each record by the site publisher,
+ * subscriber and storage services.
+ * <p>
+ * getBcsMessage(String) creates the message and parses the record;
+ * setBcsMessage(...) parses the record into an existing message and
+ * getBcsMessage() formats the message. Note, setBcsMessage(...) also formats
+ * the message it returns:
+ * <pre>
+ * mvn -B package
+ * java -cp target/benchmarks.jar elsu.network.benchmark.SiteMessageBenchmark
+ * </pre>
+ *
+ * @see SiteMessage
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SiteMessageBenchmark {
+
+    // <editor-fold desc="class private storage">
+    // length of the message payload
+    @Param({"32", "512"})
+    private int _payloadLength;
+
+    // record parsed by the benchmarks, without the terminator
+    private String _record = null;
+
+    // message reused by the parse and format benchmarks
+    private SiteMessage _message = null;
+    // </editor-fold>
+
+    // <editor-fold desc="class setup">
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder payload = new StringBuilder();
+        for (int i = 0; i < this._payloadLength; i++) {
+            payload.append((char) ('a' + (i % 26)));
+        }
+
+        this._message = new SiteMessage(1001, 42, payload.toString());
+        this._record = this._message.getBcsMessage(
+                this._message.getDatetimeFormat(),
+                this._message.getDelimiter(), "");
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class benchmarks">
+    @Benchmark
+    public SiteMessage getBcsMessageParse() {
+        return SiteMessage.getBcsMessage(this._record);
+    }
+
+    @Benchmark
+    public String setBcsMessage() {
+        return this._message.setBcsMessage(this._record);
+    }
+
+    @Benchmark
+    public String getBcsMessageFormat() {
+        return this._message.getBcsMessage();
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the benchmarks and writes the results to
+     * the json file named by the first argument.
+     *
+     * @param args
+     * @throws RunnerException
+     */
+    public static void main(String[] args) throws RunnerException {
+        new Runner(BenchmarkResults.options(
+                SiteMessageBenchmark.class, args).build()).run();
+    }
+    // </editor-fold>
+}
@@ -0,0 +1,68 @@
+package elsu.network.jfr;
+
+import elsu.network.services.core.*;
+import jdk.jfr.*;
+
+/**
+ * AbstractServiceEvent class is the base of the service events, it records
+ * the service name and port. The events are the spans returned by
+ * JfrServiceTracer: begin() is called when the operation starts and
+ * end(...) commits the event if the operation took longer than the
+ * threshold. The fields are only filled in when the event is committed, the
+ * service and connection are kept in transient fields until then.
+ *
+ * @see JfrServiceTracer
+ */
+@Category({"Elsu", "Network Services"})
+@StackTrace(false)
+public abstract class AbstractServiceEvent extends Event
+        implements ITraceSpan {
+
+    @Label("Service")
+    String serviceName;
+
+    @Label("Port")
+    int port;
+
+    // service which started the event, read on commit
+    private transient IService _service = null;
+
+    // <editor-fold desc="class constructor destructor">
+    protected AbstractServiceEvent(IService service) {
+        this._service = service;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * end(...) method ends the operation and commits the event if it is
+     * above the threshold of the recording.
+     *
+     * @param bytesReceived
+     * @param bytesSent
+     */
+    @Override
+    public void end(long bytesReceived, long bytesSent) {
+        end();
+
+        if (shouldCommit()) {
+            if (this._service != null) {
+                this.serviceName = this._service.getServiceConfig().getServiceName();
+                this.port = this._service.getServiceConfig().getConnectionPort();
+            }
+
+            setFields(bytesReceived, bytesSent);
+            commit();
+        }
+    }
+
+    /**
+     * setFields(...) method fills in the fields of the event before it is
+     * committed.
+     *
+     * @param bytesReceived
+     * @param bytesSent
+     */
+    protected abstract void setFields(long bytesReceived, long bytesSent);
+    // </editor-fold>
+}
@@ -0,0 +1,37 @@
+package elsu.network.jfr;
+
+import elsu.network.services.core.*;
+import java.net.*;
+import jdk.jfr.*;
+
+/**
+ * AcceptEvent class records the handoff of an accepted socket to the
+ * service by the listener or the reactor, until the connection is started,
+ * queued or refused.
+ */
+@Name("elsu.network.Accept")
+@Label("Connection Accept")
+@Description("Handoff of an accepted socket to the service")
+@Enabled(true)
+@Threshold("1 ms")
+public class AcceptEvent extends AbstractServiceEvent {
+
+    @Label("Remote Host")
+    String remoteHost;
+
+    // socket accepted, read on commit
+    private transient Socket _client = null;
+
+    public AcceptEvent(IService service, Socket client) {
+        super(service);
+
+        this._client = client;
+    }
+
+    @Override
+    protected void setFields(long bytesReceived, long bytesSent) {
+        if ((this._client != null) && (this._client.getInetAddress() != null)) {
+            this.remoteHost = this._client.getInetAddress().getHostAddress();
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package elsu.network.jfr;
+
+import elsu.network.services.*;
+import elsu.network.services.core.*;
+import jdk.jfr.*;
+
+/**
+ * ConnectionEvent class records a connection from its admission by the
+ * service until it is removed, with the data transferred. All the
+ * connections are recorded.
+ */
+@Name("elsu.network.Connection")
+@Label("Connection")
+@Description("Connection from its admission until it is removed")
+@Enabled(true)
+@Threshold("0 ms")
+public class ConnectionEvent extends AbstractServiceEvent {
+
+    @Label("Connection Id")
+    long connectionId;
+
+    @Label("Remote Host")
+    String remoteHost;
+
+    @Label("Bytes Received")
+    @DataAmount
+    long bytesReceived;
+
+    @Label("Bytes Sent")
+    @DataAmount
+    long bytesSent;
+
+    // connection traced, read on commit
+    private transient AbstractConnection _connection = null;
+
+    public ConnectionEvent(IService service, AbstractConnection connection) {
+        super(service);
+
+        this._connection = connection;
+    }
+
+    @Override
+    protected void setFields(long bytesReceived, long bytesSent) {
+        if (this._connection != null) {
+            this.connectionId = this._connection.getConnectionId();
+            this.remoteHost = this._connection.getRemoteHost();
+        }
+
+        this.bytesReceived = bytesReceived;
+        this.bytesSent = bytesSent;
+    }
+}
@@ -0,0 +1,28 @@
+package elsu.network.jfr;
+
+import elsu.network.services.core.*;
+import jdk.jfr.*;
+
+/**
+ * DatabaseCallEvent class records a stored procedure call of the service.
+ */
+@Name("elsu.network.DatabaseCall")
+@Label("Database Call")
+@Description("Stored procedure call of the service")
+@Enabled(true)
+@Threshold("1 ms")
+public class DatabaseCallEvent extends AbstractServiceEvent {
+
+    @Label("Procedure")
+    String procedure;
+
+    public DatabaseCallEvent(IService service, String procedure) {
+        super(service);
+
+        this.procedure = procedure;
+    }
+
+    @Override
+    protected void setFields(long bytesReceived, long bytesSent) {
+    }
+}
@@ -0,0 +1,35 @@
+package elsu.network.jfr;
+
+import elsu.network.services.core.*;
+import jdk.jfr.*;
+
+/**
+ * FileWriteEvent class records a write of the service to a file (message
+ * store, file transfer); the file name is the name or mask used by the
+ * service for the writer.
+ */
+@Name("elsu.network.FileWrite")
+@Label("File Write")
+@Description("Write of the service to a file")
+@Enabled(true)
+@Threshold("1 ms")
+public class FileWriteEvent extends AbstractServiceEvent {
+
+    @Label("File Name")
+    String fileName;
+
+    @Label("Bytes Written")
+    @DataAmount
+    long bytes;
+
+    public FileWriteEvent(IService service, String fileName) {
+        super(service);
+
+        this.fileName = fileName;
+    }
+
+    @Override
+    protected void setFields(long bytesReceived, long bytesSent) {
+        this.bytes = bytesSent;
+    }
+}
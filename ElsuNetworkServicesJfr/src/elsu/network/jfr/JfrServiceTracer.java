@@ -0,0 +1,68 @@
+package elsu.network.jfr;
+
+import elsu.network.services.*;
+import elsu.network.services.core.*;
+import java.net.*;
+
+/**
+ * JfrServiceTracer class reports the service operations as Java Flight
+ * Recorder events. The tracer is loaded by ServiceTrace when the jar is on
+ * the classpath (META-INF/services); the events are enabled by default, so a
+ * recording started with the default settings includes them:
+ * <pre>
+ * java -XX:StartFlightRecording=filename=services.jfr,settings=default
+ *      -cp ElsuNetworkServices.jar:ElsuNetworkServicesJfr.jar ...
+ * jfr print --categories "Elsu" services.jfr
+ * </pre>
+ * An event is only started if its type is enabled in the recording, the
+ * shared no-op span is returned otherwise.
+ *
+ * @see ServiceTrace
+ * @see AbstractServiceEvent
+ */
+public class JfrServiceTracer implements IServiceTracer {
+
+    // <editor-fold desc="class methods">
+    @Override
+    public ITraceSpan beginAccept(IService service, Socket client) {
+        return begin(new AcceptEvent(service, client));
+    }
+
+    @Override
+    public ITraceSpan beginConnection(IService service,
+            AbstractConnection connection) {
+        return begin(new ConnectionEvent(service, connection));
+    }
+
+    @Override
+    public ITraceSpan beginRecord(IService service,
+            AbstractConnection connection) {
+        return begin(new RecordEvent(service, connection));
+    }
+
+    @Override
+    public ITraceSpan beginFileWrite(IService service, String fileName) {
+        return begin(new FileWriteEvent(service, fileName));
+    }
+
+    @Override
+    public ITraceSpan beginDatabaseCall(IService service, String procedure) {
+        return begin(new DatabaseCallEvent(service, procedure));
+    }
+
+    /**
+     * begin(...) method starts the event if it is enabled in a recording.
+     *
+     * @param event
+     * @return <code>ITraceSpan</code> event or the no-op span
+     */
+    private static ITraceSpan begin(AbstractServiceEvent event) {
+        if (!event.isEnabled()) {
+            return ServiceTrace.NOOP_SPAN;
+        }
+
+        event.begin();
+        return event;
+    }
+    // </editor-fold>
+}
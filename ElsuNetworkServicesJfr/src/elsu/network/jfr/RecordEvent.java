@@ -0,0 +1,46 @@
+package elsu.network.jfr;
+
+import elsu.network.services.*;
+import elsu.network.services.core.*;
+import jdk.jfr.*;
+
+/**
+ * RecordEvent class records the processing of a record received on a
+ * connection, from the decode to the end of the handler.
+ */
+@Name("elsu.network.Record")
+@Label("Record Processing")
+@Description("Decode and handling of a record received on a connection")
+@Enabled(true)
+@Threshold("1 ms")
+public class RecordEvent extends AbstractServiceEvent {
+
+    @Label("Connection Id")
+    long connectionId;
+
+    @Label("Remote Host")
+    String remoteHost;
+
+    @Label("Record Size")
+    @DataAmount
+    long bytes;
+
+    // connection which received the record, read on commit
+    private transient AbstractConnection _connection = null;
+
+    public RecordEvent(IService service, AbstractConnection connection) {
+        super(service);
+
+        this._connection = connection;
+    }
+
+    @Override
+    protected void setFields(long bytesReceived, long bytesSent) {
+        if (this._connection != null) {
+            this.connectionId = this._connection.getConnectionId();
+            this.remoteHost = this._connection.getRemoteHost();
+        }
+
+        this.bytes = bytesReceived;
+    }
+}
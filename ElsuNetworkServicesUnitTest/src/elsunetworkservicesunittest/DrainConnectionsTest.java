@@ -0,0 +1,306 @@
+package elsunetworkservicesunittest;
+
+import elsu.network.application.*;
+import elsu.network.services.*;
+import elsu.network.services.core.*;
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * DrainConnectionsTest class checks the service drain against connections
+ * served by the connection executor (POOLED), where the connection thread
+ * object is not started and run() is executed by a pool thread:
+ * <ul>
+ * <li>a connection blocked in a socket read is drained before the timeout
+ * and is not forced closed</li>
+ * <li>a connection blocked outside of the socket io is forced closed at the
+ * timeout and its serving thread is interrupted</li>
+ * <li>a shutdown started by a connection does not wait the timeout for its
+ * own connection</li>
+ * </ul>
+ * The service is loaded from config/drain.config:
+ * <pre>
+ * java -cp ElsuNetworkServicesUnitTest.jar elsunetworkservicesunittest.DrainConnectionsTest
+ *      [config/drain.config]
+ * </pre>
+ *
+ * @see AbstractService
+ */
+public class DrainConnectionsTest {
+
+    // <editor-fold desc="class private storage">
+    // name of the service in the config
+    private static final String _serviceName
+            = "application.services.service.drainService";
+
+    // service manager running the test service
+    private final ServiceManager _serviceManager;
+
+    // service tested
+    private DrainTestService _service = null;
+
+    // # of checks failed
+    private int _failures = 0;
+    // </editor-fold>
+
+    // <editor-fold desc="class constructor destructor">
+    public DrainConnectionsTest(String config) throws Exception {
+        this._serviceManager = new ServiceManager(config);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * run() method starts the service and runs the checks.
+     *
+     * @return <code>int</code> # of checks failed
+     * @throws Exception
+     */
+    public int run() throws Exception {
+        this._serviceManager.run();
+
+        this._service = (DrainTestService) this._serviceManager.getService(
+                _serviceName);
+        if (this._service == null) {
+            throw new IllegalStateException(_serviceName + " is not configured");
+        }
+
+        try {
+            checkBlockedRead();
+            checkBlockedTask();
+            checkSelfShutdown();
+        } finally {
+            this._serviceManager.shutdownServices();
+        }
+
+        return this._failures;
+    }
+
+    /**
+     * checkBlockedRead() method drains a connection waiting for data; the
+     * socket input is shut down so the read returns and the connection
+     * removes itself.
+     *
+     * @throws Exception
+     */
+    private void checkBlockedRead() throws Exception {
+        try (Socket client = connect()) {
+            AbstractConnection connection = waitForConnection();
+            check("blocked read, serving thread recorded",
+                    (connection.getServingThread() != null)
+                    && (connection.getServingThread() != connection));
+
+            this._service.drainNow();
+
+            check("blocked read, drained before the timeout",
+                    this._service.getDrainTime()
+                    < this._service.getServiceConfig().getDrainTimeout());
+            check("blocked read, no connection forced closed",
+                    this._service.getDrainForcedConnections() == 0);
+            check("blocked read, client closed",
+                    client.getInputStream().read() == -1);
+        }
+    }
+
+    /**
+     * checkBlockedTask() method drains a connection blocked outside of the
+     * socket io; the connection is forced closed at the timeout and the
+     * thread serving it is interrupted.
+     *
+     * @throws Exception
+     */
+    private void checkBlockedTask() throws Exception {
+        try (Socket client = connect()) {
+            send(client, "block");
+            waitForConnection();
+            this._service.waitForBlocked();
+
+            this._service.drainNow();
+
+            check("blocked task, forced closed at the timeout",
+                    this._service.getDrainForcedConnections() == 1);
+            check("blocked task, serving thread interrupted",
+                    this._service.waitForInterrupted());
+        }
+    }
+
+    /**
+     * checkSelfShutdown() method stops the service from one of its
+     * connections while a second connection is waiting for data; the
+     * shutdown only waits for the second connection.
+     *
+     * @throws Exception
+     */
+    private void checkSelfShutdown() throws Exception {
+        try (Socket idle = connect(); Socket client = connect()) {
+            while (this._service.getConnections().size() < 2) {
+                Thread.sleep(10L);
+            }
+
+            long start = System.nanoTime();
+            send(client, "shutdown");
+
+            // wait for the shutdown to complete
+            long timeout = System.currentTimeMillis()
+                    + (this._service.getServiceConfig().getDrainTimeout() * 2L);
+            while (this._service.isRunning()
+                    && (System.currentTimeMillis() < timeout)) {
+                Thread.sleep(10L);
+            }
+            this._service.waitForShutdown();
+            long shutdownTime = TimeUnit.NANOSECONDS.toMillis(
+                    System.nanoTime() - start);
+
+            check("self shutdown, service stopped", !this._service.isRunning());
+            check("self shutdown, own connection not waited for ("
+                    + shutdownTime + " ms)", shutdownTime
+                    < this._service.getServiceConfig().getDrainTimeout());
+        }
+    }
+
+    private Socket connect() throws IOException {
+        return new Socket("localhost",
+                this._service.getServiceConfig().getConnectionPort());
+    }
+
+    private static void send(Socket client, String line) throws IOException {
+        client.getOutputStream().write((line + "\n").getBytes(
+                StandardCharsets.UTF_8));
+        client.getOutputStream().flush();
+    }
+
+    /**
+     * waitForConnection() method returns the last connection of the service
+     * once its run() is executing.
+     *
+     * @return <code>AbstractConnection</code>
+     * @throws Exception
+     */
+    private AbstractConnection waitForConnection() throws Exception {
+        long timeout = System.currentTimeMillis() + 5000L;
+
+        while (System.currentTimeMillis() < timeout) {
+            AbstractConnection result = null;
+            for (AbstractConnection connection : this._service.getConnections()) {
+                result = connection;
+            }
+
+            if ((result != null) && (result.getServingThread() != null)) {
+                return result;
+            }
+
+            Thread.sleep(10L);
+        }
+
+        throw new IllegalStateException("connection not served");
+    }
+
+    private void check(String name, boolean passed) {
+        System.out.println((passed ? "PASS " : "FAIL ") + name);
+
+        if (!passed) {
+            this._failures++;
+        }
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the checks; the exit code is the # of checks
+     * failed.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        try {
+            DrainConnectionsTest test = new DrainConnectionsTest(
+                    (args.length > 0) ? args[0] : "config/drain.config");
+
+            System.exit(test.run());
+        } catch (Exception ex) {
+            // Display a message if anything goes wrong
+            System.err.println("DrainConnectionsTest, main, " + ex.getMessage());
+            System.err.println(
+                    "Usage: java -cp ElsuNetworkServicesUnitTest.jar "
+                    + "elsunetworkservicesunittest.DrainConnectionsTest "
+                    + "[config/drain.config]");
+            System.exit(1);
+        }
+    }
+    // </editor-fold>
+
+    /**
+     * DrainTestService class reads lines from the connections: "block" waits
+     * until the serving thread is interrupted, "shutdown" stops the service
+     * from the connection.
+     */
+    public static class DrainTestService extends AbstractService {
+
+        // released when a connection is blocked and when its thread is
+        // interrupted
+        private final CountDownLatch _blocked = new CountDownLatch(1);
+        private final CountDownLatch _interrupted = new CountDownLatch(1);
+
+        // released when the shutdown started by a connection returns
+        private final CountDownLatch _shutdown = new CountDownLatch(1);
+
+        public DrainTestService(String threadGroup,
+                ServiceManager serviceManager, ServiceConfig serviceConfig) {
+            super(threadGroup, serviceManager, serviceConfig);
+        }
+
+        /**
+         * drainNow() method drains the connections with the service drain
+         * timeout, the service keeps running.
+         */
+        public void drainNow() {
+            drainConnections(getServiceConfig().getDrainTimeout());
+        }
+
+        void waitForBlocked() throws InterruptedException {
+            this._blocked.await(5L, TimeUnit.SECONDS);
+        }
+
+        boolean waitForInterrupted() throws InterruptedException {
+            return this._interrupted.await(5L, TimeUnit.SECONDS);
+        }
+
+        void waitForShutdown() throws InterruptedException {
+            this._shutdown.await(10L, TimeUnit.SECONDS);
+        }
+
+        @Override
+        public void serve(AbstractConnection conn) throws Exception {
+            RecordReader in = createRecordReader(conn);
+
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (line.equals("block")) {
+                        this._blocked.countDown();
+
+                        try {
+                            new CountDownLatch(1).await();
+                        } catch (InterruptedException ex) {
+                            this._interrupted.countDown();
+                            return;
+                        }
+                    } else if (line.equals("shutdown")) {
+                        shutdown();
+                        this._shutdown.countDown();
+                        return;
+                    }
+                }
+            } finally {
+                try {
+                    in.close();
+                } catch (Exception exi) {
+                }
+            }
+        }
+    }
+}
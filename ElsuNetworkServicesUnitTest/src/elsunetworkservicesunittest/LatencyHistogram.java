@@ -0,0 +1,195 @@
+package elsunetworkservicesunittest;
+
+import java.util.*;
+
+/**
+ * LatencyHistogram class records latency values into log-linear buckets, the
+ * layout used by HdrHistogram. Values below 256 are counted exactly, larger
+ * values are counted in buckets of 128 steps for each power of two, so the
+ * value reported for a percentile is within 1% of the value recorded,
+ * whatever the range of the values.
+ * <p>
+ * The histogram has a fixed size and recordValue(...) does not allocate; it
+ * is not thread safe, each load connection records into its own histogram
+ * and the histograms are merged with add(...) for the report.
+ *
+ * @see LoadGenerator
+ */
+public class LatencyHistogram {
+
+    // <editor-fold desc="class private storage">
+    // # of values counted exactly, and the # of steps of each power of two
+    private static final int _subBucketBits = 8;
+    private static final int _subBucketCount = 1 << _subBucketBits;
+    private static final int _subBucketHalfCount = _subBucketCount >> 1;
+
+    // # of powers of two above the exact values, covers all positive longs
+    private static final int _bucketCount = 64 - _subBucketBits;
+
+    // count of the values in each bucket
+    private final long[] _counts
+            = new long[(_bucketCount * _subBucketHalfCount) + _subBucketCount];
+
+    // summary of the values recorded
+    private long _totalCount = 0L;
+    private long _totalValue = 0L;
+    private long _minimumValue = Long.MAX_VALUE;
+    private long _maximumValue = 0L;
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public long getTotalCount() {
+        return this._totalCount;
+    }
+
+    public long getMinValue() {
+        return (this._totalCount == 0L) ? 0L : this._minimumValue;
+    }
+
+    public long getMaxValue() {
+        return this._maximumValue;
+    }
+
+    public double getMean() {
+        return (this._totalCount == 0L) ? 0.0
+                : (double) this._totalValue / this._totalCount;
+    }
+
+    /**
+     * getValueAtPercentile(...) method returns the value below or equal to
+     * which the percentage of the values recorded fall; the highest value of
+     * the bucket is returned, capped to the maximum value recorded.
+     *
+     * @param percentile 0.0 to 100.0
+     * @return <code>long</code> value, 0 if no value is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (this._totalCount == 0L) {
+            return 0L;
+        }
+
+        double percent = Math.min(100.0, Math.max(0.0, percentile));
+        long countAtPercentile = Math.max(1L,
+                (long) Math.ceil((percent / 100.0) * this._totalCount));
+
+        long count = 0L;
+        for (int i = 0; i < this._counts.length; i++) {
+            count += this._counts[i];
+
+            if (count >= countAtPercentile) {
+                return Math.min(this._maximumValue, getHighestValue(i));
+            }
+        }
+
+        return this._maximumValue;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * recordValue(...) method counts the value; negative values are counted
+     * as zero.
+     *
+     * @param value
+     */
+    public void recordValue(long value) {
+        if (value < 0L) {
+            value = 0L;
+        }
+
+        this._counts[getIndex(value)]++;
+
+        this._totalCount++;
+        this._totalValue += value;
+        if (value < this._minimumValue) {
+            this._minimumValue = value;
+        }
+        if (value > this._maximumValue) {
+            this._maximumValue = value;
+        }
+    }
+
+    /**
+     * add(...) method adds the values recorded by the other histogram.
+     *
+     * @param other
+     */
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < this._counts.length; i++) {
+            this._counts[i] += other._counts[i];
+        }
+
+        this._totalCount += other._totalCount;
+        this._totalValue += other._totalValue;
+        this._minimumValue = Math.min(this._minimumValue, other._minimumValue);
+        this._maximumValue = Math.max(this._maximumValue, other._maximumValue);
+    }
+
+    /**
+     * reset() method removes all the values recorded, used at the end of the
+     * warmup.
+     */
+    public void reset() {
+        Arrays.fill(this._counts, 0L);
+
+        this._totalCount = 0L;
+        this._totalValue = 0L;
+        this._minimumValue = Long.MAX_VALUE;
+        this._maximumValue = 0L;
+    }
+
+    /**
+     * getIndex(...) method returns the bucket of the value; the value is
+     * shifted right until it fits in the sub buckets, the # of shifts is the
+     * bucket of the power of two.
+     *
+     * @param value
+     * @return <code>int</code>
+     */
+    private static int getIndex(long value) {
+        int shift = Math.max(0,
+                64 - Long.numberOfLeadingZeros(value) - _subBucketBits);
+
+        if (shift == 0) {
+            return (int) value;
+        }
+
+        return (shift * _subBucketHalfCount) + (int) (value >>> shift);
+    }
+
+    /**
+     * getHighestValue(...) method returns the highest value counted in the
+     * bucket.
+     *
+     * @param index
+     * @return <code>long</code>
+     */
+    private static long getHighestValue(int index) {
+        if (index < _subBucketCount) {
+            return index;
+        }
+
+        int shift = (index >> (_subBucketBits - 1)) - 1;
+        long subBucket = index - (shift * _subBucketHalfCount);
+
+        return ((subBucket + 1L) << shift) - 1L;
+    }
+    // </editor-fold>
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder();
+
+        result.append("<object attr='").append(getClass().getName()).append("'>");
+        result.append("<totalCount>").append(getTotalCount()).append("</totalCount>");
+        result.append("<min>").append(getMinValue()).append("</min>");
+        result.append("<mean>").append(String.format("%.1f", getMean())).append("</mean>");
+        result.append("<p50>").append(getValueAtPercentile(50.0)).append("</p50>");
+        result.append("<p99>").append(getValueAtPercentile(99.0)).append("</p99>");
+        result.append("<p999>").append(getValueAtPercentile(99.9)).append("</p999>");
+        result.append("<max>").append(getMaxValue()).append("</max>");
+        result.append("</object>");
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,498 @@
+package elsunetworkservicesunittest;
+
+import java.io.*;
+import java.net.*;
+import java.nio.charset.*;
+import java.text.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * LoadGenerator class sends records to a service port over concurrent
+ * connections and reports the throughput and the latency percentiles; it is
+ * used to load test a ServiceManager configuration before deployment.
+ * <p>
+ * Each connection sends a record and waits for the reply line (EchoService,
+ * StateService, SiteMessageService, MessageStorageService) or only sends
+ * (--reply false) and measures the time to hand the record to the socket. In
+ * that mode the replies are read and discarded by a drain thread, so unread
+ * replies never fill the TCP windows and stall the service. Without
+ * --rate the connections send the next record as soon as the reply is
+ * received (closed loop). With --rate the records are sent on a schedule and
+ * the latency is measured from the scheduled time, so a stalled service is
+ * reported with the delay of all the records which should have been sent.
+ * <p>
+ * Records are created from the --template, replacing {seq}, {connection},
+ * {time} (ms) and {date} (message.datetimeFormat), or are read from the
+ * --replay file, one record per line:
+ * <pre>
+ * java -cp ElsuNetworkServicesUnitTest.jar elsunetworkservicesunittest.LoadGenerator
+ *      --port 5005 --connections 16 --rate 20000 --warmup 10 --duration 60
+ * java ... LoadGenerator --port 5007 --reply false
+ *      --template "306|{date}|1|{seq}|load test {connection}"
+ * </pre>
+ *
+ * @see LatencyHistogram
+ */
+public class LoadGenerator {
+
+    // <editor-fold desc="class private storage">
+    // target service
+    private String _host = "localhost";
+    private int _port = 5005;
+
+    // # of connections, each connection is sent by its own thread
+    private int _connections = 1;
+
+    // records per second for all the connections, 0 for closed loop
+    private long _rate = 0L;
+
+    // time (seconds) of the warmup and the measurement phases
+    private int _warmup = 5;
+    private int _duration = 30;
+
+    // true if the reply line of each record is waited for, otherwise the
+    // replies are discarded
+    private boolean _isReply = true;
+
+    // record template or the records of the replay file
+    private String _template = "load test {connection}:{seq}";
+    private List<String> _replay = null;
+
+    // record terminator and charset, same as the framework defaults
+    private String _terminator = "\n";
+    private Charset _charset = StandardCharsets.UTF_8;
+
+    // date format of the {date} placeholder
+    private String _datetimeFormat = "yyyyMMddHHmmssS";
+
+    // time (ns) of the start and end of the measurement phase
+    private volatile long _measureStart = 0L;
+    private volatile long _measureEnd = 0L;
+
+    // status of the generator
+    private volatile boolean _isRunning = false;
+
+    // # of records sent by all the connections
+    private final AtomicLong _sequence = new AtomicLong(0L);
+    // </editor-fold>
+
+    // <editor-fold desc="class getter/setters">
+    public String getHost() {
+        return this._host;
+    }
+
+    public int getPort() {
+        return this._port;
+    }
+
+    public int getConnections() {
+        return this._connections;
+    }
+
+    public long getRate() {
+        return this._rate;
+    }
+
+    public boolean isReply() {
+        return this._isReply;
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class methods">
+    /**
+     * parse(...) method updates the options from the command line arguments
+     * (--name value).
+     *
+     * @param args
+     * @throws Exception
+     */
+    public void parse(String[] args) throws Exception {
+        for (int i = 0; i < args.length; i++) {
+            String option = args[i];
+
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value, " + option);
+            }
+            String value = args[++i];
+
+            switch (option) {
+                case "--host":
+                    this._host = value;
+                    break;
+                case "--port":
+                    this._port = Integer.parseInt(value);
+                    break;
+                case "--connections":
+                    this._connections = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--rate":
+                    this._rate = Math.max(0L, Long.parseLong(value));
+                    break;
+                case "--warmup":
+                    this._warmup = Math.max(0, Integer.parseInt(value));
+                    break;
+                case "--duration":
+                    this._duration = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "--reply":
+                    this._isReply = Boolean.parseBoolean(value);
+                    break;
+                case "--template":
+                    this._template = value;
+                    break;
+                case "--replay":
+                    this._replay = readReplay(value);
+                    break;
+                case "--terminator":
+                    this._terminator = value.replace("\\r", "\r")
+                            .replace("\\n", "\n");
+                    break;
+                case "--charset":
+                    this._charset = Charset.forName(value);
+                    break;
+                case "--datetimeFormat":
+                    this._datetimeFormat = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option, "
+                            + option);
+            }
+        }
+    }
+
+    /**
+     * readReplay(...) method reads the records of the replay file; empty
+     * lines are ignored.
+     *
+     * @param fileName
+     * @return <code>List</code> of records
+     * @throws IOException
+     */
+    private List<String> readReplay(String fileName) throws IOException {
+        List<String> result = new ArrayList<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(fileName), this._charset))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isEmpty()) {
+                    result.add(line);
+                }
+            }
+        }
+
+        if (result.isEmpty()) {
+            throw new IOException("replay file has no records, " + fileName);
+        }
+
+        return result;
+    }
+
+    /**
+     * run() method runs the warmup and the measurement phases and returns
+     * the report of the measurement phase.
+     *
+     * @return <code>String</code> report
+     * @throws Exception
+     */
+    public String run() throws Exception {
+        List<LoadConnection> connections = new ArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+
+        // the measurement starts after the warmup, the records sent during
+        // the warmup are not reported
+        long start = System.nanoTime();
+        this._measureStart = start + TimeUnit.SECONDS.toNanos(this._warmup);
+        this._measureEnd = this._measureStart
+                + TimeUnit.SECONDS.toNanos(this._duration);
+        this._isRunning = true;
+
+        for (int i = 0; i < this._connections; i++) {
+            LoadConnection connection = new LoadConnection(i, start);
+            connections.add(connection);
+
+            Thread thread = new Thread(connection, "LoadConnection:" + i);
+            thread.setDaemon(true);
+            threads.add(thread);
+            thread.start();
+        }
+
+        // wait for the end of the measurement, the connections stop on
+        // their own
+        long timeout = TimeUnit.NANOSECONDS.toMillis(
+                this._measureEnd - System.nanoTime()) + 10000L;
+        for (Thread thread : threads) {
+            thread.join(Math.max(1L, timeout));
+        }
+        this._isRunning = false;
+
+        // merge the results of the connections
+        LatencyHistogram histogram = new LatencyHistogram();
+        long sent = 0L;
+        long errors = 0L;
+        for (LoadConnection connection : connections) {
+            histogram.add(connection.getHistogram());
+            sent += connection.getSent();
+            errors += connection.getErrors();
+        }
+
+        return getReport(histogram, sent, errors);
+    }
+
+    /**
+     * getReport(...) method formats the results of the measurement phase,
+     * the latency is in microseconds.
+     *
+     * @param histogram
+     * @param sent
+     * @param errors
+     * @return <code>String</code>
+     */
+    private String getReport(LatencyHistogram histogram, long sent,
+            long errors) {
+        StringBuilder result = new StringBuilder();
+        String newLine = System.lineSeparator();
+
+        result.append("target      : ").append(getHost()).append(":")
+                .append(getPort()).append(newLine);
+        result.append("mode        : ").append((getRate() == 0L)
+                ? "closed loop" : getRate() + " records/s")
+                .append(", ").append(getConnections()).append(" connection(s)")
+                .append(isReply() ? "" : ", no reply").append(newLine);
+        result.append("measurement : ").append(this._duration).append(" s after ")
+                .append(this._warmup).append(" s warmup").append(newLine);
+        result.append("records     : ").append(sent).append(" sent, ")
+                .append(histogram.getTotalCount()).append(" completed, ")
+                .append(errors).append(" error(s)").append(newLine);
+        result.append("throughput  : ").append(String.format("%.1f",
+                (double) histogram.getTotalCount() / this._duration))
+                .append(" records/s").append(newLine);
+        result.append("latency (us): min ").append(toMicros(histogram.getMinValue()))
+                .append(", mean ").append(String.format("%.1f", histogram.getMean() / 1000.0))
+                .append(", p50 ").append(toMicros(histogram.getValueAtPercentile(50.0)))
+                .append(", p99 ").append(toMicros(histogram.getValueAtPercentile(99.0)))
+                .append(", p99.9 ").append(toMicros(histogram.getValueAtPercentile(99.9)))
+                .append(", max ").append(toMicros(histogram.getMaxValue()))
+                .append(newLine);
+
+        return result.toString();
+    }
+
+    private static long toMicros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+    // </editor-fold>
+
+    // <editor-fold desc="class main">
+    /**
+     * main(...) method runs the generator with the command line options and
+     * displays the report.
+     *
+     * @param args
+     */
+    public static void main(String[] args) {
+        try {
+            LoadGenerator generator = new LoadGenerator();
+            generator.parse(args);
+
+            System.out.print(generator.run());
+        } catch (Exception ex) {
+            // Display a message if anything goes wrong
+            System.err.println("LoadGenerator, main, " + ex.getMessage());
+            System.err.println(
+                    "Usage: java -cp ElsuNetworkServicesUnitTest.jar "
+                    + "elsunetworkservicesunittest.LoadGenerator "
+                    + "[--host localhost] [--port 5005] [--connections 1] "
+                    + "[--rate 0] [--warmup 5] [--duration 30] [--reply true] "
+                    + "[--template text | --replay file] [--terminator \\n] "
+                    + "[--charset UTF-8] [--datetimeFormat yyyyMMddHHmmssS]");
+            System.exit(1);
+        }
+    }
+    // </editor-fold>
+
+    /**
+     * LoadConnection class sends the records of one connection and records
+     * the latency of the records sent during the measurement phase. The
+     * connection is opened again after an error.
+     */
+    private class LoadConnection implements Runnable {
+
+        // # of the connection
+        private final int _id;
+
+        // time (ns) the generator started, base of the schedule
+        private final long _start;
+
+        // time (ns) between two records, 0 for closed loop
+        private final long _interval;
+
+        // latency (ns) of the records completed in the measurement phase
+        private final LatencyHistogram _histogram = new LatencyHistogram();
+
+        // # of records sent and errors in the measurement phase
+        private volatile long _sent = 0L;
+        private volatile long _errors = 0L;
+
+        // formatter of the {date} placeholder
+        private final SimpleDateFormat _dateFormat
+                = new SimpleDateFormat(_datetimeFormat);
+
+        LoadConnection(int id, long start) {
+            this._id = id;
+            this._start = start;
+            this._interval = (_rate == 0L) ? 0L
+                    : Math.max(1L, (TimeUnit.SECONDS.toNanos(1) * _connections) / _rate);
+        }
+
+        /**
+         * getHistogram() method returns the latency histogram; it is only
+         * read once the connection thread has stopped.
+         *
+         * @return <code>LatencyHistogram</code>
+         */
+        LatencyHistogram getHistogram() {
+            return this._histogram;
+        }
+
+        long getSent() {
+            return this._sent;
+        }
+
+        long getErrors() {
+            return this._errors;
+        }
+
+        @Override
+        public void run() {
+            // the connections are spread over the first interval
+            long scheduled = this._start
+                    + ((this._interval * this._id) / _connections);
+            long count = 0L;
+
+            while (_isRunning) {
+                try (Socket socket = new Socket()) {
+                    socket.setTcpNoDelay(true);
+                    socket.connect(new InetSocketAddress(_host, _port), 10000);
+
+                    OutputStream out = new BufferedOutputStream(
+                            socket.getOutputStream());
+                    BufferedReader in = null;
+                    if (_isReply) {
+                        in = new BufferedReader(new InputStreamReader(
+                                socket.getInputStream(), _charset));
+                    } else {
+                        startDrain(socket);
+                    }
+
+                    for (;;) {
+                        // wait for the scheduled time of the record, a late
+                        // record is sent at once
+                        long now = System.nanoTime();
+                        if (this._interval > 0L) {
+                            while (now < scheduled) {
+                                LockSupport.parkNanos(scheduled - now);
+                                now = System.nanoTime();
+                            }
+                        } else {
+                            scheduled = now;
+                        }
+
+                        if (scheduled >= _measureEnd) {
+                            return;
+                        }
+                        boolean isMeasured = scheduled >= _measureStart;
+
+                        // send the record and wait for the reply
+                        out.write(getRecord(count++).getBytes(_charset));
+                        out.flush();
+                        if (isMeasured) {
+                            this._sent++;
+                        }
+
+                        if (_isReply && (in.readLine() == null)) {
+                            throw new EOFException("connection closed by the service");
+                        }
+
+                        if (isMeasured) {
+                            this._histogram.recordValue(
+                                    System.nanoTime() - scheduled);
+                        }
+
+                        scheduled += this._interval;
+                    }
+                } catch (Exception ex) {
+                    if (System.nanoTime() >= _measureStart) {
+                        this._errors++;
+                    }
+                    System.err.println("LoadConnection:" + this._id + ", "
+                            + ex.getMessage());
+
+                    // wait before opening the connection again
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(100));
+                    if (System.nanoTime() >= _measureEnd) {
+                        return;
+                    }
+                }
+            }
+        }
+
+        /**
+         * startDrain(...) method starts the thread which reads and discards
+         * the replies when the records are sent without waiting for them;
+         * the thread stops when the socket is closed.
+         *
+         * @param socket
+         * @throws IOException
+         */
+        private void startDrain(Socket socket) throws IOException {
+            final InputStream input = socket.getInputStream();
+
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    byte[] buffer = new byte[8192];
+
+                    try {
+                        while (input.read(buffer) >= 0) {
+                        }
+                    } catch (IOException ex) {
+                        // the socket was closed by the connection
+                    }
+                }
+            }, "LoadDrain:" + this._id);
+            thread.setDaemon(true);
+            thread.start();
+        }
+
+        /**
+         * getRecord(...) method returns the record to send, with the record
+         * terminator.
+         *
+         * @param count # of records sent by the connection
+         * @return <code>String</code>
+         */
+        private String getRecord(long count) {
+            String result;
+
+            if (_replay != null) {
+                result = _replay.get((int) ((count + this._id) % _replay.size()));
+            } else {
+                result = _template;
+
+                if (result.indexOf('{') >= 0) {
+                    result = result
+                            .replace("{seq}", String.valueOf(_sequence.incrementAndGet()))
+                            .replace("{connection}", String.valueOf(this._id))
+                            .replace("{time}", String.valueOf(System.currentTimeMillis()))
+                            .replace("{date}", this._dateFormat.format(new Date()));
+                }
+            }
+
+            return result + _terminator;
+        }
+    }
+}
@@ -58,9 +58,9 @@ public class SiteMessagePublisherService extends AbstractService implements
     // service specific data, stores the idle timeout used when connection to
     // a host is not available
     private volatile int _idleTimeout = 5000;
-    // service specific data, status to track if te connection maintained by the
-    // publisher service is still running
-    private volatile boolean _isConnectionsCreatorActive = false;
+    // service specific data, connector maintaining the connection to the
+    // storage servers
+    private volatile OutboundConnector _connector = null;
     // service specific data, stores the type of processing the publisher 
     // connection will perform (LIVE or RECOVERY)
     private volatile PublisherProcessingType _publisherProcessingType
@@ -176,34 +176,6 @@ public class SiteMessagePublisherService extends AbstractService implements
     // </editor-fold>
 
     // <editor-fold desc="class getter/setters">
-    /**
-     * isConnectionsCreatorActive() method is used to track if the
-     * checkConnections method is being processed. checkConnections method uses
-     * a thread to create the connection to the equipment - if the thread is
-     * running trying to connect to the equipment, then all other requests are
-     * ignored.
-     *
-     * @return <code>boolean</code> value of the status of connections
-     */
-    private synchronized boolean isConnectionsCreatorActive() {
-        return this._isConnectionsCreatorActive;
-    }
-
-    /**
-     * isConnectionsCreatorActive(...) method is used to track if the
-     * checkConnections method is being processed. checkConnections method uses
-     * a thread to create the connection to the equipment - if the thread is
-     * running trying to connect to the equipment, then all other requests are
-     * ignored.
-     *
-     * @param value
-     * @return <code>boolean</code> value of the status of connections
-     */
-    private synchronized boolean isConnectionsCreatorActive(boolean active) {
-        this._isConnectionsCreatorActive = active;
-        return isConnectionsCreatorActive();
-    }
-
     /**
      * getConnectedHostUri() method returns the uri which the last connection
      * was successfully able to connect. This is used when new connection is
@@ -394,101 +366,57 @@ public class SiteMessagePublisherService extends AbstractService implements
     /**
      * checkConnections() method tries to open a connection to the storage
      * server which will be receiving data. To make sure the method does not
-     * block execution, the connection is created using a thread. As long as the
-     * thread is trying to create a connection the method will try to reconnect
-     * and new thread will not be started.
+     * block execution, the connection is created by the service outbound
+     * connector. As long as the connector is trying to create a connection new
+     * attempts will not be started.
      * <p>
-     * There can be multiple servers which can receive the data. Loop through
-     * and find the first server which can receive data and deliver it. If no
-     * servers are available, then we continue to wait for one to be available.
+     * There can be multiple servers which can receive the data. The servers
+     * are tried in parallel and the first server which connects receives the
+     * data. If no servers are available, then we continue to wait for one to
+     * be available.
      */
     @Override
     public synchronized void checkConnections() {
-        // check if the thread is active trying to connect?, if not then 
-        // continue, else exit
-        if (!isConnectionsCreatorActive()) {
-            // update thread indicator to ensure multiple threads are not 
-            // spawned
-            isConnectionsCreatorActive(true);
-
-            // temp location of parameter to pass to the thread
+        // create the connector to the storage servers on first use; the
+        // servers are tried in parallel and the first server which accepts
+        // the connection receives the data. the connector retries with
+        // backoff until the publisher is connected
+        if (this._connector == null) {
+            // temp location of parameter to pass to the handler
             final IService publisher = this;
 
-            // thread to create connection to the equipment
-            Thread tConnections = new Thread(new Runnable() {
-                // thread run method which is executed when thread is started
+            this._connector = createOutboundConnector(
+                    getChildConfig().getServiceName(), getHostUriList(),
+                    getChildConfig().getConnectionPort(),
+                    new IOutboundHandler() {
+                // if the publisher is running, the connection is not required
                 @Override
-                public void run() {
-                    // capture all exceptions to ensure proper handling of memory and
-                    // notification to client
-                    try {
-                        // if the service is running and publisher is not 
-                        // running then try to create the connection
-                        while (isRunning() && !isPublisherRunning()) {
-                            // loop through the list of available hosts which
-                            // are configured to receive data
-                            for (String hostUri : getHostUriList()) {
-                                // check if the service is still running and 
-                                // the publisher is not running
-                                if (isRunning() && !isPublisherRunning()) {
-                                    // capture all exceptions to ensure proper handling of memory and
-                                    // notification to client
-                                    try {
-                                        // create socket to the equipment
-                                        Socket client = new Socket(hostUri,
-                                                getChildConfig().getConnectionPort());
-
-                                        // create connection for the socket
-                                        Connection dsConn
-                                                = new Connection(client,
-                                                        publisher);
+                public boolean isConnectRequired() {
+                    return !isPublisherRunning();
+                }
 
-                                        // add the connection to the service list
-                                        addConnection(client, dsConn);
+                @Override
+                public void connected(OutboundConnector connector,
+                        String host, Socket client) throws Exception {
+                    // create connection for the socket
+                    Connection dsConn
+                            = new Connection(client,
+                                    publisher);
 
-                                        // set the host which connected
-                                        setConnectedHostUri(hostUri);
+                    // add the connection to the service list
+                    addConnection(client, dsConn);
 
-                                        // indicate that the publisher is running
-                                        isPublisherRunning(true);
-                                        break;
-                                    } catch (Exception ex) {
-                                        // indicate that the publisher is not runing
-                                        isPublisherRunning(false);
+                    // set the host which connected
+                    setConnectedHostUri(host);
 
-                                        // log error for tracking
-                                        logError(getClass().toString()
-                                                + ", checkConnections(), "
-                                                + getServiceConfig().getServiceName()
-                                                + ", error starting listener "
-                                                + " on port "
-                                                + getChildConfig().getConnectionPort()
-                                                + ", " + ex.getMessage());
-                                    }
-                                }
-
-                                // yield processing to other threads
-                                Thread.yield();
-                            }
-
-                            // yield processing to other threads for specified 
-                            // time, any exceptions are ignored
-                            try {
-                                Thread.sleep(getIdleTimeout());
-                            } catch (Exception exi) {
-                            }
-                        }
-                    } catch (Exception exi) {
-                    } finally {
-                        // connection was created, reset the indicator
-                        isConnectionsCreatorActive(false);
-                    }
+                    // indicate that the publisher is running
+                    isPublisherRunning(true);
                 }
             });
-
-            // start the thread to create connection for the service.
-            tConnections.start();
         }
+
+        // start the connect attempts if they are not already running
+        this._connector.start();
     }
 
     /**
@@ -531,13 +459,12 @@ public class SiteMessagePublisherService extends AbstractService implements
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
-        // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        // stream; the reader is consumed on a helper thread, so it is not
+        // passed to the writer
+        final RecordWriter out = createRecordWriter(cConn, null);
 
         // local parameter for reader used by writer to store the record sent
         // and if there is error from server, the record is saved to the log
@@ -545,7 +472,7 @@ public class SiteMessagePublisherService extends AbstractService implements
 
         // create thread which reads from the socket in stream and logs the 
         // data; this is just to track acknowledgements from storage server
-        Thread tReader = new Thread(new Runnable() {
+        Runnable tReader = new Runnable() {
             // thread run method which is executed when thread is started
             @Override
             public void run() {
@@ -567,47 +494,53 @@ public class SiteMessagePublisherService extends AbstractService implements
                             // increase total messages received
                             increaseTotalMessagesReceived();
 
-                            // log info for tracking
-                            logDebug("CS -> PUB, "
-                                    + getChildConfig().getConnectionPort()
-                                    + ", MESSAGE, "
-                                    + line);
-
-                            // check for return error
-                            String[] result = line.split(",");
-                            if (result.length > 0) {
-                                if (!result[result.length - 1].equals(
-                                        getStatusOk())) {
-                                    // get record for logging
-                                    String record = recordQueue.poll();
-
-                                    // log error for tracking
-                                    logError("CS -> PUB, "
-                                            + getChildConfig().getConnectionPort()
-                                            + ", MESSAGE, " + line + ", <error/" + record + ">");
-
-                                    // store the record in recovery file for
-                                    // retry (get file of reader and update _CS
-                                    // to R_CS and append the record to the file)
+                            // trace the processing of the record
+                            ITraceSpan recordSpan = ServiceTrace.beginRecord(
+                                    SiteMessagePublisherService.this, cConn);
+
+                            try {
+                                // log info for tracking
+                                logDebug("CS -> PUB, {}, MESSAGE, {}",
+                                        getChildConfig().getConnectionPort(), line);
+
+                                // check for return error
+                                String[] result = line.split(",");
+                                if (result.length > 0) {
+                                    if (!result[result.length - 1].equals(
+                                            getStatusOk())) {
+                                        // get record for logging
+                                        String record = recordQueue.poll();
+
+                                        // log error for tracking
+                                        logError("CS -> PUB, "
+                                                + getChildConfig().getConnectionPort()
+                                                + ", MESSAGE, " + line + ", <error/" + record + ">");
+
+                                        // store the record in recovery file for
+                                        // retry (get file of reader and update _CS
+                                        // to R_CS and append the record to the file)
+                                        try {
+                                            String recoveryFile = getMessageReader().getReaderFilename()
+                                                    .replace("RCV_MSG", "_MSG")
+                                                    .replace("_MSG", "RCV_MSG").replace("_ALM", "RCV_MSG");
+
+                                            FileUtils.writeFile(recoveryFile, line, false);
+                                        } catch (Exception ex) {
+                                            logError(getClass().toString() + ", serve(), "
+                                                    + getServiceConfig().getServiceName() + " on port "
+                                                    + getChildConfig().getConnectionPort() + ", server recovery, "
+                                                    + ex.getMessage());
+                                        }
+                                    }
+                                } else {
+                                    // remove first record from arraylist
                                     try {
-                                        String recoveryFile = getMessageReader().getReaderFilename()
-                                                .replace("RCV_MSG", "_MSG")
-                                                .replace("_MSG", "RCV_MSG").replace("_ALM", "RCV_MSG");
-
-                                        FileUtils.writeFile(recoveryFile, line, false);
-                                    } catch (Exception ex) {
-                                        logError(getClass().toString() + ", serve(), "
-                                                + getServiceConfig().getServiceName() + " on port "
-                                                + getChildConfig().getConnectionPort() + ", server recovery, "
-                                                + ex.getMessage());
+                                        recordQueue.poll();
+                                    } catch (Exception exi) {
                                     }
                                 }
-                            } else {
-                                // remove first record from arraylist
-                                try {
-                                    recordQueue.poll();
-                                } catch (Exception exi) {
-                                }
+                            } finally {
+                                recordSpan.end(line.length(), 0L);
                             }
                         }
 
@@ -646,18 +579,19 @@ public class SiteMessagePublisherService extends AbstractService implements
                             + ", connection closed by server");
                 }
             }
-        });
+        };
 
         // set unique name for the thread for debugging
         // 20141128 SSD added UID vice totalConnections for unique name
-        tReader.setName(getServiceConfig().getServiceName() + "_"
+        String tReaderName = getServiceConfig().getServiceName() + "_"
                 + getChildConfig().getServiceName()
                 + "_" + getServiceConfig().getConnectionPort() + "_"
                 + getChildConfig().getConnectionPort()
-                + "_MESSAGE_" + UUID.randomUUID().toString());
+                + "_MESSAGE_" + UUID.randomUUID().toString();
 
-        // start the thread to create connection for the service.
-        tReader.start();
+        // start the reader as a helper of the connection, it is not
+        // queued behind the connections waiting for it
+        getConnectionExecutor().executeHelper(tReader, tReaderName);
 
         // loop and check if there are any pending files from the subscriber
         // service which need to be delivered to the storage.  If file is
@@ -685,9 +619,8 @@ public class SiteMessagePublisherService extends AbstractService implements
                     }
 
                     // log info for tracking
-                    logDebug("PUB -> CS, "
-                            + getChildConfig().getConnectionPort() + ", MESSAGE, "
-                            + line);
+                    logDebug("PUB -> CS, {}, MESSAGE, {}",
+                            getChildConfig().getConnectionPort(), line);
 
                     // write the data read to out stream
                     recordQueue.add(line);
@@ -7,6 +7,8 @@ import elsu.common.*;
 import elsu.network.application.*;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import java.util.regex.*;
 
 /**
@@ -44,15 +46,13 @@ import java.util.regex.*;
  * @see SiteMessageSubscriberService
  * @see SiteMessagePublisherService
  */
-public class SiteMessageService extends AbstractService implements IService {
+public class SiteMessageService extends AbstractPipelineService<String, String>
+		implements IMessageHandler<String, String> {
 
 	// <editor-fold desc="class private storage">
 	// stores the shutdown string for connection, when received, the service
 	// is shutdown and will not restart
 	private volatile String _serviceShutdown = "#$#";
-	// stores the connection terminator; when received, the connection is closed
-	// if the service is not shutdown, the connection may be restarted
-	private volatile String _connectionTerminator = ".";
 	// stores the local storage directory for all data used by the service
 	private volatile String _localStoreDirectory = null;
 	// stores the file mask - allows the files to include date or other
@@ -62,6 +62,11 @@ public class SiteMessageService extends AbstractService implements IService {
 	private volatile String _siteName = null;
 	// service specific data, site id of the site name
 	private volatile int _siteId = 0;
+	// messages received on the reactor io threads waiting to be stored (file
+	// name, message); the file writes block and are made in order by one
+	// helper task at a time
+	private final Queue<String[]> _pendingStores = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean _isStoring = new AtomicBoolean(false);
 	// </editor-fold>
 
 	// <editor-fold desc="class constructor destructor">
@@ -79,6 +84,10 @@ public class SiteMessageService extends AbstractService implements IService {
 		// call the super class constructor
 		super(threadGroup, serviceManager, serviceConfig);
 
+		// the messages are decoded to strings and the replies are status codes
+		StringCodec codec = new StringCodec();
+		setPipeline(codec, this, codec);
+
 		// local config properties for local reference by class method
 		initializeLocalProperties();
 	}
@@ -92,7 +101,6 @@ public class SiteMessageService extends AbstractService implements IService {
 	@Override
 	protected void initializeLocalProperties() {
 		this._serviceShutdown = getProperty("application.framework.attributes.key.service.shutdown").toString();
-		this._connectionTerminator = getProperty("application.framework.attributes.key.connection.terminator").toString();
 		this._localStoreDirectory = getServiceConfig().getAttribute("key.service.localStore.directory").toString();
 		this._localStoreMask = getServiceConfig().getAttribute("key.service.localStore.mask").toString();
 
@@ -119,16 +127,6 @@ public class SiteMessageService extends AbstractService implements IService {
 	// </editor-fold>
 
 	// <editor-fold desc="class getter/setters">
-	/**
-	 * getConnectionTerminator() method returns the connection terminator used
-	 * to signal the connection to terminate gracefully.
-	 *
-	 * @return <code>String</code> returns the connection terminator value.
-	 */
-	public synchronized String getConnectionTerminator() {
-		return this._connectionTerminator;
-	}
-
 	/**
 	 * getLocalStoreDirectory() method returns the local storage directory used
 	 * by the service and its child services. For security purposes all input
@@ -190,135 +188,136 @@ public class SiteMessageService extends AbstractService implements IService {
 
 	// <editor-fold desc="class methods">
 	/**
-	 * serve(...) method is the main method of the service which processes the
-	 * client socket using the streams (in/out). The method is shared by all
-	 * client sockets.
+	 * handle(...) method is the pipeline handler of the service which
+	 * processes the messages received from the client.
 	 * <p>
 	 * This method is used by the CommandForwarderServiceAbstract to send
 	 * messages from the control station to the broadcast service. All messages
 	 * are stored to a text file and read by the respective subscriber and sent
 	 * to the equipment
+	 * <p>
+	 * On the reactor io thread (NIO) the file write is handed to a helper
+	 * thread of the service executor, the io thread must not block.
 	 *
-	 * @param conn
+	 * @param context
+	 * @param line
 	 * @throws Exception
 	 */
 	@Override
-	public void serve(AbstractConnection conn) throws Exception {
-		// local parameter for reader thread access, passes the connection
-		// object
-		final Connection cConn = (Connection) conn;
-
-		// local parameter for reader thread access, passes the socket in stream
-		final BufferedReader in = new BufferedReader(new InputStreamReader(cConn.getClient().getInputStream()));
+	public void handle(IPipelineContext<String> context, String line) throws Exception {
+		// log info for debugging
+		logDebug("CS -> BCS, {}, {}", getServiceConfig().getConnectionPort(), line);
+
+		// create file name based on the site id,
+		// and equipment id provided in the message.
+		// all messages are stored in the local storage
+		// directory as identified in the services
+		// configuration
+		String filename = getLocalStoreDirectory() + "incomming\\"
+				+ String.format(getLocalStoreMask(), this.getSiteId(), DateUtils
+						.convertDate2String(CoarseClock.currentDate(), getDatetimeFormat()),
+						this.getSiteName() + "_CS");
+
+		// the connection thread stores the message, the reactor io thread
+		// queues it for the helper task
+		if (context.getConnection().isThreaded()) {
+			storeMessage(filename, line);
+		} else {
+			this._pendingStores.add(new String[] { filename, line });
+			scheduleStore();
+		}
 
-		// local parameter for reader thread access, passes the socket out
-		// stream
-		final PrintWriter out = new PrintWriter(
-				new BufferedWriter(new OutputStreamWriter(cConn.getClient().getOutputStream())));
+		// send response with message ok_code
+		context.write(getStatusOk());
+	}
 
-		// this is to prevent socket to stay open after error
+	/**
+	 * storeMessage(...) method appends the message to the file for delivery;
+	 * errors are counted and logged.
+	 *
+	 * @param filename
+	 * @param line
+	 */
+	private void storeMessage(String filename, String line) {
+		// if there is an exception in saving we need
+		// to notify the client and exit.
 		try {
-			// store the incomming message to text file and send completion
-			// code back to the sending service. the method continues to
-			// loop until either the service is terminated or the connection
-			// is closed or there is an exception in processing
-			for (;;) {
-				// read line from the socket stream
-				String line = in.readLine();
-
-				// if the input is null or the value matches connection
-				// terminator then disconnect the client
-				if ((line == null) || (line.equals(getConnectionTerminator()))) {
-					break;
-				} else {
-					// increase the total # of incomming messages
-					increaseTotalMessagesReceived();
-
-					// read the incomming message, parse it, validate it, and
-					// then store it for subscriber to pickup and deliver to
-					// the equipment it is connected to.
-					try {
-						// log info for debugging
-						logDebug("CS -> BCS, " + getServiceConfig().getConnectionPort() + ", " + line);
-
-						// parse the data based on the field delimiter
-						// String[] parseData = line.split(Pattern.quote(
-						// getFieldDelimiter()));
-
-						// create file name based on the site id,
-						// and equipment id provided in the message.
-						// all messages are stored in the local storage
-						// directory as identified in the services
-						// configuration
-						String filename = getLocalStoreDirectory() + "incomming\\"
-								+ String.format(getLocalStoreMask(), this.getSiteId(), DateUtils
-										.convertDate2String(Calendar.getInstance().getTime(), getDatetimeFormat()),
-										this.getSiteName() + "_CS");
-
-						// if there is an exception in saving we need
-						// to notify the client and exit.
-						try {
-							// write the message to file for delivery
-							FileUtils.writeFile(filename, line + GlobalStack.LINESEPARATOR, true);
-						} catch (Exception ex) {
-							// increase the message error queue
-							increaseTotalMessagesErrored();
-
-							// log error for tracking
-							logError(getClass().toString() + ", serve(), " + getServiceConfig().getServiceName() + ", "
-									+ getStatusInvalidContent() + ", writing to output stream, " + ex.getMessage());
+			// write the message to file for delivery
+			FileUtils.writeFile(filename, line + GlobalStack.LINESEPARATOR, true);
+		} catch (Exception ex) {
+			// increase the message error queue
+			increaseTotalMessagesErrored();
 
-						}
+			// log error for tracking
+			logError(getClass().toString() + ", storeMessage(), " + getServiceConfig().getServiceName() + ", "
+					+ getStatusInvalidContent() + ", writing to output stream, " + ex.getMessage());
 
-						// send response with message ok_code
-						out.print(getStatusOk() + getRecordTerminator());
-						out.flush();
-
-						// increase the message sent count
-						increaseTotalMessagesSent();
-					} catch (Exception ex) {
-						// increase the message error queue
-						increaseTotalMessagesErrored();
-
-						// log error for tracking
-						logError(getClass().toString() + ", serve(), " + getServiceConfig().getServiceName() + ", "
-								+ getStatusInvalidContent() + ", error parsing fields, " + ex.getMessage());
-
-						// there was an exception in parsing the
-						// message, but ensure the client
-						// did not disconnect - if client is not
-						// connected ignore the exception.
-						try {
-							// send response with message invalid content
-							out.print(getClass().toString() + ", serve(), " + getServiceConfig().getServiceName() + ", "
-									+ getStatusInvalidContent() + ", " + ex.getMessage() + getRecordTerminator());
-							out.flush();
-						} catch (Exception exi) {
+		}
+	}
+
+	/**
+	 * scheduleStore() method starts the helper task which stores the queued
+	 * messages in order, unless it is already running. If the executor
+	 * rejects the task (service stopping) the messages are stored by the
+	 * caller so they are not lost.
+	 */
+	private void scheduleStore() {
+		if (!this._isStoring.compareAndSet(false, true)) {
+			return;
+		}
+
+		try {
+			getConnectionExecutor().executeHelper(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						String[] pending;
+						while ((pending = _pendingStores.poll()) != null) {
+							storeMessage(pending[0], pending[1]);
 						}
+					} finally {
+						_isStoring.set(false);
 					}
-				}
 
-				// yield processing to other threads
-				Thread.yield();
-			}
-		} catch (Exception ex) {
-			// log error for tracking
-			logError(getClass().toString() + ", serve(), " + getServiceConfig().getServiceName() + ", "
-					+ ex.getMessage());
-		} finally {
-			// close out all open in/out streams.
-			try {
-				try {
-					out.flush();
-				} catch (Exception exi) {
+					// a message queued after the last poll is stored by a new
+					// task
+					if (!_pendingStores.isEmpty()) {
+						scheduleStore();
+					}
 				}
-				out.close();
-			} catch (Exception exi) {
-			}
-			try {
-				in.close();
-			} catch (Exception exi) {
+			}, getServiceConfig().getServiceName() + "_Store");
+		} catch (RejectedExecutionException ex) {
+			String[] pending;
+			while ((pending = this._pendingStores.poll()) != null) {
+				storeMessage(pending[0], pending[1]);
 			}
+
+			this._isStoring.set(false);
+		}
+	}
+
+	/**
+	 * exceptionCaught(...) method is called when the message could not be
+	 * processed; the error is logged and returned to the client.
+	 *
+	 * @param context
+	 * @param ex
+	 */
+	@Override
+	protected void exceptionCaught(IPipelineContext<String> context, Exception ex) {
+		// log error for tracking
+		logError(getClass().toString() + ", exceptionCaught(), " + getServiceConfig().getServiceName() + ", "
+				+ getStatusInvalidContent() + ", error parsing fields, " + ex.getMessage());
+
+		// there was an exception in parsing the
+		// message, but ensure the client
+		// did not disconnect - if client is not
+		// connected ignore the exception.
+		try {
+			// send response with message invalid content
+			context.write(getClass().toString() + ", serve(), " + getServiceConfig().getServiceName() + ", "
+					+ getStatusInvalidContent() + ", " + ex.getMessage());
+		} catch (Exception exi) {
 		}
 	}
 
@@ -51,16 +51,14 @@ public class SiteMessageSubscriberService extends AbstractService implements
     // service specific data, stores the idle timeout used when connection to
     // a host is not available
     private volatile int _idleTimeout = 5000;
-    // service specific data, status to track if te connection maintained by the
-    // subscriber service is still running
-    private volatile boolean _isConnectionsCreatorActive = false;
+    // service specific data, connector maintaining the connection to the
+    // equipment
+    private volatile OutboundConnector _connector = null;
     // service specific data, stores the writer channel
     private volatile FileChannelTextWriter _messageWriter = null;
     // service specific data, stores the recovery period
     private volatile FileRolloverPeriodicityType _recoveryPeriodicity
             = FileRolloverPeriodicityType.DAY;
-    // output terminator for output
-    private volatile String _recordTerminatorOutbound = "\r\n";
     // </editor-fold>
 
     // <editor-fold desc="class constructor destructor">
@@ -135,48 +133,19 @@ public class SiteMessageSubscriberService extends AbstractService implements
         }
 
         try {
-            this._recordTerminatorOutbound
-                    = getChildConfig().getAttribute(
-                            "record.terminator.outbound").toString();
+            setRecordTerminatorOutbound(getChildConfig().getAttribute(
+                    "record.terminator.outbound").toString());
         } catch (Exception ex) {
             logError(getClass().toString() + ", initializeLocalProperties(), "
                     + getServiceConfig().getServiceName() + " on port "
                     + getServiceConfig().getConnectionPort()
                     + ", invalid record.terminator.outbound, " + ex.getMessage());
-            this._recordTerminatorOutbound = "\r\n";
+            setRecordTerminatorOutbound("\r\n");
         }
     }
     // </editor-fold>
 
     // <editor-fold desc="class getter/setters">
-    /**
-     * isConnectionsCreatorActive() method is used to track if the
-     * checkConnections method is being processed. checkConnections method uses
-     * a thread to create the connection to the equipment - if the thread is
-     * running trying to connect to the equipment, then all other requests are
-     * ignored.
-     *
-     * @return <code>boolean</code> value of the status of connections
-     */
-    private synchronized boolean isConnectionsCreatorActive() {
-        return this._isConnectionsCreatorActive;
-    }
-
-    /**
-     * isConnectionsCreatorActive(...) method is used to track if the
-     * checkConnections method is being processed. checkConnections method uses
-     * a thread to create the connection to the equipment - if the thread is
-     * running trying to connect to the equipment, then all other requests are
-     * ignored.
-     *
-     * @param value
-     * @return <code>boolean</code> value of the status of connections
-     */
-    private synchronized boolean isConnectionsCreatorActive(boolean active) {
-        this._isConnectionsCreatorActive = active;
-        return isConnectionsCreatorActive();
-    }
-
     /**
      * getConnectionTerminator() method returns the string value of the
      * connection terminator which when received closes the connection to the
@@ -251,18 +220,6 @@ public class SiteMessageSubscriberService extends AbstractService implements
         return this._messageWriter;
     }
 
-    /**
-     * getRecordTerminatorOutbound() method returns the record terminator which
-     * is sent with the outbound packets. The method/config allows custom
-     * terminator to be specified so both incoming and outbound can work
-     * independently.
-     *
-     * @return string
-     */
-    private synchronized String getRecordTerminatorOutbound() {
-        return this._recordTerminatorOutbound;
-    }
-
     /**
      * getPendingFileList() method scans the service storage directory and
      * returns any files matching the file mask. The file scan return list is
@@ -342,82 +299,47 @@ public class SiteMessageSubscriberService extends AbstractService implements
     /**
      * checkConnections() method tries to open a connection to the equipment
      * which will be providing data for collection by this subscriber. To make
-     * sure the method does not block execution, the connection is created using
-     * a thread. As long as the thread is trying to create a connection the
-     * method will try to reconnect and new thread will not be started.
+     * sure the method does not block execution, the connection is created by
+     * the service outbound connector. As long as the connector is trying to
+     * create a connection new attempts will not be started.
      */
     @Override
     public synchronized void checkConnections() {
-        // check if the thread is active trying to connect?, if not then 
-        // continue, else exit
-        if (!isConnectionsCreatorActive()) {
-            // update thread indicator to ensure multiple threads are not 
-            // spawned
-            isConnectionsCreatorActive(true);
-
-            // temp location of parameter to pass to the thread
+        // create the connector to the equipment on first use; the connector
+        // retries with backoff until the subscriber is connected
+        if (this._connector == null) {
+            // temp location of parameter to pass to the handler
             final IService collector = this;
 
-            // thread to create connection to the equipment
-            Thread tConnections = new Thread(new Runnable() {
-                // thread run method which is executed when thread is started
+            this._connector = createOutboundConnector(
+                    getChildConfig().getServiceName(),
+                    Arrays.asList(getHostUri()), getEquipmentId(),
+                    new IOutboundHandler() {
+                // if the subscriber is running, the connection is not required
                 @Override
-                public void run() {
-                    // capture all exceptions to ensure proper handling of memory and
-                    // notification to client
-                    try {
-                        // if the service is running and subscriber is not 
-                        // running then try to create the connection
-                        while (isRunning() && !isSubscriberRunning()) {
-                            // capture all exceptions to ensure proper handling of memory and
-                            // notification to client
-                            try {
-                                // create socket to the equipment
-                                Socket client = new Socket(getHostUri(),
-                                        getEquipmentId());
-
-                                // create connection for the socket
-                                Connection dsConn
-                                        = new Connection(client,
-                                                collector);
-
-                                // add the connection to the service list
-                                addConnection(client, dsConn);
-
-                                // indicate that the subscriber is running
-                                isSubscriberRunning(true);
-                            } catch (Exception ex) {
-                                // indicate that the subscriber is not runing
-                                isSubscriberRunning(false);
-
-                                // log error for tracking
-                                logError(getClass().toString()
-                                        + ", checkConnections(), "
-                                        + getServiceConfig().getServiceName()
-                                        + ", error creating connection "
-                                        + getChildConfig().getServiceName()
-                                        + " on port " + getEquipmentId()
-                                        + ", " + ex.getMessage());
-                            }
+                public boolean isConnectRequired() {
+                    return !isSubscriberRunning();
+                }
 
-                            // yield processing to other threads for specified 
-                            // time, any exceptions are ignored
-                            try {
-                                Thread.sleep(getIdleTimeout());
-                            } catch (Exception exi) {
-                            }
-                        }
-                    } catch (Exception exi) {
-                    } finally {
-                        // connection was created, reset the indicator
-                        isConnectionsCreatorActive(false);
-                    }
+                @Override
+                public void connected(OutboundConnector connector,
+                        String host, Socket client) throws Exception {
+                    // create connection for the socket
+                    Connection dsConn
+                            = new Connection(client,
+                                    collector);
+
+                    // add the connection to the service list
+                    addConnection(client, dsConn);
+
+                    // indicate that the subscriber is running
+                    isSubscriberRunning(true);
                 }
             });
-
-            // start the thread to create connection for the service.
-            tConnections.start();
         }
+
+        // start the connect attempts if they are not already running
+        this._connector.start();
     }
 
     /**
@@ -454,17 +376,16 @@ public class SiteMessageSubscriberService extends AbstractService implements
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
-        // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        // stream; the reader is consumed on a helper thread, so it is not
+        // passed to the writer
+        final RecordWriter out = createRecordWriter(cConn, null);
 
         // create thread which reads from the socket in stream and stores data
         // to the file for publisher to read and send
-        Thread tReader = new Thread(new Runnable() {
+        Runnable tReader = new Runnable() {
             // thread run method which is executed when thread is started
             @Override
             public void run() {
@@ -486,6 +407,10 @@ public class SiteMessageSubscriberService extends AbstractService implements
                             // increase total messages received
                             increaseTotalMessagesReceived();
 
+                            // trace the processing of the record
+                            ITraceSpan recordSpan = ServiceTrace.beginRecord(
+                                    SiteMessageSubscriberService.this, cConn);
+
                             // capture all exceptions to ensure proper handling 
                             // of memory and notification to client
                             try {
@@ -496,13 +421,21 @@ public class SiteMessageSubscriberService extends AbstractService implements
                                 //                 getParentService().getParserFieldDelimiter());
 
                                 // log info for tracking
-                                logDebug("SUB -> PUB, "
-                                        + getChildConfig().getConnectionPort()
-                                        + ", " + getEquipmentId() + ", " + line);
+                                logDebug("SUB -> PUB, {}, {}, {}",
+                                        getChildConfig().getConnectionPort(),
+                                        getEquipmentId(), line);
 
                                 // this is a message, store it through the
-                                // message writer
-                                getMessageWriter().write(line + getRecordTerminatorOutbound());
+                                // message writer; the write is traced
+                                String data = line + getRecordTerminatorOutbound();
+                                ITraceSpan span = ServiceTrace.beginFileWrite(
+                                        SiteMessageSubscriberService.this,
+                                        getFileMask());
+                                try {
+                                    getMessageWriter().write(data);
+                                } finally {
+                                    span.end(0L, data.length());
+                                }
                             } catch (Exception ex) {
                                 // increase total message error count
                                 increaseTotalMessagesErrored();
@@ -512,6 +445,8 @@ public class SiteMessageSubscriberService extends AbstractService implements
                                         + getServiceConfig().getServiceName()
                                         + ", " + getStatusInvalidContent()
                                         + " (" + line + "), " + ex.getMessage());
+                            } finally {
+                                recordSpan.end(line.length(), 0L);
                             }
                         }
 
@@ -550,18 +485,19 @@ public class SiteMessageSubscriberService extends AbstractService implements
                             + ", connection closed by server");
                 }
             }
-        });
+        };
 
         // set unique name for the thread for debugging
         // 20141128 SSD added UID vice totalConnections for unique name
-        tReader.setName(getServiceConfig().getServiceName() + "_"
+        String tReaderName = getServiceConfig().getServiceName() + "_"
                 + getChildConfig().getServiceName()
                 + "_" + getServiceConfig().getConnectionPort() + "_"
                 + getChildConfig().getConnectionPort()
-                + "_" + getEquipmentId() + "_" + UUID.randomUUID().toString());
+                + "_" + getEquipmentId() + "_" + UUID.randomUUID().toString();
 
-        // start the thread to create connection for the service.
-        tReader.start();
+        // start the reader as a helper of the connection, it is not
+        // queued behind the connections waiting for it
+        getConnectionExecutor().executeHelper(tReader, tReaderName);
 
         // loop and check if there are any pending files from the parent
         // service which need to be delivered to the equipment.  If file is
@@ -613,15 +549,16 @@ public class SiteMessageSubscriberService extends AbstractService implements
                                     // equipment
                                     if (record.length() > 0) {
                                         // log info for tracking
-                                        logDebug("SUB -> SIM, "
-                                                + getChildConfig().getConnectionPort()
-                                                + ", " + getEquipmentId() + ", "
-                                                + record);
+                                        logDebug("SUB -> SIM, {}, {}, {}",
+                                                getChildConfig().getConnectionPort(),
+                                                getEquipmentId(), record);
 
-                                        // write the data to the out stream and flush
+                                        // write the data to the out stream and flush,
+                                        // records remaining in the file may be
+                                        // batched by the flush policy
                                         out.write(record
                                                 + getRecordTerminatorOutbound());
-                                        out.flush();
+                                        out.flush(fStream.ready());
 
                                         // increase total messages sent
                                         increaseTotalMessagesSent();
@@ -256,13 +256,12 @@ public class SiteSimulatorService extends AbstractService implements IService {
         final Connection cConn = (Connection) conn;
 
         // local parameter for reader thread access, passes the socket in stream
-        final BufferedReader in = new BufferedReader(new InputStreamReader(
-                cConn.getClient().getInputStream()));
+        final RecordReader in = createRecordReader(cConn);
 
         // local parameter for reader thread access, passes the socket out 
-        // stream
-        final PrintWriter out = new PrintWriter(new BufferedWriter(
-                new OutputStreamWriter(cConn.getClient().getOutputStream())));
+        // stream; the reader is consumed on a helper thread, so it is not
+        // passed to the writer
+        final RecordWriter out = createRecordWriter(cConn, null);
 
         // store total records in the simulator file (from ArrayList)
         int rCount = getSimData().size();
@@ -296,7 +295,7 @@ public class SiteSimulatorService extends AbstractService implements IService {
 
             // create the reader thread which received incomming messages from
             // client asynchronously
-            Thread tReader = new Thread(new Runnable() {
+            Runnable tReader = new Runnable() {
                 @Override
                 public void run() {
                     // this is to prevent socket to stay open after error
@@ -315,10 +314,18 @@ public class SiteSimulatorService extends AbstractService implements IService {
                                 // increase the total # of incomming messages
                                 increaseTotalMessagesReceived();
 
-                                // log info for tracking
-                                logDebug("SIM -> EQP,"
-                                        + getServiceConfig().getConnectionPort()
-                                        + "," + line);
+                                // trace the processing of the record
+                                ITraceSpan recordSpan = ServiceTrace.beginRecord(
+                                        SiteSimulatorService.this, cConn);
+
+                                try {
+                                    // log info for tracking
+                                    logDebug("SIM -> EQP,{},{}",
+                                            getServiceConfig().getConnectionPort(),
+                                            line);
+                                } finally {
+                                    recordSpan.end(line.length(), 0L);
+                                }
                             }
 
                             // yield processing to other threads
@@ -354,16 +361,17 @@ public class SiteSimulatorService extends AbstractService implements IService {
                                 + ", connection closed by server");
                     }
                 }
-            });
+            };
 
             // assign reader thread name for logging purposes
             // 20141128 SSD added UID vice totalConnections for unique name
-            tReader.setName(getServiceConfig().getServiceName()
+            String tReaderName = getServiceConfig().getServiceName()
                     + "_" + getServiceConfig().getConnectionPort()
-                    + "_" + UUID.randomUUID().toString());
+                    + "_" + UUID.randomUUID().toString();
 
-            // start the reader thread
-            tReader.start();
+            // start the reader as a helper of the connection, it is not
+            // queued behind the connections waiting for it
+            getConnectionExecutor().executeHelper(tReader, tReaderName);
 
             // loop counter to track how many messages have been sent
             int count = 1;
@@ -396,13 +404,13 @@ public class SiteSimulatorService extends AbstractService implements IService {
                     lCount++;
 
                     // log info for tracking
-                    logDebug("SIM -> SUB, "
-                            + getServiceConfig().getConnectionPort() + ", "
-                            + data);
+                    logDebug("SIM -> SUB, {}, {}",
+                            getServiceConfig().getConnectionPort(), data);
 
-                    // send the data to the client
+                    // send the data to the client, records remaining in
+                    // the current burst may be batched by the flush policy
                     out.print(data + getRecordTerminator());
-                    out.flush();
+                    out.flush(count < getSendCount());
 
                     // increase the total # of sent messages
                     increaseTotalMessagesSent();